@@ -0,0 +1,281 @@
+package com.music.trivia.server.demo.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.BufferingStompDecoder;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal in-JVM STOMP 1.2 broker, standing in for RabbitMQ or ActiveMQ when
+ * {@code trivia.broker.mode=embedded}: the node relays to it like to any external broker, and
+ * other nodes on the same host can point {@code trivia.broker.relay-port} at it to share topics.
+ * Tests can run it standalone.
+ * <p>
+ * It supports CONNECT, SUBSCRIBE, UNSUBSCRIBE, SEND, DISCONNECT and receipts, with exact-match
+ * destinations and no heartbeats, transactions, acks or authentication, and it only listens on
+ * the loopback interface. Each connection gets a reader thread and deliveries are written
+ * synchronously, so it is for development and tests, not for production fanout.
+ */
+@Component
+@ConditionalOnProperty(name = "trivia.broker.mode", havingValue = "embedded")
+public class EmbeddedStompBroker {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedStompBroker.class);
+
+    private static final int MAX_FRAME_BYTES = 1024 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int requestedPort;
+    private final StompEncoder encoder = new StompEncoder();
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicLong messageIds = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private volatile ServerSocket serverSocket;
+
+    @Autowired
+    public EmbeddedStompBroker(@Value("${trivia.broker.embedded-port:61613}") int port) {
+        this.requestedPort = port;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort));
+        serverSocket = socket;
+        Thread acceptor = new Thread(this::accept, "stomp-broker-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Embedded STOMP broker listening on port {}", socket.getLocalPort());
+    }
+
+    @PreDestroy
+    public void stop() {
+        ServerSocket socket = serverSocket;
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    /** The bound port, which differs from the configured one when that was 0. */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getConnections() {
+        return clients.size();
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Client client = new Client(socket);
+                clients.add(client);
+                Thread reader = new Thread(client, "stomp-broker-client");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Embedded broker accept failed: {}", e.toString());
+                }
+            }
+        }
+    }
+
+    private void publish(StompHeaderAccessor send, byte[] payload) {
+        published.incrementAndGet();
+        Set<Subscription> targets = subscriptions.get(send.getDestination());
+        if (targets == null) {
+            return;
+        }
+        for (Subscription subscription : targets) {
+            StompHeaderAccessor message = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            for (Map.Entry<String, List<String>> header : send.toNativeHeaderMap().entrySet()) {
+                String name = header.getKey();
+                if (!name.equals(StompHeaderAccessor.STOMP_RECEIPT_HEADER)
+                        && !name.equals(StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER)) {
+                    message.setNativeHeaderValues(name, header.getValue());
+                }
+            }
+            message.setSubscriptionId(subscription.id());
+            message.setMessageId(Long.toString(messageIds.incrementAndGet()));
+            if (subscription.client().send(MessageBuilder.createMessage(payload, message.getMessageHeaders()))) {
+                delivered.incrementAndGet();
+            }
+        }
+    }
+
+    private record Subscription(Client client, String id, String destination) {
+    }
+
+    private final class Client implements Runnable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final Map<String, Subscription> byId = new ConcurrentHashMap<>();
+
+        Client(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+        }
+
+        @Override
+        public void run() {
+            BufferingStompDecoder decoder = new BufferingStompDecoder(new StompDecoder(), MAX_FRAME_BYTES);
+            byte[] buffer = new byte[8192];
+            try (InputStream in = socket.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    for (Message<byte[]> frame : decoder.decode(ByteBuffer.wrap(buffer, 0, read))) {
+                        if (!handle(frame)) {
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!socket.isClosed()) {
+                    logger.debug("Embedded broker connection failed: {}", e.toString());
+                }
+            } finally {
+                close();
+            }
+        }
+
+        /** Handles one frame; false once the client has disconnected. */
+        private boolean handle(Message<byte[]> frame) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.wrap(frame);
+            if (accessor.isHeartbeat()) {
+                return true;
+            }
+            StompCommand command = accessor.getCommand();
+            if (command == null) {
+                return true;
+            }
+            switch (command) {
+                case CONNECT, STOMP -> {
+                    StompHeaderAccessor connected = StompHeaderAccessor.create(StompCommand.CONNECTED);
+                    connected.setVersion("1.2");
+                    connected.setHeartbeat(0, 0);
+                    send(MessageBuilder.createMessage(EMPTY, connected.getMessageHeaders()));
+                }
+                case SUBSCRIBE -> {
+                    Subscription subscription = new Subscription(this, accessor.getSubscriptionId(), accessor.getDestination());
+                    if (subscription.id() != null && subscription.destination() != null) {
+                        byId.put(subscription.id(), subscription);
+                        subscriptions.compute(subscription.destination(), (d, set) -> {
+                            Set<Subscription> updated = set == null ? ConcurrentHashMap.newKeySet() : set;
+                            updated.add(subscription);
+                            return updated;
+                        });
+                    }
+                }
+                case UNSUBSCRIBE -> {
+                    Subscription subscription = accessor.getSubscriptionId() == null ? null : byId.remove(accessor.getSubscriptionId());
+                    if (subscription != null) {
+                        unsubscribe(subscription);
+                    }
+                }
+                case SEND -> {
+                    if (accessor.getDestination() != null) {
+                        publish(accessor, frame.getPayload());
+                    }
+                }
+                case DISCONNECT -> {
+                    receipt(accessor);
+                    return false;
+                }
+                default -> {
+                    // ACK, NACK and transactions are not supported; ignore them
+                }
+            }
+            receipt(accessor);
+            return true;
+        }
+
+        private void receipt(StompHeaderAccessor accessor) {
+            if (accessor.getReceipt() != null) {
+                StompHeaderAccessor receipt = StompHeaderAccessor.create(StompCommand.RECEIPT);
+                receipt.setReceiptId(accessor.getReceipt());
+                send(MessageBuilder.createMessage(EMPTY, receipt.getMessageHeaders()));
+            }
+        }
+
+        boolean send(Message<byte[]> frame) {
+            byte[] bytes = encoder.encode(frame);
+            try {
+                synchronized (out) {
+                    out.write(bytes);
+                    out.flush();
+                }
+                return true;
+            } catch (IOException e) {
+                close();
+                return false;
+            }
+        }
+
+        private void unsubscribe(Subscription subscription) {
+            subscriptions.computeIfPresent(subscription.destination(), (d, set) -> {
+                set.remove(subscription);
+                return set.isEmpty() ? null : set;
+            });
+        }
+
+        void close() {
+            if (!clients.remove(this)) {
+                return;
+            }
+            for (Subscription subscription : byId.values()) {
+                unsubscribe(subscription);
+            }
+            byId.clear();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+    }
+}
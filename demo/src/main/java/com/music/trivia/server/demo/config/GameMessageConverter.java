@@ -0,0 +1,55 @@
+package com.music.trivia.server.demo.config;
+
+import com.music.trivia.server.demo.model.ClientRequest;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GameMessageCodec;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts {@link GameMessage} payloads with {@link GameMessageCodec}, ahead of the Jackson
+ * converter: typed {@code @Payload} parameters, messages or {@link ClientRequest}s, are decoded,
+ * and rejected if malformed, before the handler runs, and {@code convertAndSend} of a record
+ * skips reflective serialization.
+ */
+public class GameMessageConverter extends AbstractMessageConverter {
+
+    public GameMessageConverter() {
+        super(MimeTypeUtils.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return GameMessage.class.isAssignableFrom(clazz) || ClientRequest.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        Object payload = message.getPayload();
+        byte[] bytes = payload instanceof byte[] raw ? raw
+                : payload instanceof String text ? text.getBytes(StandardCharsets.UTF_8) : null;
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            if (ClientRequest.class.isAssignableFrom(targetClass)) {
+                return GameMessageCodec.decodeRequest(bytes, (Class<? extends ClientRequest>) targetClass);
+            }
+            return GameMessageCodec.decode(bytes, (Class<? extends GameMessage>) targetClass);
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException(message, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        // Requests only ever come in; anything else is left to the next converter
+        return payload instanceof GameMessage message ? GameMessageCodec.encode(message) : null;
+    }
+}
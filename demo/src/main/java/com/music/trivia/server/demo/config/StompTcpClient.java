@@ -0,0 +1,367 @@
+package com.music.trivia.server.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.BufferingStompDecoder;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.tcp.ReconnectStrategy;
+import org.springframework.messaging.tcp.TcpConnection;
+import org.springframework.messaging.tcp.TcpConnectionHandler;
+import org.springframework.messaging.tcp.TcpOperations;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * STOMP-over-TCP client for the broker relay, on NIO asynchronous channels. Spring's relay
+ * defaults to a Reactor Netty client, which this project does not ship; this one needs nothing
+ * beyond the JDK and spring-messaging's STOMP codec.
+ * <p>
+ * Reads and writes complete on a small shared channel group, so the relay can hold one broker
+ * connection per WebSocket session without a thread per connection. Writes are queued per
+ * connection and go out one at a time, in order. Heartbeat inactivity callbacks and reconnect
+ * attempts run on one timer thread.
+ */
+public class StompTcpClient implements TcpOperations<byte[]> {
+    private static final Logger logger = LoggerFactory.getLogger(StompTcpClient.class);
+
+    private static final int READ_BUFFER_BYTES = 8192;
+    private static final int MAX_FRAME_BYTES = 1024 * 1024;
+
+    private final InetSocketAddress address;
+    private final AsynchronousChannelGroup group;
+    private final ScheduledExecutorService timer;
+    private final StompEncoder encoder = new StompEncoder();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    public StompTcpClient(String host, int port, int ioThreads) {
+        this.address = new InetSocketAddress(host, port);
+        AtomicInteger threadNumber = new AtomicInteger();
+        try {
+            this.group = AsynchronousChannelGroup.withFixedThreadPool(ioThreads, r -> {
+                Thread thread = new Thread(r, "stomp-relay-io-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create relay channel group", e);
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stomp-relay-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> connectAsync(TcpConnectionHandler<byte[]> handler) {
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        open(handler, connected);
+        return connected;
+    }
+
+    /**
+     * Keeps a connection up: failed attempts and dropped connections are retried after the delay
+     * {@code strategy} gives, until the client shuts down. The future completes on the first
+     * successful connection.
+     */
+    @Override
+    public CompletableFuture<Void> connectAsync(TcpConnectionHandler<byte[]> handler, ReconnectStrategy strategy) {
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        new Reconnecting(handler, strategy, connected).attempt();
+        return connected;
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdownAsync() {
+        stopping = true;
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        timer.shutdownNow();
+        group.shutdown();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public int getOpenConnections() {
+        return connections.size();
+    }
+
+    private void open(TcpConnectionHandler<byte[]> handler, CompletableFuture<Void> connected) {
+        if (stopping) {
+            connected.completeExceptionally(new IllegalStateException("Client is shutting down"));
+            return;
+        }
+        AsynchronousSocketChannel channel;
+        try {
+            channel = AsynchronousSocketChannel.open(group);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            handler.afterConnectFailure(e);
+            connected.completeExceptionally(e);
+            return;
+        }
+        channel.connect(address, null, new CompletionHandler<Void, Void>() {
+            @Override
+            public void completed(Void result, Void attachment) {
+                Connection connection = new Connection(channel, handler);
+                connections.add(connection);
+                handler.afterConnected(connection);
+                connection.read();
+                connected.complete(null);
+            }
+
+            @Override
+            public void failed(Throwable ex, Void attachment) {
+                closeQuietly(channel);
+                handler.afterConnectFailure(ex);
+                connected.completeExceptionally(ex);
+            }
+        });
+    }
+
+    private static void closeQuietly(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    /** Wraps a handler so that a lost connection schedules the next attempt. */
+    private final class Reconnecting implements TcpConnectionHandler<byte[]> {
+        private final TcpConnectionHandler<byte[]> delegate;
+        private final ReconnectStrategy strategy;
+        private final CompletableFuture<Void> firstConnect;
+        private int attempts;
+
+        Reconnecting(TcpConnectionHandler<byte[]> delegate, ReconnectStrategy strategy, CompletableFuture<Void> firstConnect) {
+            this.delegate = delegate;
+            this.strategy = strategy;
+            this.firstConnect = firstConnect;
+        }
+
+        void attempt() {
+            CompletableFuture<Void> connected = new CompletableFuture<>();
+            connected.thenRun(() -> firstConnect.complete(null));
+            open(this, connected);
+        }
+
+        private void retry() {
+            Long delay = strategy.getTimeToNextAttempt(++attempts);
+            if (stopping || delay == null) {
+                return;
+            }
+            try {
+                timer.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                logger.debug("Not reconnecting to {}: {}", address, e.toString());
+            }
+        }
+
+        @Override
+        public void afterConnected(TcpConnection<byte[]> connection) {
+            attempts = 0;
+            delegate.afterConnected(connection);
+        }
+
+        @Override
+        public void afterConnectFailure(Throwable ex) {
+            delegate.afterConnectFailure(ex);
+            retry();
+        }
+
+        @Override
+        public void handleMessage(Message<byte[]> message) {
+            delegate.handleMessage(message);
+        }
+
+        @Override
+        public void handleFailure(Throwable ex) {
+            delegate.handleFailure(ex);
+        }
+
+        @Override
+        public void afterConnectionClosed() {
+            delegate.afterConnectionClosed();
+            retry();
+        }
+    }
+
+    private final class Connection implements TcpConnection<byte[]> {
+        private final AsynchronousSocketChannel channel;
+        private final TcpConnectionHandler<byte[]> handler;
+        private final BufferingStompDecoder decoder = new BufferingStompDecoder(new StompDecoder(), MAX_FRAME_BYTES);
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final Queue<PendingWrite> writes = new ArrayDeque<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean writing;
+        private volatile long lastReadMillis = System.currentTimeMillis();
+        private volatile long lastWriteMillis = System.currentTimeMillis();
+
+        Connection(AsynchronousSocketChannel channel, TcpConnectionHandler<byte[]> handler) {
+            this.channel = channel;
+            this.handler = handler;
+        }
+
+        void read() {
+            channel.read(readBuffer, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer bytes, Void attachment) {
+                    if (bytes < 0) {
+                        close();
+                        return;
+                    }
+                    lastReadMillis = System.currentTimeMillis();
+                    readBuffer.flip();
+                    List<Message<byte[]>> messages;
+                    try {
+                        messages = decoder.decode(readBuffer);
+                    } catch (RuntimeException e) {
+                        handler.handleFailure(e);
+                        close();
+                        return;
+                    } finally {
+                        readBuffer.clear();
+                    }
+                    for (Message<byte[]> message : messages) {
+                        handler.handleMessage(message);
+                    }
+                    if (!closed.get()) {
+                        read();
+                    }
+                }
+
+                @Override
+                public void failed(Throwable ex, Void attachment) {
+                    if (!closed.get()) {
+                        handler.handleFailure(ex);
+                    }
+                    close();
+                }
+            });
+        }
+
+        @Override
+        public CompletableFuture<Void> sendAsync(Message<byte[]> message) {
+            CompletableFuture<Void> sent = new CompletableFuture<>();
+            if (closed.get()) {
+                sent.completeExceptionally(new IOException("Connection closed"));
+                return sent;
+            }
+            PendingWrite write = new PendingWrite(ByteBuffer.wrap(encoder.encode(message)), sent);
+            synchronized (writes) {
+                if (writing) {
+                    writes.add(write);
+                    return sent;
+                }
+                writing = true;
+            }
+            write(write);
+            return sent;
+        }
+
+        private void write(PendingWrite write) {
+            channel.write(write.buffer, write, new CompletionHandler<Integer, PendingWrite>() {
+                @Override
+                public void completed(Integer bytes, PendingWrite current) {
+                    if (current.buffer.hasRemaining()) {
+                        channel.write(current.buffer, current, this);
+                        return;
+                    }
+                    lastWriteMillis = System.currentTimeMillis();
+                    current.sent.complete(null);
+                    PendingWrite next;
+                    synchronized (writes) {
+                        next = writes.poll();
+                        if (next == null) {
+                            writing = false;
+                            return;
+                        }
+                    }
+                    write(next);
+                }
+
+                @Override
+                public void failed(Throwable ex, PendingWrite current) {
+                    current.sent.completeExceptionally(ex);
+                    close();
+                }
+            });
+        }
+
+        @Override
+        public void onReadInactivity(Runnable runnable, long duration) {
+            watch(runnable, duration, () -> lastReadMillis);
+        }
+
+        @Override
+        public void onWriteInactivity(Runnable runnable, long duration) {
+            watch(runnable, duration, () -> lastWriteMillis);
+        }
+
+        /**
+         * Runs {@code runnable} whenever {@code duration} ms pass with no activity, rechecking
+         * exactly when the next one could be due. Stops once the connection closes.
+         */
+        private void watch(Runnable runnable, long duration, LongSupplier lastActivity) {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (closed.get()) {
+                        return;
+                    }
+                    long next = duration - (System.currentTimeMillis() - lastActivity.getAsLong());
+                    if (next <= 0) {
+                        runnable.run();
+                        next = duration;
+                    }
+                    if (!closed.get() && !stopping) {
+                        timer.schedule(this, next, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }, duration, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            connections.remove(this);
+            closeQuietly(channel);
+            List<PendingWrite> failed;
+            synchronized (writes) {
+                failed = List.copyOf(writes);
+                writes.clear();
+            }
+            for (PendingWrite write : failed) {
+                write.sent.completeExceptionally(new IOException("Connection closed"));
+            }
+            handler.afterConnectionClosed();
+        }
+    }
+
+    private record PendingWrite(ByteBuffer buffer, CompletableFuture<Void> sent) {
+    }
+}
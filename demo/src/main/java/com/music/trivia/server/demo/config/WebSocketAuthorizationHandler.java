@@ -1,5 +1,6 @@
 package com.music.trivia.server.demo.config;
 
+import com.music.trivia.server.demo.model.PlayerPrincipal;
 import com.music.trivia.server.demo.service.JwtService;
 import com.music.trivia.server.demo.service.SessionService;
 import org.slf4j.Logger;
@@ -47,7 +48,9 @@ public class WebSocketAuthorizationHandler implements ChannelInterceptor {
 
                 if (userID != null && sessionId != null && jwtService.isTokenValid(token, userID, sessionId) &&
                         sessionService.isUserInSession(sessionId, userID)) {
-                    UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(userID, null, null);
+                    // Named after the session as well as the user: user IDs are only unique within a session
+                    UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                            PlayerPrincipal.name(sessionId, userID), null, null);
                     SecurityContextHolder.getContext().setAuthentication(auth);
                     accessor.setUser(auth);
                     logger.info("WebSocket connection authenticated for user: {} in session: {}", userID, sessionId);
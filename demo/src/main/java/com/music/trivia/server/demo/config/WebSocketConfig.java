@@ -1,31 +1,108 @@
 package com.music.trivia.server.demo.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+import java.util.List;
+
+/**
+ * STOMP endpoint and broker setup. {@code trivia.broker.mode} picks where {@code /topic} and
+ * {@code /queue} subscriptions live (user destinations such as {@code /user/queue/roster} resolve
+ * to a {@code /queue} destination per connection):
+ * <ul>
+ *     <li>{@code simple} (default): Spring's in-process broker; every subscriber must be on this node.</li>
+ *     <li>{@code relay}: relayed to an external STOMP broker (RabbitMQ, ActiveMQ, ...) at
+ *     {@code trivia.broker.relay-host}/{@code relay-port}, so players on any node sharing that
+ *     broker get the same game and roster broadcasts.</li>
+ *     <li>{@code embedded}: relayed to an {@link EmbeddedStompBroker} started in this JVM, for
+ *     development and tests without an external broker.</li>
+ * </ul>
+ * Message bodies are JSON unless a connection negotiates CBOR; see {@link WireFormatNegotiator}.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    /** Destination prefixes handled by the broker, in every mode. */
+    public static final String[] BROKER_DESTINATIONS = {"/topic", "/queue"};
 
     private final WebSocketAuthorizationHandler webSocketAuthorizationHandler;
+    private final WireFormatNegotiator wireFormatNegotiator;
+    private final ObjectProvider<EmbeddedStompBroker> embeddedBroker;
+    private final String brokerMode;
+    private final String relayHost;
+    private final int relayPort;
+    private final String relayLogin;
+    private final String relayPasscode;
+    private final String relayVirtualHost;
+    private final int relayIoThreads;
 
     @Autowired
-    public WebSocketConfig(WebSocketAuthorizationHandler webSocketAuthorizationHandler) {
+    public WebSocketConfig(WebSocketAuthorizationHandler webSocketAuthorizationHandler,
+                           WireFormatNegotiator wireFormatNegotiator,
+                           ObjectProvider<EmbeddedStompBroker> embeddedBroker,
+                           @Value("${trivia.broker.mode:simple}") String brokerMode,
+                           @Value("${trivia.broker.relay-host:localhost}") String relayHost,
+                           @Value("${trivia.broker.relay-port:61613}") int relayPort,
+                           @Value("${trivia.broker.relay-login:guest}") String relayLogin,
+                           @Value("${trivia.broker.relay-passcode:guest}") String relayPasscode,
+                           @Value("${trivia.broker.relay-virtual-host:}") String relayVirtualHost,
+                           @Value("${trivia.broker.relay-io-threads:2}") int relayIoThreads) {
         this.webSocketAuthorizationHandler = webSocketAuthorizationHandler;
+        this.wireFormatNegotiator = wireFormatNegotiator;
+        this.embeddedBroker = embeddedBroker;
+        this.brokerMode = brokerMode;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.relayLogin = relayLogin;
+        this.relayPasscode = relayPasscode;
+        this.relayVirtualHost = relayVirtualHost;
+        this.relayIoThreads = relayIoThreads;
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        switch (brokerMode) {
+            case "simple" -> config.enableSimpleBroker(BROKER_DESTINATIONS);
+            case "relay" -> enableRelay(config, relayHost, relayPort);
+            case "embedded" -> enableRelay(config, "127.0.0.1", embeddedBroker.getObject().getPort());
+            default -> throw new IllegalStateException("Unknown trivia.broker.mode: " + brokerMode);
+        }
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    private void enableRelay(MessageBrokerRegistry config, String host, int port) {
+        logger.info("Relaying /topic and /queue to STOMP broker at {}:{}", host, port);
+        StompBrokerRelayRegistration relay = config.enableStompBrokerRelay(BROKER_DESTINATIONS)
+                .setRelayHost(host)
+                .setRelayPort(port)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                .setTcpClient(new StompTcpClient(host, port, relayIoThreads))
+                // Share connected users between nodes, and hand a user destination this node cannot
+                // resolve to the others, so a reply reaches a player connected elsewhere
+                .setUserRegistryBroadcast("/topic/simp-user-registry")
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination");
+        if (!relayVirtualHost.isEmpty()) {
+            relay.setVirtualHost(relayVirtualHost);
+        }
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/gs-guide-websocket")
@@ -38,10 +115,23 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registration.setMessageSizeLimit(128 * 1024);
         registration.setSendBufferSizeLimit(512 * 1024);
         registration.setSendTimeLimit(20000);
+        registration.addDecoratorFactory(wireFormatNegotiator::decorate);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new GameMessageConverter());
+        // Keep the default String, byte[] and Jackson converters after it
+        return true;
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketAuthorizationHandler);
+        registration.interceptors(webSocketAuthorizationHandler, wireFormatNegotiator.inbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(wireFormatNegotiator.outbound());
     }
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.music.trivia.server.demo.config;
+
+import com.music.trivia.server.demo.model.CborTranscoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection choice of wire format. JSON stays the default; a client on a plain WebSocket
+ * ({@code /gs-guide-websocket/websocket}) that sends {@code content-type:application/cbor} in
+ * its CONNECT frame gets every message body as CBOR, in binary WebSocket frames, and may send
+ * CBOR bodies itself. SockJS transports are text-only, so their clients stay on JSON whatever
+ * they ask for.
+ * <p>
+ * Handlers and broadcasts are untouched: {@link #inbound()} turns CBOR bodies into JSON before
+ * they reach the converters, and {@link #outbound()} turns JSON into CBOR just before a message
+ * is written to a CBOR connection. A broadcast hands every subscriber the same payload array, so
+ * the last few transcodings are cached by that array and fan-out costs one conversion.
+ */
+@Component
+public class WireFormatNegotiator {
+    private static final Logger logger = LoggerFactory.getLogger(WireFormatNegotiator.class);
+
+    public static final MimeType APPLICATION_CBOR = MimeType.valueOf("application/cbor");
+
+    private static final int TRANSCODE_CACHE_SIZE = 64;
+
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+    private final Map<byte[], byte[]> recentlyTranscoded = Collections.synchronizedMap(
+            new LinkedHashMap<>(TRANSCODE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<byte[], byte[]> eldest) {
+                    return size() > TRANSCODE_CACHE_SIZE;
+                }
+            });
+
+    private final AtomicLong transcoded = new AtomicLong();
+    private final AtomicLong transcodeCacheHits = new AtomicLong();
+    private final AtomicLong rejectedFrames = new AtomicLong();
+
+    private final ChannelInterceptor inbound = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            return fromClient(message);
+        }
+    };
+
+    private final ChannelInterceptor outbound = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            return toClient(message);
+        }
+    };
+
+    /** Interceptor for the client inbound channel: records CONNECT choices and decodes CBOR sends. */
+    public ChannelInterceptor inbound() {
+        return inbound;
+    }
+
+    /** Interceptor for the client outbound channel: encodes messages for CBOR connections. */
+    public ChannelInterceptor outbound() {
+        return outbound;
+    }
+
+    /**
+     * Wraps the STOMP handler so plain WebSocket sessions are known to accept binary frames, and
+     * so STOMP frames for a CBOR connection go out as binary frames rather than text.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                if (session instanceof SockJsSession) {
+                    super.afterConnectionEstablished(session);
+                    return;
+                }
+                binarySessions.add(session.getId());
+                super.afterConnectionEstablished(new BinaryFrameSession(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                forget(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public boolean isCbor(String sessionId) {
+        return sessionId != null && cborSessions.contains(sessionId);
+    }
+
+    public int getCborSessions() {
+        return cborSessions.size();
+    }
+
+    public long getTranscoded() {
+        return transcoded.get();
+    }
+
+    public long getTranscodeCacheHits() {
+        return transcodeCacheHits.get();
+    }
+
+    public long getRejectedFrames() {
+        return rejectedFrames.get();
+    }
+
+    private void forget(String sessionId) {
+        binarySessions.remove(sessionId);
+        cborSessions.remove(sessionId);
+    }
+
+    private Message<?> fromClient(Message<?> message) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        String sessionId = accessor.getSessionId();
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> {
+                if (requestsCbor(accessor.getFirstNativeHeader("content-type"))) {
+                    if (sessionId != null && binarySessions.contains(sessionId)) {
+                        cborSessions.add(sessionId);
+                        logger.debug("Session {} negotiated CBOR", sessionId);
+                    } else {
+                        logger.debug("Session {} asked for CBOR over a text-only transport; staying on JSON", sessionId);
+                    }
+                }
+            }
+            case DISCONNECT -> {
+                if (sessionId != null) {
+                    cborSessions.remove(sessionId);
+                }
+            }
+            case SEND -> {
+                MimeType contentType = accessor.getContentType();
+                if (contentType != null && APPLICATION_CBOR.equalsTypeAndSubtype(contentType)
+                        && message.getPayload() instanceof byte[] cbor) {
+                    try {
+                        byte[] json = CborTranscoder.cborToJson(cbor);
+                        StompHeaderAccessor headers = StompHeaderAccessor.wrap(message);
+                        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+                        headers.setContentLength(json.length);
+                        return MessageBuilder.createMessage(json, headers.getMessageHeaders());
+                    } catch (IllegalArgumentException e) {
+                        rejectedFrames.incrementAndGet();
+                        logger.warn("Dropping SEND to {} from session {}: {}", accessor.getDestination(), sessionId, e.getMessage());
+                        return null;
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    private static boolean requestsCbor(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            return APPLICATION_CBOR.equalsTypeAndSubtype(MimeTypeUtils.parseMimeType(contentType));
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    private Message<?> toClient(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !isCbor(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))
+                || !(message.getPayload() instanceof byte[] json)) {
+            return message;
+        }
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        MimeType contentType = accessor.getContentType();
+        if (contentType != null && !MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(contentType)) {
+            return message;
+        }
+        byte[] cbor = recentlyTranscoded.get(json);
+        if (cbor != null) {
+            transcodeCacheHits.incrementAndGet();
+        } else {
+            try {
+                cbor = CborTranscoder.jsonToCbor(json);
+            } catch (IllegalArgumentException e) {
+                // Not JSON after all; deliver it as it is
+                return message;
+            }
+            recentlyTranscoded.put(json, cbor);
+            transcoded.incrementAndGet();
+        }
+        accessor.setContentType(APPLICATION_CBOR);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    /** Sends text frames as binary frames once the session has negotiated CBOR. */
+    private final class BinaryFrameSession extends WebSocketSessionDecorator {
+
+        BinaryFrameSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage text && cborSessions.contains(getId())) {
+                super.sendMessage(new BinaryMessage(text.asBytes(), text.isLast()));
+            } else {
+                super.sendMessage(message);
+            }
+        }
+    }
+}
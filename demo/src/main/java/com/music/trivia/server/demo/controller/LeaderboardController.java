@@ -0,0 +1,39 @@
+package com.music.trivia.server.demo.controller;
+
+import com.music.trivia.server.demo.service.LeaderboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+    private final LeaderboardService leaderboard;
+
+    @Autowired
+    public LeaderboardController(LeaderboardService leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getLeaderboard(@RequestParam(defaultValue = "hour") String window) {
+        LeaderboardService.Window selected;
+        try {
+            selected = LeaderboardService.Window.valueOf(window.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown window: " + window));
+        }
+        List<LeaderboardService.Entry> entries = leaderboard.getTop(selected);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("window", selected.name().toLowerCase());
+        response.put("entries", entries);
+        return ResponseEntity.ok(response);
+    }
+}
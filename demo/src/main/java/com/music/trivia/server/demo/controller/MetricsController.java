@@ -0,0 +1,218 @@
+package com.music.trivia.server.demo.controller;
+
+import com.music.trivia.server.demo.config.WireFormatNegotiator;
+import com.music.trivia.server.demo.model.LatencyHistogram;
+import com.music.trivia.server.demo.model.RosterLog;
+import com.music.trivia.server.demo.model.SeenQuestionFilter;
+import com.music.trivia.server.demo.model.SessionExpiryIndex;
+import com.music.trivia.server.demo.model.SessionStorage;
+import com.music.trivia.server.demo.persistence.SessionJournal;
+import com.music.trivia.server.demo.service.AdmissionControlService;
+import com.music.trivia.server.demo.service.LeaderboardService;
+import com.music.trivia.server.demo.service.QuestionBankService;
+import com.music.trivia.server.demo.service.QuestionCorpusService;
+import com.music.trivia.server.demo.service.RosterService;
+import com.music.trivia.server.demo.service.RoundTimerService;
+import com.music.trivia.server.demo.service.RoundTransitionScheduler;
+import com.music.trivia.server.demo.service.TriviaFetchScheduler;
+import com.music.trivia.server.demo.service.TriviaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+    private final SessionStorage sessionStorage;
+    private final SessionJournal journal;
+    private final AdmissionControlService admissionControl;
+    private final LeaderboardService leaderboard;
+    private final QuestionBankService questionBank;
+    private final QuestionCorpusService questionCorpus;
+    private final TriviaFetchScheduler fetchScheduler;
+    private final RoundTimerService roundTimer;
+    private final RoundTransitionScheduler roundTransitions;
+    private final TriviaService triviaService;
+    private final WireFormatNegotiator wireFormat;
+    private final RosterService rosterService;
+
+    @Autowired
+    public MetricsController(SessionStorage sessionStorage, SessionJournal journal,
+                             AdmissionControlService admissionControl, LeaderboardService leaderboard,
+                             QuestionBankService questionBank, QuestionCorpusService questionCorpus,
+                             TriviaFetchScheduler fetchScheduler, RoundTimerService roundTimer,
+                             RoundTransitionScheduler roundTransitions, TriviaService triviaService,
+                             WireFormatNegotiator wireFormat,
+                             RosterService rosterService) {
+        this.sessionStorage = sessionStorage;
+        this.journal = journal;
+        this.admissionControl = admissionControl;
+        this.leaderboard = leaderboard;
+        this.questionBank = questionBank;
+        this.questionCorpus = questionCorpus;
+        this.fetchScheduler = fetchScheduler;
+        this.roundTimer = roundTimer;
+        this.roundTransitions = roundTransitions;
+        this.triviaService = triviaService;
+        this.wireFormat = wireFormat;
+        this.rosterService = rosterService;
+    }
+
+    @GetMapping("/sessions")
+    public ResponseEntity<Map<String, Object>> getSessionMetrics() {
+        SessionExpiryIndex expiryIndex = sessionStorage.getExpiryIndex();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("liveSessions", sessionStorage.size());
+        response.put("estimatedBytes", sessionStorage.getEstimatedBytes());
+        response.put("maxSessions", admissionControl.getMaxSessions());
+        response.put("maxUsersPerSession", admissionControl.getMaxUsersPerSession());
+        response.put("maxEstimatedBytes", admissionControl.getMaxEstimatedBytes());
+        response.put("rejectedSessions", admissionControl.getRejectedSessions());
+        response.put("rejectedJoins", admissionControl.getRejectedJoins());
+        response.put("idleTtlSeconds", sessionStorage.getExpiryPolicy().getIdleTtl().toSeconds());
+        response.put("absoluteTtlSeconds", sessionStorage.getExpiryPolicy().getAbsoluteTtl().toSeconds());
+        response.put("trackedDeadlines", expiryIndex.size());
+        response.put("evictedIdle", expiryIndex.getEvictedIdle());
+        response.put("evictedAbsolute", expiryIndex.getEvictedAbsolute());
+        response.put("sweeps", expiryIndex.getSweeps());
+        response.put("lastSweepLagMillis", expiryIndex.getLastSweepLagMillis());
+        response.put("maxSweepLagMillis", expiryIndex.getMaxSweepLagMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/journal")
+    public ResponseEntity<Map<String, Object>> getJournalMetrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", journal.isEnabled());
+        response.put("failed", journal.isFailed());
+        response.put("recordsAppended", journal.getRecordsAppended());
+        response.put("batchesWritten", journal.getBatchesWritten());
+        response.put("bytesWritten", journal.getBytesWritten());
+        response.put("fsyncMillis", journal.getFsyncNanos() / 1_000_000);
+        response.put("queueDepth", journal.getQueueDepth());
+        response.put("durableSequence", journal.getDurableSequence());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/leaderboard")
+    public ResponseEntity<Map<String, Object>> getLeaderboardMetrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("topK", leaderboard.getTopK());
+        response.put("eventsAccepted", leaderboard.getEventsAccepted());
+        response.put("eventsDropped", leaderboard.getEventsDropped());
+        response.put("queueDepth", leaderboard.getQueueDepth());
+        response.put("gamesCompleted", leaderboard.getGamesCompleted());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/questions")
+    public ResponseEntity<Map<String, Object>> getQuestionBankMetrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("pools", questionBank.getPoolSizes());
+        response.put("lowWatermark", questionBank.getLowWatermark());
+        response.put("highWatermark", questionBank.getHighWatermark());
+        response.put("corpusQuestions", questionCorpus.getQuestionCount());
+        response.put("corpusFileBytes", questionCorpus.getFileBytes());
+        response.put("corpusSwaps", questionCorpus.getSwaps());
+        response.put("corpusLastLoadMillis", questionCorpus.getLastLoadMillis());
+        response.put("corpusDraws", questionBank.getCorpusDraws());
+        response.put("hitRate", questionBank.getHitRate());
+        response.put("hits", questionBank.getHits());
+        response.put("partialHits", questionBank.getPartialHits());
+        response.put("misses", questionBank.getMisses());
+        response.put("questionsServed", questionBank.getQuestionsServed());
+        response.put("duplicatesDiscarded", questionBank.getDuplicatesDiscarded());
+        response.put("repeatsSkipped", questionBank.getRepeatsSkipped());
+        response.put("seenFilterBytesPerSession", SeenQuestionFilter.BYTES);
+        response.put("refills", questionBank.getRefills());
+        response.put("refillFailures", questionBank.getRefillFailures());
+        response.put("lastRefillMillis", questionBank.getLastRefillMillis());
+        response.put("avgRefillMillis", questionBank.getAverageRefillMillis());
+        response.put("maxRefillMillis", questionBank.getMaxRefillMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/trivia-api")
+    public ResponseEntity<Map<String, Object>> getTriviaApiMetrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("queueDepth", fetchScheduler.getQueueDepth());
+        response.put("requests", fetchScheduler.getRequests());
+        response.put("upstreamCalls", fetchScheduler.getBatches());
+        response.put("coalesced", fetchScheduler.getCoalesced());
+        response.put("rateLimited", fetchScheduler.getRateLimited());
+        response.put("failedCalls", fetchScheduler.getFailedBatches());
+        response.put("expired", fetchScheduler.getExpired());
+        response.put("avgWaitMillis", fetchScheduler.getAverageWaitMillis());
+        response.put("maxWaitMillis", fetchScheduler.getMaxWaitMillis());
+        response.put("currentBackoffMillis", fetchScheduler.getCurrentBackoffMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/rounds")
+    public ResponseEntity<Map<String, Object>> getRoundMetrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("armedRounds", roundTimer.getArmedRounds());
+        response.put("pendingTimeouts", roundTimer.getPendingTimeouts());
+        response.put("armed", roundTimer.getArmed());
+        response.put("fired", roundTimer.getFired());
+        response.put("cancelled", roundTimer.getCancelled());
+        response.put("legacyTicksSent", roundTimer.getLegacyTicksSent());
+        response.put("tickMillis", roundTimer.getTickMillis());
+        response.put("avgAdvanceMicros", roundTimer.getAverageAdvanceMicros());
+        response.put("pendingTransitions", roundTransitions.getPending());
+        response.put("transitionsScheduled", roundTransitions.getScheduled());
+        response.put("transitionsRun", roundTransitions.getRan());
+        response.put("transitionsCancelled", roundTransitions.getCancelled());
+        response.put("transitionThreads", roundTransitions.getPoolSize());
+        response.put("duplicateTransitions", triviaService.getDuplicateTransitions());
+        response.put("lateAnswers", triviaService.getLateAnswers());
+        return ResponseEntity.ok(response);
+    }
+
+    /** Answer latency (µs) and grading time (ns) across the node, or for one session's answers. */
+    @GetMapping("/latency")
+    public ResponseEntity<Map<String, Object>> getLatencyMetrics(@RequestParam(required = false) String sessionId) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("scoringMode", triviaService.getScoringMode().name().toLowerCase());
+        if (sessionId != null) {
+            if (!sessionStorage.containsSession(sessionId)) {
+                return ResponseEntity.notFound().build();
+            }
+            LatencyHistogram sessionLatency = sessionStorage.getSession(sessionId).getAnswerLatency();
+            response.put("sessionId", sessionId);
+            response.put("answerLatencyMicros", sessionLatency == null ? Map.of("count", 0) : sessionLatency.summary());
+            return ResponseEntity.ok(response);
+        }
+        response.put("answerLatencyMicros", triviaService.getAnswerLatency().summary());
+        response.put("gradingNanos", triviaService.getGradingTime().summary());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/roster")
+    public ResponseEntity<Map<String, Object>> getRosterMetrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("deltasSent", rosterService.getDeltasSent());
+        response.put("deltaBytes", rosterService.getDeltaBytes());
+        response.put("snapshotsSent", rosterService.getSnapshotsSent());
+        response.put("snapshotBytes", rosterService.getSnapshotBytes());
+        response.put("syncRequests", rosterService.getSyncRequests());
+        response.put("historyCapacity", RosterLog.CAPACITY);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/wire")
+    public ResponseEntity<Map<String, Object>> getWireFormatMetrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("cborSessions", wireFormat.getCborSessions());
+        response.put("transcoded", wireFormat.getTranscoded());
+        response.put("transcodeCacheHits", wireFormat.getTranscodeCacheHits());
+        response.put("rejectedFrames", wireFormat.getRejectedFrames());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,5 +1,6 @@
 package com.music.trivia.server.demo.controller;
 
+import com.music.trivia.server.demo.exception.CapacityExceededException;
 import com.music.trivia.server.demo.exception.UserAlreadyExistsException;
 import com.music.trivia.server.demo.exception.UserNotFoundException;
 import com.music.trivia.server.demo.model.Session;
@@ -44,6 +45,9 @@ public class SessionController {
 
             logger.info("Session created successfully for user: {}, sessionID: {}", userID, sessionID);
             return ResponseEntity.ok(response);
+        } catch (CapacityExceededException e) {
+            logger.warn("Rejected session creation for user: {}: {}", userID, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error creating session for user: {}", userID, e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -65,6 +69,9 @@ public class SessionController {
 
             logger.info("User: {} successfully joined session: {}", userID, sessionId);
             return ResponseEntity.ok(response);
+        } catch (CapacityExceededException e) {
+            logger.warn("Rejected join to session: {} for user: {}: {}", sessionId, userID, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error joining session: {} for user: {}", sessionId, userID, e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -0,0 +1,22 @@
+package com.music.trivia.server.demo.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Server clock for clients that count down to a {@code ROUND_DEADLINE} locally: the client
+ * estimates its offset as {@code serverTime - (sent + received) / 2}.
+ */
+@RestController
+@RequestMapping("/api/time")
+public class TimeController {
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getServerTime() {
+        return ResponseEntity.ok(Map.of("serverTime", System.currentTimeMillis()));
+    }
+}
@@ -1,19 +1,30 @@
 package com.music.trivia.server.demo.controller;
 
 import com.music.trivia.server.demo.model.User;
+import com.music.trivia.server.demo.model.ClientRequest;
+import com.music.trivia.server.demo.model.CompactAnswer;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GamePhase;
+import com.music.trivia.server.demo.model.PlayerPrincipal;
+import com.music.trivia.server.demo.model.QuestionFrame;
 import com.music.trivia.server.demo.model.Session;
-import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.service.RosterService;
+import com.music.trivia.server.demo.service.RoundTransitionScheduler;
+import com.music.trivia.server.demo.service.ScoreboardService;
+import com.music.trivia.server.demo.service.SessionExecutor;
 import com.music.trivia.server.demo.service.SessionService;
 import com.music.trivia.server.demo.service.TriviaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import com.music.trivia.server.demo.annotation.WebSocketAuthenticated;
 
+import java.security.Principal;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.HashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,122 +36,114 @@ public class WebSocketController {
     private final SessionService sessionService;
     private final TriviaService triviaService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final SessionExecutor sessionExecutor;
+    private final ScoreboardService scoreboardService;
+    private final RoundTransitionScheduler roundTransitions;
+    private final RosterService rosterService;
 
     @Autowired
-    public WebSocketController(SessionService sessionService, TriviaService triviaService, SimpMessagingTemplate messagingTemplate) {
+    public WebSocketController(SessionService sessionService, TriviaService triviaService, SimpMessagingTemplate messagingTemplate,
+                               SessionExecutor sessionExecutor, ScoreboardService scoreboardService,
+                               RoundTransitionScheduler roundTransitions, RosterService rosterService) {
         this.sessionService = sessionService;
         this.triviaService = triviaService;
         this.messagingTemplate = messagingTemplate;
+        this.sessionExecutor = sessionExecutor;
+        this.scoreboardService = scoreboardService;
+        this.roundTransitions = roundTransitions;
+        this.rosterService = rosterService;
     }
 
+    /**
+     * The body is decoded by {@link com.music.trivia.server.demo.config.GameMessageConverter};
+     * a frame that isn't a well-formed USER_JOIN is rejected before it reaches this method.
+     */
     @WebSocketAuthenticated
     @MessageMapping("/userJoin")
-    public void handleUserJoin(@Payload Map<String, Object> message) {
-        logger.info("Received userJoin message: {}", message);
-        String type = (String) message.get("type");
-        Map<String, Object> data = (Map<String, Object>) message.get("data");
-
-        if ("USER_JOIN".equals(type)) {
-            String userId = (String) data.get("userId");
-            String sessionId = (String) data.get("sessionId");
-            String avatar = (String) data.get("avatar");
-            int score = (int) data.get("score");
-            String role = (String) data.get("role");
+    public void handleUserJoin(@Payload GameMessage.UserJoin join) {
+        logger.info("Received userJoin message: {}", join);
+        String userId = join.userId();
+        String sessionId = join.sessionId();
 
+        sessionExecutor.execute(sessionId, () -> {
             Session session = sessionService.getSession(sessionId);
 
             if (session.getUser(userId) == null) {
                 logger.info("Adding user {} to session {}", userId, sessionId);
-                User user = new User(avatar, role, score);
+                User user = new User(join.avatar(), join.role(), join.score());
                 sessionService.addUserToSession(sessionId, userId, user);
-
-                // Broadcast the USER_JOIN message to all users in the session
-                Map<String, Object> userJoinMessage = new HashMap<>();
-                userJoinMessage.put("type", "USER_JOIN");
-                userJoinMessage.put("data", Map.of(
-                        "userId", userId,
-                        "sessionId", sessionId,
-                        "avatar", avatar,
-                        "score", score,
-                        "role", role
-                ));
-                logger.info("Broadcasting USER_JOIN message: {}", userJoinMessage);
-                messagingTemplate.convertAndSend("/topic/users/" + sessionId, userJoinMessage);
             } else {
-                logger.info("User {} already exists in session {}. Sending current user list.", userId, sessionId);
+                logger.info("User {} already exists in session {}", userId, sessionId);
             }
 
-            // Send the current user list to all users in the session
-            Map<String, User> users = session.getUsers();
-            Map<String, Object> userListMessage = new HashMap<>();
-            userListMessage.put("type", "USER_LIST");
-            userListMessage.put("data", users);
-            messagingTemplate.convertAndSend("/topic/users/" + sessionId, userListMessage);
-        }
+            // Broadcast the join, or one made over REST that hasn't been announced yet
+            rosterService.publishChanges(session);
+        });
     }
 
+    /**
+     * This and the other typed requests below are decoded by
+     * {@link com.music.trivia.server.demo.config.GameMessageConverter}; a body missing a required
+     * field is rejected before the handler runs.
+     */
     @WebSocketAuthenticated
     @MessageMapping("/userLeave")
-    public void handleUserLeave(@Payload Map<String, Object> message) {
-        logger.info("Received userLeave message: {}", message);
-
-        String sessionId = (String) message.get("sessionId");
-        String userId = (String) message.get("userId");
+    public void handleUserLeave(@Payload ClientRequest.UserLeave leave) {
+        logger.info("Received userLeave message: {}", leave);
+        String sessionId = leave.sessionId();
+        String userId = leave.userId();
 
-        if (sessionId == null || userId == null) {
-            logger.error("Invalid userLeave message. SessionId or UserId is null. SessionId: {}, UserId: {}", sessionId, userId);
-            return;
-        }
+        sessionExecutor.execute(sessionId, () -> {
+            boolean removed = sessionService.leaveUser(sessionId, userId);
 
-        boolean removed = sessionService.leaveUser(sessionId, userId);
-
-        if (removed) {
-            // Broadcast user leave message
-            Map<String, Object> leaveMessage = new HashMap<>();
-            leaveMessage.put("type", "USER_LEAVE");
-            leaveMessage.put("data", Map.of("userId", userId));
-            messagingTemplate.convertAndSend("/topic/users/" + sessionId, leaveMessage);
-
-            // Send updated user list
-            try {
-                Session session = sessionService.getSession(sessionId);
-                Map<String, User> users = session.getUsers();
-                Map<String, Object> userListMessage = new HashMap<>();
-                userListMessage.put("type", "USER_LIST");
-                userListMessage.put("data", users);
-                messagingTemplate.convertAndSend("/topic/users/" + sessionId, userListMessage);
-            } catch (IllegalArgumentException e) {
-                logger.warn("Failed to send updated user list: {}", e.getMessage());
+            if (removed) {
+                try {
+                    Session session = sessionService.getSession(sessionId);
+                    rosterService.publishChanges(session);
+                    afterPlayerGone(session);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Failed to broadcast roster change: {}", e.getMessage());
+                }
             }
-        }
+        });
     }
 
     @WebSocketAuthenticated
     @MessageMapping("/userUpdate")
-    public void handleUserUpdate(@Payload Map<String, Object> message) {
-        logger.info("Received userUpdate message: {}", message);
-        String sessionId = (String) message.get("sessionId");
-        String userId = (String) message.get("userId");
-        Map<String, Object> updates = (Map<String, Object>) message.get("updates");
-
-        sessionService.updateUser(sessionId, userId, updates);
-
-        Map<String, Object> updateMessage = Map.of(
-                "type", "USER_UPDATE",
-                "data", Map.of(
-                        "userId", userId,
-                        "updates", updates
-                )
-        );
-        logger.info("Broadcasting USER_UPDATE message: {}", updateMessage);
-        messagingTemplate.convertAndSend("/topic/users/" + sessionId, updateMessage);
+    public void handleUserUpdate(@Payload ClientRequest.UserUpdate update) {
+        logger.info("Received userUpdate message: {}", update);
+        String sessionId = update.sessionId();
+
+        sessionExecutor.execute(sessionId, () -> {
+            sessionService.updateUser(sessionId, update.userId(), update.avatar(), update.role(), update.score());
+            rosterService.publishChanges(sessionService.getSession(sessionId));
+        });
+    }
+
+    /**
+     * A client that has just connected, or has seen a roster sequence number skip, asks for the
+     * roster here with the last {@code seq} it applied (omitted for a fresh client). Only the
+     * user the connection authenticated as, in the session its token is for, may ask; the reply
+     * goes to that user's own queue. See {@link RosterService#sync}.
+     */
+    @WebSocketAuthenticated
+    @MessageMapping("/rosterSync")
+    public void handleRosterSync(@Payload ClientRequest.RosterSync request, Principal principal) {
+        String sessionId = request.sessionId();
+        String userId = request.userId();
+        if (principal == null || !PlayerPrincipal.name(sessionId, userId).equals(principal.getName())) {
+            logger.warn("Dropping rosterSync for user {} in session {} from {}", userId, sessionId,
+                    principal == null ? "an unauthenticated connection" : principal.getName());
+            return;
+        }
+        sessionExecutor.execute(sessionId, () -> rosterService.sync(sessionService.getSession(sessionId), userId, request.seq()));
     }
 
     @MessageMapping("/startGame")
     @WebSocketAuthenticated
-    public void handleStartGame(@Payload Map<String, Object> message) {
-        String sessionId = (String) message.get("sessionId");
-        String userId = (String) message.get("userId");
+    public void handleStartGame(@Payload ClientRequest.StartGame request) {
+        String sessionId = request.sessionId();
+        String userId = request.userId();
         logger.info("Received start game request for session: {} from user: {}", sessionId, userId);
 
         Session session = sessionService.getSession(sessionId);
@@ -153,170 +156,207 @@ public class WebSocketController {
         }
     }
 
-    private void sendNextQuestion(String sessionId) {
-        TriviaQuestion question = triviaService.getCurrentQuestion(sessionId);
-        if (question == null) {
-            logger.warn("No question available for session: {}", sessionId);
-            return;
-        }
-        logger.info("Sending next question to session: {}", sessionId);
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", "NEW_QUESTION");
-        message.put("data", question);
-        messagingTemplate.convertAndSend("/topic/game/" + sessionId, message);
-        logger.info("Sent NEW_QUESTION message: {}", message);
-    }
-
     @WebSocketAuthenticated
     @MessageMapping("/endGame")
-    public void handleEndGame(@Payload Map<String, Object> message) {
-        String sessionId = (String) message.get("sessionId");
-        String userId = (String) message.get("userId");
+    public void handleEndGame(@Payload ClientRequest.EndGame request) {
+        String sessionId = request.sessionId();
+        String userId = request.userId();
 
-        Session session = sessionService.getSession(sessionId);
+        sessionExecutor.execute(sessionId, () -> {
+            Session session = sessionService.getSession(sessionId);
 
-        if (session.isCreator(userId)) {
-            // End the game and reset scores
-            triviaService.endGame(sessionId);
-
-            // Get updated scores (all should be zero now)
-            Map<String, Integer> updatedScores = triviaService.getScores(sessionId);
-
-            // Create a map of users with their avatars and reset scores
-            Map<String, Object> usersData = new HashMap<>();
-            for (Map.Entry<String, User> entry : session.getUsers().entrySet()) {
-                usersData.put(entry.getKey(), Map.of(
-                        "score", 0,
-                        "avatar", entry.getValue().getAvatar()
-                ));
-            }
+            if (session.isCreator(userId)) {
+                // End the game and reset scores
+                triviaService.endGame(sessionId);
 
-            // Send end game message with reset scores and user data
-            messagingTemplate.convertAndSend("/topic/game/" + sessionId, Map.of(
-                    "type", "END_GAME",
-                    "data", usersData
-            ));
+                // Send end game message with the players' avatars; every score is now zero
+                Map<String, String> avatars = new LinkedHashMap<>();
+                for (Map.Entry<String, User> entry : session.getUsers().entrySet()) {
+                    avatars.put(entry.getKey(), entry.getValue().getAvatar());
+                }
+                messagingTemplate.convertAndSend("/topic/game/" + sessionId, new GameMessage.EndGame(avatars));
 
-            logger.info("Game ended by creator {} in session {} with all scores reset to zero", userId, sessionId);
-        } else {
-            logger.warn("Non-creator user {} attempted to end game in session {}", userId, sessionId);
-        }
+                logger.info("Game ended by creator {} in session {} with all scores reset to zero", userId, sessionId);
+            } else {
+                logger.warn("Non-creator user {} attempted to end game in session {}", userId, sessionId);
+            }
+        });
     }
 
     @WebSocketAuthenticated
     @MessageMapping("/getCurrentQuestion")
-    public void handleGetCurrentQuestion(@Payload Map<String, Object> message) {
-        String sessionId = (String) message.get("sessionId");
+    public void handleGetCurrentQuestion(@Payload ClientRequest.GetCurrentQuestion request) {
+        String sessionId = request.sessionId();
         logger.info("Received getCurrentQuestion request for session: {}", sessionId);
-        TriviaQuestion currentQuestion = triviaService.getCurrentQuestion(sessionId);
-        if (currentQuestion != null) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("type", "NEW_QUESTION");
-            response.put("data", currentQuestion);
-            messagingTemplate.convertAndSend("/topic/game/" + sessionId, response);
-            logger.info("Sent current question to session: {}", sessionId);
-        } else {
-            logger.warn("No current question available for session: {}", sessionId);
-            messagingTemplate.convertAndSend("/topic/game/" + sessionId, Map.of(
-                    "type", "ERROR",
-                    "data", Map.of("message", "No question available")
-            ));
-        }
+        sessionExecutor.execute(sessionId, () -> {
+            if (triviaService.sendCurrentQuestion(sessionId)) {
+                logger.info("Sent current question to session: {}", sessionId);
+            } else {
+                logger.warn("No current question available for session: {}", sessionId);
+                messagingTemplate.convertAndSend("/topic/game/" + sessionId, new GameMessage.ErrorMessage("No question available"));
+            }
+        });
     }
 
+    /**
+     * Accepts an answer as {@code choiceId} (preferred) or, for older clients, as the
+     * {@code answer} text.
+     */
     @MessageMapping("/submitAnswer")
     @WebSocketAuthenticated
-    public void handleSubmitAnswer(@Payload Map<String, Object> message) {
-        String sessionId = (String) message.get("sessionId");
-        String userId = (String) message.get("userId");
-        String answer = (String) message.get("answer");
+    public void handleSubmitAnswer(@Payload ClientRequest.SubmitAnswer submission) {
+        String sessionId = submission.sessionId();
+        String userId = submission.userId();
+
+        sessionExecutor.execute(sessionId, () -> {
+            if (acceptsAnswer(sessionId, userId)) {
+                boolean isCorrect = submission.choiceId() != null
+                        ? triviaService.submitChoice(sessionId, userId, submission.choiceId())
+                        : triviaService.submitAnswer(sessionId, userId, submission.answer());
+                afterAnswer(sessionId, userId, isCorrect);
+            }
+        });
+        logger.info("Received answer submission from user {} in session {}", userId, sessionId);
+    }
 
-        boolean isCorrect = triviaService.submitAnswer(sessionId, userId, answer);
-        User user = sessionService.getSession(sessionId).getUser(userId);
+    /**
+     * Compact answer submission: the session is in the destination, the user is the STOMP
+     * session's authenticated principal, and the body is a few ASCII bytes as described in
+     * {@link CompactAnswer}. The destination must name the session the principal's token was
+     * issued for.
+     */
+    @WebSocketAuthenticated
+    @MessageMapping("/answer/{sessionId}")
+    public void handleCompactAnswer(@DestinationVariable String sessionId, @Payload byte[] body, Principal principal) {
+        long answer = CompactAnswer.parse(body);
+        if (principal == null || answer == CompactAnswer.INVALID || !sessionId.equals(PlayerPrincipal.sessionId(principal))) {
+            logger.warn("Dropping compact answer for session {}: {}", sessionId, principal == null ? "unauthenticated connection"
+                    : answer == CompactAnswer.INVALID ? "malformed body" : "token is for another session");
+            return;
+        }
+        String userId = PlayerPrincipal.userId(principal);
+        int questionIndex = CompactAnswer.questionIndex(answer);
+        // Answers for a closed round are dropped here, before they take a turn on the mailbox
+        if (questionIndex != CompactAnswer.ANY_QUESTION && !triviaService.admitsAnswer(sessionId, questionIndex)) {
+            logger.info("Dropping late answer from user {} in session {} for question {}", userId, sessionId, questionIndex);
+            return;
+        }
+        sessionExecutor.execute(sessionId, () -> {
+            if (questionIndex != CompactAnswer.ANY_QUESTION && !triviaService.admitsAnswer(sessionId, questionIndex)) {
+                logger.info("Dropping late answer from user {} in session {} for question {}", userId, sessionId, questionIndex);
+                return;
+            }
+            if (acceptsAnswer(sessionId, userId)) {
+                afterAnswer(sessionId, userId, triviaService.submitChoice(sessionId, userId, CompactAnswer.choiceId(answer)));
+            }
+        });
+    }
+
+    private boolean acceptsAnswer(String sessionId, String userId) {
+        Session session = sessionService.getSession(sessionId);
+        if (!triviaService.admitsAnswer(sessionId, session.getCurrentQuestionIndex())) {
+            logger.info("Dropping answer from user {} in session {}: no round is open", userId, sessionId);
+            return false;
+        }
+        if (session.getUser(userId) == null || session.hasAnswered(userId)) {
+            // Repeat submissions must not re-trigger ALL_ANSWERED and advance the round twice
+            logger.info("Dropping answer from user {} in session {}: not present or already answered", userId, sessionId);
+            return false;
+        }
+        return true;
+    }
+
+    private void afterAnswer(String sessionId, String userId, boolean isCorrect) {
+        Session session = sessionService.getSession(sessionId);
+        User user = session.getUser(userId);
 
         // Broadcast answer result
-        messagingTemplate.convertAndSend("/topic/game/" + sessionId, Map.of(
-                "type", "ANSWER_RESULT",
-                "data", Map.of(
-                        "userId", userId,
-                        "isCorrect", isCorrect,
-                        "score", triviaService.getScores(sessionId).get(userId),
-                        "avatar", user.getAvatar()
-                )
-        ));
-
-        if (triviaService.isAllUsersAnswered(sessionId)) {
-            // Send ALL_ANSWERED message
-            messagingTemplate.convertAndSend("/topic/game/" + sessionId, Map.of(
-                    "type", "ALL_ANSWERED"
-            ));
-
-            // Add a delay before sending the next question
-            new Thread(() -> {
-                try {
-                    Thread.sleep(5000); // 5 seconds delay
-                    if (!triviaService.isGameOver(sessionId)) {
-                        triviaService.moveToNextQuestion(sessionId);
-                        sendNextQuestion(sessionId);
-                    } else {
-                        // Broadcast game over message
-                        messagingTemplate.convertAndSend("/topic/game/" + sessionId, Map.of(
-                                "type", "GAME_OVER",
-                                "data", triviaService.getScores(sessionId)
-                        ));
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }).start();
+        messagingTemplate.convertAndSend("/topic/game/" + sessionId, new GameMessage.AnswerResult(
+                userId, isCorrect, session.getUserScore(userId), session.getScoreboard().rank(userId), user.getAvatar()));
+
+        closeRoundIfAllAnswered(sessionId, session.getCurrentQuestionIndex());
+    }
+
+    /**
+     * Closes {@code round} if every player still in the session has answered it, revealing the
+     * answer and scheduling the next question. Runs after each answer, and after a player leaves or
+     * is removed while a question is open, since that player may have been the last one missing.
+     */
+    private void closeRoundIfAllAnswered(String sessionId, int round) {
+        if (triviaService.isAllUsersAnswered(sessionId) && triviaService.closeRound(sessionId, round)) {
+            // Send ALL_ANSWERED message, revealing the answer now that nobody can change theirs
+            QuestionFrame frame = triviaService.getCurrentFrame(sessionId);
+            messagingTemplate.convertAndSend("/topic/game/" + sessionId,
+                    new GameMessage.AllAnswered(frame == null ? -1 : frame.getCorrectChoiceId()));
+
+            // Add a delay before sending the next question; a no-op if the round timed out meanwhile
+            roundTransitions.schedule(sessionId,
+                    () -> sessionExecutor.execute(sessionId, () -> triviaService.advanceRound(sessionId, round)));
         }
-        logger.info("Received answer submission from user {} in session {}", userId, sessionId);
     }
 
+    /** After a player has left or been removed, the rest may all have answered the open question. */
+    private void afterPlayerGone(Session session) {
+        if (session.getPhase() == GamePhase.QUESTION_OPEN) {
+            closeRoundIfAllAnswered(session.getSessionID(), session.getCurrentQuestionIndex());
+        }
+    }
+
+    /**
+     * Skips to the next question. Clients should send the {@code questionIndex} they are moving
+     * on from, so a repeated or racing request can't skip a second question.
+     */
     @WebSocketAuthenticated
     @MessageMapping("/nextQuestion")
-    public void handleNextQuestion(@Payload Map<String, Object> message) {
-        String sessionId = (String) message.get("sessionId");
+    public void handleNextQuestion(@Payload ClientRequest.NextQuestion request) {
+        String sessionId = request.sessionId();
+        Integer questionIndex = request.questionIndex();
 
-        if (!triviaService.isGameOver(sessionId)) {
-            triviaService.moveToNextQuestion(sessionId);
-            sendNextQuestion(sessionId);
-        } else {
-            // Broadcast game over message
-            messagingTemplate.convertAndSend("/topic/game/" + sessionId, Map.of(
-                    "type", "GAME_OVER",
-                    "data", triviaService.getScores(sessionId)
-            ));
-        }
+        sessionExecutor.execute(sessionId, () -> {
+            Session session = sessionService.getSession(sessionId);
+            if (session.getPhase() == GamePhase.GAME_OVER) {
+                // Broadcast game over message
+                scoreboardService.broadcastGameOver(session);
+                return;
+            }
+            int round = questionIndex != null ? questionIndex : session.getCurrentQuestionIndex();
+            triviaService.advanceRound(sessionId, round);
+        });
     }
 
 
     @WebSocketAuthenticated
     @MessageMapping("/removeUser")
-    public void handleRemoveUser(@Payload Map<String, Object> message) {
-        String sessionId = (String) message.get("sessionId");
-        String userToRemove = (String) message.get("userToRemove");
-        String requestingUser = (String) message.get("requestingUser");
-
-        boolean removed = sessionService.removeUser(sessionId, userToRemove, requestingUser);
-        if (removed) {
-            logger.info("User {} removed from session {} by {}", userToRemove, sessionId, requestingUser);
-        } else {
-            logger.warn("Failed to remove user {} from session {} by {}", userToRemove, sessionId, requestingUser);
-        }
+    public void handleRemoveUser(@Payload ClientRequest.RemoveUser request) {
+        String sessionId = request.sessionId();
+        String userToRemove = request.userToRemove();
+        String requestingUser = request.requestingUser();
+
+        sessionExecutor.execute(sessionId, () -> {
+            boolean removed = sessionService.removeUser(sessionId, userToRemove, requestingUser);
+            if (removed) {
+                logger.info("User {} removed from session {} by {}", userToRemove, sessionId, requestingUser);
+                Session session = sessionService.getSession(sessionId);
+                rosterService.publishChanges(session);
+                afterPlayerGone(session);
+            } else {
+                logger.warn("Failed to remove user {} from session {} by {}", userToRemove, sessionId, requestingUser);
+            }
+        });
     }
 
     @WebSocketAuthenticated
     @MessageMapping("/creatorLeave")
-    public void handleCreatorLeave(@Payload Map<String, Object> message) {
-        String sessionId = (String) message.get("sessionId");
-        String creatorId = (String) message.get("creatorId");
+    public void handleCreatorLeave(@Payload ClientRequest.CreatorLeave request) {
+        String sessionId = request.sessionId();
+        String creatorId = request.creatorId();
 
         try {
             sessionService.creatorLeave(sessionId, creatorId);
+            triviaService.releaseSession(sessionId);
             logger.info("Creator {} left and ended session {}", creatorId, sessionId);
         } catch (IllegalArgumentException e) {
             logger.warn("Failed creator leave attempt for session {} by {}: {}", sessionId, creatorId, e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+package com.music.trivia.server.demo.exception;
+
+/**
+ * Exception thrown when a session or user is rejected because the node is at capacity.
+ */
+public class CapacityExceededException extends RuntimeException {
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,35 @@
+package com.music.trivia.server.demo.exception;
+
+/**
+ * Exception thrown when the trivia question API cannot be reached or returns an unusable response.
+ * Carries the opentdb {@code response_code} when the API supplied one, or {@link #NO_RESPONSE_CODE}.
+ */
+public class TriviaApiException extends RuntimeException {
+    public static final int NO_RESPONSE_CODE = -1;
+    /** opentdb's response code for "too many requests"; HTTP 429 is mapped to it as well. */
+    public static final int RATE_LIMITED = 5;
+
+    private final int responseCode;
+
+    public TriviaApiException(String message) {
+        this(message, NO_RESPONSE_CODE);
+    }
+
+    public TriviaApiException(String message, int responseCode) {
+        super(message);
+        this.responseCode = responseCode;
+    }
+
+    public TriviaApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.responseCode = NO_RESPONSE_CODE;
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    public boolean isRateLimited() {
+        return responseCode == RATE_LIMITED;
+    }
+}
@@ -0,0 +1,329 @@
+package com.music.trivia.server.demo.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts message bodies between JSON and CBOR (RFC 8949), token by token, so any JSON payload
+ * the server sends can go to a client that negotiated the binary encoding, and CBOR a client
+ * sends can be handled by the JSON-based message handlers.
+ * <p>
+ * JSON objects and arrays become indefinite-length CBOR maps and arrays, since their sizes are
+ * not known until they end; integers take the shortest CBOR form and strings are UTF-8 text. On
+ * the way back, CBOR byte strings become base64 strings, tags are dropped and undefined reads
+ * as null. Malformed or truncated input, or nesting deeper than {@link #MAX_DEPTH}, fails with
+ * {@link IllegalArgumentException}.
+ */
+public final class CborTranscoder {
+
+    public static final int MAX_DEPTH = 64;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1 << 5;
+    private static final int BYTES = 2 << 5;
+    private static final int TEXT = 3 << 5;
+    private static final int ARRAY = 4 << 5;
+    private static final int MAP = 5 << 5;
+    private static final int TAG = 6 << 5;
+    private static final int SIMPLE = 7 << 5;
+    private static final int INDEFINITE = 31;
+    private static final int BREAK = 0xff;
+
+    private CborTranscoder() {
+    }
+
+    public static byte[] jsonToCbor(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case START_OBJECT -> out.write(MAP | INDEFINITE);
+                    case START_ARRAY -> out.write(ARRAY | INDEFINITE);
+                    case END_OBJECT, END_ARRAY -> out.write(BREAK);
+                    case FIELD_NAME, VALUE_STRING -> writeText(out, parser.getText());
+                    case VALUE_NUMBER_INT -> {
+                        if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                            writeDouble(out, parser.getDoubleValue());
+                        } else {
+                            writeLong(out, parser.getLongValue());
+                        }
+                    }
+                    case VALUE_NUMBER_FLOAT -> writeDouble(out, parser.getDoubleValue());
+                    case VALUE_TRUE -> out.write(SIMPLE | 21);
+                    case VALUE_FALSE -> out.write(SIMPLE | 20);
+                    case VALUE_NULL -> out.write(SIMPLE | 22);
+                    default -> throw new IllegalArgumentException("Unsupported JSON token " + token);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getMessage(), e);
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] cborToJson(byte[] cbor) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(cbor.length + cbor.length / 4 + 16);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            Reader reader = new Reader(cbor);
+            reader.item(generator, 0, false);
+            if (reader.pos != cbor.length) {
+                throw new IllegalArgumentException("Malformed CBOR: trailing bytes after the message");
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed CBOR: " + e.getMessage(), e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        if (value >= 0) {
+            writeHead(out, UNSIGNED, value);
+        } else {
+            writeHead(out, NEGATIVE, -1 - value);
+        }
+    }
+
+    private static void writeDouble(ByteArrayOutputStream out, double value) {
+        float single = (float) value;
+        if (single == value || Double.isNaN(value)) {
+            out.write(SIMPLE | 26);
+            writeBigEndian(out, Float.floatToIntBits(single), 4);
+        } else {
+            out.write(SIMPLE | 27);
+            writeBigEndian(out, Double.doubleToLongBits(value), 8);
+        }
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        writeHead(out, TEXT, utf8.length);
+        out.write(utf8, 0, utf8.length);
+    }
+
+    /** Major type and argument in the shortest encoding; {@code argument} is unsigned. */
+    private static void writeHead(ByteArrayOutputStream out, int majorType, long argument) {
+        if (argument >= 0 && argument < 24) {
+            out.write(majorType | (int) argument);
+        } else if (argument >= 0 && argument <= 0xff) {
+            out.write(majorType | 24);
+            out.write((int) argument);
+        } else if (argument >= 0 && argument <= 0xffff) {
+            out.write(majorType | 25);
+            writeBigEndian(out, argument, 2);
+        } else if (argument >= 0 && argument <= 0xffffffffL) {
+            out.write(majorType | 26);
+            writeBigEndian(out, argument, 4);
+        } else {
+            out.write(majorType | 27);
+            writeBigEndian(out, argument, 8);
+        }
+    }
+
+    private static void writeBigEndian(ByteArrayOutputStream out, long value, int bytes) {
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] in;
+        private int pos;
+
+        Reader(byte[] in) {
+            this.in = in;
+        }
+
+        /**
+         * Writes one data item; returns false if it was a break code, which is only allowed
+         * where {@code breakAllowed} (inside an indefinite-length container).
+         */
+        boolean item(JsonGenerator out, int depth, boolean breakAllowed) throws IOException {
+            if (depth > MAX_DEPTH) {
+                throw malformed("nested deeper than " + MAX_DEPTH);
+            }
+            int initial = readByte();
+            if (initial == BREAK) {
+                if (!breakAllowed) {
+                    throw malformed("unexpected break");
+                }
+                return false;
+            }
+            int majorType = initial & 0xe0;
+            int info = initial & 0x1f;
+            switch (majorType) {
+                case UNSIGNED -> {
+                    long value = argument(info);
+                    if (value < 0) {
+                        out.writeNumber(Long.toUnsignedString(value));
+                    } else {
+                        out.writeNumber(value);
+                    }
+                }
+                case NEGATIVE -> {
+                    long value = argument(info);
+                    if (value < 0) {
+                        throw malformed("negative integer out of range");
+                    }
+                    out.writeNumber(-1 - value);
+                }
+                case BYTES -> out.writeBinary(string(BYTES, info));
+                case TEXT -> out.writeString(new String(string(TEXT, info), StandardCharsets.UTF_8));
+                case ARRAY -> {
+                    out.writeStartArray();
+                    if (info == INDEFINITE) {
+                        while (item(out, depth + 1, true)) {
+                            // items are written as they are read
+                        }
+                    } else {
+                        for (long i = length(info); i > 0; i--) {
+                            item(out, depth + 1, false);
+                        }
+                    }
+                    out.writeEndArray();
+                }
+                case MAP -> {
+                    out.writeStartObject();
+                    if (info == INDEFINITE) {
+                        while (key(out)) {
+                            item(out, depth + 1, false);
+                        }
+                    } else {
+                        for (long i = length(info); i > 0; i--) {
+                            if (!key(out)) {
+                                throw malformed("unexpected break");
+                            }
+                            item(out, depth + 1, false);
+                        }
+                    }
+                    out.writeEndObject();
+                }
+                case TAG -> {
+                    argument(info);
+                    return item(out, depth + 1, false);
+                }
+                default -> simple(out, info);
+            }
+            return true;
+        }
+
+        /** Reads a map key as a field name; false at the break ending an indefinite map. */
+        private boolean key(JsonGenerator out) throws IOException {
+            int initial = readByte();
+            if (initial == BREAK) {
+                return false;
+            }
+            int majorType = initial & 0xe0;
+            int info = initial & 0x1f;
+            if (majorType == TEXT) {
+                out.writeFieldName(new String(string(TEXT, info), StandardCharsets.UTF_8));
+            } else if (majorType == UNSIGNED) {
+                out.writeFieldName(Long.toUnsignedString(argument(info)));
+            } else if (majorType == NEGATIVE) {
+                out.writeFieldName(Long.toString(-1 - argument(info)));
+            } else {
+                throw malformed("map keys must be strings or integers");
+            }
+            return true;
+        }
+
+        private void simple(JsonGenerator out, int info) throws IOException {
+            switch (info) {
+                case 20 -> out.writeBoolean(false);
+                case 21 -> out.writeBoolean(true);
+                case 22, 23 -> out.writeNull();
+                case 25 -> out.writeNumber(halfToFloat((int) fixed(2)));
+                case 26 -> out.writeNumber(Float.intBitsToFloat((int) fixed(4)));
+                case 27 -> out.writeNumber(Double.longBitsToDouble(fixed(8)));
+                default -> throw malformed("unsupported simple value " + info);
+            }
+        }
+
+        /** A byte or text string's content; indefinite-length strings are concatenated from their chunks. */
+        private byte[] string(int majorType, int info) {
+            if (info != INDEFINITE) {
+                int length = (int) length(info);
+                byte[] bytes = java.util.Arrays.copyOfRange(in, pos, pos + length);
+                pos += length;
+                return bytes;
+            }
+            ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+            int initial;
+            while ((initial = readByte()) != BREAK) {
+                if ((initial & 0xe0) != majorType || (initial & 0x1f) == INDEFINITE) {
+                    throw malformed("bad string chunk");
+                }
+                int length = (int) length(initial & 0x1f);
+                chunks.write(in, pos, length);
+                pos += length;
+            }
+            return chunks.toByteArray();
+        }
+
+        /** A length argument that must fit in what is left of the input. */
+        private long length(int info) {
+            long length = argument(info);
+            if (length < 0 || length > in.length - pos) {
+                throw malformed("length " + Long.toUnsignedString(length) + " exceeds the input");
+            }
+            return length;
+        }
+
+        private long argument(int info) {
+            if (info < 24) {
+                return info;
+            }
+            return switch (info) {
+                case 24 -> fixed(1);
+                case 25 -> fixed(2);
+                case 26 -> fixed(4);
+                case 27 -> fixed(8);
+                default -> throw malformed("bad additional info " + info);
+            };
+        }
+
+        private long fixed(int bytes) {
+            if (in.length - pos < bytes) {
+                throw malformed("truncated");
+            }
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value = (value << 8) | (in[pos++] & 0xff);
+            }
+            return value;
+        }
+
+        private int readByte() {
+            if (pos >= in.length) {
+                throw malformed("truncated");
+            }
+            return in[pos++] & 0xff;
+        }
+    }
+
+    private static float halfToFloat(int half) {
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        float value;
+        if (exponent == 0) {
+            value = mantissa * 0x1p-24f;
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+        } else {
+            value = (mantissa + 1024) * (float) Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+
+    private static IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed CBOR: " + reason);
+    }
+}
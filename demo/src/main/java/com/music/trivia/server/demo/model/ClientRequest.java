@@ -0,0 +1,61 @@
+package com.music.trivia.server.demo.model;
+
+/**
+ * Typed bodies of the requests clients send to {@code /app/...}. Unlike {@link GameMessage}s they
+ * are flat JSON objects with no {@code type}/{@code data} envelope, as clients have always sent
+ * them. {@link GameMessageCodec#decodeRequest} reads them just as strictly: a missing or wrongly
+ * typed field rejects the frame before the handler runs.
+ */
+public sealed interface ClientRequest {
+
+    String sessionId();
+
+    /** {@code /app/userLeave} */
+    record UserLeave(String sessionId, String userId) implements ClientRequest {
+    }
+
+    /** {@code /app/rosterSync}; {@code seq} is the last roster change applied, or null for a fresh client. */
+    record RosterSync(String sessionId, String userId, Long seq) implements ClientRequest {
+    }
+
+    /**
+     * {@code /app/userUpdate}, with the new values under {@code updates}; fields left out (or
+     * null) are left unchanged.
+     */
+    record UserUpdate(String sessionId, String userId, String avatar, String role, Integer score) implements ClientRequest {
+    }
+
+    /** {@code /app/startGame} */
+    record StartGame(String sessionId, String userId) implements ClientRequest {
+    }
+
+    /** {@code /app/endGame} */
+    record EndGame(String sessionId, String userId) implements ClientRequest {
+    }
+
+    /**
+     * {@code /app/submitAnswer}: the answer as {@code choiceId} (preferred) or, for older clients,
+     * as the {@code answer} text. At least one is set.
+     */
+    record SubmitAnswer(String sessionId, String userId, Integer choiceId, String answer) implements ClientRequest {
+    }
+
+    /** {@code /app/getCurrentQuestion} */
+    record GetCurrentQuestion(String sessionId) implements ClientRequest {
+    }
+
+    /**
+     * {@code /app/nextQuestion}; {@code questionIndex} is the question the client is moving on
+     * from, or null for older clients, which skip whatever question is current.
+     */
+    record NextQuestion(String sessionId, Integer questionIndex) implements ClientRequest {
+    }
+
+    /** {@code /app/removeUser} */
+    record RemoveUser(String sessionId, String userToRemove, String requestingUser) implements ClientRequest {
+    }
+
+    /** {@code /app/creatorLeave} */
+    record CreatorLeave(String sessionId, String creatorId) implements ClientRequest {
+    }
+}
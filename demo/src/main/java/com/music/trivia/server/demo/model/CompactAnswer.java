@@ -0,0 +1,60 @@
+package com.music.trivia.server.demo.model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact answer submission body: ASCII {@code "<questionIndex>:<choiceId>"} (for example
+ * {@code "3:1"}), or just {@code "<choiceId>"} to answer whatever question is current. The
+ * question index lets the server drop answers that arrive after the round has moved on.
+ * <p>
+ * Parsing works on the raw frame bytes and returns both numbers packed into one {@code long},
+ * so nothing is allocated per submission.
+ */
+public final class CompactAnswer {
+
+    /** Returned by {@link #parse} for a malformed body. */
+    public static final long INVALID = -1;
+    /** Question index of a body that didn't name one. */
+    public static final int ANY_QUESTION = -1;
+
+    private CompactAnswer() {
+    }
+
+    public static long parse(byte[] body) {
+        if (body == null) {
+            return INVALID;
+        }
+        long first = -1;
+        long current = -1;
+        for (byte b : body) {
+            if (b >= '0' && b <= '9') {
+                current = (current < 0 ? 0 : current * 10) + (b - '0');
+                if (current > Integer.MAX_VALUE) {
+                    return INVALID;
+                }
+            } else if (b == ':' && first < 0 && current >= 0) {
+                first = current;
+                current = -1;
+            } else if (b != ' ' && b != '\n' && b != '\r' && b != 0) {
+                return INVALID;
+            }
+        }
+        if (current < 0) {
+            return INVALID;
+        }
+        long questionIndex = first < 0 ? ANY_QUESTION : first;
+        return ((questionIndex + 1) << 32) | current;
+    }
+
+    public static int questionIndex(long packed) {
+        return (int) (packed >>> 32) - 1;
+    }
+
+    public static int choiceId(long packed) {
+        return (int) packed;
+    }
+
+    public static byte[] encode(int questionIndex, int choiceId) {
+        return (questionIndex + ":" + choiceId).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,81 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A session's game phase and round, packed into one {@link AtomicLong} so both are read and
+ * changed together. Transitions are compare-and-set on the (round, phase) pair the caller saw:
+ * when the round timer, the end of an intermission and a {@code /nextQuestion} all try to move
+ * on from the same round, exactly one succeeds and the others are no-ops. Reads are a single
+ * volatile load, so late answers can be turned away before they reach the session's mailbox.
+ */
+public final class GameEngine {
+
+    private static final GamePhase[] PHASES = GamePhase.values();
+    private static final int PHASE_BITS = 8;
+    private static final long PHASE_MASK = (1L << PHASE_BITS) - 1;
+
+    private final AtomicLong state = new AtomicLong(pack(0, GamePhase.LOBBY));
+
+    public GamePhase getPhase() {
+        return phaseOf(state.get());
+    }
+
+    public int getRound() {
+        return roundOf(state.get());
+    }
+
+    /** Whether answers for {@code round} are being accepted right now. */
+    public boolean isOpen(int round) {
+        return state.get() == pack(round, GamePhase.QUESTION_OPEN);
+    }
+
+    /**
+     * Moves from {@code from} to {@code to} within {@code round}.
+     *
+     * @return {@code false} if the game was not at that round and phase
+     */
+    public boolean transition(int round, GamePhase from, GamePhase to) {
+        return state.compareAndSet(pack(round, from), pack(round, to));
+    }
+
+    /**
+     * Ends {@code round} and opens the next one, or goes to GAME_OVER if it was the last of
+     * {@code questionCount}. Allowed from QUESTION_OPEN (the round timed out or was skipped) and
+     * INTERMISSION.
+     *
+     * @return the new phase, or {@code null} if the game had already moved past {@code round}
+     */
+    public GamePhase advance(int round, int questionCount) {
+        GamePhase next = round + 1 >= questionCount ? GamePhase.GAME_OVER : GamePhase.QUESTION_OPEN;
+        long to = pack(round + 1, next);
+        if (state.compareAndSet(pack(round, GamePhase.QUESTION_OPEN), to)
+                || state.compareAndSet(pack(round, GamePhase.INTERMISSION), to)) {
+            return next;
+        }
+        return null;
+    }
+
+    /** Sets the state outright, for starting and ending games and for restoring sessions. */
+    public void reset(int round, GamePhase phase) {
+        state.set(pack(round, phase));
+    }
+
+    private static long pack(int round, GamePhase phase) {
+        return ((long) round << PHASE_BITS) | phase.ordinal();
+    }
+
+    private static GamePhase phaseOf(long packed) {
+        return PHASES[(int) (packed & PHASE_MASK)];
+    }
+
+    private static int roundOf(long packed) {
+        return (int) (packed >> PHASE_BITS);
+    }
+
+    @Override
+    public String toString() {
+        long packed = state.get();
+        return phaseOf(packed) + "@" + roundOf(packed);
+    }
+}
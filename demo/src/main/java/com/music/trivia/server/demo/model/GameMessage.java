@@ -0,0 +1,180 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed game traffic. Each record is one message type; {@link GameMessageCodec} writes it as
+ * {@code {"type": TYPE, "data": {...}}}, the same JSON the map-based payloads produced, so
+ * clients see no difference.
+ */
+public sealed interface GameMessage {
+
+    /** The {@code type} it is sent as: the record's {@code TYPE}, the only place each name is spelled out. */
+    String type();
+
+    /** A player joined; also the body clients send to {@code /app/userJoin}. */
+    record UserJoin(String userId, String sessionId, String avatar, int score, String role) implements GameMessage {
+        public static final String TYPE = "USER_JOIN";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** The full roster, keyed by user ID, as of {@link RosterLog} change {@code seq}. */
+    record UserList(long seq, Map<String, User> users) implements GameMessage {
+        public static final String TYPE = "USER_LIST";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** Roster changes up to and including {@code seq}, oldest first; the first is {@code seq - changes.size() + 1}. */
+    record RosterDelta(long seq, List<RosterLog.Change> changes) implements GameMessage {
+        public static final String TYPE = "ROSTER_DELTA";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    record AnswerResult(String userId, boolean isCorrect, int score, int rank, String avatar) implements GameMessage {
+        public static final String TYPE = "ANSWER_RESULT";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** A question without its answer key; built once per game by {@link QuestionFrame}. */
+    record NewQuestion(int index, int total, String question, List<QuestionFrame.Choice> choices) implements GameMessage {
+        public static final String TYPE = "NEW_QUESTION";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** Legacy countdown tick, in whole seconds. */
+    record TimerUpdate(long timeLeft) implements GameMessage {
+        public static final String TYPE = "TIMER_UPDATE";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** A game could not start: no questions could be fetched, or none were available. */
+    record StartFailed(String message) implements GameMessage {
+        public static final String TYPE = "START_FAILED";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /**
+     * Final scores in rank order, highest first; players on the same score share a rank. For large
+     * sessions {@code scores} is only the top N and {@code totalPlayers} says how many played.
+     */
+    record GameOver(Map<String, Integer> scores, int totalPlayers) implements GameMessage {
+        public static final String TYPE = "GAME_OVER";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** One player's place, sent to that player alone when GAME_OVER lists only the top N. */
+    record YourRank(int rank, int score, int totalPlayers) implements GameMessage {
+        public static final String TYPE = "YOUR_RANK";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** The creator ended the game early; every score is back to 0. {@code avatars} is keyed by user ID. */
+    record EndGame(Map<String, String> avatars) implements GameMessage {
+        public static final String TYPE = "END_GAME";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /**
+     * The absolute deadline of round {@code questionIndex}, sent once per round; clients count
+     * down locally, correcting their clock by {@code serverTime}.
+     */
+    record RoundDeadline(int questionIndex, long deadline, long serverTime, long timeLimitMs) implements GameMessage {
+        public static final String TYPE = "ROUND_DEADLINE";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** Everyone has answered; reveals the round's answer, or -1 if there is no current question. */
+    record AllAnswered(int correctChoiceId) implements GameMessage {
+        public static final String TYPE = "ALL_ANSWERED";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** A request could not be served. */
+    record ErrorMessage(String message) implements GameMessage {
+        public static final String TYPE = "ERROR";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** The creator removed a player; broadcast to the session. */
+    record UserRemoved(String userId) implements GameMessage {
+        public static final String TYPE = "USER_REMOVED";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** Sent to a removed player alone. */
+    record RemovedFromSession(String sessionId) implements GameMessage {
+        public static final String TYPE = "REMOVED_FROM_SESSION";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+
+    /** The session is gone: its creator left, or it expired. */
+    record SessionEnded(String sessionId) implements GameMessage {
+        public static final String TYPE = "SESSION_ENDED";
+
+        @Override
+        public String type() {
+            return TYPE;
+        }
+    }
+}
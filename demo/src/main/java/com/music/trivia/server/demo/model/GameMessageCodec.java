@@ -0,0 +1,889 @@
+package com.music.trivia.server.demo.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON encoder and decoder for {@link GameMessage}s, written against Jackson's streaming API.
+ * <p>
+ * Each message type has its own hand-written writer and reader, and field names are
+ * pre-encoded, so nothing is looked up reflectively and no intermediate maps are built. Each
+ * thread keeps one generator and its output buffer and reuses them for every message it
+ * encodes; the only allocation left is the returned byte array.
+ * <p>
+ * Decoding is strict: the {@code type} field must come before {@code data}, and a wrong type,
+ * a field of the wrong JSON type or a missing required field fails with
+ * {@link IllegalArgumentException} as soon as it is read.
+ * <p>
+ * {@link #decodeRequest} reads the flat {@link ClientRequest} bodies clients send, with the same
+ * strictness.
+ */
+public final class GameMessageCodec {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString DATA = new SerializedString("data");
+    private static final SerializedString USER_ID = new SerializedString("userId");
+    private static final SerializedString SESSION_ID = new SerializedString("sessionId");
+    private static final SerializedString AVATAR = new SerializedString("avatar");
+    private static final SerializedString SCORE = new SerializedString("score");
+    private static final SerializedString ROLE = new SerializedString("role");
+    private static final SerializedString IS_CORRECT = new SerializedString("isCorrect");
+    private static final SerializedString RANK = new SerializedString("rank");
+    private static final SerializedString INDEX = new SerializedString("index");
+    private static final SerializedString TOTAL = new SerializedString("total");
+    private static final SerializedString QUESTION = new SerializedString("question");
+    private static final SerializedString CHOICES = new SerializedString("choices");
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TEXT = new SerializedString("text");
+    private static final SerializedString TIME_LEFT = new SerializedString("timeLeft");
+    private static final SerializedString TOTAL_PLAYERS = new SerializedString("totalPlayers");
+    private static final SerializedString SEQ = new SerializedString("seq");
+    private static final SerializedString CHANGES = new SerializedString("changes");
+    private static final SerializedString OP = new SerializedString("op");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+    private static final SerializedString QUESTION_INDEX = new SerializedString("questionIndex");
+    private static final SerializedString DEADLINE = new SerializedString("deadline");
+    private static final SerializedString SERVER_TIME = new SerializedString("serverTime");
+    private static final SerializedString TIME_LIMIT_MS = new SerializedString("timeLimitMs");
+    private static final SerializedString CORRECT_CHOICE_ID = new SerializedString("correctChoiceId");
+    private static final Map<RosterLog.Op, SerializedString> OP_NAMES = Map.of(
+            RosterLog.Op.JOIN, new SerializedString("join"),
+            RosterLog.Op.UPDATE, new SerializedString("update"),
+            RosterLog.Op.LEAVE, new SerializedString("leave"));
+
+    private static final Map<Class<? extends GameMessage>, String> TYPE_NAMES = Map.ofEntries(
+            Map.entry(GameMessage.UserJoin.class, GameMessage.UserJoin.TYPE),
+            Map.entry(GameMessage.UserList.class, GameMessage.UserList.TYPE),
+            Map.entry(GameMessage.RosterDelta.class, GameMessage.RosterDelta.TYPE),
+            Map.entry(GameMessage.AnswerResult.class, GameMessage.AnswerResult.TYPE),
+            Map.entry(GameMessage.NewQuestion.class, GameMessage.NewQuestion.TYPE),
+            Map.entry(GameMessage.TimerUpdate.class, GameMessage.TimerUpdate.TYPE),
+            Map.entry(GameMessage.StartFailed.class, GameMessage.StartFailed.TYPE),
+            Map.entry(GameMessage.GameOver.class, GameMessage.GameOver.TYPE),
+            Map.entry(GameMessage.YourRank.class, GameMessage.YourRank.TYPE),
+            Map.entry(GameMessage.EndGame.class, GameMessage.EndGame.TYPE),
+            Map.entry(GameMessage.RoundDeadline.class, GameMessage.RoundDeadline.TYPE),
+            Map.entry(GameMessage.AllAnswered.class, GameMessage.AllAnswered.TYPE),
+            Map.entry(GameMessage.ErrorMessage.class, GameMessage.ErrorMessage.TYPE),
+            Map.entry(GameMessage.UserRemoved.class, GameMessage.UserRemoved.TYPE),
+            Map.entry(GameMessage.RemovedFromSession.class, GameMessage.RemovedFromSession.TYPE),
+            Map.entry(GameMessage.SessionEnded.class, GameMessage.SessionEnded.TYPE));
+
+    private static final ThreadLocal<Writer> WRITERS = new ThreadLocal<>();
+
+    private GameMessageCodec() {
+    }
+
+    public static byte[] encode(GameMessage message) {
+        Writer writer = WRITERS.get();
+        if (writer == null) {
+            writer = new Writer();
+            WRITERS.set(writer);
+        }
+        try {
+            return writer.write(message);
+        } catch (IOException | RuntimeException e) {
+            // The generator may be mid-object; start the next message on a fresh one
+            WRITERS.remove();
+            throw new IllegalStateException("Could not encode " + message.type(), e);
+        }
+    }
+
+    public static GameMessage decode(byte[] bytes) {
+        return decode(bytes, null);
+    }
+
+    /**
+     * Decodes a message that must be of type {@code expected}; anything else is rejected when its
+     * {@code type} field is read, before the body is parsed.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends GameMessage> T decode(byte[] bytes, Class<T> expected) {
+        String expectedType = expected == null ? null : TYPE_NAMES.get(expected);
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            GameMessage message = read(parser, expectedType);
+            if (parser.nextToken() != null) {
+                throw malformed("trailing content after the message");
+            }
+            return expected == null ? (T) message : expected.cast(message);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed message: " + e.getMessage(), e);
+        }
+    }
+
+    /** Decodes the body of a client request of type {@code type}. */
+    public static <T extends ClientRequest> T decodeRequest(byte[] bytes, Class<T> type) {
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw malformed("request must be a JSON object");
+            }
+            ClientRequest request = readRequest(parser, type);
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw malformed("unterminated request");
+            }
+            if (parser.nextToken() != null) {
+                throw malformed("trailing content after the request");
+            }
+            return type.cast(request);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed message: " + e.getMessage(), e);
+        }
+    }
+
+    /** One thread's generator, writing into a buffer that is emptied, but keeps its capacity, after every message. */
+    private static final class Writer {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        private final JsonGenerator generator;
+
+        Writer() {
+            try {
+                generator = JSON_FACTORY.createGenerator(buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            generator.setRootValueSeparator(null);
+        }
+
+        byte[] write(GameMessage message) throws IOException {
+            JsonGenerator g = generator;
+            g.writeStartObject();
+            g.writeFieldName(TYPE);
+            g.writeString(message.type());
+            g.writeFieldName(DATA);
+            if (message instanceof GameMessage.UserJoin join) {
+                g.writeStartObject();
+                writeString(g, USER_ID, join.userId());
+                writeString(g, SESSION_ID, join.sessionId());
+                writeString(g, AVATAR, join.avatar());
+                g.writeFieldName(SCORE);
+                g.writeNumber(join.score());
+                writeString(g, ROLE, join.role());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.UserList list) {
+                g.writeStartObject();
+                for (Map.Entry<String, User> entry : list.users().entrySet()) {
+                    User user = entry.getValue();
+                    g.writeFieldName(entry.getKey());
+                    g.writeStartObject();
+                    writeString(g, AVATAR, user.getAvatar());
+                    writeString(g, ROLE, user.getRole());
+                    g.writeFieldName(SCORE);
+                    g.writeNumber(user.getScore());
+                    g.writeEndObject();
+                }
+                g.writeEndObject();
+                g.writeFieldName(SEQ);
+                g.writeNumber(list.seq());
+            } else if (message instanceof GameMessage.RosterDelta delta) {
+                g.writeStartObject();
+                g.writeFieldName(CHANGES);
+                g.writeStartArray();
+                for (RosterLog.Change change : delta.changes()) {
+                    g.writeStartObject();
+                    g.writeFieldName(OP);
+                    g.writeString(OP_NAMES.get(change.op()));
+                    writeString(g, USER_ID, change.userId());
+                    if (change.op() != RosterLog.Op.LEAVE) {
+                        writeString(g, AVATAR, change.avatar());
+                        writeString(g, ROLE, change.role());
+                        g.writeFieldName(SCORE);
+                        g.writeNumber(change.score());
+                    }
+                    g.writeEndObject();
+                }
+                g.writeEndArray();
+                g.writeEndObject();
+                g.writeFieldName(SEQ);
+                g.writeNumber(delta.seq());
+            } else if (message instanceof GameMessage.AnswerResult result) {
+                g.writeStartObject();
+                writeString(g, USER_ID, result.userId());
+                g.writeFieldName(IS_CORRECT);
+                g.writeBoolean(result.isCorrect());
+                g.writeFieldName(SCORE);
+                g.writeNumber(result.score());
+                g.writeFieldName(RANK);
+                g.writeNumber(result.rank());
+                writeString(g, AVATAR, result.avatar());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.NewQuestion question) {
+                g.writeStartObject();
+                g.writeFieldName(INDEX);
+                g.writeNumber(question.index());
+                g.writeFieldName(TOTAL);
+                g.writeNumber(question.total());
+                writeString(g, QUESTION, question.question());
+                g.writeFieldName(CHOICES);
+                g.writeStartArray();
+                for (QuestionFrame.Choice choice : question.choices()) {
+                    g.writeStartObject();
+                    g.writeFieldName(ID);
+                    g.writeNumber(choice.id());
+                    writeString(g, TEXT, choice.text());
+                    g.writeEndObject();
+                }
+                g.writeEndArray();
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.TimerUpdate timer) {
+                g.writeStartObject();
+                g.writeFieldName(TIME_LEFT);
+                g.writeNumber(timer.timeLeft());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.StartFailed failed) {
+                g.writeStartObject();
+                writeString(g, MESSAGE, failed.message());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.YourRank rank) {
+                g.writeStartObject();
+                g.writeFieldName(RANK);
+                g.writeNumber(rank.rank());
+                g.writeFieldName(SCORE);
+                g.writeNumber(rank.score());
+                g.writeFieldName(TOTAL_PLAYERS);
+                g.writeNumber(rank.totalPlayers());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.EndGame endGame) {
+                g.writeStartObject();
+                for (Map.Entry<String, String> entry : endGame.avatars().entrySet()) {
+                    g.writeFieldName(entry.getKey());
+                    g.writeStartObject();
+                    g.writeFieldName(SCORE);
+                    g.writeNumber(0);
+                    writeString(g, AVATAR, entry.getValue());
+                    g.writeEndObject();
+                }
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.RoundDeadline deadline) {
+                g.writeStartObject();
+                g.writeFieldName(QUESTION_INDEX);
+                g.writeNumber(deadline.questionIndex());
+                g.writeFieldName(DEADLINE);
+                g.writeNumber(deadline.deadline());
+                g.writeFieldName(SERVER_TIME);
+                g.writeNumber(deadline.serverTime());
+                g.writeFieldName(TIME_LIMIT_MS);
+                g.writeNumber(deadline.timeLimitMs());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.AllAnswered allAnswered) {
+                g.writeStartObject();
+                g.writeFieldName(CORRECT_CHOICE_ID);
+                g.writeNumber(allAnswered.correctChoiceId());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.ErrorMessage error) {
+                g.writeStartObject();
+                writeString(g, MESSAGE, error.message());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.UserRemoved removed) {
+                g.writeStartObject();
+                writeString(g, USER_ID, removed.userId());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.RemovedFromSession removed) {
+                g.writeStartObject();
+                writeString(g, SESSION_ID, removed.sessionId());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.SessionEnded ended) {
+                g.writeStartObject();
+                writeString(g, SESSION_ID, ended.sessionId());
+                g.writeEndObject();
+            } else if (message instanceof GameMessage.GameOver gameOver) {
+                g.writeStartObject();
+                for (Map.Entry<String, Integer> entry : gameOver.scores().entrySet()) {
+                    g.writeFieldName(entry.getKey());
+                    g.writeNumber(entry.getValue());
+                }
+                g.writeEndObject();
+                if (gameOver.totalPlayers() != gameOver.scores().size()) {
+                    g.writeFieldName(TOTAL_PLAYERS);
+                    g.writeNumber(gameOver.totalPlayers());
+                }
+            }
+            g.writeEndObject();
+            g.flush();
+            byte[] bytes = buffer.toByteArray();
+            buffer.reset();
+            return bytes;
+        }
+
+        private static void writeString(JsonGenerator g, SerializedString name, String value) throws IOException {
+            g.writeFieldName(name);
+            g.writeString(value);
+        }
+    }
+
+    private static GameMessage read(JsonParser p, String expectedType) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            throw malformed("message must be a JSON object");
+        }
+        String type = null;
+        GameMessage message = null;
+        int totalPlayers = -1;
+        long seq = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "type" -> {
+                    type = requireString(p, field);
+                    if (expectedType != null && !expectedType.equals(type)) {
+                        throw malformed("expected a " + expectedType + " message, got " + type);
+                    }
+                }
+                case "data" -> {
+                    if (type == null) {
+                        throw malformed("type must come before data");
+                    }
+                    message = readData(p, type);
+                }
+                case "totalPlayers" -> totalPlayers = intValue(p, field);
+                case "seq" -> seq = longValue(p, field);
+                default -> p.skipChildren();
+            }
+        }
+        if (p.currentToken() != JsonToken.END_OBJECT) {
+            throw malformed("unterminated message");
+        }
+        if (message == null) {
+            throw malformed(type == null ? "missing type" : "missing data");
+        }
+        if (message instanceof GameMessage.GameOver gameOver && totalPlayers >= 0) {
+            return new GameMessage.GameOver(gameOver.scores(), totalPlayers);
+        }
+        if (message instanceof GameMessage.UserList list) {
+            return new GameMessage.UserList(seq, list.users());
+        }
+        if (message instanceof GameMessage.RosterDelta delta) {
+            return new GameMessage.RosterDelta(seq, delta.changes());
+        }
+        return message;
+    }
+
+    private static GameMessage readData(JsonParser p, String type) throws IOException {
+        expect(p, JsonToken.START_OBJECT, "data");
+        return switch (type) {
+            case GameMessage.UserJoin.TYPE -> readUserJoin(p);
+            case GameMessage.UserList.TYPE -> readUserList(p);
+            case GameMessage.RosterDelta.TYPE -> readRosterDelta(p);
+            case GameMessage.AnswerResult.TYPE -> readAnswerResult(p);
+            case GameMessage.NewQuestion.TYPE -> readNewQuestion(p);
+            case GameMessage.TimerUpdate.TYPE -> readTimerUpdate(p);
+            case GameMessage.StartFailed.TYPE -> new GameMessage.StartFailed(readMessage(p, type));
+            case GameMessage.GameOver.TYPE -> readGameOver(p);
+            case GameMessage.YourRank.TYPE -> readYourRank(p);
+            case GameMessage.EndGame.TYPE -> readEndGame(p);
+            case GameMessage.RoundDeadline.TYPE -> readRoundDeadline(p);
+            case GameMessage.AllAnswered.TYPE -> readAllAnswered(p);
+            case GameMessage.ErrorMessage.TYPE -> new GameMessage.ErrorMessage(readMessage(p, type));
+            case GameMessage.UserRemoved.TYPE -> new GameMessage.UserRemoved(readStrings(p, type, "userId")[0]);
+            case GameMessage.RemovedFromSession.TYPE -> new GameMessage.RemovedFromSession(readStrings(p, type, "sessionId")[0]);
+            case GameMessage.SessionEnded.TYPE -> new GameMessage.SessionEnded(readStrings(p, type, "sessionId")[0]);
+            default -> throw malformed("unknown message type " + type);
+        };
+    }
+
+    private static GameMessage.UserJoin readUserJoin(JsonParser p) throws IOException {
+        String userId = null;
+        String sessionId = null;
+        String avatar = null;
+        String role = null;
+        Integer score = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "userId" -> userId = requireString(p, field);
+                case "sessionId" -> sessionId = requireString(p, field);
+                case "avatar" -> avatar = requireString(p, field);
+                case "role" -> role = requireString(p, field);
+                case "score" -> score = intValue(p, field);
+                default -> p.skipChildren();
+            }
+        }
+        if (userId == null || sessionId == null || avatar == null || role == null || score == null) {
+            throw malformed("USER_JOIN needs userId, sessionId, avatar, score and role");
+        }
+        return new GameMessage.UserJoin(userId, sessionId, avatar, score, role);
+    }
+
+    private static GameMessage.UserList readUserList(JsonParser p) throws IOException {
+        Map<String, User> users = new LinkedHashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String userId = p.currentName();
+            p.nextToken();
+            expect(p, JsonToken.START_OBJECT, userId);
+            User user = new User();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "avatar" -> user.setAvatar(string(p, field));
+                    case "role" -> user.setRole(string(p, field));
+                    case "score" -> user.setScore(intValue(p, field));
+                    default -> p.skipChildren();
+                }
+            }
+            users.put(userId, user);
+        }
+        return new GameMessage.UserList(0, users);
+    }
+
+    private static GameMessage.RosterDelta readRosterDelta(JsonParser p) throws IOException {
+        List<RosterLog.Change> changes = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if (!field.equals("changes")) {
+                p.skipChildren();
+                continue;
+            }
+            expect(p, JsonToken.START_ARRAY, field);
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                RosterLog.Op op = null;
+                String userId = null;
+                String avatar = null;
+                String role = null;
+                int score = 0;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String changeField = p.currentName();
+                    p.nextToken();
+                    switch (changeField) {
+                        case "op" -> op = switch (requireString(p, changeField)) {
+                            case "join" -> RosterLog.Op.JOIN;
+                            case "update" -> RosterLog.Op.UPDATE;
+                            case "leave" -> RosterLog.Op.LEAVE;
+                            default -> throw malformed("unknown roster op " + p.getText());
+                        };
+                        case "userId" -> userId = requireString(p, changeField);
+                        case "avatar" -> avatar = string(p, changeField);
+                        case "role" -> role = string(p, changeField);
+                        case "score" -> score = intValue(p, changeField);
+                        default -> p.skipChildren();
+                    }
+                }
+                if (op == null || userId == null) {
+                    throw malformed("roster changes need op and userId");
+                }
+                changes.add(new RosterLog.Change(op, userId, avatar, role, score));
+            }
+            expect(p, JsonToken.END_ARRAY, field);
+        }
+        return new GameMessage.RosterDelta(0, changes);
+    }
+
+    private static GameMessage.AnswerResult readAnswerResult(JsonParser p) throws IOException {
+        String userId = null;
+        String avatar = null;
+        boolean hasAvatar = false;
+        Boolean isCorrect = null;
+        Integer score = null;
+        Integer rank = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "userId" -> userId = requireString(p, field);
+                case "avatar" -> {
+                    avatar = string(p, field);
+                    hasAvatar = true;
+                }
+                case "isCorrect" -> isCorrect = booleanValue(p, field);
+                case "score" -> score = intValue(p, field);
+                case "rank" -> rank = intValue(p, field);
+                default -> p.skipChildren();
+            }
+        }
+        if (userId == null || isCorrect == null || score == null || rank == null || !hasAvatar) {
+            throw malformed("ANSWER_RESULT needs userId, isCorrect, score, rank and avatar");
+        }
+        return new GameMessage.AnswerResult(userId, isCorrect, score, rank, avatar);
+    }
+
+    private static GameMessage.NewQuestion readNewQuestion(JsonParser p) throws IOException {
+        int index = 0;
+        int total = 0;
+        String question = null;
+        List<QuestionFrame.Choice> choices = new ArrayList<>(4);
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "index" -> index = intValue(p, field);
+                case "total" -> total = intValue(p, field);
+                case "question" -> question = string(p, field);
+                case "choices" -> {
+                    expect(p, JsonToken.START_ARRAY, field);
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        int id = -1;
+                        String text = null;
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            String choiceField = p.currentName();
+                            p.nextToken();
+                            switch (choiceField) {
+                                case "id" -> id = intValue(p, choiceField);
+                                case "text" -> text = string(p, choiceField);
+                                default -> p.skipChildren();
+                            }
+                        }
+                        choices.add(new QuestionFrame.Choice(id, text));
+                    }
+                    expect(p, JsonToken.END_ARRAY, field);
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return new GameMessage.NewQuestion(index, total, question, choices);
+    }
+
+    private static GameMessage.TimerUpdate readTimerUpdate(JsonParser p) throws IOException {
+        long timeLeft = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if (field.equals("timeLeft")) {
+                if (p.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+                    throw malformed("timeLeft must be an integer");
+                }
+                timeLeft = p.getLongValue();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new GameMessage.TimerUpdate(timeLeft);
+    }
+
+    /** Reads a {@code {"message": ...}} body, which must carry the message. */
+    private static String readMessage(JsonParser p, String type) throws IOException {
+        String message = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if (field.equals("message")) {
+                message = requireString(p, field);
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (message == null) {
+            throw malformed(type + " needs message");
+        }
+        return message;
+    }
+
+    private static GameMessage.GameOver readGameOver(JsonParser p) throws IOException {
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String userId = p.currentName();
+            p.nextToken();
+            scores.put(userId, intValue(p, userId));
+        }
+        return new GameMessage.GameOver(scores, scores.size());
+    }
+
+    private static GameMessage.YourRank readYourRank(JsonParser p) throws IOException {
+        Integer rank = null;
+        Integer score = null;
+        Integer totalPlayers = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "rank" -> rank = intValue(p, field);
+                case "score" -> score = intValue(p, field);
+                case "totalPlayers" -> totalPlayers = intValue(p, field);
+                default -> p.skipChildren();
+            }
+        }
+        if (rank == null || score == null || totalPlayers == null) {
+            throw malformed("YOUR_RANK needs rank, score and totalPlayers");
+        }
+        return new GameMessage.YourRank(rank, score, totalPlayers);
+    }
+
+    private static GameMessage.EndGame readEndGame(JsonParser p) throws IOException {
+        Map<String, String> avatars = new LinkedHashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String userId = p.currentName();
+            p.nextToken();
+            expect(p, JsonToken.START_OBJECT, userId);
+            String avatar = null;
+            boolean hasAvatar = false;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if (field.equals("avatar")) {
+                    avatar = string(p, field);
+                    hasAvatar = true;
+                } else if (field.equals("score")) {
+                    intValue(p, field);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (!hasAvatar) {
+                throw malformed("END_GAME players need an avatar");
+            }
+            avatars.put(userId, avatar);
+        }
+        return new GameMessage.EndGame(avatars);
+    }
+
+    private static GameMessage.RoundDeadline readRoundDeadline(JsonParser p) throws IOException {
+        Integer questionIndex = null;
+        Long deadline = null;
+        Long serverTime = null;
+        Long timeLimitMs = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "questionIndex" -> questionIndex = intValue(p, field);
+                case "deadline" -> deadline = longValue(p, field);
+                case "serverTime" -> serverTime = longValue(p, field);
+                case "timeLimitMs" -> timeLimitMs = longValue(p, field);
+                default -> p.skipChildren();
+            }
+        }
+        if (questionIndex == null || deadline == null || serverTime == null || timeLimitMs == null) {
+            throw malformed("ROUND_DEADLINE needs questionIndex, deadline, serverTime and timeLimitMs");
+        }
+        return new GameMessage.RoundDeadline(questionIndex, deadline, serverTime, timeLimitMs);
+    }
+
+    private static GameMessage.AllAnswered readAllAnswered(JsonParser p) throws IOException {
+        Integer correctChoiceId = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if (field.equals("correctChoiceId")) {
+                correctChoiceId = intValue(p, field);
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (correctChoiceId == null) {
+            throw malformed("ALL_ANSWERED needs correctChoiceId");
+        }
+        return new GameMessage.AllAnswered(correctChoiceId);
+    }
+
+    private static ClientRequest readRequest(JsonParser p, Class<? extends ClientRequest> type) throws IOException {
+        if (type == ClientRequest.UserUpdate.class) {
+            return readUserUpdate(p);
+        }
+        if (type == ClientRequest.SubmitAnswer.class) {
+            return readSubmitAnswer(p);
+        }
+        if (type == ClientRequest.RosterSync.class) {
+            return readRosterSync(p);
+        }
+        if (type == ClientRequest.UserLeave.class) {
+            String[] fields = readStrings(p, "userLeave", "sessionId", "userId");
+            return new ClientRequest.UserLeave(fields[0], fields[1]);
+        }
+        if (type == ClientRequest.StartGame.class) {
+            String[] fields = readStrings(p, "startGame", "sessionId", "userId");
+            return new ClientRequest.StartGame(fields[0], fields[1]);
+        }
+        if (type == ClientRequest.EndGame.class) {
+            String[] fields = readStrings(p, "endGame", "sessionId", "userId");
+            return new ClientRequest.EndGame(fields[0], fields[1]);
+        }
+        if (type == ClientRequest.NextQuestion.class) {
+            return readNextQuestion(p);
+        }
+        if (type == ClientRequest.GetCurrentQuestion.class) {
+            return new ClientRequest.GetCurrentQuestion(readStrings(p, "getCurrentQuestion", "sessionId")[0]);
+        }
+        if (type == ClientRequest.RemoveUser.class) {
+            String[] fields = readStrings(p, "removeUser", "sessionId", "userToRemove", "requestingUser");
+            return new ClientRequest.RemoveUser(fields[0], fields[1], fields[2]);
+        }
+        if (type == ClientRequest.CreatorLeave.class) {
+            String[] fields = readStrings(p, "creatorLeave", "sessionId", "creatorId");
+            return new ClientRequest.CreatorLeave(fields[0], fields[1]);
+        }
+        throw new IllegalArgumentException("No reader for " + type.getSimpleName());
+    }
+
+    private static ClientRequest.UserUpdate readUserUpdate(JsonParser p) throws IOException {
+        String sessionId = null;
+        String userId = null;
+        String avatar = null;
+        String role = null;
+        Integer score = null;
+        boolean hasUpdates = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "sessionId" -> sessionId = requireString(p, field);
+                case "userId" -> userId = requireString(p, field);
+                case "updates" -> {
+                    expect(p, JsonToken.START_OBJECT, field);
+                    hasUpdates = true;
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String update = p.currentName();
+                        p.nextToken();
+                        switch (update) {
+                            case "avatar" -> avatar = string(p, update);
+                            case "role" -> role = string(p, update);
+                            case "score" -> score = p.currentToken() == JsonToken.VALUE_NULL ? null : intValue(p, update);
+                            default -> p.skipChildren();
+                        }
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        if (sessionId == null || userId == null || !hasUpdates) {
+            throw malformed("userUpdate needs sessionId, userId and updates");
+        }
+        return new ClientRequest.UserUpdate(sessionId, userId, avatar, role, score);
+    }
+
+    private static ClientRequest.RosterSync readRosterSync(JsonParser p) throws IOException {
+        String sessionId = null;
+        String userId = null;
+        Long seq = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "sessionId" -> sessionId = requireString(p, field);
+                case "userId" -> userId = requireString(p, field);
+                case "seq" -> seq = p.currentToken() == JsonToken.VALUE_NULL ? null : longValue(p, field);
+                default -> p.skipChildren();
+            }
+        }
+        if (sessionId == null || userId == null) {
+            throw malformed("rosterSync needs sessionId and userId");
+        }
+        return new ClientRequest.RosterSync(sessionId, userId, seq);
+    }
+
+    private static ClientRequest.SubmitAnswer readSubmitAnswer(JsonParser p) throws IOException {
+        String sessionId = null;
+        String userId = null;
+        Integer choiceId = null;
+        String answer = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "sessionId" -> sessionId = requireString(p, field);
+                case "userId" -> userId = requireString(p, field);
+                case "choiceId" -> choiceId = p.currentToken() == JsonToken.VALUE_NULL ? null : intValue(p, field);
+                case "answer" -> answer = string(p, field);
+                default -> p.skipChildren();
+            }
+        }
+        if (sessionId == null || userId == null || (choiceId == null && answer == null)) {
+            throw malformed("submitAnswer needs sessionId, userId and a choiceId or answer");
+        }
+        return new ClientRequest.SubmitAnswer(sessionId, userId, choiceId, answer);
+    }
+
+    private static ClientRequest.NextQuestion readNextQuestion(JsonParser p) throws IOException {
+        String sessionId = null;
+        Integer questionIndex = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "sessionId" -> sessionId = requireString(p, field);
+                case "questionIndex" -> questionIndex = p.currentToken() == JsonToken.VALUE_NULL ? null : intValue(p, field);
+                default -> p.skipChildren();
+            }
+        }
+        if (sessionId == null) {
+            throw malformed("nextQuestion needs sessionId");
+        }
+        return new ClientRequest.NextQuestion(sessionId, questionIndex);
+    }
+
+    /**
+     * Reads an object whose fields {@code names} are all required strings, skipping any others,
+     * and returns their values in the order named.
+     */
+    private static String[] readStrings(JsonParser p, String what, String... names) throws IOException {
+        String[] values = new String[names.length];
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            int i = 0;
+            while (i < names.length && !names[i].equals(field)) {
+                i++;
+            }
+            if (i < names.length) {
+                values[i] = requireString(p, field);
+            } else {
+                p.skipChildren();
+            }
+        }
+        for (String value : values) {
+            if (value == null) {
+                throw malformed(what + " needs " + String.join(", ", names));
+            }
+        }
+        return values;
+    }
+
+    private static void expect(JsonParser p, JsonToken token, String field) throws IOException {
+        if (p.currentToken() != token) {
+            throw malformed(field + (token == JsonToken.START_OBJECT ? " must be an object" : " must be an array"));
+        }
+    }
+
+    private static String string(JsonParser p, String field) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_STRING -> p.getText();
+            case VALUE_NULL -> null;
+            default -> throw malformed(field + " must be a string");
+        };
+    }
+
+    private static String requireString(JsonParser p, String field) throws IOException {
+        String value = string(p, field);
+        if (value == null) {
+            throw malformed(field + " must not be null");
+        }
+        return value;
+    }
+
+    private static int intValue(JsonParser p, String field) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_NUMBER_INT || p.getNumberType() != JsonParser.NumberType.INT) {
+            throw malformed(field + " must be a 32-bit integer");
+        }
+        return p.getIntValue();
+    }
+
+    private static long longValue(JsonParser p, String field) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_NUMBER_INT || p.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+            throw malformed(field + " must be a 64-bit integer");
+        }
+        return p.getLongValue();
+    }
+
+    private static boolean booleanValue(JsonParser p, String field) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_TRUE -> true;
+            case VALUE_FALSE -> false;
+            default -> throw malformed(field + " must be a boolean");
+        };
+    }
+
+    private static IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed message: " + reason);
+    }
+}
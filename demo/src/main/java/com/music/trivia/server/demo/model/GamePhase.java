@@ -0,0 +1,16 @@
+package com.music.trivia.server.demo.model;
+
+/**
+ * Where a session's game is. A game runs LOBBY, then QUESTION_OPEN and INTERMISSION once per
+ * round, then GAME_OVER; ending the game returns it to LOBBY.
+ */
+public enum GamePhase {
+    /** No game in progress. */
+    LOBBY,
+    /** The round's question is out and answers are accepted. */
+    QUESTION_OPEN,
+    /** Everyone has answered; the answer is revealed and the next round is pending. */
+    INTERMISSION,
+    /** Every question has been played. */
+    GAME_OVER
+}
@@ -0,0 +1,136 @@
+package com.music.trivia.server.demo.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds every live session in memory, keyed by session ID.
+ * <p>
+ * Backed by a {@link ConcurrentHashMap}, which locks per bin on writes and never locks on
+ * reads, so lookups stay O(1) no matter how many sessions are live. Expiry is handled by
+ * {@link SessionExpiryIndex}; the read path only records activity. Each stored session reports
+ * changes to its memory estimate here, so the node-wide total is always current.
+ */
+@Component
+@ConditionalOnProperty(name = "trivia.storage.mode", havingValue = "memory", matchIfMissing = true)
+public class InMemorySessionStorage implements SessionStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemorySessionStorage.class);
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ConcurrentHashMap<String, Session> sessions =
+            new ConcurrentHashMap<>(INITIAL_CAPACITY, 0.75f, Runtime.getRuntime().availableProcessors());
+    private final SessionExpiryPolicy expiryPolicy;
+    private final SessionExpiryIndex expiryIndex;
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    @Autowired
+    public InMemorySessionStorage(@Value("${trivia.session.idle-ttl:PT1H}") Duration idleTtl,
+                                  @Value("${trivia.session.absolute-ttl:PT12H}") Duration absoluteTtl) {
+        this.expiryPolicy = new SessionExpiryPolicy(idleTtl, absoluteTtl);
+        this.expiryIndex = new SessionExpiryIndex(expiryPolicy);
+    }
+
+    @Override
+    public String createSession(String password) {
+        String sessionID = generateSessionID();
+        Session session = new Session(sessionID, password);
+        storeSession(sessionID, session);
+        return sessionID;
+    }
+
+    @Override
+    public Session getSession(String sessionID) {
+        Session session = sessionID == null ? null : sessions.get(sessionID);
+        if (session == null) {
+            throw new IllegalArgumentException("Session not found");
+        }
+        session.touch();
+        return session;
+    }
+
+    @Override
+    public boolean containsSession(String sessionID) {
+        return sessionID != null && sessions.containsKey(sessionID);
+    }
+
+    @Override
+    public Session findSession(String sessionID) {
+        return sessionID == null ? null : sessions.get(sessionID);
+    }
+
+    @Override
+    public void removeSession(String sessionID) {
+        detach(sessions.remove(sessionID));
+    }
+
+    @Override
+    public void storeSession(String sessionID, Session session) {
+        Session previous = sessions.put(sessionID, session);
+        if (previous != session) {
+            detach(previous);
+            session.setMemoryListener(estimatedBytes::addAndGet);
+            estimatedBytes.addAndGet(session.getEstimatedBytes());
+            expiryIndex.track(session);
+        }
+    }
+
+    private void detach(Session session) {
+        if (session != null) {
+            session.setMemoryListener(null);
+            estimatedBytes.addAndGet(-session.getEstimatedBytes());
+        }
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    @Override
+    public Collection<Session> getSessions() {
+        return sessions.values();
+    }
+
+    @Override
+    public SessionExpiryPolicy getExpiryPolicy() {
+        return expiryPolicy;
+    }
+
+    @Override
+    public SessionExpiryIndex getExpiryIndex() {
+        return expiryIndex;
+    }
+
+    private String generateSessionID() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Override
+    public List<String> expireSessions(long nowMillis) {
+        List<String> expired = expiryIndex.pollExpired(nowMillis, sessions::get);
+        for (String sessionID : expired) {
+            removeSession(sessionID);
+        }
+        if (!expired.isEmpty()) {
+            logger.info("Expired {} sessions (sweep lag {} ms)", expired.size(), expiryIndex.getLastSweepLagMillis());
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,124 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-linear histogram, in the style of HdrHistogram: values below
+ * {@code 2^precisionBits} get a bucket each, and every power of two above that is split into
+ * {@code 2^(precisionBits-1)} equal buckets, so any recorded value is reported to within
+ * {@code 2^(1-precisionBits)} of itself. Values above {@code maxValue} are clamped to it.
+ * <p>
+ * {@link #record} is a bit scan and an atomic increment: no allocation and no locks, so it can
+ * sit on the answer path. Readers may run concurrently with writers and see a slightly stale
+ * but consistent-enough view.
+ */
+public final class LatencyHistogram {
+
+    private final int precisionBits;
+    private final int subBuckets;
+    private final long maxValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param precisionBits bits of precision per value, 2 to 10; 5 gives about 3%
+     * @param maxValue      largest distinguishable value
+     */
+    public LatencyHistogram(int precisionBits, long maxValue) {
+        if (precisionBits < 2 || precisionBits > 10) {
+            throw new IllegalArgumentException("precisionBits must be between 2 and 10");
+        }
+        this.precisionBits = precisionBits;
+        this.subBuckets = 1 << (precisionBits - 1);
+        this.maxValue = Math.max(maxValue, 1L << precisionBits);
+        this.counts = new AtomicLongArray(bucketOf(this.maxValue) + 1);
+    }
+
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0), maxValue);
+        counts.incrementAndGet(bucketOf(clamped));
+        total.incrementAndGet();
+        sum.addAndGet(clamped);
+        long seen = max.get();
+        while (clamped > seen && !max.compareAndSet(seen, clamped)) {
+            seen = max.get();
+        }
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = total.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * The smallest bucket bound at or below which {@code percentile} percent of recorded values
+     * fall; 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestValueIn(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** Count, mean, p50/p90/p99/p99.9 and max, in recorded units, for metrics endpoints. */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", getCount());
+        summary.put("mean", Math.round(getMean()));
+        summary.put("p50", getValueAtPercentile(50));
+        summary.put("p90", getValueAtPercentile(90));
+        summary.put("p99", getValueAtPercentile(99));
+        summary.put("p999", getValueAtPercentile(99.9));
+        summary.put("max", getMax());
+        return summary;
+    }
+
+    /** Number of counters backing the histogram. */
+    public int getBucketCount() {
+        return counts.length();
+    }
+
+    private int bucketOf(long value) {
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent < precisionBits) {
+            return (int) value;
+        }
+        int shift = exponent - precisionBits + 1;
+        return (1 << precisionBits) + (exponent - precisionBits) * subBuckets
+                + (int) ((value >>> shift) & (subBuckets - 1));
+    }
+
+    private long highestValueIn(int bucket) {
+        int direct = 1 << precisionBits;
+        if (bucket < direct) {
+            return bucket;
+        }
+        int exponent = (bucket - direct) / subBuckets + precisionBits;
+        int sub = (bucket - direct) % subBuckets;
+        int shift = exponent - precisionBits + 1;
+        return (((long) (subBuckets + sub) + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,38 @@
+package com.music.trivia.server.demo.model;
+
+import java.security.Principal;
+
+/**
+ * Names of the STOMP principals players connect as: {@code sessionId + ":" + userId}. A user ID is
+ * only the display name picked on joining, unique within its session, so user destinations
+ * ({@code convertAndSendToUser}) are addressed by this name; by user ID alone, a message for one
+ * player would also reach same-named players in other sessions. Session IDs are UUIDs and never
+ * contain the separator.
+ */
+public final class PlayerPrincipal {
+
+    private static final char SEPARATOR = ':';
+
+    private PlayerPrincipal() {
+    }
+
+    public static String name(String sessionId, String userId) {
+        return sessionId + SEPARATOR + userId;
+    }
+
+    /** The session the principal's token was issued for, or {@code null} if it is not a player's. */
+    public static String sessionId(Principal principal) {
+        int separator = separator(principal);
+        return separator < 0 ? null : principal.getName().substring(0, separator);
+    }
+
+    /** The player's user ID, or {@code null} if the principal is not a player's. */
+    public static String userId(Principal principal) {
+        int separator = separator(principal);
+        return separator < 0 ? null : principal.getName().substring(separator + 1);
+    }
+
+    private static int separator(Principal principal) {
+        return principal == null || principal.getName() == null ? -1 : principal.getName().indexOf(SEPARATOR);
+    }
+}
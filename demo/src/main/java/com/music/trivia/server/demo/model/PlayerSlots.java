@@ -0,0 +1,141 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense integer slots for the players in one session, with the current round's answers kept in
+ * bitsets and a byte array indexed by slot.
+ * <p>
+ * A player gets the lowest free slot when they join and gives it back when they leave, and a
+ * leaving player's answer is cleared with the slot, so the answered count only ever covers
+ * players who are still present. Resetting a round clears two bitsets and allocates nothing.
+ * Not thread-safe: {@link Session} only mutates it from the session's own mailbox.
+ */
+public class PlayerSlots {
+
+    /** Answer choice recorded when the submitted answer did not match any option. */
+    public static final int NO_CHOICE = -1;
+
+    private final Map<String, Integer> slotsByUser = new HashMap<>();
+    private final BitSet occupied = new BitSet();
+    private final BitSet answered = new BitSet();
+    private final BitSet correct = new BitSet();
+    private String[] users = new String[8];
+    private byte[] choices = new byte[8];
+
+    /** Assigns a slot to the user, reusing the lowest free one. */
+    public int assign(String userId) {
+        Integer existing = slotsByUser.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int slot = occupied.nextClearBit(0);
+        if (slot >= users.length) {
+            int capacity = Math.max(users.length * 2, slot + 1);
+            users = Arrays.copyOf(users, capacity);
+            choices = Arrays.copyOf(choices, capacity);
+        }
+        occupied.set(slot);
+        answered.clear(slot);
+        correct.clear(slot);
+        users[slot] = userId;
+        slotsByUser.put(userId, slot);
+        return slot;
+    }
+
+    public void release(String userId) {
+        Integer slot = slotsByUser.remove(userId);
+        if (slot != null) {
+            occupied.clear(slot);
+            answered.clear(slot);
+            correct.clear(slot);
+            users[slot] = null;
+        }
+    }
+
+    /** Returns the user's slot, or -1 if they have none. */
+    public int slotOf(String userId) {
+        Integer slot = slotsByUser.get(userId);
+        return slot == null ? -1 : slot;
+    }
+
+    public int size() {
+        return slotsByUser.size();
+    }
+
+    /** Number of slots allocated so far; the high-water mark of concurrent players. */
+    public int capacity() {
+        return users.length;
+    }
+
+    /**
+     * Records the user's answer for this round.
+     *
+     * @return {@code false} if the user has no slot or has already answered this round
+     */
+    public boolean recordAnswer(String userId, boolean isCorrect, int choice) {
+        int slot = slotOf(userId);
+        if (slot < 0 || answered.get(slot)) {
+            return false;
+        }
+        answered.set(slot);
+        correct.set(slot, isCorrect);
+        choices[slot] = (byte) choice;
+        return true;
+    }
+
+    public boolean hasAnswered(String userId) {
+        int slot = slotOf(userId);
+        return slot >= 0 && answered.get(slot);
+    }
+
+    public boolean isCorrect(String userId) {
+        int slot = slotOf(userId);
+        return slot >= 0 && correct.get(slot);
+    }
+
+    /** Returns the user's answer choice this round, or {@link #NO_CHOICE}. */
+    public int choiceOf(String userId) {
+        int slot = slotOf(userId);
+        return slot >= 0 && answered.get(slot) ? choices[slot] : NO_CHOICE;
+    }
+
+    public int answeredCount() {
+        return answered.cardinality();
+    }
+
+    public int correctCount() {
+        return correct.cardinality();
+    }
+
+    /** Whether every present player has answered. Vacuously true for an empty session. */
+    public boolean allAnswered() {
+        return answered.cardinality() == slotsByUser.size();
+    }
+
+    public void resetRound() {
+        answered.clear();
+        correct.clear();
+    }
+
+    /**
+     * The users who have answered this round. Tolerates being called off the session's mailbox
+     * (for snapshots), in which case the result may be slightly stale.
+     */
+    public List<String> answeredUsers() {
+        String[] slots = users;
+        List<String> result = new ArrayList<>(answered.cardinality());
+        for (int slot = answered.nextSetBit(0); slot >= 0 && slot < slots.length; slot = answered.nextSetBit(slot + 1)) {
+            String userId = slots[slot];
+            if (userId != null) {
+                result.add(userId);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,162 @@
+package com.music.trivia.server.demo.model;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Client-safe view of one {@link TriviaQuestion}, built once when a game starts.
+ * <p>
+ * Choices are shuffled on the server and numbered by their shuffled position, so the choice ID
+ * is stable for the whole round (and across a resend) while the correct answer is never sent.
+ * The {@code NEW_QUESTION} message is encoded once into {@link #getPayload()} and the same bytes
+ * are reused for every broadcast and re-request. Instances are immutable.
+ */
+public final class QuestionFrame {
+
+    public record Choice(int id, String text) {
+    }
+
+    private final int index;
+    private final int total;
+    private final String question;
+    private final List<Choice> choices;
+    private final int correctChoiceId;
+    /** For each choice ID, the answer's position in {@link TriviaQuestion#indexOfAnswer} terms. */
+    private final byte[] answerOrdinals;
+    /** Choice texts in {@link #normalize} form, for matching answers submitted as text. */
+    private final String[] normalizedTexts;
+    private final byte[] payload;
+
+    private QuestionFrame(int index, int total, String question, List<Choice> choices, int correctChoiceId,
+                          byte[] answerOrdinals, Function<GameMessage.NewQuestion, byte[]> encoder) {
+        this.index = index;
+        this.total = total;
+        this.question = question;
+        this.choices = choices;
+        this.correctChoiceId = correctChoiceId;
+        this.answerOrdinals = answerOrdinals;
+        this.normalizedTexts = new String[choices.size()];
+        for (Choice choice : choices) {
+            normalizedTexts[choice.id()] = normalize(choice.text());
+        }
+        this.payload = encoder.apply(toMessage());
+    }
+
+    /**
+     * Builds the frame for question {@code index} of {@code total}.
+     * <p>
+     * The choices are put in alphabetical order before shuffling, so the order the API returned
+     * them in (correct answer first) can't be recovered from the shuffle.
+     *
+     * @param encoder turns the {@code NEW_QUESTION} message into the bytes sent on the wire
+     */
+    public static QuestionFrame of(TriviaQuestion source, int index, int total, Random random,
+                                   Function<GameMessage.NewQuestion, byte[]> encoder) {
+        List<String> answers = new ArrayList<>();
+        answers.add(source.getCorrectAnswer());
+        if (source.getIncorrectAnswers() != null) {
+            answers.addAll(source.getIncorrectAnswers());
+        }
+        answers.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+        Collections.shuffle(answers, random);
+
+        List<Choice> choices = new ArrayList<>(answers.size());
+        byte[] ordinals = new byte[answers.size()];
+        int correctChoiceId = -1;
+        for (int id = 0; id < answers.size(); id++) {
+            String text = answers.get(id);
+            choices.add(new Choice(id, text));
+            ordinals[id] = (byte) source.indexOfAnswer(text);
+            if (ordinals[id] == 0) {
+                correctChoiceId = id;
+            }
+        }
+        return new QuestionFrame(index, total, source.getQuestion(), Collections.unmodifiableList(choices),
+                correctChoiceId, ordinals, encoder);
+    }
+
+    /** The {@code NEW_QUESTION} message this frame is sent as; it carries no answer key. */
+    public GameMessage.NewQuestion toMessage() {
+        return new GameMessage.NewQuestion(index, total, question, choices);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public List<Choice> getChoices() {
+        return choices;
+    }
+
+    public int getCorrectChoiceId() {
+        return correctChoiceId;
+    }
+
+    public boolean isCorrect(int choiceId) {
+        return choiceId >= 0 && choiceId == correctChoiceId;
+    }
+
+    /** ID of the choice with exactly this text, or -1 if none matches. */
+    public int choiceIdOf(String text) {
+        for (Choice choice : choices) {
+            if (choice.text() != null && choice.text().equals(text)) {
+                return choice.id();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * ID of the choice a free-text answer refers to, for clients that still submit the answer
+     * text. Tries an exact match first, then ignores case, surrounding and repeated whitespace,
+     * and HTML entities. Returns -1 if nothing matches.
+     */
+    public int matchChoice(String answer) {
+        if (answer == null) {
+            return -1;
+        }
+        int exact = choiceIdOf(answer);
+        if (exact >= 0) {
+            return exact;
+        }
+        String normalized = normalize(answer);
+        for (int id = 0; id < normalizedTexts.length; id++) {
+            if (normalized.equals(normalizedTexts[id])) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return StringEscapeUtils.unescapeHtml4(text).trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /** The answer ordinal for a choice ID, as {@link TriviaQuestion#indexOfAnswer} would return it. */
+    public int answerOrdinalOf(int choiceId) {
+        return choiceId < 0 || choiceId >= answerOrdinals.length ? -1 : answerOrdinals[choiceId];
+    }
+
+    /** The encoded {@code NEW_QUESTION} message. Shared by every send, so callers must not modify it. */
+    public byte[] getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,14 @@
+package com.music.trivia.server.demo.model;
+
+/**
+ * Identifies one pool of questions in the question bank: an opentdb category ID, a difficulty
+ * ({@code easy}, {@code medium}, {@code hard} or {@code null} for any) and a question type
+ * ({@code multiple} or {@code boolean}).
+ */
+public record QuestionKey(int category, String difficulty, String type) {
+
+    public static final int MUSIC_CATEGORY = 12;
+
+    /** The pool games draw from unless told otherwise: any-difficulty multiple-choice music questions. */
+    public static final QuestionKey DEFAULT = new QuestionKey(MUSIC_CATEGORY, null, "multiple");
+}
@@ -0,0 +1,74 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Numbered history of a session's roster changes: joins, leaves and profile updates, each given
+ * the next sequence number. Clients apply the changes in order on top of a USER_LIST snapshot
+ * carrying the sequence number it includes, and ask for a fresh snapshot if they see a gap.
+ * <p>
+ * Only the last {@link #CAPACITY} changes are kept, enough for a client that missed a few to
+ * catch up from the log instead of a full snapshot. Score changes are not logged; answers
+ * announce those. Appends happen on the session's mailbox; reads may come from any thread.
+ */
+public final class RosterLog {
+
+    public static final int CAPACITY = 32;
+
+    public enum Op {
+        JOIN, UPDATE, LEAVE
+    }
+
+    /** One change; for {@link Op#LEAVE} only the user ID is set. */
+    public record Change(Op op, String userId, String avatar, String role, int score) {
+    }
+
+    private final Change[] ring = new Change[CAPACITY];
+    private long seq;
+    private long published;
+
+    public synchronized long append(Op op, String userId, User user) {
+        Change change = op == Op.LEAVE || user == null
+                ? new Change(op, userId, null, null, 0)
+                : new Change(op, userId, user.getAvatar(), user.getRole(), user.getScore());
+        seq++;
+        ring[(int) (seq % CAPACITY)] = change;
+        return seq;
+    }
+
+    /** Sequence number of the latest change; 0 before any. */
+    public synchronized long getSeq() {
+        return seq;
+    }
+
+    /**
+     * The changes after {@code since} up to the latest, oldest first, or {@code null} if some of
+     * them have dropped out of the log or {@code since} is not a number this log has issued.
+     */
+    public synchronized List<Change> since(long since) {
+        return copy(since);
+    }
+
+    /**
+     * The changes not yet returned by this method, oldest first, or {@code null} if more than
+     * {@link #CAPACITY} have built up and clients need a snapshot instead. Called by whoever
+     * broadcasts the roster, on the session's mailbox.
+     */
+    public synchronized List<Change> takeUnpublished() {
+        List<Change> changes = copy(published);
+        published = seq;
+        return changes;
+    }
+
+    private List<Change> copy(long since) {
+        if (since < 0 || since > seq || seq - since > CAPACITY) {
+            return null;
+        }
+        List<Change> changes = new ArrayList<>((int) (seq - since));
+        for (long s = since + 1; s <= seq; s++) {
+            changes.add(ring[(int) (s % CAPACITY)]);
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,68 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Immutable view of a session's roster and scores at one version.
+ * <p>
+ * {@link Session} publishes a new snapshot whenever a user joins, leaves or changes their profile,
+ * and builds one on the next read after scores have changed; readers on any thread share the
+ * current one without copying. The {@link User} objects here are copies:
+ * changes must go through {@link Session}. Encoded forms of a snapshot (for example a ready-made
+ * broadcast payload) can be cached per version with {@link #encoded}. {@link #getSeq} is the
+ * {@link RosterLog} sequence number of the last change the snapshot includes.
+ */
+public final class RosterSnapshot {
+
+    public static final RosterSnapshot EMPTY = new RosterSnapshot(0, 0, Collections.emptyMap(), Collections.emptyMap());
+
+    private final long version;
+    private final long seq;
+    private final Map<String, User> users;
+    private final Map<String, Integer> scores;
+    private volatile Map<String, Object> encodings;
+
+    public RosterSnapshot(long version, long seq, Map<String, User> users, Map<String, Integer> scores) {
+        this.version = version;
+        this.seq = seq;
+        this.users = Collections.unmodifiableMap(users);
+        this.scores = Collections.unmodifiableMap(scores);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Map<String, User> getUsers() {
+        return users;
+    }
+
+    public Map<String, Integer> getScores() {
+        return scores;
+    }
+
+    /**
+     * Returns the encoding cached under {@code key}, computing it from this snapshot on first use.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T encoded(String key, Function<RosterSnapshot, T> encoder) {
+        Map<String, Object> cache = encodings;
+        if (cache == null) {
+            synchronized (this) {
+                cache = encodings;
+                if (cache == null) {
+                    cache = new ConcurrentHashMap<>(4);
+                    encodings = cache;
+                }
+            }
+        }
+        return (T) cache.computeIfAbsent(key, k -> encoder.apply(this));
+    }
+}
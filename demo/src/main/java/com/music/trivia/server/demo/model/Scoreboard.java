@@ -0,0 +1,203 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ranked scoreboard for one session: an order-statistic treap ordered by score (highest first,
+ * ties broken by user ID) plus a hash index from user ID to node.
+ * <p>
+ * Score updates, rank queries and top-N slices cost O(log n) (plus N for the slice); score
+ * lookups are O(1). Ranks are competition ranks, so players on the same score share a rank.
+ * Not thread-safe: {@link Session} only touches it from the session's own mailbox.
+ */
+public class Scoreboard {
+
+    /** One row of a ranked slice. */
+    public record Entry(String userId, int score, int rank) {
+    }
+
+    private static final class Node {
+        final String userId;
+        final int score;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(String userId, int score) {
+            this.userId = userId;
+            this.score = score;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private final Map<String, Node> index = new HashMap<>();
+    private Node root;
+
+    public int size() {
+        return index.size();
+    }
+
+    /** Returns the user's score, or {@code null} if they are not on the board. */
+    public Integer getScore(String userId) {
+        Node node = index.get(userId);
+        return node == null ? null : node.score;
+    }
+
+    /** Adds the user or moves them to their new score. */
+    public void put(String userId, int score) {
+        Node existing = index.get(userId);
+        if (existing != null) {
+            if (existing.score == score) {
+                return;
+            }
+            root = delete(root, existing);
+        }
+        Node node = new Node(userId, score);
+        index.put(userId, node);
+        root = insert(root, node);
+    }
+
+    public void remove(String userId) {
+        Node existing = index.remove(userId);
+        if (existing != null) {
+            root = delete(root, existing);
+        }
+    }
+
+    public void clear() {
+        index.clear();
+        root = null;
+    }
+
+    /** Returns the user's 1-based competition rank, or 0 if they are not on the board. */
+    public int rank(String userId) {
+        Node node = index.get(userId);
+        return node == null ? 0 : countHigherThan(node.score) + 1;
+    }
+
+    /** The first {@code n} players in rank order. */
+    public List<Entry> top(int n) {
+        List<Entry> out = new ArrayList<>(Math.min(n, size()));
+        collect(root, n, out);
+        return out;
+    }
+
+    private void collect(Node node, int n, List<Entry> out) {
+        if (node == null || out.size() >= n) {
+            return;
+        }
+        collect(node.left, n, out);
+        if (out.size() < n) {
+            Entry previous = out.isEmpty() ? null : out.get(out.size() - 1);
+            int rank = previous != null && previous.score() == node.score ? previous.rank() : out.size() + 1;
+            out.add(new Entry(node.userId, node.score, rank));
+        }
+        collect(node.right, n, out);
+    }
+
+    /** Number of players with a strictly higher score. */
+    private int countHigherThan(int score) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.score > score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /** Orders nodes by score descending, then user ID ascending. */
+    private static int compare(Node a, Node b) {
+        if (a.score != b.score) {
+            return a.score > b.score ? -1 : 1;
+        }
+        return a.userId.compareTo(b.userId);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, Node removed) {
+        if (node == null) {
+            return null;
+        }
+        if (node == removed) {
+            return merge(node.left, node.right);
+        }
+        if (compare(removed, node) < 0) {
+            node.left = delete(node.left, removed);
+        } else {
+            node.right = delete(node.right, removed);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
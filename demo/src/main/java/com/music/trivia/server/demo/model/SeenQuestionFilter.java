@@ -0,0 +1,111 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Remembers, approximately and in fixed memory, which questions have already been played.
+ * <p>
+ * Two Bloom filter generations of {@link #BITS} bits each: questions are added to the current
+ * generation, and once it holds {@link #CAPACITY} of them it becomes the previous generation and
+ * the old previous one is cleared for reuse. So the filter always remembers at least the last
+ * {@code CAPACITY} questions and at most the last {@code 2 * CAPACITY}, with a false positive
+ * rate of roughly 2% per generation, in {@link #BYTES} bytes however many games are played.
+ * <p>
+ * Questions are identified by a 64-bit {@link #fingerprint} of their text; the {@link #HASHES}
+ * bit positions are derived from it by double hashing, so checks allocate nothing. Not
+ * thread-safe: a session's filter is used on its mailbox.
+ */
+public final class SeenQuestionFilter {
+
+    public static final int BITS = 8192;
+    public static final int CAPACITY = 1000;
+    static final int HASHES = 4;
+    private static final int WORDS = BITS / 64;
+    private static final int BIT_MASK = BITS - 1;
+    /** Both generations' bit arrays plus the object headers. */
+    public static final long BYTES = 2L * (WORDS * 8 + 16) + 32;
+
+    private long[] current = new long[WORDS];
+    private long[] previous = new long[WORDS];
+    private int currentCount;
+
+    /** 64-bit fingerprint of the question text: FNV-1a over its chars, then a finalizing mix. */
+    public static long fingerprint(TriviaQuestion question) {
+        return fingerprint(question.getQuestion());
+    }
+
+    public static long fingerprint(String text) {
+        long hash = 0xcbf29ce484222325L;
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        // Murmur3 fmix64, so both halves used for double hashing are well mixed
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public void add(long fingerprint) {
+        if (currentCount >= CAPACITY) {
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0);
+            previous = current;
+            current = recycled;
+            currentCount = 0;
+        }
+        set(current, fingerprint);
+        currentCount++;
+    }
+
+    public boolean mightContain(long fingerprint) {
+        return contains(current, fingerprint) || contains(previous, fingerprint);
+    }
+
+    /** ORs both of this filter's generations into {@code words}, which must be {@link #newUnion()}-sized. */
+    public void orInto(long[] words) {
+        for (int i = 0; i < WORDS; i++) {
+            words[i] |= current[i] | previous[i];
+        }
+    }
+
+    /** Bit array for {@link #orInto}. */
+    public static long[] newUnion() {
+        return new long[WORDS];
+    }
+
+    /**
+     * Membership test against a union of filters built with {@link #orInto}: one check covers
+     * every filter that went into it.
+     */
+    public static LongPredicate unionPredicate(long[] union) {
+        return fingerprint -> contains(union, fingerprint);
+    }
+
+    private static void set(long[] words, long fingerprint) {
+        int h1 = (int) fingerprint;
+        int h2 = (int) (fingerprint >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & BIT_MASK;
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static boolean contains(long[] words, long fingerprint) {
+        int h1 = (int) fingerprint;
+        int h2 = (int) (fingerprint >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & BIT_MASK;
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
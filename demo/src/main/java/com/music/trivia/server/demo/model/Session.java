@@ -2,27 +2,115 @@ package com.music.trivia.server.demo.model;
 
 import com.music.trivia.server.demo.exception.UserAlreadyExistsException;
 import com.music.trivia.server.demo.exception.UserNotFoundException;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
 
 @Data
 public class Session {
+    /** Answer latencies are kept to within 1/8 up to about two minutes. */
+    private static final int ANSWER_LATENCY_PRECISION_BITS = 4;
+    private static final long ANSWER_LATENCY_MAX_MICROS = 1L << 27;
+
     private String sessionID;
     private String password;
-    private Map<String, User> users;
+    /** Membership, changed only through {@link #addUser} and {@link #removeUser} so the roster stays in step. */
+    @Setter(AccessLevel.NONE)
+    private final Map<String, User> users;
     private Instant creationTime;
     private List<TriviaQuestion> triviaQuestions;
-    private int currentQuestionIndex;
-    private Set<String> answeredUsers;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile long lastActivityMillis;
+    /** Kept up to date by {@link #adjustEstimatedBytes} and {@link #recalculateEstimatedBytes}. */
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile long estimatedBytes;
+    /**
+     * The published roster and the {@link #scoreChanges} count it includes. Membership and profile
+     * changes publish a new one straight away; score changes only bump the count, and the next
+     * reader of the whole roster rebuilds it from {@link #liveScores}.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final AtomicReference<PublishedRoster> roster = new AtomicReference<>(new PublishedRoster(RosterSnapshot.EMPTY, 0));
+    /** Current score of every user, updated in place so that an answer costs O(1). */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<String, Integer> liveScores = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile long scoreChanges;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final RosterLog rosterLog = new RosterLog();
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Scoreboard scoreboard = new Scoreboard();
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final PlayerSlots playerSlots = new PlayerSlots();
+    /** Phase and round (the current question index) of the game. */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final GameEngine engine = new GameEngine();
+    /** {@link System#nanoTime()} when the current question opened, or 0 if unknown (as after a restore). */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile long questionOpenedNanos;
+    /** Answer latencies in microseconds; created on the first answer, so lobbies don't pay for it. */
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile LatencyHistogram answerLatency;
+    /** Questions already played here; created with the first game. Used on the mailbox only. */
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private SeenQuestionFilter seenQuestions;
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<QuestionFrame> questionFrames;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile LongConsumer memoryListener;
 
     public Session(String sessionID, String password) {
         this.sessionID = sessionID;
         this.password = password;
         this.users = new HashMap<>();
         this.creationTime = Instant.now();
-        this.answeredUsers = new HashSet<>();
+        this.lastActivityMillis = creationTime.toEpochMilli();
+        this.estimatedBytes = SessionMemoryEstimator.SESSION_BASE_BYTES + SessionMemoryEstimator.ROSTER_LOG_BYTES
+                + SessionMemoryEstimator.estimateString(sessionID) + SessionMemoryEstimator.estimateString(password);
+    }
+
+    /**
+     * Records activity on this session for idle expiry. Only writes when the stored value is
+     * at least a second old, so hot sessions don't keep bouncing the cache line between threads.
+     */
+    public void touch() {
+        long now = System.currentTimeMillis();
+        if (now - lastActivityMillis >= 1000) {
+            lastActivityMillis = now;
+        }
     }
 
     public void addUser(String userID, User user) {
@@ -30,6 +118,12 @@ public class Session {
             throw new UserAlreadyExistsException("User with ID " + userID + " already exists in the session");
         } else {
             users.put(userID, user);
+            adjustEstimatedBytes(SessionMemoryEstimator.estimateUser(userID, user));
+            scoreboard.put(userID, user.getScore());
+            liveScores.put(userID, user.getScore());
+            playerSlots.assign(userID);
+            rosterLog.append(RosterLog.Op.JOIN, userID, user);
+            publishRoster();
         }
     }
 
@@ -37,69 +131,302 @@ public class Session {
         if (!users.containsKey(userID)) {
             throw new UserNotFoundException("User with ID " + userID + " not found in the session");
         } else {
-            users.remove(userID);
+            User removed = users.remove(userID);
+            adjustEstimatedBytes(-SessionMemoryEstimator.estimateUser(userID, removed));
+            scoreboard.remove(userID);
+            liveScores.remove(userID);
+            playerSlots.release(userID);
+            rosterLog.append(RosterLog.Op.LEAVE, userID, null);
+            publishRoster();
         }
     }
 
+    /**
+     * Returns the user as of the current roster snapshot, with their current score. The result is
+     * a copy; use {@link #updateUser} or {@link #updateUserScore} to change it.
+     */
     public User getUser(String userID) {
-        return users.get(userID);
+        User user = roster.get().roster().getUsers().get(userID);
+        Integer score = liveScores.get(userID);
+        if (user == null || score == null || score == user.getScore()) {
+            return user;
+        }
+        return new User(user.getAvatar(), user.getRole(), score);
     }
 
     public Integer getUserScore(String userID) {
-        User user = users.get(userID);
-        if (user == null) {
+        Integer score = liveScores.get(userID);
+        if (score == null) {
             throw new UserNotFoundException("User with ID " + userID + " not found in the session");
         }
-        return user.getScore();
+        return score;
     }
 
+    /**
+     * Sets a user's score. Does not copy the roster: the new score is visible straight away through
+     * {@link #getUserScore} and {@link #getUser}, and in the next snapshot {@link #getRoster} returns.
+     */
     public void updateUserScore(String userID, int score) {
         User user = users.get(userID);
         if (user == null) {
             throw new UserNotFoundException("User with ID " + userID + " not found in the session");
         } else {
             user.setScore(score);
+            scoreboard.put(userID, score);
+            liveScores.put(userID, score);
+            scoreChanges++;
         }
     }
 
-    public boolean isCreator(String userID) {
+    /**
+     * Applies a partial update to a user; {@code null} arguments leave that field unchanged.
+     */
+    public void updateUser(String userID, String avatar, String role, Integer score) {
         User user = users.get(userID);
+        if (user == null) {
+            throw new UserNotFoundException("User with ID " + userID + " not found in the session");
+        }
+        if (avatar != null) {
+            user.setAvatar(avatar);
+        }
+        if (role != null) {
+            user.setRole(role);
+        }
+        if (score != null) {
+            user.setScore(score);
+            scoreboard.put(userID, score);
+            liveScores.put(userID, score);
+        }
+        recalculateEstimatedBytes();
+        rosterLog.append(RosterLog.Op.UPDATE, userID, user);
+        publishRoster();
+    }
+
+    public boolean isCreator(String userID) {
+        User user = roster.get().roster().getUsers().get(userID);
         return user != null && "Creator".equals(user.getRole());
     }
 
+    /** The users in the current roster snapshot. Shared and unmodifiable, so no copy is made. */
     public Map<String, User> getUsers() {
-        return new HashMap<>(users);
+        return getRoster().getUsers();
+    }
+
+    public int getCurrentQuestionIndex() {
+        return engine.getRound();
+    }
+
+    /** Sets the round outright, as when starting a game or restoring; the phase follows from the questions. */
+    public void setCurrentQuestionIndex(int currentQuestionIndex) {
+        engine.reset(currentQuestionIndex, phaseAt(currentQuestionIndex));
+    }
+
+    public GamePhase getPhase() {
+        return engine.getPhase();
     }
 
+    private GamePhase phaseAt(int round) {
+        if (triviaQuestions == null) {
+            return GamePhase.LOBBY;
+        }
+        return round >= triviaQuestions.size() ? GamePhase.GAME_OVER : GamePhase.QUESTION_OPEN;
+    }
+
+    /** The current question, or {@code null} outside a round. */
     public TriviaQuestion getCurrentQuestion() {
-        return triviaQuestions.get(currentQuestionIndex);
+        int index = engine.getRound();
+        return triviaQuestions == null || index >= triviaQuestions.size() ? null : triviaQuestions.get(index);
+    }
+
+    /**
+     * The client-safe frame for the current question, or {@code null} if the frames have not
+     * been built for the current questions yet (they are dropped whenever the questions change).
+     */
+    public QuestionFrame getCurrentFrame() {
+        int index = engine.getRound();
+        if (questionFrames == null || index >= questionFrames.size()) {
+            return null;
+        }
+        return questionFrames.get(index);
     }
 
-    public void moveToNextQuestion() {
-        currentQuestionIndex++;
+    /**
+     * Ends {@code round} and opens the next one, if the game is still at that round; see
+     * {@link GameEngine#advance}.
+     *
+     * @return the new phase, or {@code null} if another trigger already advanced past the round
+     */
+    public GamePhase advanceRound(int round) {
+        return triviaQuestions == null ? null : engine.advance(round, triviaQuestions.size());
     }
 
     public boolean isGameOver() {
-        return currentQuestionIndex >= triviaQuestions.size();
+        return engine.getPhase() == GamePhase.GAME_OVER;
+    }
+
+    public void setTriviaQuestions(List<TriviaQuestion> triviaQuestions) {
+        long delta = SessionMemoryEstimator.estimateQuestions(triviaQuestions)
+                - SessionMemoryEstimator.estimateQuestions(this.triviaQuestions);
+        this.triviaQuestions = triviaQuestions;
+        adjustEstimatedBytes(delta);
+        setQuestionFrames(null);
+        int round = engine.getRound();
+        engine.reset(round, phaseAt(round));
     }
 
+    /** Attaches the frames built for the current questions, one per question. */
+    public void setQuestionFrames(List<QuestionFrame> questionFrames) {
+        long delta = SessionMemoryEstimator.estimateFrames(questionFrames)
+                - SessionMemoryEstimator.estimateFrames(this.questionFrames);
+        this.questionFrames = questionFrames;
+        adjustEstimatedBytes(delta);
+    }
+
+    /**
+     * Marks the user as having answered this round without recording a choice, as when
+     * restoring a snapshot or replaying the journal.
+     */
     public void addAnsweredUser(String userID) {
-        answeredUsers.add(userID);
+        playerSlots.recordAnswer(userID, false, PlayerSlots.NO_CHOICE);
+    }
+
+    /**
+     * Records a present user's answer for this round.
+     *
+     * @return {@code false} if the user isn't in the session or has already answered
+     */
+    public boolean recordAnswer(String userID, boolean isCorrect, int choice) {
+        return playerSlots.recordAnswer(userID, isCorrect, choice);
+    }
+
+    public boolean hasAnswered(String userID) {
+        return playerSlots.hasAnswered(userID);
+    }
+
+    public boolean isAnsweredCorrectly(String userID) {
+        return playerSlots.isCorrect(userID);
     }
 
+    /** Users who have answered the current round. */
+    public List<String> getAnsweredUsers() {
+        return playerSlots.answeredUsers();
+    }
+
+    /** Whether every player still in the session has answered the current round. */
     public boolean isAllUsersAnswered() {
-        return answeredUsers.size() == users.size();
+        return playerSlots.allAnswered();
     }
 
     public void resetAnsweredUsers() {
-        answeredUsers.clear();
+        playerSlots.resetRound();
+    }
+
+    /** Remembers the game's questions so later games in this session can avoid them. */
+    public void markSeen(List<TriviaQuestion> questions) {
+        if (seenQuestions == null) {
+            seenQuestions = new SeenQuestionFilter();
+            adjustEstimatedBytes(SeenQuestionFilter.BYTES);
+        }
+        for (TriviaQuestion question : questions) {
+            seenQuestions.add(SeenQuestionFilter.fingerprint(question));
+        }
+    }
+
+    /** Records how long an answer took, in microseconds. Must be called on the session's mailbox. */
+    public void recordAnswerLatency(long micros) {
+        LatencyHistogram histogram = answerLatency;
+        if (histogram == null) {
+            histogram = new LatencyHistogram(ANSWER_LATENCY_PRECISION_BITS, ANSWER_LATENCY_MAX_MICROS);
+            answerLatency = histogram;
+            adjustEstimatedBytes(SessionMemoryEstimator.ANSWER_LATENCY_BYTES);
+        }
+        histogram.record(micros);
+    }
+
+    /**
+     * Recomputes the memory estimate from scratch, for changes made directly to a {@link User}
+     * (such as a new avatar) that the incremental bookkeeping can't see.
+     */
+    public void recalculateEstimatedBytes() {
+        long total = SessionMemoryEstimator.SESSION_BASE_BYTES + SessionMemoryEstimator.ROSTER_LOG_BYTES
+                + SessionMemoryEstimator.estimateString(sessionID) + SessionMemoryEstimator.estimateString(password)
+                + SessionMemoryEstimator.estimateQuestions(triviaQuestions)
+                + SessionMemoryEstimator.estimateFrames(questionFrames)
+                + (answerLatency == null ? 0 : SessionMemoryEstimator.ANSWER_LATENCY_BYTES)
+                + (seenQuestions == null ? 0 : SeenQuestionFilter.BYTES);
+        for (Map.Entry<String, User> entry : users.entrySet()) {
+            total += SessionMemoryEstimator.estimateUser(entry.getKey(), entry.getValue());
+        }
+        adjustEstimatedBytes(total - estimatedBytes);
+    }
+
+    private void adjustEstimatedBytes(long delta) {
+        if (delta == 0) {
+            return;
+        }
+        estimatedBytes += delta;
+        LongConsumer listener = memoryListener;
+        if (listener != null) {
+            listener.accept(delta);
+        }
     }
 
+    /** Scores in the current roster snapshot. Shared and unmodifiable, so no copy is made. */
     public Map<String, Integer> getScores() {
-        Map<String, Integer> scores = new HashMap<>();
+        return getRoster().getScores();
+    }
+
+    /**
+     * The current roster snapshot. If scores have changed since it was published, builds one
+     * that includes them first; safe on any thread, as it reads only the previous snapshot and
+     * the live scores.
+     */
+    public RosterSnapshot getRoster() {
+        while (true) {
+            PublishedRoster published = roster.get();
+            long changes = scoreChanges;
+            if (published.scoreChanges() == changes) {
+                return published.roster();
+            }
+            RosterSnapshot previous = published.roster();
+            Map<String, User> userCopies = new HashMap<>(previous.getUsers().size() * 4 / 3 + 1);
+            Map<String, Integer> scores = new HashMap<>(previous.getUsers().size() * 4 / 3 + 1);
+            for (Map.Entry<String, User> entry : previous.getUsers().entrySet()) {
+                User user = entry.getValue();
+                Integer score = liveScores.get(entry.getKey());
+                if (score != null && score != user.getScore()) {
+                    user = new User(user.getAvatar(), user.getRole(), score);
+                }
+                userCopies.put(entry.getKey(), user);
+                scores.put(entry.getKey(), user.getScore());
+            }
+            RosterSnapshot rescored = new RosterSnapshot(previous.getVersion() + 1, previous.getSeq(), userCopies, scores);
+            if (roster.compareAndSet(published, new PublishedRoster(rescored, changes))) {
+                return rescored;
+            }
+        }
+    }
+
+    /**
+     * Publishes a new roster version. Called on the session's own mailbox after every membership
+     * or profile change, so the copy is made once per change instead of once per read.
+     */
+    private void publishRoster() {
+        long changes = scoreChanges;
+        Map<String, User> userCopies = new HashMap<>(users.size() * 4 / 3 + 1);
+        Map<String, Integer> scores = new HashMap<>(users.size() * 4 / 3 + 1);
         for (Map.Entry<String, User> entry : users.entrySet()) {
-            scores.put(entry.getKey(), entry.getValue().getScore());
+            User user = entry.getValue();
+            userCopies.put(entry.getKey(), new User(user.getAvatar(), user.getRole(), user.getScore()));
+            scores.put(entry.getKey(), user.getScore());
         }
-        return scores;
+        PublishedRoster previous;
+        do {
+            previous = roster.get();
+        } while (!roster.compareAndSet(previous, new PublishedRoster(
+                new RosterSnapshot(previous.roster().getVersion() + 1, rosterLog.getSeq(), userCopies, scores), changes)));
+    }
+
+    private record PublishedRoster(RosterSnapshot roster, long scoreChanges) {
     }
-}
\ No newline at end of file
+}
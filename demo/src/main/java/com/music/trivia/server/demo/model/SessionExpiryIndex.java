@@ -0,0 +1,105 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Deadline-ordered index of sessions, so a sweep only touches sessions that are actually due.
+ * <p>
+ * Activity does not reorder the queue: {@link Session#touch()} only bumps a timestamp. When an
+ * entry reaches the head, its real deadline is recomputed and, if the session was active in the
+ * meantime, it is pushed back with the new deadline. Each session therefore costs at most one
+ * re-queue per TTL period rather than one per message. Entries for sessions that were removed
+ * elsewhere are dropped lazily when they surface.
+ */
+public class SessionExpiryIndex {
+
+    private final SessionExpiryPolicy policy;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    private long evictedIdle;
+    private long evictedAbsolute;
+    private long sweeps;
+    private long lastSweepLagMillis;
+    private long maxSweepLagMillis;
+
+    public SessionExpiryIndex(SessionExpiryPolicy policy) {
+        this.policy = policy;
+    }
+
+    public synchronized void track(Session session) {
+        long deadline = policy.deadlineOf(session);
+        if (deadline != Long.MAX_VALUE) {
+            queue.add(new Entry(deadline, session.getSessionID()));
+        }
+    }
+
+    /**
+     * Removes and returns the IDs of every tracked session whose deadline has passed.
+     *
+     * @param nowMillis current wall-clock time
+     * @param lookup    resolves a session ID to the live session, or {@code null} if it is gone
+     */
+    public synchronized List<String> pollExpired(long nowMillis, Function<String, Session> lookup) {
+        List<String> expired = new ArrayList<>();
+        long lag = 0;
+        Entry head;
+        while ((head = queue.peek()) != null && head.deadline <= nowMillis) {
+            queue.poll();
+            Session session = lookup.apply(head.sessionId);
+            if (session == null) {
+                continue;
+            }
+            long deadline = policy.deadlineOf(session);
+            if (deadline > nowMillis) {
+                queue.add(new Entry(deadline, head.sessionId));
+                continue;
+            }
+            lag = Math.max(lag, nowMillis - deadline);
+            if (policy.reasonFor(session, nowMillis) == SessionExpiryPolicy.Reason.ABSOLUTE) {
+                evictedAbsolute++;
+            } else {
+                evictedIdle++;
+            }
+            expired.add(head.sessionId);
+        }
+        sweeps++;
+        lastSweepLagMillis = lag;
+        maxSweepLagMillis = Math.max(maxSweepLagMillis, lag);
+        return expired;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public synchronized long getEvictedIdle() {
+        return evictedIdle;
+    }
+
+    public synchronized long getEvictedAbsolute() {
+        return evictedAbsolute;
+    }
+
+    public synchronized long getSweeps() {
+        return sweeps;
+    }
+
+    /** How far past its deadline the most overdue session evicted by the last sweep was. */
+    public synchronized long getLastSweepLagMillis() {
+        return lastSweepLagMillis;
+    }
+
+    public synchronized long getMaxSweepLagMillis() {
+        return maxSweepLagMillis;
+    }
+
+    private record Entry(long deadline, String sessionId) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.music.trivia.server.demo.model;
+
+import java.time.Duration;
+
+/**
+ * Decides when a session is due for eviction.
+ * <p>
+ * A session expires once it has been idle for {@code idleTtl} or, regardless of activity,
+ * once it is older than {@code absoluteTtl}. A zero or negative duration disables that limit.
+ */
+public class SessionExpiryPolicy {
+
+    public enum Reason { IDLE, ABSOLUTE }
+
+    private final long idleTtlMillis;
+    private final long absoluteTtlMillis;
+
+    public SessionExpiryPolicy(Duration idleTtl, Duration absoluteTtl) {
+        this.idleTtlMillis = toMillis(idleTtl);
+        this.absoluteTtlMillis = toMillis(absoluteTtl);
+    }
+
+    public long deadlineOf(Session session) {
+        long idleDeadline = idleTtlMillis == Long.MAX_VALUE
+                ? Long.MAX_VALUE : session.getLastActivityMillis() + idleTtlMillis;
+        return Math.min(idleDeadline, absoluteDeadlineOf(session));
+    }
+
+    public Reason reasonFor(Session session, long nowMillis) {
+        return absoluteDeadlineOf(session) <= nowMillis ? Reason.ABSOLUTE : Reason.IDLE;
+    }
+
+    public Duration getIdleTtl() {
+        return Duration.ofMillis(idleTtlMillis);
+    }
+
+    public Duration getAbsoluteTtl() {
+        return Duration.ofMillis(absoluteTtlMillis);
+    }
+
+    private long absoluteDeadlineOf(Session session) {
+        return absoluteTtlMillis == Long.MAX_VALUE
+                ? Long.MAX_VALUE : session.getCreationTime().toEpochMilli() + absoluteTtlMillis;
+    }
+
+    private static long toMillis(Duration ttl) {
+        return ttl == null || ttl.isZero() || ttl.isNegative() ? Long.MAX_VALUE : ttl.toMillis();
+    }
+}
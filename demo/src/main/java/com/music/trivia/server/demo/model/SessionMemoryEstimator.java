@@ -0,0 +1,68 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.List;
+
+/**
+ * Rough heap-size estimates for session state, assuming a 64-bit JVM with compressed oops and
+ * compact (Latin-1) strings. The numbers are meant for capacity decisions, not exact accounting.
+ */
+public final class SessionMemoryEstimator {
+
+    /** Session object, its users map and player slot tables, and the session ID and password. */
+    public static final long SESSION_BASE_BYTES = 320;
+    /**
+     * Users map entry and {@link User} object, the user copy and score entry in the published
+     * {@link RosterSnapshot}, their live score entry, the user's {@link Scoreboard} node and their
+     * {@link PlayerSlots} entry. Per-round answer state is a few bits per slot and is not counted separately.
+     */
+    public static final long USER_BYTES = 368;
+    /** {@link TriviaQuestion} object, its incorrect-answers list and the slot in the questions list. */
+    public static final long QUESTION_BYTES = 96;
+    /** {@link QuestionFrame} object and its choices; the answer strings are shared with the question. */
+    public static final long FRAME_BYTES = 80;
+    public static final long CHOICE_BYTES = 40;
+    /** Per-session answer latency {@link LatencyHistogram}: about 200 counters plus its totals. */
+    public static final long ANSWER_LATENCY_BYTES = 1760;
+    /** {@link RosterLog} ring and the changes in it; their strings are mostly shared with the users. */
+    public static final long ROSTER_LOG_BYTES = 1200;
+
+    /** Budget for a user whose strings aren't known yet, used by admission checks. */
+    public static final long TYPICAL_USER_BYTES = USER_BYTES + 3 * 64;
+
+    private SessionMemoryEstimator() {
+    }
+
+    public static long estimateUser(String userID, User user) {
+        return USER_BYTES + estimateString(userID) + estimateString(user.getAvatar()) + estimateString(user.getRole());
+    }
+
+    public static long estimateQuestions(List<TriviaQuestion> questions) {
+        if (questions == null) {
+            return 0;
+        }
+        long total = 0;
+        for (TriviaQuestion question : questions) {
+            total += QUESTION_BYTES + estimateString(question.getQuestion()) + estimateString(question.getCorrectAnswer());
+            for (String answer : question.getIncorrectAnswers()) {
+                total += 8 + estimateString(answer);
+            }
+        }
+        return total;
+    }
+
+    public static long estimateFrames(List<QuestionFrame> frames) {
+        if (frames == null) {
+            return 0;
+        }
+        long total = 0;
+        for (QuestionFrame frame : frames) {
+            total += FRAME_BYTES + CHOICE_BYTES * frame.getChoices().size() + 16 + frame.getPayload().length;
+        }
+        return total;
+    }
+
+    public static long estimateString(String value) {
+        // String header + hash + byte[] header, rounded, plus one byte per Latin-1 char
+        return value == null ? 0 : 48 + value.length();
+    }
+}
@@ -1,58 +1,47 @@
 package com.music.trivia.server.demo.model;
 
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.stereotype.Component;
-
-import java.time.Duration;
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.UUID;
-
-@Component
-public class SessionStorage {
-
-    private static final Duration SESSION_TIMEOUT = Duration.ofHours(3);
-    private HashMap<String, Session> storageHashMap = new HashMap<>();
-
-    public String createSession(String password) {
-        String sessionID = generateSessionID();
-        Session session = new Session(sessionID, password);
-        storageHashMap.put(sessionID, session);
-        return sessionID;
-    }
-
-    public Session getSession(String sessionID) {
-        cleanupExpiredSessions();
-        Session session = storageHashMap.get(sessionID);
-        if (session == null) {
-            throw new IllegalArgumentException("Session not found");
-        }
-        return session;
-    }
-
-    public void removeSession(String sessionID) {
-        storageHashMap.remove(sessionID);
-    }
-
-    public void storeSession(String sessionID, Session session) {
-        storageHashMap.put(sessionID, session);
-    }
-
-    private String generateSessionID() {
-        return UUID.randomUUID().toString();
-    }
-
-    @Scheduled(fixedRate = 3600000)  // Every hour
-    private void cleanupExpiredSessions() {
-        Instant now = Instant.now();
-        Iterator<Session> iterator = storageHashMap.values().iterator();
-
-        while (iterator.hasNext()) {
-            Session session = iterator.next();
-            if (Duration.between(session.getCreationTime(), now).compareTo(SESSION_TIMEOUT) > 0) {
-                iterator.remove();
-            }
-        }
-    }
-}
\ No newline at end of file
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage for live sessions. {@link InMemorySessionStorage} is the default; other backends
+ * can be selected with {@code trivia.storage.mode}.
+ */
+public interface SessionStorage {
+
+    String createSession(String password);
+
+    /**
+     * @throws IllegalArgumentException if no session with that ID exists
+     */
+    Session getSession(String sessionID);
+
+    /** Checks whether a session exists without counting as activity on it. */
+    boolean containsSession(String sessionID);
+
+    /** The session, or {@code null} if there is none; does not count as activity on it. */
+    Session findSession(String sessionID);
+
+    void removeSession(String sessionID);
+
+    void storeSession(String sessionID, Session session);
+
+    int size();
+
+    /** Sum of {@link Session#getEstimatedBytes()} over every live session. */
+    long getEstimatedBytes();
+
+    /** A weakly consistent view of every live session. */
+    Collection<Session> getSessions();
+
+    SessionExpiryPolicy getExpiryPolicy();
+
+    SessionExpiryIndex getExpiryIndex();
+
+    /**
+     * Evicts every session whose expiry deadline is at or before {@code nowMillis} and returns
+     * their IDs. This only drops them from storage; the periodic sweep in
+     * {@code SessionExpiryService} also tears down their timers and journals the removal.
+     */
+    List<String> expireSessions(long nowMillis);
+}
@@ -0,0 +1,210 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical hashed timing wheel: scheduling and cancelling are O(1), and advancing the clock
+ * only touches timeouts that are due (plus an occasional cascade of a coarser slot into finer
+ * ones), so cost does not grow with the number of pending timeouts.
+ * <p>
+ * Level 0 has {@code 64} slots of one tick each; every level above covers 64 times the span of
+ * the one below, four levels in all. A timeout is placed in the finest level whose span covers
+ * it; when a finer level wraps around, the matching slot of the level above is re-hashed into
+ * it. Timeouts further out than the top level reaches are parked in its last slot and re-hashed
+ * as time passes. Timeouts never fire early, and at most one tick late.
+ * <p>
+ * Time is passed in by the caller. Instances are thread-safe; {@link #advance} hands expired
+ * tasks to the consumer after releasing the lock, so they may schedule new timeouts.
+ */
+public class TimingWheel<T> {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /** Handle for a scheduled task. */
+    public static final class Timeout<T> {
+        private final TimingWheel<T> wheel;
+        private final T task;
+        private final long deadlineMillis;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private Slot<T> slot;
+
+        private Timeout(TimingWheel<T> wheel, T task, long deadlineMillis) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        /** Removes the timeout if it has not fired yet; returns whether it was still pending. */
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (slot == null) {
+                    return false;
+                }
+                slot.remove(this);
+                wheel.size--;
+                return true;
+            }
+        }
+    }
+
+    private static final class Slot<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.slot = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.slot = null;
+        }
+
+        /** Unlinks and returns every timeout in the slot. */
+        Timeout<T> drain() {
+            Timeout<T> first = head;
+            head = null;
+            return first;
+        }
+    }
+
+    private final long tickMillis;
+    private final Slot<T>[][] wheels;
+    /** Ticks since the epoch that have been processed. */
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        @SuppressWarnings("unchecked")
+        Slot<T>[][] slots = new Slot[LEVELS][SLOTS];
+        for (Slot<T>[] wheel : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = new Slot<>();
+            }
+        }
+        this.wheels = slots;
+    }
+
+    public synchronized Timeout<T> schedule(T task, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(this, task, deadlineMillis);
+        place(timeout, currentTick + 1);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Processes every tick up to {@code nowMillis} and passes each task that came due to
+     * {@code expired}, in deadline order to within a tick.
+     *
+     * @return the number of tasks that fired
+     */
+    public int advance(long nowMillis, Consumer<T> expired) {
+        List<T> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade(1);
+                Timeout<T> timeout = wheels[0][(int) (currentTick & SLOT_MASK)].drain();
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    timeout.slot = null;
+                    timeout.prev = null;
+                    timeout.next = null;
+                    if (deadlineTick(timeout) <= currentTick) {
+                        size--;
+                        due.add(timeout.task);
+                    } else {
+                        place(timeout, currentTick + 1);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        for (T task : due) {
+            expired.accept(task);
+        }
+        return due.size();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /** First tick at or after the deadline, so a timeout never fires early. */
+    private long deadlineTick(Timeout<T> timeout) {
+        return Math.floorDiv(timeout.deadlineMillis + tickMillis - 1, tickMillis);
+    }
+
+    /** When the level below has just wrapped, re-hashes the current slot of {@code level}. */
+    private void cascade(int level) {
+        if (level >= LEVELS || (currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+            return;
+        }
+        // Coarser levels first, so their timeouts can fall through into this one
+        cascade(level + 1);
+        Timeout<T> timeout = wheels[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)].drain();
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.slot = null;
+            place(timeout, currentTick);
+            timeout = next;
+        }
+    }
+
+    /**
+     * Hashes the timeout into its slot. {@code earliestTick} is the first tick still to be
+     * processed; anything already due goes there.
+     */
+    private void place(Timeout<T> timeout, long earliestTick) {
+        long deadlineTick = Math.max(deadlineTick(timeout), earliestTick);
+        long delta = deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+                wheels[level][(int) ((deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK)].add(timeout);
+                return;
+            }
+        }
+        // Beyond the top level: park it in the slot that is cascaded last, and re-hash it from there
+        int top = LEVELS - 1;
+        long parkTick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        wheels[top][(int) ((parkTick >>> (SLOT_BITS * top)) & SLOT_MASK)].add(timeout);
+    }
+}
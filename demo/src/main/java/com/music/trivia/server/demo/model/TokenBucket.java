@@ -0,0 +1,56 @@
+package com.music.trivia.server.demo.model;
+
+/**
+ * Token bucket rate limiter: holds up to {@code capacity} tokens and gains one every
+ * {@code refillIntervalMillis}. Time is passed in by the caller, so the bucket is easy to drive
+ * from a scheduler and from tests. A zero refill interval disables limiting.
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final long refillIntervalMillis;
+    private double tokens;
+    private long lastRefillMillis;
+
+    public TokenBucket(int capacity, long refillIntervalMillis, long nowMillis) {
+        this.capacity = Math.max(1, capacity);
+        this.refillIntervalMillis = Math.max(0, refillIntervalMillis);
+        this.tokens = this.capacity;
+        this.lastRefillMillis = nowMillis;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise how many milliseconds until the next one
+     */
+    public synchronized long tryAcquire(long nowMillis) {
+        if (refillIntervalMillis == 0) {
+            return 0;
+        }
+        refill(nowMillis);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) * refillIntervalMillis);
+    }
+
+    /** Empties the bucket, e.g. when the upstream says we are over its limit anyway. */
+    public synchronized void drain(long nowMillis) {
+        refill(nowMillis);
+        tokens = 0;
+    }
+
+    public synchronized double getTokens(long nowMillis) {
+        refill(nowMillis);
+        return tokens;
+    }
+
+    private void refill(long nowMillis) {
+        if (nowMillis > lastRefillMillis) {
+            tokens = Math.min(capacity, tokens + (double) (nowMillis - lastRefillMillis) / refillIntervalMillis);
+            lastRefillMillis = nowMillis;
+        }
+    }
+}
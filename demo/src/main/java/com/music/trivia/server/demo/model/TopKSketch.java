@@ -0,0 +1,150 @@
+package com.music.trivia.server.demo.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters sketch: keeps at most {@code capacity} counters, and when a new key
+ * arrives while full it takes over the smallest counter, inheriting its count as the error bound.
+ * Any key whose true total exceeds {@code total / capacity} is guaranteed to be present, so the
+ * top entries are accurate whenever the leaders are well separated from the tail.
+ * <p>
+ * The counters also sit in a binary min-heap ordered by count, each knowing its heap position,
+ * so finding and reusing the smallest is O(1) and re-ordering after an update is O(log capacity).
+ * Not thread-safe.
+ */
+public class TopKSketch {
+
+    /** A tracked key with its estimated count; the true count is in {@code [count - error, count]}. */
+    public record Counter(String key, long count, long error) {
+    }
+
+    private static final class Slot {
+        String key;
+        long count;
+        long error;
+        int heapIndex;
+    }
+
+    private final int capacity;
+    private final Map<String, Slot> slots;
+    private final Slot[] heap;
+
+    public TopKSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = new HashMap<>(capacity * 4 / 3 + 1);
+        this.heap = new Slot[capacity];
+    }
+
+    public void add(String key, long amount) {
+        Slot slot = slots.get(key);
+        if (slot != null) {
+            slot.count += amount;
+            reposition(slot.heapIndex);
+            return;
+        }
+        int size = slots.size();
+        if (size < capacity) {
+            slot = new Slot();
+            slot.key = key;
+            slot.count = amount;
+            slot.heapIndex = size;
+            heap[size] = slot;
+            slots.put(key, slot);
+            siftUp(size);
+            return;
+        }
+        Slot min = heap[0];
+        slots.remove(min.key);
+        min.key = key;
+        min.error = min.count;
+        min.count += amount;
+        slots.put(key, min);
+        reposition(0);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    public void clear() {
+        slots.clear();
+        Arrays.fill(heap, null);
+    }
+
+    /** Adds every counter in this sketch to {@code totals}, for merging several sketches. */
+    public void mergeInto(Map<String, long[]> totals) {
+        for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+            long[] total = totals.computeIfAbsent(entry.getKey(), k -> new long[2]);
+            total[0] += entry.getValue().count;
+            total[1] += entry.getValue().error;
+        }
+    }
+
+    public List<Counter> top(int k) {
+        Map<String, long[]> totals = new HashMap<>();
+        mergeInto(totals);
+        return top(totals, k);
+    }
+
+    /** The {@code k} largest of the merged totals, highest first. */
+    public static List<Counter> top(Map<String, long[]> totals, int k) {
+        List<Counter> counters = new ArrayList<>(totals.size());
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            counters.add(new Counter(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        counters.sort((a, b) -> a.count() != b.count() ? Long.compare(b.count(), a.count()) : a.key().compareTo(b.key()));
+        return counters.size() > k ? new ArrayList<>(counters.subList(0, k)) : counters;
+    }
+
+    private void reposition(int index) {
+        if (siftUp(index) == index) {
+            siftDown(index);
+        }
+    }
+
+    private int siftUp(int index) {
+        Slot slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= slot.count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(slot, index);
+        return index;
+    }
+
+    private void siftDown(int index) {
+        Slot slot = heap[index];
+        int size = slots.size();
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (heap[child].count >= slot.count) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(slot, index);
+    }
+
+    private void place(Slot slot, int index) {
+        heap[index] = slot;
+        slot.heapIndex = index;
+    }
+}
@@ -36,4 +36,16 @@ public class TriviaQuestion {
     public void setIncorrectAnswers(List<String> incorrectAnswers) {
         this.incorrectAnswers = incorrectAnswers;
     }
+
+    /**
+     * Index of {@code answer} among this question's options, counting the correct answer as 0
+     * and the incorrect answers from 1, or -1 if it matches none of them.
+     */
+    public int indexOfAnswer(String answer) {
+        if (correctAnswer != null && correctAnswer.equals(answer)) {
+            return 0;
+        }
+        int index = incorrectAnswers == null ? -1 : incorrectAnswers.indexOf(answer);
+        return index < 0 ? -1 : index + 1;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.music.trivia.server.demo.persistence;
+
+/**
+ * Record types written to the {@link SessionJournal}. Every record carries absolute state
+ * rather than a delta, so replaying a record twice is harmless.
+ */
+public enum JournalOp {
+    CREATE_SESSION,
+    REMOVE_SESSION,
+    USER_STATE,
+    REMOVE_USER,
+    SET_QUESTIONS,
+    QUESTION_INDEX,
+    ANSWER,
+    END_GAME;
+
+    private static final JournalOp[] VALUES = values();
+
+    public static JournalOp fromCode(int code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown journal op " + code);
+        }
+        return VALUES[code];
+    }
+}
@@ -0,0 +1,187 @@
+package com.music.trivia.server.demo.persistence;
+
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Read-only question corpus backed by a memory-mapped file, so hundreds of thousands of questions
+ * cost page cache rather than heap. Only sampled questions are decoded.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ *   int magic, int version, int questionCount, int groupCount
+ *   groupCount x { int category, byte difficulty, byte type, short reserved, int firstIndex, int count }
+ *   questionCount x int recordOffset
+ *   records: { string question, string correctAnswer, byte incorrectCount, incorrectCount x string }
+ * </pre>
+ * Strings are an unsigned short byte length followed by UTF-8. Records are grouped by
+ * (category, difficulty, type), so each group's index is one contiguous range of the offset table.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class QuestionCorpus {
+
+    public static final int MAGIC = 0x4D545143; // "MTQC"
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int GROUP_BYTES = 16;
+
+    private static final String[] DIFFICULTIES = {null, "easy", "medium", "hard"};
+    private static final String[] TYPES = {"multiple", "boolean"};
+
+    private record Group(int category, String difficulty, String type, int firstIndex, int count) {
+    }
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int questionCount;
+    private final List<Group> groups;
+    private final int offsetTable;
+
+    private QuestionCorpus(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a question corpus: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported question corpus version " + buffer.getInt(4) + " in " + path);
+        }
+        this.questionCount = buffer.getInt(8);
+        int groupCount = buffer.getInt(12);
+        List<Group> groupList = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            int at = HEADER_BYTES + i * GROUP_BYTES;
+            groupList.add(new Group(buffer.getInt(at), DIFFICULTIES[buffer.get(at + 4)], TYPES[buffer.get(at + 5)],
+                    buffer.getInt(at + 8), buffer.getInt(at + 12)));
+        }
+        this.groups = Collections.unmodifiableList(groupList);
+        this.offsetTable = HEADER_BYTES + groupCount * GROUP_BYTES;
+    }
+
+    public static QuestionCorpus open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new QuestionCorpus(path, buffer);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int size() {
+        return questionCount;
+    }
+
+    public long getFileBytes() {
+        return buffer.capacity();
+    }
+
+    /** Number of questions matching the key; a {@code null} difficulty matches every difficulty. */
+    public int count(QuestionKey key) {
+        int total = 0;
+        for (Group group : matching(key)) {
+            total += group.count();
+        }
+        return total;
+    }
+
+    /**
+     * Draws up to {@code n} distinct questions matching the key, chosen uniformly at random with
+     * Floyd's algorithm: O(n) work and allocation regardless of the corpus size.
+     */
+    public List<TriviaQuestion> sample(QuestionKey key, int n, Random random) {
+        List<Group> matching = matching(key);
+        int total = 0;
+        for (Group group : matching) {
+            total += group.count();
+        }
+        int wanted = Math.min(n, total);
+        Set<Integer> picked = new HashSet<>(wanted * 2);
+        List<Integer> order = new ArrayList<>(wanted);
+        for (int j = total - wanted; j < total; j++) {
+            int candidate = random.nextInt(j + 1);
+            int chosen = picked.contains(candidate) ? j : candidate;
+            picked.add(chosen);
+            order.add(chosen);
+        }
+        // Floyd's algorithm picks a uniform set but not a uniform order, so shuffle the order too
+        Collections.shuffle(order, random);
+
+        List<TriviaQuestion> questions = new ArrayList<>(wanted);
+        for (int ordinal : order) {
+            questions.add(read(toCorpusIndex(matching, ordinal)));
+        }
+        return questions;
+    }
+
+    /** Decodes the question at the given position in the corpus. */
+    public TriviaQuestion read(int index) {
+        int at = buffer.getInt(offsetTable + index * 4);
+        int[] cursor = {at};
+        String question = readString(cursor);
+        String correctAnswer = readString(cursor);
+        int incorrectCount = buffer.get(cursor[0]++) & 0xFF;
+        List<String> incorrectAnswers = new ArrayList<>(incorrectCount);
+        for (int i = 0; i < incorrectCount; i++) {
+            incorrectAnswers.add(readString(cursor));
+        }
+        return new TriviaQuestion(question, correctAnswer, incorrectAnswers);
+    }
+
+    private String readString(int[] cursor) {
+        int length = buffer.getShort(cursor[0]) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(cursor[0] + 2, bytes);
+        cursor[0] += 2 + length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<Group> matching(QuestionKey key) {
+        List<Group> matching = new ArrayList<>(3);
+        for (Group group : groups) {
+            if (group.category() == key.category() && group.type().equals(key.type())
+                    && (key.difficulty() == null || key.difficulty().equals(group.difficulty()))) {
+                matching.add(group);
+            }
+        }
+        return matching;
+    }
+
+    private static int toCorpusIndex(List<Group> matching, int ordinal) {
+        for (Group group : matching) {
+            if (ordinal < group.count()) {
+                return group.firstIndex() + ordinal;
+            }
+            ordinal -= group.count();
+        }
+        throw new IndexOutOfBoundsException("ordinal beyond matching groups");
+    }
+
+    static byte difficultyCode(String difficulty) {
+        for (int i = 1; i < DIFFICULTIES.length; i++) {
+            if (DIFFICULTIES[i].equals(difficulty)) {
+                return (byte) i;
+            }
+        }
+        return 0;
+    }
+
+    static byte typeCode(String type) {
+        return "boolean".equals(type) ? (byte) 1 : (byte) 0;
+    }
+}
@@ -0,0 +1,239 @@
+package com.music.trivia.server.demo.persistence;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import org.apache.commons.text.StringEscapeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a {@link QuestionCorpus} file. Questions are added one at a time (typically from
+ * opentdb-style JSON via {@link #importJson}), grouped by key, deduplicated on question text, and
+ * written out in one pass. Run {@link #main} to import JSON files from the command line:
+ * {@code QuestionCorpusWriter <output.corpus> <input.json>...}.
+ */
+public class QuestionCorpusWriter {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionCorpusWriter.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /** opentdb category names, for dumps that carry the name rather than the ID. */
+    private static final Map<String, Integer> CATEGORY_IDS = Map.ofEntries(
+            Map.entry("General Knowledge", 9),
+            Map.entry("Entertainment: Books", 10),
+            Map.entry("Entertainment: Film", 11),
+            Map.entry("Entertainment: Music", 12),
+            Map.entry("Entertainment: Musicals & Theatres", 13),
+            Map.entry("Entertainment: Television", 14),
+            Map.entry("Entertainment: Video Games", 15),
+            Map.entry("Entertainment: Board Games", 16),
+            Map.entry("Science & Nature", 17),
+            Map.entry("Science: Computers", 18),
+            Map.entry("Science: Mathematics", 19),
+            Map.entry("Mythology", 20),
+            Map.entry("Sports", 21),
+            Map.entry("Geography", 22),
+            Map.entry("History", 23),
+            Map.entry("Politics", 24),
+            Map.entry("Art", 25),
+            Map.entry("Celebrities", 26),
+            Map.entry("Animals", 27),
+            Map.entry("Vehicles", 28),
+            Map.entry("Entertainment: Comics", 29),
+            Map.entry("Science: Gadgets", 30),
+            Map.entry("Entertainment: Japanese Anime & Manga", 31),
+            Map.entry("Entertainment: Cartoon & Animations", 32)
+    );
+
+    private final Map<QuestionKey, List<byte[]>> groups = new LinkedHashMap<>();
+    private final Set<String> seenQuestions = new HashSet<>();
+    private int questionCount;
+    private int duplicates;
+
+    /**
+     * Adds a question under the given key.
+     *
+     * @return {@code false} if a question with the same text was already added
+     */
+    public boolean add(QuestionKey key, TriviaQuestion question) {
+        if (!seenQuestions.add(question.getQuestion())) {
+            duplicates++;
+            return false;
+        }
+        groups.computeIfAbsent(key, k -> new ArrayList<>()).add(encode(question));
+        questionCount++;
+        return true;
+    }
+
+    /**
+     * Streams an opentdb-style document ({@code {"results": [...]}} or a bare array of results)
+     * and adds every question in it. HTML entities are decoded; questions without a recognisable
+     * category use {@code defaultCategory}.
+     *
+     * @return the number of questions added
+     */
+    public int importJson(InputStream in, int defaultCategory) throws IOException {
+        int added = 0;
+        try (JsonParser parser = new JsonFactory().createParser(in)) {
+            parser.setCodec(OBJECT_MAPPER);
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                while ((token = parser.nextToken()) != JsonToken.END_OBJECT && token != null) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("results".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                        added += importResults(parser, defaultCategory);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                added += importResults(parser, defaultCategory);
+            }
+        }
+        return added;
+    }
+
+    private int importResults(JsonParser parser, int defaultCategory) throws IOException {
+        int added = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            JsonNode result = parser.readValueAsTree();
+            List<String> incorrect = new ArrayList<>();
+            for (JsonNode answer : result.path("incorrect_answers")) {
+                incorrect.add(StringEscapeUtils.unescapeHtml4(answer.asText()));
+            }
+            TriviaQuestion question = new TriviaQuestion(
+                    StringEscapeUtils.unescapeHtml4(result.path("question").asText()),
+                    StringEscapeUtils.unescapeHtml4(result.path("correct_answer").asText()),
+                    incorrect);
+            JsonNode category = result.path("category");
+            int categoryId = category.isInt() ? category.asInt()
+                    : CATEGORY_IDS.getOrDefault(StringEscapeUtils.unescapeHtml4(category.asText()), defaultCategory);
+            String difficulty = result.path("difficulty").asText(null);
+            String type = result.path("type").asText("multiple");
+            if (add(new QuestionKey(categoryId, difficulty, type), question)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /** Writes the corpus to a temporary file and atomically moves it into place. */
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(QuestionCorpus.MAGIC);
+            out.writeInt(QuestionCorpus.VERSION);
+            out.writeInt(questionCount);
+            out.writeInt(groups.size());
+
+            int index = 0;
+            for (Map.Entry<QuestionKey, List<byte[]>> group : groups.entrySet()) {
+                QuestionKey key = group.getKey();
+                out.writeInt(key.category());
+                out.writeByte(QuestionCorpus.difficultyCode(key.difficulty()));
+                out.writeByte(QuestionCorpus.typeCode(key.type()));
+                out.writeShort(0);
+                out.writeInt(index);
+                out.writeInt(group.getValue().size());
+                index += group.getValue().size();
+            }
+
+            long offset = QuestionCorpus.HEADER_BYTES + (long) groups.size() * QuestionCorpus.GROUP_BYTES
+                    + (long) questionCount * 4;
+            for (List<byte[]> records : groups.values()) {
+                for (byte[] record : records) {
+                    if (offset > Integer.MAX_VALUE) {
+                        throw new IOException("Question corpus exceeds 2 GB");
+                    }
+                    out.writeInt((int) offset);
+                    offset += record.length;
+                }
+            }
+            for (List<byte[]> records : groups.values()) {
+                for (byte[] record : records) {
+                    out.write(record);
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Wrote question corpus {} with {} questions in {} groups", path, questionCount, groups.size());
+    }
+
+    private static byte[] encode(TriviaQuestion question) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, question.getQuestion());
+            writeString(out, question.getCorrectAnswer());
+            List<String> incorrect = question.getIncorrectAnswers();
+            out.writeByte(incorrect.size());
+            for (String answer : incorrect) {
+                writeString(out, answer);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String too long for question corpus: " + bytes.length + " bytes");
+        }
+        out.write(bytes.length >>> 8);
+        out.write(bytes.length);
+        out.write(bytes);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: QuestionCorpusWriter <output.corpus> <input.json>...");
+            System.exit(2);
+        }
+        QuestionCorpusWriter writer = new QuestionCorpusWriter();
+        for (int i = 1; i < args.length; i++) {
+            try (InputStream in = Files.newInputStream(Path.of(args[i]))) {
+                int added = writer.importJson(in, QuestionKey.MUSIC_CATEGORY);
+                System.out.printf("%s: %d questions%n", args[i], added);
+            }
+        }
+        writer.write(Path.of(args[0]));
+        System.out.printf("Wrote %d questions (%d duplicates skipped) to %s%n",
+                writer.getQuestionCount(), writer.getDuplicates(), args[0]);
+    }
+}
@@ -0,0 +1,598 @@
+package com.music.trivia.server.demo.persistence;
+
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.SessionStorage;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented write-ahead journal of session mutations.
+ * <p>
+ * Callers encode a small binary record and hand it to a queue; they never touch the disk. A
+ * single writer thread drains whatever has queued up, writes it with one gathering write and
+ * issues one {@code fsync} for the whole batch (group commit), so the number of syncs tracks
+ * disk speed rather than message rate.
+ * <p>
+ * Record layout: {@code [int length][int crc32][long seq][long timestamp][byte op][sessionId]...}
+ * where the CRC covers everything after itself. Replay stops at the first torn or corrupt record.
+ * On startup the journal is replayed on top of whatever the {@link SessionStorage} restored, then
+ * the live state is rewritten into a fresh segment and older segments are deleted.
+ * <p>
+ * A batch that fails to write is cut back off the segment and retried a few times with backoff.
+ * If it still fails the journal is marked failed: nothing more is accepted, since the log could
+ * no longer be trusted to match memory, and every later append throws {@link IllegalStateException}
+ * with the original error as its cause.
+ */
+@Component
+public class SessionJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionJournal.class);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BATCH = 4096;
+    private static final int WRITE_ATTEMPTS = 5;
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+
+    private final SessionStorage sessionStorage;
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final Object appendLock = new Object();
+    private long nextSequence = 1; // guarded by appendLock
+
+    private final AtomicLong recordsAppended = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong fsyncNanos = new AtomicLong();
+    private volatile long durableSequence;
+    private volatile long truncateUpTo;
+    private volatile boolean running;
+    private volatile IOException failure;
+    private Thread writer;
+
+    // Owned by the writer thread once started
+    private FileChannel segment;
+    private long segmentFirstSequence;
+    private long segmentSize;
+
+    @Autowired
+    public SessionJournal(SessionStorage sessionStorage,
+                          @Value("${trivia.journal.enabled:false}") boolean enabled,
+                          @Value("${trivia.journal.dir:data/journal}") Path directory,
+                          @Value("${trivia.journal.segment-bytes:16777216}") long segmentBytes) {
+        this.sessionStorage = sessionStorage;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        long floor = 0;
+        if (sessionStorage instanceof SnapshotSessionStorage snapshotStorage) {
+            floor = snapshotStorage.getRestoredJournalSequence();
+            snapshotStorage.setJournal(this);
+        }
+        replay(floor);
+        compact();
+
+        running = true;
+        writer = new Thread(this::writeLoop, "session-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        if (writer.isAlive()) {
+            // Still flushing or retrying; the writer closes the segment itself when it is done
+            logger.warn("Journal writer still has {} records to write; waiting for it", queue.size());
+            writer.join();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** True once a batch could not be written; the journal then accepts nothing more. */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    // ---- Mutation records ------------------------------------------------------------------
+
+    public void sessionCreated(Session session) {
+        if (!enabled) {
+            return;
+        }
+        String password = session.getPassword();
+        long creationMillis = session.getCreationTime().toEpochMilli();
+        append(JournalOp.CREATE_SESSION, session.getSessionID(), out -> {
+            SessionSnapshotCodec.writeString(out, password);
+            out.writeLong(creationMillis);
+        });
+    }
+
+    public void sessionRemoved(String sessionId) {
+        if (enabled) {
+            append(JournalOp.REMOVE_SESSION, sessionId, out -> { });
+        }
+    }
+
+    public void userState(String sessionId, String userId, User user) {
+        if (!enabled || user == null) {
+            return;
+        }
+        append(JournalOp.USER_STATE, sessionId, out -> {
+            SessionSnapshotCodec.writeString(out, userId);
+            SessionSnapshotCodec.writeUser(out, user);
+        });
+    }
+
+    public void userRemoved(String sessionId, String userId) {
+        if (enabled) {
+            append(JournalOp.REMOVE_USER, sessionId, out -> SessionSnapshotCodec.writeString(out, userId));
+        }
+    }
+
+    public void questionsSet(String sessionId, List<TriviaQuestion> questions) {
+        if (enabled) {
+            append(JournalOp.SET_QUESTIONS, sessionId, out -> SessionSnapshotCodec.writeQuestions(out, questions));
+        }
+    }
+
+    public void questionIndex(String sessionId, int index) {
+        if (enabled) {
+            append(JournalOp.QUESTION_INDEX, sessionId, out -> out.writeInt(index));
+        }
+    }
+
+    public void answer(String sessionId, String userId, int scoreAfter) {
+        if (enabled) {
+            append(JournalOp.ANSWER, sessionId, out -> {
+                SessionSnapshotCodec.writeString(out, userId);
+                out.writeInt(scoreAfter);
+            });
+        }
+    }
+
+    public void gameEnded(String sessionId) {
+        if (enabled) {
+            append(JournalOp.END_GAME, sessionId, out -> { });
+        }
+    }
+
+    // ---- Sequencing and checkpoints --------------------------------------------------------
+
+    /** Sequence number of the most recently appended record. */
+    public long currentSequence() {
+        synchronized (appendLock) {
+            return nextSequence - 1;
+        }
+    }
+
+    /** Sequence number of the most recent record known to be on disk. */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Marks every record up to {@code sequence} as covered by a checkpoint. Segments holding only
+     * such records are deleted by the writer thread.
+     */
+    public void checkpoint(long sequence) {
+        truncateUpTo = Math.max(truncateUpTo, sequence);
+    }
+
+    public long getRecordsAppended() {
+        return recordsAppended.get();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getFsyncNanos() {
+        return fsyncNanos.get();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // ---- Internals -------------------------------------------------------------------------
+
+    @FunctionalInterface
+    private interface RecordBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(JournalOp op, String sessionId, RecordBody body) {
+        IOException failed = failure;
+        if (failed != null) {
+            throw new IllegalStateException("Session journal failed; not recording " + op + " for session " + sessionId, failed);
+        }
+        byte[] record;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);  // length, filled in below
+            out.writeInt(0);  // crc, filled in below
+            out.writeLong(0); // sequence, filled in below
+            out.writeLong(System.currentTimeMillis());
+            out.writeByte(op.ordinal());
+            SessionSnapshotCodec.writeString(out, sessionId);
+            body.write(out);
+            record = bytes.toByteArray();
+        } catch (IOException e) {
+            logger.error("Failed to encode {} journal record for session {}", op, sessionId, e);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        synchronized (appendLock) {
+            buffer.putLong(HEADER_BYTES, nextSequence++);
+            CRC32 crc = new CRC32();
+            crc.update(record, HEADER_BYTES, record.length - HEADER_BYTES);
+            buffer.putInt(0, record.length - HEADER_BYTES);
+            buffer.putInt(4, (int) crc.getValue());
+            queue.add(record);
+        }
+        recordsAppended.incrementAndGet();
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (running || !queue.isEmpty()) {
+                byte[] first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    if (!writeWithRetry(batch)) {
+                        return;
+                    }
+                    batch.clear();
+                }
+                if (truncateUpTo > 0) {
+                    try {
+                        deleteCoveredSegments();
+                    } catch (IOException e) {
+                        logger.warn("Failed to delete checkpointed journal segments", e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Writes the batch, cutting a partial write back off the segment and retrying with backoff.
+     * Returns false, having marked the journal failed, if every attempt fails.
+     */
+    private boolean writeWithRetry(List<byte[]> batch) throws InterruptedException {
+        IOException last = null;
+        for (int attempt = 1; attempt <= WRITE_ATTEMPTS; attempt++) {
+            try {
+                if (last != null) {
+                    rewindSegment();
+                }
+                writeBatch(batch);
+                rollSegmentIfFull();
+                return true;
+            } catch (IOException e) {
+                last = e;
+                logger.warn("Failed to write {} journal records (attempt {} of {})", batch.size(), attempt, WRITE_ATTEMPTS, e);
+                if (attempt < WRITE_ATTEMPTS) {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS << (attempt - 1));
+                }
+            }
+        }
+        failure = last;
+        logger.error("Session journal failed after {} attempts; {} records and {} queued behind them were not written",
+                WRITE_ATTEMPTS, batch.size(), queue.size(), last);
+        return false;
+    }
+
+    /** Drops whatever part of a failed batch reached the segment, reopening it if the failure closed it. */
+    private void rewindSegment() throws IOException {
+        if (segment == null || !segment.isOpen()) {
+            segment = FileChannel.open(segmentPath(segmentFirstSequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        segment.truncate(segmentSize);
+        segment.position(segmentSize);
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close journal segment", e);
+        }
+    }
+
+    private void writeBatch(List<byte[]> batch) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(batch.get(i));
+            total += buffers[i].remaining();
+        }
+        long written = 0;
+        while (written < total) {
+            written += segment.write(buffers);
+        }
+        long start = System.nanoTime();
+        segment.force(false);
+        fsyncNanos.addAndGet(System.nanoTime() - start);
+
+        long lastSequence = ByteBuffer.wrap(batch.get(batch.size() - 1)).getLong(HEADER_BYTES);
+        durableSequence = lastSequence;
+        segmentSize += total;
+        bytesWritten.addAndGet(total);
+        batchesWritten.incrementAndGet();
+    }
+
+    /**
+     * Starts a new segment once the current one is full. A failure here leaves the batch already
+     * written; the next write finds the segment closed and reopens it through {@link #rewindSegment}.
+     */
+    private void rollSegmentIfFull() {
+        if (segmentSize < segmentBytes) {
+            return;
+        }
+        try {
+            openSegment(durableSequence + 1);
+        } catch (IOException e) {
+            logger.warn("Failed to start a new journal segment; continuing in the current one", e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        if (segment != null && segment.isOpen()) {
+            segment.force(true);
+            segment.close();
+        }
+        segment = FileChannel.open(segmentPath(firstSequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segmentFirstSequence = firstSequence;
+        segmentSize = segment.size();
+        segment.position(segmentSize);
+    }
+
+    private void deleteCoveredSegments() throws IOException {
+        List<Long> segments = listSegments();
+        // A segment can go once the segment after it starts at or below the checkpoint + 1;
+        // the newest segment is always kept.
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segments.get(i + 1) - 1 <= truncateUpTo) {
+                Files.deleteIfExists(segmentPath(segments.get(i)));
+            }
+        }
+    }
+
+    private void replay(long floor) throws IOException {
+        long start = System.nanoTime();
+        long maxSequence = floor;
+        int applied = 0;
+        for (long firstSequence : listSegments()) {
+            Path path = segmentPath(firstSequence);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() == 0) {
+                    continue;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= HEADER_BYTES) {
+                    int length = buffer.getInt();
+                    int crc = buffer.getInt();
+                    if (length <= 0 || length > buffer.remaining()) {
+                        logger.warn("Torn journal record at {} in {}, ignoring the rest", buffer.position(), path);
+                        break;
+                    }
+                    ByteBuffer payload = buffer.slice(buffer.position(), length);
+                    CRC32 check = new CRC32();
+                    check.update(payload.duplicate());
+                    if ((int) check.getValue() != crc) {
+                        logger.warn("Corrupt journal record at {} in {}, ignoring the rest", buffer.position(), path);
+                        break;
+                    }
+                    buffer.position(buffer.position() + length);
+
+                    long sequence = payload.getLong();
+                    maxSequence = Math.max(maxSequence, sequence);
+                    if (sequence > floor) {
+                        apply(payload);
+                        applied++;
+                    }
+                }
+            }
+        }
+        synchronized (appendLock) {
+            nextSequence = maxSequence + 1;
+        }
+        logger.info("Replayed {} journal records from {} in {} ms", applied, directory,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void apply(ByteBuffer payload) {
+        long timestamp = payload.getLong();
+        JournalOp op = JournalOp.fromCode(payload.get());
+        String sessionId = SessionSnapshotCodec.readString(payload);
+
+        if (op == JournalOp.CREATE_SESSION) {
+            String password = SessionSnapshotCodec.readString(payload);
+            long creationMillis = payload.getLong();
+            if (findSession(sessionId) == null) {
+                Session session = new Session(sessionId, password);
+                session.setCreationTime(Instant.ofEpochMilli(creationMillis));
+                session.setLastActivityMillis(timestamp);
+                sessionStorage.storeSession(sessionId, session);
+            }
+            return;
+        }
+        if (op == JournalOp.REMOVE_SESSION) {
+            sessionStorage.removeSession(sessionId);
+            return;
+        }
+
+        Session session = findSession(sessionId);
+        if (session == null) {
+            return; // Session was removed later or predates the retained journal
+        }
+        session.setLastActivityMillis(timestamp);
+
+        switch (op) {
+            case USER_STATE -> {
+                String userId = SessionSnapshotCodec.readString(payload);
+                User state = SessionSnapshotCodec.readUser(payload);
+                if (session.getUser(userId) == null) {
+                    session.addUser(userId, state);
+                } else {
+                    session.updateUser(userId, state.getAvatar(), state.getRole(), state.getScore());
+                }
+            }
+            case REMOVE_USER -> {
+                String userId = SessionSnapshotCodec.readString(payload);
+                if (session.getUser(userId) != null) {
+                    session.removeUser(userId);
+                }
+            }
+            case SET_QUESTIONS -> {
+                session.setTriviaQuestions(SessionSnapshotCodec.readQuestions(payload));
+                session.setCurrentQuestionIndex(0);
+                session.resetAnsweredUsers();
+            }
+            case QUESTION_INDEX -> {
+                session.setCurrentQuestionIndex(payload.getInt());
+                session.resetAnsweredUsers();
+            }
+            case ANSWER -> {
+                String userId = SessionSnapshotCodec.readString(payload);
+                int score = payload.getInt();
+                if (session.getUser(userId) != null) {
+                    session.updateUserScore(userId, score);
+                    session.addAnsweredUser(userId);
+                }
+            }
+            case END_GAME -> {
+                session.setTriviaQuestions(null);
+                session.setCurrentQuestionIndex(0);
+                session.resetAnsweredUsers();
+                for (String userId : session.getUsers().keySet()) {
+                    session.updateUserScore(userId, 0);
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected journal op " + op);
+        }
+    }
+
+    private Session findSession(String sessionId) {
+        try {
+            return sessionStorage.getSession(sessionId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rewrites the live state as a fresh segment and drops every older segment, so the journal
+     * never grows past one segment's worth of history per restart.
+     */
+    private void compact() throws IOException {
+        List<Long> oldSegments = listSegments();
+        long firstSequence;
+        synchronized (appendLock) {
+            firstSequence = nextSequence;
+        }
+        openSegment(firstSequence);
+        for (Session session : sessionStorage.getSessions()) {
+            String sessionId = session.getSessionID();
+            sessionCreated(session);
+            for (Map.Entry<String, User> entry : session.getUsers().entrySet()) {
+                userState(sessionId, entry.getKey(), entry.getValue());
+            }
+            if (session.getTriviaQuestions() != null) {
+                questionsSet(sessionId, session.getTriviaQuestions());
+                questionIndex(sessionId, session.getCurrentQuestionIndex());
+                for (String userId : session.getAnsweredUsers()) {
+                    answer(sessionId, userId, session.getUserScore(userId));
+                }
+            }
+        }
+        List<byte[]> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+        for (long sequence : oldSegments) {
+            if (sequence != firstSequence) {
+                Files.deleteIfExists(segmentPath(sequence));
+            }
+        }
+        logger.info("Compacted journal into {} records for {} sessions", batch.size(), sessionStorage.size());
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,208 @@
+package com.music.trivia.server.demo.persistence;
+
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link Session}, {@link User} and {@link TriviaQuestion} state.
+ * <p>
+ * Layout: a header ({@code MAGIC}, format version, snapshot time, the {@link SessionJournal}
+ * sequence the snapshot covers, session count) followed by one record per session. Strings are a length-prefixed UTF-8 run, with length {@code -1} for null.
+ */
+public final class SessionSnapshotCodec {
+
+    static final int MAGIC = 0x4D545353; // "MTSS"
+    static final short VERSION = 2;
+
+    private static final int MAX_ENCODE_ATTEMPTS = 3;
+
+    private SessionSnapshotCodec() {
+    }
+
+    /** Decoded snapshot contents. */
+    public record Snapshot(long snapshotTimeMillis, long journalSequence, List<Session> sessions) {
+    }
+
+    public static byte[] encode(Collection<Session> sessions, long snapshotTimeMillis, long journalSequence)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(1024, sessions.size() * 512));
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<byte[]> records = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            byte[] record = encodeSession(session);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(snapshotTimeMillis);
+        out.writeLong(journalSequence);
+        out.writeInt(records.size());
+        for (byte[] record : records) {
+            out.write(record);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static Snapshot decode(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a session snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported session snapshot version " + version);
+        }
+        long snapshotTimeMillis = buffer.getLong();
+        long journalSequence = buffer.getLong();
+        int count = buffer.getInt();
+        List<Session> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sessions.add(readSession(buffer));
+        }
+        return new Snapshot(snapshotTimeMillis, journalSequence, sessions);
+    }
+
+    /**
+     * Encodes one session on its own so a session being mutated mid-encode can be retried without
+     * restarting the whole snapshot. Returns {@code null} if it kept changing underneath us.
+     */
+    private static byte[] encodeSession(Session session) throws IOException {
+        for (int attempt = 0; attempt < MAX_ENCODE_ATTEMPTS; attempt++) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                writeSession(new DataOutputStream(bytes), session);
+                return bytes.toByteArray();
+            } catch (ConcurrentModificationException e) {
+                // Retry with a fresh view of the session
+            }
+        }
+        return null;
+    }
+
+    private static void writeSession(DataOutputStream out, Session session) throws IOException {
+        writeString(out, session.getSessionID());
+        writeString(out, session.getPassword());
+        out.writeLong(session.getCreationTime().toEpochMilli());
+        out.writeLong(session.getLastActivityMillis());
+        out.writeInt(session.getCurrentQuestionIndex());
+
+        Map<String, User> users = session.getUsers();
+        out.writeInt(users.size());
+        for (Map.Entry<String, User> entry : users.entrySet()) {
+            writeString(out, entry.getKey());
+            writeUser(out, entry.getValue());
+        }
+
+        List<TriviaQuestion> questions = session.getTriviaQuestions();
+        writeQuestions(out, questions);
+
+        List<String> answered = new ArrayList<>(session.getAnsweredUsers());
+        out.writeInt(answered.size());
+        for (String userID : answered) {
+            writeString(out, userID);
+        }
+    }
+
+    private static Session readSession(ByteBuffer buffer) {
+        Session session = new Session(readString(buffer), readString(buffer));
+        session.setCreationTime(Instant.ofEpochMilli(buffer.getLong()));
+        session.setLastActivityMillis(buffer.getLong());
+        session.setCurrentQuestionIndex(buffer.getInt());
+
+        int userCount = buffer.getInt();
+        for (int i = 0; i < userCount; i++) {
+            String userID = readString(buffer);
+            session.addUser(userID, readUser(buffer));
+        }
+
+        session.setTriviaQuestions(readQuestions(buffer));
+
+        int answeredCount = buffer.getInt();
+        for (int i = 0; i < answeredCount; i++) {
+            session.addAnsweredUser(readString(buffer));
+        }
+        return session;
+    }
+
+    public static void writeUser(DataOutput out, User user) throws IOException {
+        writeString(out, user.getAvatar());
+        writeString(out, user.getRole());
+        out.writeInt(user.getScore());
+    }
+
+    public static User readUser(ByteBuffer buffer) {
+        return new User(readString(buffer), readString(buffer), buffer.getInt());
+    }
+
+    public static void writeQuestions(DataOutput out, List<TriviaQuestion> questions) throws IOException {
+        if (questions == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(questions.size());
+        for (TriviaQuestion question : questions) {
+            writeString(out, question.getQuestion());
+            writeString(out, question.getCorrectAnswer());
+            List<String> incorrect = question.getIncorrectAnswers();
+            out.writeInt(incorrect.size());
+            for (String answer : incorrect) {
+                writeString(out, answer);
+            }
+        }
+    }
+
+    public static List<TriviaQuestion> readQuestions(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        List<TriviaQuestion> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String question = readString(buffer);
+            String correctAnswer = readString(buffer);
+            int incorrectCount = buffer.getInt();
+            List<String> incorrect = new ArrayList<>(incorrectCount);
+            for (int j = 0; j < incorrectCount; j++) {
+                incorrect.add(readString(buffer));
+            }
+            questions.add(new TriviaQuestion(question, correctAnswer, incorrect));
+        }
+        return questions;
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
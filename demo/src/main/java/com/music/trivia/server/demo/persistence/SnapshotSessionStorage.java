@@ -0,0 +1,147 @@
+package com.music.trivia.server.demo.persistence;
+
+import com.music.trivia.server.demo.model.InMemorySessionStorage;
+import com.music.trivia.server.demo.model.Session;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * In-memory session storage that periodically writes every session to a binary snapshot file
+ * and restores it on startup, so a redeploy doesn't drop lobbies and in-flight games.
+ * <p>
+ * Both directions go through a memory-mapped {@link FileChannel}. Restore runs during bean
+ * initialisation, which completes before the embedded server starts accepting STOMP connections.
+ * Snapshots are written to a temporary file and atomically moved into place, so a crash mid-write
+ * leaves the previous snapshot intact.
+ * <p>
+ * When the {@link SessionJournal} is enabled, each snapshot records the journal sequence it
+ * covers; on restore only later journal records are replayed, and covered segments are dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "trivia.storage.mode", havingValue = "snapshot")
+public class SnapshotSessionStorage extends InMemorySessionStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotSessionStorage.class);
+
+    private final Path snapshotPath;
+    private volatile long lastSnapshotMillis;
+    private volatile long lastSnapshotBytes;
+    private volatile long lastRestoreMillis;
+    private volatile long restoredJournalSequence;
+    private volatile SessionJournal journal;
+
+    @Autowired
+    public SnapshotSessionStorage(@Value("${trivia.session.idle-ttl:PT1H}") Duration idleTtl,
+                                  @Value("${trivia.session.absolute-ttl:PT12H}") Duration absoluteTtl,
+                                  @Value("${trivia.storage.snapshot-path:data/sessions.snapshot}") Path snapshotPath) {
+        super(idleTtl, absoluteTtl);
+        this.snapshotPath = snapshotPath;
+    }
+
+    @PostConstruct
+    public void restore() {
+        if (!Files.exists(snapshotPath)) {
+            logger.info("No session snapshot at {}, starting empty", snapshotPath);
+            return;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            SessionSnapshotCodec.Snapshot snapshot = SessionSnapshotCodec.decode(buffer);
+            List<Session> sessions = snapshot.sessions();
+            restoredJournalSequence = snapshot.journalSequence();
+            for (Session session : sessions) {
+                storeSession(session.getSessionID(), session);
+            }
+            lastRestoreMillis = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Restored {} sessions from {} in {} ms", sessions.size(), snapshotPath, lastRestoreMillis);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to restore session snapshot from {}, starting empty", snapshotPath, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trivia.storage.snapshot-interval-ms:5000}")
+    public void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            logger.error("Failed to write session snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdownSnapshot() {
+        scheduledSnapshot();
+    }
+
+    public synchronized void snapshot() throws IOException {
+        long start = System.nanoTime();
+        SessionJournal currentJournal = journal;
+        // Taken before encoding: anything appended while we encode is replayed again on restore,
+        // which is safe because journal records carry absolute state.
+        long journalSequence = currentJournal == null ? 0 : currentJournal.currentSequence();
+        byte[] encoded = SessionSnapshotCodec.encode(getSessions(), System.currentTimeMillis(), journalSequence);
+
+        Path parent = snapshotPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, encoded.length);
+            buffer.put(encoded);
+            buffer.force();
+        }
+        Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (currentJournal != null) {
+            currentJournal.checkpoint(journalSequence);
+        }
+
+        lastSnapshotBytes = encoded.length;
+        lastSnapshotMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.debug("Wrote snapshot of {} sessions ({} bytes) in {} ms", size(), encoded.length, lastSnapshotMillis);
+    }
+
+    public void setJournal(SessionJournal journal) {
+        this.journal = journal;
+    }
+
+    /** Journal sequence covered by the snapshot restored at startup, or 0 if none. */
+    public long getRestoredJournalSequence() {
+        return restoredJournalSequence;
+    }
+
+    public Path getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public long getLastSnapshotMillis() {
+        return lastSnapshotMillis;
+    }
+
+    public long getLastSnapshotBytes() {
+        return lastSnapshotBytes;
+    }
+
+    public long getLastRestoreMillis() {
+        return lastRestoreMillis;
+    }
+}
@@ -0,0 +1,95 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.exception.CapacityExceededException;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.SessionMemoryEstimator;
+import com.music.trivia.server.demo.model.SessionStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejects new sessions and joins once the node approaches its configured caps, so a burst of
+ * lobby creation fails fast for the newcomers instead of pushing the whole node into GC thrash.
+ * A cap of zero or less disables that check.
+ */
+@Service
+public class AdmissionControlService {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlService.class);
+
+    private final SessionStorage sessionStorage;
+    private final int maxSessions;
+    private final int maxUsersPerSession;
+    private final long maxEstimatedBytes;
+
+    private final AtomicLong rejectedSessions = new AtomicLong();
+    private final AtomicLong rejectedJoins = new AtomicLong();
+
+    @Autowired
+    public AdmissionControlService(SessionStorage sessionStorage,
+                                   @Value("${trivia.admission.max-sessions:10000}") int maxSessions,
+                                   @Value("${trivia.admission.max-users-per-session:1000}") int maxUsersPerSession,
+                                   @Value("${trivia.admission.max-estimated-bytes:268435456}") long maxEstimatedBytes) {
+        this.sessionStorage = sessionStorage;
+        this.maxSessions = maxSessions;
+        this.maxUsersPerSession = maxUsersPerSession;
+        this.maxEstimatedBytes = maxEstimatedBytes;
+    }
+
+    public void checkCreateSession() {
+        if (maxSessions > 0 && sessionStorage.size() >= maxSessions) {
+            rejectedSessions.incrementAndGet();
+            logger.warn("Rejecting new session: {} live sessions (cap {})", sessionStorage.size(), maxSessions);
+            throw new CapacityExceededException("Server is at capacity, please try again later");
+        }
+        if (wouldExceedMemory(SessionMemoryEstimator.SESSION_BASE_BYTES + SessionMemoryEstimator.TYPICAL_USER_BYTES)) {
+            rejectedSessions.incrementAndGet();
+            logger.warn("Rejecting new session: estimated session memory {} bytes (cap {})",
+                    sessionStorage.getEstimatedBytes(), maxEstimatedBytes);
+            throw new CapacityExceededException("Server is at capacity, please try again later");
+        }
+    }
+
+    public void checkJoinSession(Session session) {
+        if (maxUsersPerSession > 0 && session.getUsers().size() >= maxUsersPerSession) {
+            rejectedJoins.incrementAndGet();
+            logger.warn("Rejecting join to session {}: {} users (cap {})",
+                    session.getSessionID(), session.getUsers().size(), maxUsersPerSession);
+            throw new CapacityExceededException("Session is full");
+        }
+        if (wouldExceedMemory(SessionMemoryEstimator.TYPICAL_USER_BYTES)) {
+            rejectedJoins.incrementAndGet();
+            logger.warn("Rejecting join to session {}: estimated session memory {} bytes (cap {})",
+                    session.getSessionID(), sessionStorage.getEstimatedBytes(), maxEstimatedBytes);
+            throw new CapacityExceededException("Server is at capacity, please try again later");
+        }
+    }
+
+    private boolean wouldExceedMemory(long additionalBytes) {
+        return maxEstimatedBytes > 0 && sessionStorage.getEstimatedBytes() + additionalBytes > maxEstimatedBytes;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getMaxUsersPerSession() {
+        return maxUsersPerSession;
+    }
+
+    public long getMaxEstimatedBytes() {
+        return maxEstimatedBytes;
+    }
+
+    public long getRejectedSessions() {
+        return rejectedSessions.get();
+    }
+
+    public long getRejectedJoins() {
+        return rejectedJoins.get();
+    }
+}
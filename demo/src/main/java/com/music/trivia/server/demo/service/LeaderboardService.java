@@ -0,0 +1,228 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.TopKSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-wide "best players right now" board across every session.
+ * <p>
+ * The answer path only offers an event to a bounded queue and never blocks: if the queue is full
+ * the event is dropped and counted. A scheduled drain folds events into per-minute and per-hour
+ * {@link TopKSketch} buckets, recomputes the top K for the last hour and the last day, and
+ * publishes them to {@code /topic/leaderboard} when they change. Memory is bounded by the bucket
+ * count times the sketch capacity, regardless of how many players come and go.
+ */
+@Service
+public class LeaderboardService {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+    private static final char KEY_SEPARATOR = '\u001F';
+
+    public enum Window {
+        HOUR(60, 60_000L),
+        DAY(24, 3_600_000L);
+
+        private final int buckets;
+        private final long bucketMillis;
+
+        Window(int buckets, long bucketMillis) {
+            this.buckets = buckets;
+            this.bucketMillis = bucketMillis;
+        }
+    }
+
+    /** One leaderboard row. {@code points} may overcount by at most {@code maxError}. */
+    public record Entry(int rank, String userId, String sessionId, long points, long maxError) {
+    }
+
+    private record ScoreEvent(String sessionId, String userId, int points, long timestampMillis) {
+    }
+
+    /** Ring of sketches, one per bucket, tagged with the bucket number they currently hold. */
+    private static final class RollingWindow {
+        final Window window;
+        final TopKSketch[] sketches;
+        final long[] bucketIds;
+
+        RollingWindow(Window window, int capacity) {
+            this.window = window;
+            this.sketches = new TopKSketch[window.buckets];
+            this.bucketIds = new long[window.buckets];
+            for (int i = 0; i < window.buckets; i++) {
+                sketches[i] = new TopKSketch(capacity);
+                bucketIds[i] = -1;
+            }
+        }
+
+        void add(String key, int points, long timestampMillis) {
+            long bucketId = timestampMillis / window.bucketMillis;
+            int index = (int) (bucketId % window.buckets);
+            if (bucketIds[index] != bucketId) {
+                sketches[index].clear();
+                bucketIds[index] = bucketId;
+            }
+            sketches[index].add(key, points);
+        }
+
+        List<TopKSketch.Counter> top(int k, long nowMillis) {
+            long currentBucket = nowMillis / window.bucketMillis;
+            Map<String, long[]> totals = new HashMap<>();
+            for (int i = 0; i < window.buckets; i++) {
+                if (bucketIds[i] > currentBucket - window.buckets && bucketIds[i] <= currentBucket) {
+                    sketches[i].mergeInto(totals);
+                }
+            }
+            return TopKSketch.top(totals, k);
+        }
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int topK;
+    private final BlockingQueue<ScoreEvent> events;
+    private final Map<Window, RollingWindow> windows = new LinkedHashMap<>();
+    private volatile Map<Window, List<Entry>> published = Collections.emptyMap();
+
+    private final AtomicLong eventsAccepted = new AtomicLong();
+    private final AtomicLong eventsDropped = new AtomicLong();
+    private final AtomicLong gamesCompleted = new AtomicLong();
+    private volatile boolean gameCompletedSinceDrain;
+    private long lastPublishBucket = -1;
+
+    @Autowired
+    public LeaderboardService(@Lazy SimpMessagingTemplate messagingTemplate,
+                              @Value("${trivia.leaderboard.top-k:10}") int topK,
+                              @Value("${trivia.leaderboard.sketch-capacity:128}") int sketchCapacity,
+                              @Value("${trivia.leaderboard.queue-capacity:65536}") int queueCapacity) {
+        this.messagingTemplate = messagingTemplate;
+        this.topK = topK;
+        this.events = new ArrayBlockingQueue<>(queueCapacity);
+        for (Window window : Window.values()) {
+            windows.put(window, new RollingWindow(window, Math.max(sketchCapacity, topK)));
+        }
+    }
+
+    /** Records points earned by a player. Safe to call from any thread; never blocks. */
+    public void recordPoints(String sessionId, String userId, int points) {
+        if (points <= 0) {
+            return;
+        }
+        if (events.offer(new ScoreEvent(sessionId, userId, points, System.currentTimeMillis()))) {
+            eventsAccepted.incrementAndGet();
+        } else {
+            eventsDropped.incrementAndGet();
+        }
+    }
+
+    /** Notes that a game ran to completion, so the next drain republishes the board. */
+    public void recordGameCompleted(String sessionId) {
+        gamesCompleted.incrementAndGet();
+        gameCompletedSinceDrain = true;
+    }
+
+    @Scheduled(fixedDelayString = "${trivia.leaderboard.drain-interval-ms:1000}")
+    public void scheduledDrain() {
+        drain(System.currentTimeMillis());
+    }
+
+    /**
+     * Folds queued events into the windows and republishes the board if it changed.
+     *
+     * @return whether a new board was published
+     */
+    public synchronized boolean drain(long nowMillis) {
+        List<ScoreEvent> batch = new ArrayList<>();
+        events.drainTo(batch);
+        boolean completed = gameCompletedSinceDrain;
+        gameCompletedSinceDrain = false;
+        if (batch.isEmpty() && !completed && !windowRolled(nowMillis)) {
+            return false;
+        }
+        for (ScoreEvent event : batch) {
+            String key = event.sessionId() + KEY_SEPARATOR + event.userId();
+            for (RollingWindow window : windows.values()) {
+                window.add(key, event.points(), event.timestampMillis());
+            }
+        }
+
+        Map<Window, List<Entry>> board = new LinkedHashMap<>();
+        for (RollingWindow window : windows.values()) {
+            board.put(window.window, toEntries(window.top(topK, nowMillis)));
+        }
+        lastPublishBucket = nowMillis / Window.HOUR.bucketMillis;
+        if (board.equals(published)) {
+            return false;
+        }
+        published = board;
+        messagingTemplate.convertAndSend("/topic/leaderboard", Map.of(
+                "type", "LEADERBOARD",
+                "data", toPayload(board)
+        ));
+        logger.debug("Published leaderboard after {} events", batch.size());
+        return true;
+    }
+
+    /** Whether old buckets may have aged out of a window since the last publish. */
+    private boolean windowRolled(long nowMillis) {
+        return !published.isEmpty() && nowMillis / Window.HOUR.bucketMillis != lastPublishBucket;
+    }
+
+    public List<Entry> getTop(Window window) {
+        return published.getOrDefault(window, Collections.emptyList());
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public long getEventsAccepted() {
+        return eventsAccepted.get();
+    }
+
+    public long getEventsDropped() {
+        return eventsDropped.get();
+    }
+
+    public long getGamesCompleted() {
+        return gamesCompleted.get();
+    }
+
+    public int getQueueDepth() {
+        return events.size();
+    }
+
+    private static List<Entry> toEntries(List<TopKSketch.Counter> counters) {
+        List<Entry> entries = new ArrayList<>(counters.size());
+        for (TopKSketch.Counter counter : counters) {
+            int separator = counter.key().indexOf(KEY_SEPARATOR);
+            Entry previous = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+            int rank = previous != null && previous.points() == counter.count() ? previous.rank() : entries.size() + 1;
+            entries.add(new Entry(rank, counter.key().substring(separator + 1), counter.key().substring(0, separator),
+                    counter.count(), counter.error()));
+        }
+        return entries;
+    }
+
+    private static Map<String, Object> toPayload(Map<Window, List<Entry>> board) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        for (Map.Entry<Window, List<Entry>> window : board.entrySet()) {
+            payload.put(window.getKey().name().toLowerCase(), window.getValue());
+        }
+        return payload;
+    }
+}
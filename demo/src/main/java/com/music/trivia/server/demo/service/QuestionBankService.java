@@ -0,0 +1,360 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.SeenQuestionFilter;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+/**
+ * Local pool of trivia questions, one pool per {@link QuestionKey}, so starting a game draws
+ * from memory instead of waiting on opentdb.
+ * <p>
+ * When a pool drops below the low watermark a background refill tops it back up to the high
+ * watermark. Questions whose text is already pooled are discarded on refill. A draw that finds
+ * the pool short takes what is there; only a completely empty pool falls back to fetching
+ * from the API, and that is counted as a miss.
+ * <p>
+ * When an offline corpus is loaded ({@link QuestionCorpusService}) and has enough questions for
+ * the key, draws are sampled straight from it and the pool for that key is never refilled.
+ * <p>
+ * Draws can pass a test for questions the session has already played ({@link SeenQuestionService});
+ * unseen questions are preferred, each candidate costing one filter check, and seen ones only
+ * fill whatever is left. Seen pool questions stay pooled for other sessions.
+ */
+@Service
+public class QuestionBankService {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionBankService.class);
+
+    private static final class Pool {
+        final ArrayDeque<TriviaQuestion> questions = new ArrayDeque<>();
+        final Set<String> texts = new HashSet<>();
+        final AtomicBoolean refilling = new AtomicBoolean();
+
+        /** Adds the questions not already pooled; returns how many were new. */
+        synchronized int addAll(List<TriviaQuestion> fetched) {
+            int added = 0;
+            for (TriviaQuestion question : fetched) {
+                if (texts.add(question.getQuestion())) {
+                    questions.add(question);
+                    added++;
+                }
+            }
+            return added;
+        }
+
+        /** Takes unseen questions first, then seen ones if there aren't enough; seen ones left over stay pooled. */
+        synchronized List<TriviaQuestion> take(int count, LongPredicate seen, AtomicLong skipped) {
+            List<TriviaQuestion> taken = new ArrayList<>(Math.min(count, questions.size()));
+            List<TriviaQuestion> setAside = new ArrayList<>();
+            while (taken.size() < count && !questions.isEmpty()) {
+                TriviaQuestion question = questions.poll();
+                if (seen.test(SeenQuestionFilter.fingerprint(question))) {
+                    setAside.add(question);
+                    continue;
+                }
+                texts.remove(question.getQuestion());
+                taken.add(question);
+            }
+            skipped.addAndGet(setAside.size());
+            for (TriviaQuestion question : setAside) {
+                if (taken.size() < count) {
+                    texts.remove(question.getQuestion());
+                    taken.add(question);
+                } else {
+                    questions.add(question);
+                }
+            }
+            return taken;
+        }
+
+        synchronized int size() {
+            return questions.size();
+        }
+    }
+
+    private final TriviaFetchScheduler fetchScheduler;
+    private final QuestionCorpusService corpus;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final Map<QuestionKey, Pool> pools = new ConcurrentHashMap<>();
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "question-bank-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong corpusDraws = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong partialHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong questionsServed = new AtomicLong();
+    private final AtomicLong duplicatesDiscarded = new AtomicLong();
+    private final AtomicLong repeatsSkipped = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong refillFailures = new AtomicLong();
+    private final AtomicLong totalRefillNanos = new AtomicLong();
+    private volatile long lastRefillNanos;
+    private volatile long maxRefillNanos;
+
+    @Autowired
+    public QuestionBankService(TriviaFetchScheduler fetchScheduler,
+                               QuestionCorpusService corpus,
+                               @Value("${trivia.questions.low-watermark:30}") int lowWatermark,
+                               @Value("${trivia.questions.high-watermark:100}") int highWatermark) {
+        this.fetchScheduler = fetchScheduler;
+        this.corpus = corpus;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = Math.max(highWatermark, lowWatermark);
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        if (corpus.count(QuestionKey.DEFAULT) == 0) {
+            requestRefill(QuestionKey.DEFAULT);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+    }
+
+    /**
+     * Draws up to {@code count} questions for a game. The future is already complete unless the
+     * pool was empty, in which case it completes when a direct fetch from the API does.
+     */
+    public CompletableFuture<List<TriviaQuestion>> take(QuestionKey key, int count) {
+        return take(key, count, fingerprint -> false);
+    }
+
+    /**
+     * Like {@link #take(QuestionKey, int)}, preferring questions for which {@code seen} is false.
+     * {@code seen} is given {@link SeenQuestionFilter#fingerprint}s.
+     */
+    public CompletableFuture<List<TriviaQuestion>> take(QuestionKey key, int count, LongPredicate seen) {
+        int available = corpus.count(key);
+        // Oversample so a few seen questions can be skipped without a second draw
+        List<TriviaQuestion> sampled = available >= count ? corpus.sample(key, Math.min(available, count * 3)) : null;
+        if (sampled != null) {
+            List<TriviaQuestion> chosen = preferUnseen(sampled, count, seen);
+            corpusDraws.incrementAndGet();
+            questionsServed.addAndGet(chosen.size());
+            return CompletableFuture.completedFuture(chosen);
+        }
+        Pool pool = pool(key);
+        List<TriviaQuestion> taken = pool.take(count, seen, repeatsSkipped);
+        CompletableFuture<List<TriviaQuestion>> result;
+        if (taken.size() == count) {
+            hits.incrementAndGet();
+            result = CompletableFuture.completedFuture(taken);
+        } else if (!taken.isEmpty()) {
+            partialHits.incrementAndGet();
+            logger.warn("Question pool {} was short: wanted {}, served {}", key, count, taken.size());
+            result = CompletableFuture.completedFuture(taken);
+        } else {
+            misses.incrementAndGet();
+            logger.warn("Question pool {} is empty, fetching {} questions from the API", key, count);
+            result = fetchDirect(key, count, seen);
+        }
+        result.thenAccept(questions -> questionsServed.addAndGet(questions.size()));
+        if (pool.size() < lowWatermark) {
+            requestRefill(key);
+        }
+        return result;
+    }
+
+    /** Schedules a background refill of the pool unless one is already running. */
+    public void requestRefill(QuestionKey key) {
+        Pool pool = pool(key);
+        if (pool.refilling.compareAndSet(false, true)) {
+            refillExecutor.execute(() -> {
+                try {
+                    refill(key);
+                } finally {
+                    pool.refilling.set(false);
+                }
+            });
+        }
+    }
+
+    /** Periodically tops up every known pool, in case a refill failed. */
+    @Scheduled(fixedDelayString = "${trivia.questions.refill-check-interval-ms:30000}")
+    public void checkWatermarks() {
+        for (Map.Entry<QuestionKey, Pool> entry : pools.entrySet()) {
+            if (entry.getValue().size() < lowWatermark && corpus.count(entry.getKey()) == 0) {
+                requestRefill(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Fetches until the pool reaches the high watermark or the API stops returning new questions.
+     *
+     * @return the number of questions added
+     */
+    public int refill(QuestionKey key) {
+        Pool pool = pool(key);
+        int added = 0;
+        long start = System.nanoTime();
+        try {
+            while (pool.size() < highWatermark) {
+                List<TriviaQuestion> fetched = fetchScheduler.fetch(key, highWatermark - pool.size());
+                int fresh = pool.addAll(fetched);
+                duplicatesDiscarded.addAndGet(fetched.size() - fresh);
+                added += fresh;
+                if (fresh == 0) {
+                    break;
+                }
+            }
+            refills.incrementAndGet();
+        } catch (RuntimeException e) {
+            refillFailures.incrementAndGet();
+            logger.warn("Refill of question pool {} failed: {}", key, e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        lastRefillNanos = elapsed;
+        maxRefillNanos = Math.max(maxRefillNanos, elapsed);
+        totalRefillNanos.addAndGet(elapsed);
+        logger.info("Refilled question pool {} with {} questions in {} ms (now {})",
+                key, added, elapsed / 1_000_000, pool.size());
+        return added;
+    }
+
+    /** The first {@code count} candidates, unseen ones first, keeping each group in order. */
+    private List<TriviaQuestion> preferUnseen(List<TriviaQuestion> candidates, int count, LongPredicate seen) {
+        List<TriviaQuestion> chosen = new ArrayList<>(Math.min(count, candidates.size()));
+        List<TriviaQuestion> seenCandidates = new ArrayList<>();
+        for (TriviaQuestion question : candidates) {
+            if (chosen.size() == count) {
+                break;
+            }
+            if (seen.test(SeenQuestionFilter.fingerprint(question))) {
+                seenCandidates.add(question);
+            } else {
+                chosen.add(question);
+            }
+        }
+        repeatsSkipped.addAndGet(seenCandidates.size());
+        for (int i = 0; chosen.size() < count && i < seenCandidates.size(); i++) {
+            chosen.add(seenCandidates.get(i));
+        }
+        return chosen;
+    }
+
+    private CompletableFuture<List<TriviaQuestion>> fetchDirect(QuestionKey key, int count, LongPredicate seen) {
+        CompletableFuture<List<TriviaQuestion>> request = fetchScheduler.submit(key, count);
+        CompletableFuture<List<TriviaQuestion>> result = request.thenApply(questions -> {
+            List<TriviaQuestion> fetched = new ArrayList<>(questions);
+            Collections.shuffle(fetched);
+            return preferUnseen(fetched, count, seen);
+        });
+        result.whenComplete((questions, error) -> {
+            if (result.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private Pool pool(QuestionKey key) {
+        return pools.computeIfAbsent(key, k -> new Pool());
+    }
+
+    public int getPoolSize(QuestionKey key) {
+        Pool pool = pools.get(key);
+        return pool == null ? 0 : pool.size();
+    }
+
+    public Map<String, Integer> getPoolSizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        pools.forEach((key, pool) -> sizes.put(key.toString(), pool.size()));
+        return sizes;
+    }
+
+    /** Fraction of draws served entirely from the pool. */
+    public double getHitRate() {
+        long total = hits.get() + partialHits.get() + misses.get();
+        return total == 0 ? 1.0 : (double) hits.get() / total;
+    }
+
+    public long getCorpusDraws() {
+        return corpusDraws.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getPartialHits() {
+        return partialHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getQuestionsServed() {
+        return questionsServed.get();
+    }
+
+    /** Candidate questions passed over because the players had already seen them. */
+    public long getRepeatsSkipped() {
+        return repeatsSkipped.get();
+    }
+
+    public long getDuplicatesDiscarded() {
+        return duplicatesDiscarded.get();
+    }
+
+    public long getRefills() {
+        return refills.get();
+    }
+
+    public long getRefillFailures() {
+        return refillFailures.get();
+    }
+
+    public long getLastRefillMillis() {
+        return lastRefillNanos / 1_000_000;
+    }
+
+    public long getMaxRefillMillis() {
+        return maxRefillNanos / 1_000_000;
+    }
+
+    public long getAverageRefillMillis() {
+        long count = refills.get() + refillFailures.get();
+        return count == 0 ? 0 : totalRefillNanos.get() / count / 1_000_000;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+}
@@ -0,0 +1,135 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.persistence.QuestionCorpus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the offline {@link QuestionCorpus} configured by {@code trivia.corpus.path}, if any.
+ * <p>
+ * The corpus is swapped through an {@link AtomicReference}: a new file is opened and validated
+ * off to the side, then published in one step. Games that already drew their questions keep
+ * them, and draws in progress finish against whichever corpus they started with, so a swap never
+ * pauses anything. The file is checked for changes every {@code trivia.corpus.reload-check-interval-ms}.
+ */
+@Service
+public class QuestionCorpusService {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionCorpusService.class);
+
+    private final Path configuredPath;
+    private final AtomicReference<QuestionCorpus> corpus = new AtomicReference<>();
+    private final AtomicLong swaps = new AtomicLong();
+    private final AtomicLong draws = new AtomicLong();
+    private volatile long loadedModifiedMillis;
+    private volatile long lastLoadMillis;
+
+    @Autowired
+    public QuestionCorpusService(@Value("${trivia.corpus.path:}") String path) {
+        this.configuredPath = path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (configuredPath == null) {
+            return;
+        }
+        if (!Files.exists(configuredPath)) {
+            logger.warn("Question corpus {} does not exist; using the trivia API only", configuredPath);
+            return;
+        }
+        try {
+            reload(configuredPath);
+        } catch (IOException e) {
+            logger.error("Failed to load question corpus {}", configuredPath, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trivia.corpus.reload-check-interval-ms:10000}")
+    public void checkForUpdate() {
+        if (configuredPath == null || !Files.exists(configuredPath)) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(configuredPath).toMillis() != loadedModifiedMillis) {
+                reload(configuredPath);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to reload question corpus {}, keeping the current one", configuredPath, e);
+        }
+    }
+
+    /** Opens the corpus at {@code path} and makes it the active one. */
+    public void reload(Path path) throws IOException {
+        long start = System.nanoTime();
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        QuestionCorpus loaded = QuestionCorpus.open(path);
+        QuestionCorpus previous = corpus.getAndSet(loaded);
+        loadedModifiedMillis = modified;
+        lastLoadMillis = (System.nanoTime() - start) / 1_000_000;
+        if (previous != null) {
+            swaps.incrementAndGet();
+        }
+        logger.info("Loaded question corpus {} with {} questions ({} bytes) in {} ms",
+                path, loaded.size(), loaded.getFileBytes(), lastLoadMillis);
+    }
+
+    /** How many questions the active corpus has for the key; 0 without a corpus. */
+    public int count(QuestionKey key) {
+        QuestionCorpus current = corpus.get();
+        return current == null ? 0 : current.count(key);
+    }
+
+    /**
+     * Samples {@code n} distinct questions for the key, or returns {@code null} if there is no
+     * corpus or it has fewer than {@code n} matching questions.
+     */
+    public List<TriviaQuestion> sample(QuestionKey key, int n) {
+        QuestionCorpus current = corpus.get();
+        if (current == null || current.count(key) < n) {
+            return null;
+        }
+        draws.incrementAndGet();
+        return current.sample(key, n, ThreadLocalRandom.current());
+    }
+
+    public boolean isLoaded() {
+        return corpus.get() != null;
+    }
+
+    public int getQuestionCount() {
+        QuestionCorpus current = corpus.get();
+        return current == null ? 0 : current.size();
+    }
+
+    public long getFileBytes() {
+        QuestionCorpus current = corpus.get();
+        return current == null ? 0 : current.getFileBytes();
+    }
+
+    public long getSwaps() {
+        return swaps.get();
+    }
+
+    public long getDraws() {
+        return draws.get();
+    }
+
+    public long getLastLoadMillis() {
+        return lastLoadMillis;
+    }
+}
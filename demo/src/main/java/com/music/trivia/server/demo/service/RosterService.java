@@ -0,0 +1,123 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GameMessageCodec;
+import com.music.trivia.server.demo.model.PlayerPrincipal;
+import com.music.trivia.server.demo.model.RosterLog;
+import com.music.trivia.server.demo.model.RosterSnapshot;
+import com.music.trivia.server.demo.model.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Roster traffic. Joins, leaves and profile updates are broadcast on {@code /topic/users/{sessionId}}
+ * as ROSTER_DELTA messages numbered from the session's {@link RosterLog}, instead of the whole
+ * USER_LIST after every change. A client that has just connected, or sees a sequence number
+ * skip, sends {@code /app/rosterSync} with the last number it applied and gets the missing
+ * changes, or a USER_LIST snapshot carrying its {@code seq}, on its own
+ * {@code /user/queue/roster}.
+ */
+@Service
+public class RosterService {
+    private static final Logger logger = LoggerFactory.getLogger(RosterService.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final AtomicLong deltasSent = new AtomicLong();
+    private final AtomicLong deltaBytes = new AtomicLong();
+    private final AtomicLong snapshotsSent = new AtomicLong();
+    private final AtomicLong snapshotBytes = new AtomicLong();
+    private final AtomicLong syncRequests = new AtomicLong();
+
+    @Autowired
+    public RosterService(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Broadcasts the roster changes made since the last call, including any made without a
+     * broadcast (such as a join over REST). If more built up than the log holds, broadcasts a
+     * snapshot instead. Must be called on the session's mailbox.
+     */
+    public void publishChanges(Session session) {
+        List<RosterLog.Change> changes = session.getRosterLog().takeUnpublished();
+        String destination = "/topic/users/" + session.getSessionID();
+        if (changes == null) {
+            logger.info("Roster log of session {} overflowed; broadcasting a snapshot", session.getSessionID());
+            sendSnapshot(destination, session.getRoster());
+        } else if (!changes.isEmpty()) {
+            sendDelta(destination, session.getRosterLog().getSeq(), changes);
+        }
+    }
+
+    /**
+     * Answers a sync request, to {@code userId} alone: the changes after {@code since} if the log
+     * still holds them, otherwise (or if {@code since} is null) a snapshot. Must be called on the
+     * session's mailbox, so no roster change lands between reading the log and the reply.
+     */
+    public void sync(Session session, String userId, Long since) {
+        syncRequests.incrementAndGet();
+        List<RosterLog.Change> changes = since == null ? null : session.getRosterLog().since(since);
+        if (changes != null) {
+            deltasSent.incrementAndGet();
+            sendToUser(session, userId, new GameMessage.RosterDelta(since + changes.size(), changes), deltaBytes);
+            return;
+        }
+        RosterSnapshot roster = session.getRoster();
+        snapshotsSent.incrementAndGet();
+        sendToUser(session, userId, new GameMessage.UserList(roster.getSeq(), roster.getUsers()), snapshotBytes);
+    }
+
+    public long getDeltasSent() {
+        return deltasSent.get();
+    }
+
+    public long getDeltaBytes() {
+        return deltaBytes.get();
+    }
+
+    public long getSnapshotsSent() {
+        return snapshotsSent.get();
+    }
+
+    public long getSnapshotBytes() {
+        return snapshotBytes.get();
+    }
+
+    public long getSyncRequests() {
+        return syncRequests.get();
+    }
+
+    private void sendDelta(String destination, long seq, List<RosterLog.Change> changes) {
+        byte[] message = GameMessageCodec.encode(new GameMessage.RosterDelta(seq, changes));
+        deltasSent.incrementAndGet();
+        deltaBytes.addAndGet(message.length);
+        messagingTemplate.send(destination, TriviaService.jsonMessage(message));
+    }
+
+    /** Sends on the user's own queue, counting the encoded size into {@code bytes}. */
+    private void sendToUser(Session session, String userId, GameMessage message, AtomicLong bytes) {
+        String user = PlayerPrincipal.name(session.getSessionID(), userId);
+        messagingTemplate.convertAndSendToUser(user, "/queue/roster", message, encoded -> {
+            if (encoded.getPayload() instanceof byte[] payload) {
+                bytes.addAndGet(payload.length);
+            }
+            return encoded;
+        });
+    }
+
+    /** The snapshot is encoded once per roster version and the bytes reused until the next change. */
+    private void sendSnapshot(String destination, RosterSnapshot roster) {
+        byte[] message = roster.encoded(GameMessage.UserList.TYPE,
+                snapshot -> GameMessageCodec.encode(new GameMessage.UserList(snapshot.getSeq(), snapshot.getUsers())));
+        snapshotsSent.incrementAndGet();
+        snapshotBytes.addAndGet(message.length);
+        messagingTemplate.send(destination, TriviaService.jsonMessage(message));
+    }
+}
@@ -0,0 +1,216 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.TimingWheel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Round deadlines for every game on the node, kept in one {@link TimingWheel}.
+ * <p>
+ * Each round costs one timeout that fires once, at its deadline; clients are told the absolute
+ * deadline up front and count down locally against the server clock ({@code /api/time}), so
+ * there is no per-second broadcast. For clients that still expect {@code TIMER_UPDATE} ticks,
+ * {@code trivia.round.legacy-tick-interval-ms} turns on low-rate ticks (off by default).
+ * <p>
+ * The wheel is advanced by a single "round-timer" thread every {@code trivia.round.tick-ms}.
+ * Expiry callbacks run on that thread, so they should hand real work to the session's mailbox.
+ */
+@Service
+public class RoundTimerService {
+    private static final Logger logger = LoggerFactory.getLogger(RoundTimerService.class);
+
+    /** An armed round: the deadline timeout and, with legacy ticks on, the next tick. */
+    private final class Round {
+        final String sessionId;
+        final int questionIndex;
+        final long deadlineMillis;
+        final Runnable onExpire;
+        volatile TimingWheel.Timeout<Runnable> deadline;
+        volatile TimingWheel.Timeout<Runnable> tick;
+
+        Round(String sessionId, int questionIndex, long deadlineMillis, Runnable onExpire) {
+            this.sessionId = sessionId;
+            this.questionIndex = questionIndex;
+            this.deadlineMillis = deadlineMillis;
+            this.onExpire = onExpire;
+        }
+
+        void cancel() {
+            TimingWheel.Timeout<Runnable> pendingTick = tick;
+            if (pendingTick != null) {
+                pendingTick.cancel();
+            }
+            deadline.cancel();
+        }
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long roundMillis;
+    private final long legacyTickMillis;
+    private final TimingWheel<Runnable> wheel;
+    private final Map<String, Round> rounds = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "round-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong armed = new AtomicLong();
+    private final AtomicLong fired = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong legacyTicksSent = new AtomicLong();
+    private final AtomicLong advanceNanos = new AtomicLong();
+    private final AtomicLong advances = new AtomicLong();
+
+    @Autowired
+    public RoundTimerService(SimpMessagingTemplate messagingTemplate,
+                             @Value("${trivia.round.time-limit-ms:60000}") long roundMillis,
+                             @Value("${trivia.round.tick-ms:100}") long tickMillis,
+                             @Value("${trivia.round.legacy-tick-interval-ms:0}") long legacyTickMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.roundMillis = roundMillis;
+        this.legacyTickMillis = legacyTickMillis;
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Starts the clock on a round, replacing any round already armed for the session.
+     *
+     * @param onExpire run once, on the timer thread, if the round is still armed at its deadline
+     * @return the absolute deadline in epoch milliseconds
+     */
+    public long arm(String sessionId, int questionIndex, Runnable onExpire) {
+        long deadlineMillis = System.currentTimeMillis() + roundMillis;
+        Round round = new Round(sessionId, questionIndex, deadlineMillis, onExpire);
+        round.deadline = wheel.schedule(() -> expire(round), deadlineMillis);
+        if (legacyTickMillis > 0) {
+            scheduleTick(round, System.currentTimeMillis());
+        }
+        Round previous = rounds.put(sessionId, round);
+        if (previous != null) {
+            previous.cancel();
+        }
+        armed.incrementAndGet();
+        return deadlineMillis;
+    }
+
+    /** Stops the session's round clock, if one is running. */
+    public void cancel(String sessionId) {
+        Round round = rounds.remove(sessionId);
+        if (round != null) {
+            round.cancel();
+            cancelled.incrementAndGet();
+        }
+    }
+
+    /** Deadline of the session's armed round, or 0 if none is armed. */
+    public long getDeadline(String sessionId) {
+        Round round = rounds.get(sessionId);
+        return round == null ? 0 : round.deadlineMillis;
+    }
+
+    /** Question index of the session's armed round, or -1 if none is armed. */
+    public int getArmedQuestion(String sessionId) {
+        Round round = rounds.get(sessionId);
+        return round == null ? -1 : round.questionIndex;
+    }
+
+    public long getRoundMillis() {
+        return roundMillis;
+    }
+
+    void advance() {
+        long start = System.nanoTime();
+        try {
+            wheel.advance(System.currentTimeMillis(), Runnable::run);
+        } catch (RuntimeException e) {
+            logger.error("Round timer callback failed", e);
+        }
+        advanceNanos.addAndGet(System.nanoTime() - start);
+        advances.incrementAndGet();
+    }
+
+    private void expire(Round round) {
+        if (!rounds.remove(round.sessionId, round)) {
+            return;
+        }
+        TimingWheel.Timeout<Runnable> pendingTick = round.tick;
+        if (pendingTick != null) {
+            pendingTick.cancel();
+        }
+        fired.incrementAndGet();
+        logger.info("Round {} of session {} timed out", round.questionIndex, round.sessionId);
+        round.onExpire.run();
+    }
+
+    private void scheduleTick(Round round, long nowMillis) {
+        long next = nowMillis + legacyTickMillis;
+        if (next < round.deadlineMillis) {
+            round.tick = wheel.schedule(() -> sendTick(round), next);
+        }
+    }
+
+    private void sendTick(Round round) {
+        if (rounds.get(round.sessionId) != round) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long timeLeft = Math.max(0, (round.deadlineMillis - now + 500) / 1000);
+        messagingTemplate.convertAndSend("/topic/game/" + round.sessionId, new GameMessage.TimerUpdate(timeLeft));
+        legacyTicksSent.incrementAndGet();
+        scheduleTick(round, now);
+    }
+
+    public int getArmedRounds() {
+        return rounds.size();
+    }
+
+    public int getPendingTimeouts() {
+        return wheel.size();
+    }
+
+    public long getArmed() {
+        return armed.get();
+    }
+
+    public long getFired() {
+        return fired.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public long getLegacyTicksSent() {
+        return legacyTicksSent.get();
+    }
+
+    /** Average time one advance of the wheel takes, callbacks included. */
+    public long getAverageAdvanceMicros() {
+        long count = advances.get();
+        return count == 0 ? 0 : advanceNanos.get() / count / 1000;
+    }
+
+    public long getTickMillis() {
+        return wheel.getTickMillis();
+    }
+}
@@ -0,0 +1,115 @@
+package com.music.trivia.server.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delayed round transitions (the intermission between ALL_ANSWERED and the next question) for
+ * every game on the node, on one small fixed pool. At most one transition is pending per
+ * session; scheduling another replaces it, and {@link #cancel} drops it when the game ends or the
+ * session goes away. Tasks only hand work to the session's mailbox, so the pool never grows with
+ * the number of games.
+ */
+@Service
+public class RoundTransitionScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RoundTransitionScheduler.class);
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long intermissionMillis;
+    private final Map<String, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong ran = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    @Autowired
+    public RoundTransitionScheduler(@Value("${trivia.round.transition-threads:1}") int threads,
+                                    @Value("${trivia.round.intermission-ms:5000}") long intermissionMillis) {
+        this.intermissionMillis = intermissionMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "round-transition-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Cancelled transitions leave the queue straight away instead of waiting out their delay
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Runs {@code transition} after the intermission, replacing any transition already pending for the session. */
+    public void schedule(String sessionId, Runnable transition) {
+        ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+        synchronized (self) {
+            self[0] = executor.schedule(() -> {
+                synchronized (self) {
+                    if (!pending.remove(sessionId, self[0])) {
+                        return;
+                    }
+                }
+                ran.incrementAndGet();
+                try {
+                    transition.run();
+                } catch (RuntimeException e) {
+                    logger.error("Round transition for session {} failed", sessionId, e);
+                }
+            }, intermissionMillis, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> previous = pending.put(sessionId, self[0]);
+            if (previous != null && previous.cancel(false)) {
+                cancelled.incrementAndGet();
+            }
+        }
+        scheduled.incrementAndGet();
+    }
+
+    /** Drops the session's pending transition, if any; returns whether one was pending. */
+    public boolean cancel(String sessionId) {
+        ScheduledFuture<?> transition = pending.remove(sessionId);
+        if (transition != null && transition.cancel(false)) {
+            cancelled.incrementAndGet();
+            logger.info("Cancelled pending round transition for session {}", sessionId);
+            return true;
+        }
+        return false;
+    }
+
+    public long getIntermissionMillis() {
+        return intermissionMillis;
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+
+    public long getScheduled() {
+        return scheduled.get();
+    }
+
+    public long getRan() {
+        return ran.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+}
@@ -0,0 +1,76 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.PlayerPrincipal;
+import com.music.trivia.server.demo.model.Scoreboard;
+import com.music.trivia.server.demo.model.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds score broadcasts from a session's {@link Scoreboard}. Small sessions get the full board
+ * in rank order; once a session has more than {@code trivia.scoreboard.full-broadcast-max-users}
+ * players the shared broadcast carries only the top N, and each player is sent their own rank on
+ * their private {@code /user/queue/rank}. Must be called on the session's mailbox.
+ */
+@Service
+public class ScoreboardService {
+    private static final Logger logger = LoggerFactory.getLogger(ScoreboardService.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int topN;
+    private final int fullBroadcastMaxUsers;
+
+    @Autowired
+    public ScoreboardService(SimpMessagingTemplate messagingTemplate,
+                             @Value("${trivia.scoreboard.top-n:10}") int topN,
+                             @Value("${trivia.scoreboard.full-broadcast-max-users:50}") int fullBroadcastMaxUsers) {
+        this.messagingTemplate = messagingTemplate;
+        this.topN = topN;
+        this.fullBroadcastMaxUsers = fullBroadcastMaxUsers;
+    }
+
+    /**
+     * Scores in rank order: every player for small sessions, otherwise the top N.
+     */
+    public Map<String, Integer> rankedScores(Session session) {
+        Scoreboard scoreboard = session.getScoreboard();
+        int limit = scoreboard.size() <= fullBroadcastMaxUsers ? scoreboard.size() : topN;
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        for (Scoreboard.Entry entry : scoreboard.top(limit)) {
+            scores.put(entry.userId(), entry.score());
+        }
+        return scores;
+    }
+
+    public boolean isTruncated(Session session) {
+        return session.getScoreboard().size() > fullBroadcastMaxUsers;
+    }
+
+    /**
+     * Sends GAME_OVER, and each player's rank when the board is truncated. Also answers a repeated
+     * {@code /nextQuestion} after the game ended, so it must not count the game again.
+     */
+    public void broadcastGameOver(Session session) {
+        String sessionId = session.getSessionID();
+        Scoreboard scoreboard = session.getScoreboard();
+        messagingTemplate.convertAndSend("/topic/game/" + sessionId,
+                new GameMessage.GameOver(rankedScores(session), scoreboard.size()));
+        if (!isTruncated(session)) {
+            return;
+        }
+
+        for (String userId : session.getUsers().keySet()) {
+            messagingTemplate.convertAndSendToUser(PlayerPrincipal.name(sessionId, userId), "/queue/rank",
+                    new GameMessage.YourRank(scoreboard.rank(userId), scoreboard.getScore(userId), scoreboard.size()));
+        }
+        logger.info("Sent top {} of {} players and individual ranks for session {}", topN, scoreboard.size(), sessionId);
+    }
+}
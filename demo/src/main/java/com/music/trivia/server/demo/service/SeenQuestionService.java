@@ -0,0 +1,37 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.SeenQuestionFilter;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Tracks which questions each session has already played, so new games can avoid repeats. The
+ * filter lives on the {@link Session}, so it covers everyone in the lobby, including players who
+ * leave and come back, and goes away with the session.
+ * <p>
+ * Players are not tracked across sessions: a user ID is the display name picked when joining, and
+ * the token that vouches for it is issued for one session only, so the same name in another
+ * session may well be someone else. Following players between lobbies needs an account identity
+ * this server does not have.
+ */
+@Service
+public class SeenQuestionService {
+
+    /** A test for questions the session has played. Must be called on the session's mailbox. */
+    public LongPredicate seenBy(Session session) {
+        long[] union = SeenQuestionFilter.newUnion();
+        if (session.getSeenQuestions() != null) {
+            session.getSeenQuestions().orInto(union);
+        }
+        return SeenQuestionFilter.unionPredicate(union);
+    }
+
+    /** Records a game's questions against the session. Must be called on the session's mailbox. */
+    public void recordGame(Session session, List<TriviaQuestion> questions) {
+        session.markSeen(questions);
+    }
+}
@@ -0,0 +1,218 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.SessionStorage;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs every mutation of a session on that session's own mailbox, one task at a time.
+ * <p>
+ * Each session gets a queue of tasks. At most one pool thread drains a given queue at any moment,
+ * so everything submitted for one session runs sequentially (with happens-before between tasks)
+ * and {@code Session} needs no locks, while different sessions are drained in parallel across
+ * the pool. Tasks for a session that are submitted from its own mailbox run inline, so service
+ * methods can call each other freely.
+ * <p>
+ * A mailbox task must not block on another session's mailbox: with a small pool, two sessions
+ * calling into each other (or enough sessions waiting in a ring) would park every worker on a
+ * future no free worker can complete. {@link #call} therefore refuses to block from one session's
+ * mailbox on another's and throws {@link IllegalStateException}; use {@link #execute} to hand work
+ * to another session. Calls from outside the pool wait at most {@code trivia.session-executor.call-timeout-ms}.
+ */
+@Component
+public class SessionExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(SessionExecutor.class);
+    private static final int MAX_TASKS_PER_TURN = 64;
+    private static final long DEFAULT_CALL_TIMEOUT_MILLIS = 10_000;
+
+    private final SessionStorage sessionStorage;
+    private final ExecutorService pool;
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentSession = new ThreadLocal<>();
+    private final AtomicLong tasksExecuted = new AtomicLong();
+    private final long callTimeoutMillis;
+
+    public SessionExecutor(SessionStorage sessionStorage, int threads) {
+        this(sessionStorage, threads, DEFAULT_CALL_TIMEOUT_MILLIS);
+    }
+
+    @Autowired
+    public SessionExecutor(SessionStorage sessionStorage, @Value("${trivia.session-executor.threads:0}") int threads,
+                           @Value("${trivia.session-executor.call-timeout-ms:10000}") long callTimeoutMillis) {
+        this.sessionStorage = sessionStorage;
+        this.callTimeoutMillis = callTimeoutMillis;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "session-loop-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues {@code task} on the session's mailbox and returns immediately. Failures are logged.
+     */
+    public void execute(String sessionId, Runnable task) {
+        if (sessionId == null) {
+            logger.warn("Dropping task submitted without a session ID");
+            return;
+        }
+        if (sessionId.equals(currentSession.get())) {
+            task.run();
+            return;
+        }
+        mailboxes.computeIfAbsent(sessionId, Mailbox::new).enqueue(task);
+    }
+
+    /**
+     * Runs {@code task} on the session's mailbox and waits for its result. Exceptions thrown by
+     * the task are rethrown to the caller unchanged.
+     *
+     * @throws IllegalStateException if called from another session's mailbox, or if the task has
+     *                               not finished within the call timeout (it may still run later)
+     */
+    public <T> T call(String sessionId, Supplier<T> task) {
+        String caller = currentSession.get();
+        if (sessionId == null || sessionId.equals(caller)) {
+            return task.get();
+        }
+        if (caller != null) {
+            throw new IllegalStateException("Session " + caller + " may not block on session " + sessionId
+                    + "'s mailbox; use execute() instead");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        mailboxes.computeIfAbsent(sessionId, Mailbox::new).enqueue(() -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        try {
+            return result.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out after " + callTimeoutMillis + " ms waiting for session " + sessionId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for session " + sessionId, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    public void run(String sessionId, Runnable task) {
+        call(sessionId, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /** True if the calling thread is currently draining the given session's mailbox. */
+    public boolean isOnSessionLoop(String sessionId) {
+        return sessionId != null && sessionId.equals(currentSession.get());
+    }
+
+    public int getMailboxCount() {
+        return mailboxes.size();
+    }
+
+    public long getTasksExecuted() {
+        return tasksExecuted.get();
+    }
+
+    /**
+     * Drops idle mailboxes of sessions that no longer exist. A task that races with this for a
+     * removed session can end up on a fresh mailbox, which is harmless as the session is gone.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void removeIdleMailboxes() {
+        mailboxes.entrySet().removeIf(entry -> entry.getValue().isIdle() && !sessionStorage.containsSession(entry.getKey()));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private final class Mailbox implements Runnable {
+        private final String sessionId;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Mailbox(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void enqueue(Runnable task) {
+            tasks.add(task);
+            if (scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        boolean isIdle() {
+            return !scheduled.get() && tasks.isEmpty();
+        }
+
+        @Override
+        public void run() {
+            currentSession.set(sessionId);
+            try {
+                // Bounded turn so one busy session can't starve the others sharing this thread
+                for (int i = 0; i < MAX_TASKS_PER_TURN; i++) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        logger.error("Task for session {} failed: {}", sessionId, e.getMessage(), e);
+                    }
+                    tasksExecuted.incrementAndGet();
+                }
+            } finally {
+                currentSession.remove();
+                scheduled.set(false);
+                if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    pool.execute(this);
+                }
+            }
+        }
+    }
+}
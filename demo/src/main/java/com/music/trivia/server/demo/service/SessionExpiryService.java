@@ -0,0 +1,52 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.model.SessionStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Periodically evicts idle and over-age sessions and ends them the way a creator leaving does:
+ * players are told the session ended, its round timer, transition and question fetch are
+ * cancelled, and the removal is journalled so a restart doesn't bring it back.
+ */
+@Service
+public class SessionExpiryService {
+    private static final Logger logger = LoggerFactory.getLogger(SessionExpiryService.class);
+
+    private final SessionStorage sessionStorage;
+    private final SessionService sessionService;
+    private final TriviaService triviaService;
+    private final SessionExecutor sessionExecutor;
+
+    @Autowired
+    public SessionExpiryService(SessionStorage sessionStorage, SessionService sessionService,
+                                TriviaService triviaService, SessionExecutor sessionExecutor) {
+        this.sessionStorage = sessionStorage;
+        this.sessionService = sessionService;
+        this.triviaService = triviaService;
+        this.sessionExecutor = sessionExecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${trivia.session.expiry-sweep-interval-ms:1000}")
+    public void scheduledSweep() {
+        expire(System.currentTimeMillis());
+    }
+
+    /** Evicts the sessions due at {@code nowMillis} and queues their teardown on their mailboxes. */
+    public List<String> expire(long nowMillis) {
+        List<String> expired = sessionStorage.expireSessions(nowMillis);
+        for (String sessionId : expired) {
+            sessionExecutor.execute(sessionId, () -> {
+                triviaService.releaseSession(sessionId);
+                sessionService.endSession(sessionId);
+                logger.debug("Tore down expired session {}", sessionId);
+            });
+        }
+        return expired;
+    }
+}
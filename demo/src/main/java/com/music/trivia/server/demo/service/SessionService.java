@@ -2,9 +2,12 @@ package com.music.trivia.server.demo.service;
 
 import com.music.trivia.server.demo.exception.UserAlreadyExistsException;
 import com.music.trivia.server.demo.exception.UserNotFoundException;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.PlayerPrincipal;
 import com.music.trivia.server.demo.model.Session;
 import com.music.trivia.server.demo.model.SessionStorage;
 import com.music.trivia.server.demo.model.User;
+import com.music.trivia.server.demo.persistence.SessionJournal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -20,78 +23,96 @@ public class SessionService {
 
     private final SessionStorage sessionStorage;
     private final SimpMessagingTemplate messagingTemplate;
+    private final SessionJournal journal;
+    private final AdmissionControlService admissionControl;
+    private final SessionExecutor sessionExecutor;
 
     @Autowired
-    public SessionService(SessionStorage sessionStorage, @Lazy SimpMessagingTemplate messagingTemplate) {
+    public SessionService(SessionStorage sessionStorage, @Lazy SimpMessagingTemplate messagingTemplate,
+                          SessionJournal journal, AdmissionControlService admissionControl,
+                          SessionExecutor sessionExecutor) {
         this.sessionStorage = sessionStorage;
         this.messagingTemplate = messagingTemplate;
+        this.journal = journal;
+        this.admissionControl = admissionControl;
+        this.sessionExecutor = sessionExecutor;
     }
 
     public String createEmptySession(String password) {
+        admissionControl.checkCreateSession();
         String sessionID = java.util.UUID.randomUUID().toString();
         Session session = new Session(sessionID, password);
         sessionStorage.storeSession(sessionID, session);
+        journal.sessionCreated(session);
         logger.info("Created new empty session with ID: {}", sessionID);
         return sessionID;
     }
 
     public Session joinSession(String sessionId, String userID, String password, String avatar, String role) {
-        Session session = sessionStorage.getSession(sessionId);
-        if (session.getPassword().equals(password)) {
-            User user = new User(avatar, role, 0);
-            session.addUser(userID, user);
-            logger.info("User {} joined session {}", userID, sessionId);
-            return session;
-        } else {
-            logger.warn("Failed join attempt for session {} with incorrect password", sessionId);
-            throw new IllegalArgumentException("Invalid session ID or password");
-        }
+        return sessionExecutor.call(sessionId, () -> {
+            Session session = sessionStorage.getSession(sessionId);
+            if (session.getPassword().equals(password)) {
+                admissionControl.checkJoinSession(session);
+                User user = new User(avatar, role, 0);
+                session.addUser(userID, user);
+                journal.userState(sessionId, userID, user);
+                logger.info("User {} joined session {}", userID, sessionId);
+                return session;
+            } else {
+                logger.warn("Failed join attempt for session {} with incorrect password", sessionId);
+                throw new IllegalArgumentException("Invalid session ID or password");
+            }
+        });
     }
 
     public void addUserToSession(String sessionId, String userId, User user) {
-        Session session = sessionStorage.getSession(sessionId);
-        if (session.getUser(userId) == null) {
-            session.addUser(userId, user);
-            logger.info("Added user {} to session {}", userId, sessionId);
-        } else {
-            logger.info("User {} already exists in session {}", userId, sessionId);
-        }
+        sessionExecutor.run(sessionId, () -> {
+            Session session = sessionStorage.getSession(sessionId);
+            if (session.getUser(userId) == null) {
+                session.addUser(userId, user);
+                journal.userState(sessionId, userId, user);
+                logger.info("Added user {} to session {}", userId, sessionId);
+            } else {
+                logger.info("User {} already exists in session {}", userId, sessionId);
+            }
+        });
     }
 
     public void removeUserFromSession(String sessionId, String userId) {
-        Session session = sessionStorage.getSession(sessionId);
-        session.removeUser(userId);
-        logger.info("Removed user {} from session {}", userId, sessionId);
+        sessionExecutor.run(sessionId, () -> {
+            Session session = sessionStorage.getSession(sessionId);
+            session.removeUser(userId);
+            journal.userRemoved(sessionId, userId);
+            logger.info("Removed user {} from session {}", userId, sessionId);
+        });
     }
 
-    public void updateUser(String sessionId, String userId, Map<String, Object> updates) {
-        Session session = sessionStorage.getSession(sessionId);
-        User user = session.getUser(userId);
-        if (user != null) {
-            if (updates.containsKey("avatar")) {
-                user.setAvatar((String) updates.get("avatar"));
-            }
-            if (updates.containsKey("score")) {
-                user.setScore((Integer) updates.get("score"));
-            }
-            if (updates.containsKey("role")) {
-                user.setRole((String) updates.get("role"));
+    /** Sets the non-null ones of {@code avatar}, {@code role} and {@code score}. */
+    public void updateUser(String sessionId, String userId, String avatar, String role, Integer score) {
+        sessionExecutor.run(sessionId, () -> {
+            Session session = sessionStorage.getSession(sessionId);
+            if (session.getUser(userId) != null) {
+                session.updateUser(userId, avatar, role, score);
+                journal.userState(sessionId, userId, session.getUser(userId));
+                logger.info("Updated user {} in session {}", userId, sessionId);
+            } else {
+                logger.warn("Attempted to update non-existent user {} in session {}", userId, sessionId);
             }
-            logger.info("Updated user {} in session {}: {}", userId, sessionId, updates);
-        } else {
-            logger.warn("Attempted to update non-existent user {} in session {}", userId, sessionId);
-        }
+        });
     }
 
     public boolean kickUser(String sessionId, String userId, String requestingUser) {
-        Session session = sessionStorage.getSession(sessionId);
-        if (session.isCreator(requestingUser)) {
-            session.removeUser(userId);
-            logger.info("User {} kicked from session {} by creator {}", userId, sessionId, requestingUser);
-            return true;
-        }
-        logger.warn("Failed attempt to kick user {} from session {} by non-creator {}", userId, sessionId, requestingUser);
-        return false;
+        return sessionExecutor.call(sessionId, () -> {
+            Session session = sessionStorage.getSession(sessionId);
+            if (session.isCreator(requestingUser)) {
+                session.removeUser(userId);
+                journal.userRemoved(sessionId, userId);
+                logger.info("User {} kicked from session {} by creator {}", userId, sessionId, requestingUser);
+                return true;
+            }
+            logger.warn("Failed attempt to kick user {} from session {} by non-creator {}", userId, sessionId, requestingUser);
+            return false;
+        });
     }
 
     public Map<String, User> getUsersInSession(String sessionId) {
@@ -107,32 +128,43 @@ public class SessionService {
     }
 
     public void updateUserScore(String sessionId, String userId, int score) {
-        Session session = sessionStorage.getSession(sessionId);
-        session.updateUserScore(userId, score);
-        logger.info("Updated score to {} for user {} in session {}", score, userId, sessionId);
+        sessionExecutor.run(sessionId, () -> {
+            Session session = sessionStorage.getSession(sessionId);
+            session.updateUserScore(userId, score);
+            journal.userState(sessionId, userId, session.getUser(userId));
+            logger.info("Updated score to {} for user {} in session {}", score, userId, sessionId);
+        });
     }
 
     public boolean leaveUser(String sessionId, String userID) {
-        try {
-            Session session = sessionStorage.getSession(sessionId);
-            if (session != null) {
-                session.removeUser(userID);
-                logger.info("User {} left session {}", userID, sessionId);
-                return true;
-            } else {
-                logger.warn("Session {} not found when attempting to remove user {}", sessionId, userID);
+        return sessionExecutor.call(sessionId, () -> {
+            try {
+                Session session = sessionStorage.getSession(sessionId);
+                if (session != null) {
+                    session.removeUser(userID);
+                    journal.userRemoved(sessionId, userID);
+                    logger.info("User {} left session {}", userID, sessionId);
+                    return true;
+                } else {
+                    logger.warn("Session {} not found when attempting to remove user {}", sessionId, userID);
+                    return false;
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Error removing user {} from session {}: {}", userID, sessionId, e.getMessage());
                 return false;
             }
-        } catch (IllegalArgumentException e) {
-            logger.warn("Error removing user {} from session {}: {}", userID, sessionId, e.getMessage());
-            return false;
-        }
+        });
+    }
+
+    /** Checks whether the session still exists, without counting as activity on it. */
+    public boolean containsSession(String sessionId) {
+        return sessionStorage.containsSession(sessionId);
     }
 
     public Session getSession(String sessionId) {
         try {
             Session session = sessionStorage.getSession(sessionId);
-            logger.info("Retrieved session {}", sessionId);
+            logger.debug("Retrieved session {}", sessionId);
             return session;
         } catch (IllegalArgumentException e) {
             logger.warn("Session {} not found", sessionId);
@@ -140,57 +172,62 @@ public class SessionService {
         }
     }
 
+    /** The session, or {@code null} if there is none; unlike {@link #getSession} this neither logs nor counts as activity. */
+    public Session findSession(String sessionId) {
+        return sessionStorage.findSession(sessionId);
+    }
+
     public boolean removeUser(String sessionId, String userId, String requestingUser) {
-        Session session = sessionStorage.getSession(sessionId);
-        if (session.isCreator(requestingUser)) {
-            session.removeUser(userId);
-            logger.info("User {} removed from session {} by creator {}", userId, sessionId, requestingUser);
+        return sessionExecutor.call(sessionId, () -> {
+            Session session = sessionStorage.getSession(sessionId);
+            if (session.isCreator(requestingUser)) {
+                session.removeUser(userId);
+                journal.userRemoved(sessionId, userId);
+                logger.info("User {} removed from session {} by creator {}", userId, sessionId, requestingUser);
 
-            // Broadcast user removal to all users in the session
-            messagingTemplate.convertAndSend("/topic/users/" + sessionId, Map.of(
-                    "type", "USER_REMOVED",
-                    "data", Map.of("userId", userId)
-            ));
+                // Broadcast user removal to all users in the session
+                messagingTemplate.convertAndSend("/topic/users/" + sessionId, new GameMessage.UserRemoved(userId));
 
-            // Send a direct message to the removed user
-            messagingTemplate.convertAndSendToUser(userId, "/queue/errors", Map.of(
-                    "type", "REMOVED_FROM_SESSION",
-                    "data", Map.of("sessionId", sessionId)
-            ));
+                // Send a direct message to the removed user
+                messagingTemplate.convertAndSendToUser(PlayerPrincipal.name(sessionId, userId), "/queue/errors", new GameMessage.RemovedFromSession(sessionId));
 
-            return true;
-        }
-        logger.warn("Failed attempt to remove user {} from session {} by non-creator {}", userId, sessionId, requestingUser);
-        return false;
+                return true;
+            }
+            logger.warn("Failed attempt to remove user {} from session {} by non-creator {}", userId, sessionId, requestingUser);
+            return false;
+        });
     }
 
     public void creatorLeave(String sessionId, String creatorId) {
-        Session session = sessionStorage.getSession(sessionId);
-        if (session.isCreator(creatorId)) {
-            // Remove all users and broadcast
-            for (String userId : session.getUsers().keySet()) {
-                if (!userId.equals(creatorId)) {
-                    session.removeUser(userId);
-                    messagingTemplate.convertAndSendToUser(userId, "/queue/errors", Map.of(
-                            "type", "SESSION_ENDED",
-                            "data", Map.of("sessionId", sessionId)
-                    ));
+        sessionExecutor.run(sessionId, () -> {
+            Session session = sessionStorage.getSession(sessionId);
+            if (session.isCreator(creatorId)) {
+                // Remove all users and broadcast
+                for (String userId : session.getUsers().keySet()) {
+                    if (!userId.equals(creatorId)) {
+                        session.removeUser(userId);
+                        messagingTemplate.convertAndSendToUser(PlayerPrincipal.name(sessionId, userId), "/queue/errors", new GameMessage.SessionEnded(sessionId));
+                    }
                 }
+
+                endSession(sessionId);
+                logger.info("Session {} ended by creator {}", sessionId, creatorId);
+            } else {
+                logger.warn("Non-creator {} attempted to end session {}", creatorId, sessionId);
+                throw new IllegalArgumentException("Only the creator can end the session");
             }
+        });
+    }
 
-            // Broadcast session end to all users
-            messagingTemplate.convertAndSend("/topic/users/" + sessionId, Map.of(
-                    "type", "SESSION_ENDED",
-                    "data", Map.of("sessionId", sessionId)
-            ));
-
-            // Remove the session
-            sessionStorage.removeSession(sessionId);
-            logger.info("Session {} ended by creator {}", sessionId, creatorId);
-        } else {
-            logger.warn("Non-creator {} attempted to end session {}", creatorId, sessionId);
-            throw new IllegalArgumentException("Only the creator can end the session");
-        }
+    /**
+     * Tells everyone still subscribed that the session has ended, removes it and journals the
+     * removal. Must be called on the session's mailbox; the caller also releases the session's
+     * timers and fetches through {@link TriviaService#releaseSession}.
+     */
+    public void endSession(String sessionId) {
+        messagingTemplate.convertAndSend("/topic/users/" + sessionId, new GameMessage.SessionEnded(sessionId));
+        sessionStorage.removeSession(sessionId);
+        journal.sessionRemoved(sessionId);
     }
 
     public boolean isUserInSession(String sessionId, String userID) {
@@ -0,0 +1,223 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.exception.TriviaApiException;
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking client for the Open Trivia Database API.
+ * <p>
+ * Requests go out on a shared {@link HttpClient}, and the body is parsed incrementally by a
+ * {@link TriviaResponseParser} as chunks arrive, so no thread waits on the network and the body
+ * is never held as a string. Completion runs on a small fixed pool, so the thread count stays
+ * flat however many fetches are in flight. The base URL is configurable so tests can point it at
+ * a local stub server.
+ */
+@Component
+public class TriviaApiClient {
+    private static final Logger logger = LoggerFactory.getLogger(TriviaApiClient.class);
+
+    /** Largest {@code amount} opentdb accepts in one request. */
+    public static final int MAX_AMOUNT = 50;
+
+    /** opentdb {@code response_code} values. */
+    public static final int CODE_SUCCESS = 0;
+    public static final int CODE_NO_RESULTS = 1;
+    public static final int CODE_INVALID_PARAMETER = 2;
+    public static final int CODE_TOKEN_NOT_FOUND = 3;
+    public static final int CODE_TOKEN_EMPTY = 4;
+
+    private final String baseUrl;
+    private final Duration timeout;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+
+    @Autowired
+    public TriviaApiClient(@Value("${trivia.api.base-url:https://opentdb.com}") String baseUrl,
+                           @Value("${trivia.api.timeout-ms:5000}") long timeoutMillis,
+                           @Value("${trivia.api.client-threads:2}") int clientThreads) {
+        this.baseUrl = baseUrl;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, clientThreads), runnable -> {
+            Thread thread = new Thread(runnable, "trivia-http-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .executor(executor)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Fetches up to {@code amount} questions. The future fails with a {@link TriviaApiException}
+     * on HTTP errors, malformed bodies, timeout or an error response code (rate limiting included);
+     * "no results" completes with an empty list. Cancelling the future abandons the request.
+     */
+    public CompletableFuture<List<TriviaQuestion>> fetchAsync(QuestionKey key, int amount) {
+        StringBuilder url = new StringBuilder(baseUrl).append("/api.php?amount=").append(Math.min(amount, MAX_AMOUNT))
+                .append("&category=").append(key.category())
+                .append("&type=").append(key.type());
+        if (key.difficulty() != null) {
+            url.append("&difficulty=").append(key.difficulty());
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url.toString()))
+                .timeout(timeout)
+                .GET()
+                .build();
+        logger.info("Fetching {} trivia questions for {}", amount, key);
+
+        CompletableFuture<HttpResponse<List<TriviaQuestion>>> exchange =
+                httpClient.sendAsync(request, this::bodySubscriber);
+        CompletableFuture<List<TriviaQuestion>> result = exchange
+                .thenApply(HttpResponse::body)
+                .orTimeout(timeout.toMillis() * 2, TimeUnit.MILLISECONDS)
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof TriviaApiException apiException) {
+                        throw apiException;
+                    }
+                    throw new TriviaApiException("Trivia API request failed: " + cause, cause);
+                });
+        // Cancelling the caller's future abandons the HTTP exchange as well
+        result.whenComplete((questions, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /** Blocking form of {@link #fetchAsync}, for background callers that are happy to wait. */
+    public List<TriviaQuestion> fetch(QuestionKey key, int amount) {
+        try {
+            return fetchAsync(key, amount).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TriviaApiException apiException) {
+                throw apiException;
+            }
+            throw new TriviaApiException("Trivia API request failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TriviaApiException("Interrupted while fetching trivia questions", e);
+        }
+    }
+
+    private HttpResponse.BodySubscriber<List<TriviaQuestion>> bodySubscriber(HttpResponse.ResponseInfo info) {
+        if (info.statusCode() == 429) {
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.discarding(), ignored -> {
+                throw new TriviaApiException("Trivia API returned HTTP 429", TriviaApiException.RATE_LIMITED);
+            });
+        }
+        if (info.statusCode() != 200) {
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.discarding(), ignored -> {
+                throw new TriviaApiException("Trivia API returned HTTP " + info.statusCode());
+            });
+        }
+        return new QuestionSubscriber();
+    }
+
+    private static String describe(int code) {
+        return switch (code) {
+            case CODE_INVALID_PARAMETER -> "Trivia API rejected the request parameters";
+            case CODE_TOKEN_NOT_FOUND, CODE_TOKEN_EMPTY -> "Trivia API session token is invalid or exhausted";
+            case TriviaApiException.RATE_LIMITED -> "Trivia API rate limit exceeded";
+            default -> "Trivia API returned response code " + code;
+        };
+    }
+
+    /** Feeds body chunks into a {@link TriviaResponseParser} as they arrive. */
+    private static final class QuestionSubscriber implements HttpResponse.BodySubscriber<List<TriviaQuestion>> {
+        private final TriviaResponseParser parser = new TriviaResponseParser();
+        private final CompletableFuture<List<TriviaQuestion>> body = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        @Override
+        public CompletionStage<List<TriviaQuestion>> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (body.isDone()) {
+                return;
+            }
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    parser.feed(bytes, 0, bytes.length);
+                }
+            } catch (IOException e) {
+                subscription.cancel();
+                body.completeExceptionally(new TriviaApiException("Malformed trivia API response", e));
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (body.isDone()) {
+                return;
+            }
+            try {
+                parser.endOfInput();
+            } catch (IOException e) {
+                body.completeExceptionally(new TriviaApiException("Malformed trivia API response", e));
+                return;
+            }
+            int code = parser.getResponseCode();
+            if (code == CODE_NO_RESULTS) {
+                logger.warn("Trivia API has no more questions for this query");
+                body.complete(List.of());
+                return;
+            }
+            if (code != CODE_SUCCESS) {
+                body.completeExceptionally(new TriviaApiException(describe(code), code));
+                return;
+            }
+            logger.info("Received {} questions from API", parser.getQuestions().size());
+            body.complete(parser.getQuestions());
+        }
+    }
+}
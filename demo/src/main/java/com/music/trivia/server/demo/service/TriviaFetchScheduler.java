@@ -0,0 +1,323 @@
+package com.music.trivia.server.demo.service;
+
+import com.music.trivia.server.demo.exception.TriviaApiException;
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.TokenBucket;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sits in front of {@link TriviaApiClient} and keeps us inside opentdb's rate limit (roughly one
+ * request per five seconds per IP).
+ * <p>
+ * Callers queue requests; a single dispatcher thread owns the queue and sends at most one
+ * upstream request at a time, when the {@link TokenBucket} allows. A request waits up to
+ * {@code trivia.api.coalesce-window-ms} for others to join it, and queued requests for the same
+ * {@link QuestionKey} are merged into one call of up to {@code trivia.api.batch-size} questions and
+ * the results are split between them in queue order. Rate-limit responses and transport errors
+ * put the batch back at the head of the queue and back off exponentially; other error codes fail
+ * the batch. A request still queued after {@code trivia.api.max-wait-ms} fails with a
+ * {@link TriviaApiException}.
+ */
+@Service
+public class TriviaFetchScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(TriviaFetchScheduler.class);
+
+    private static final class Waiter {
+        final QuestionKey key;
+        final int amount;
+        final long enqueuedMillis;
+        final long deadlineMillis;
+        final CompletableFuture<List<TriviaQuestion>> future = new CompletableFuture<>();
+
+        Waiter(QuestionKey key, int amount, long enqueuedMillis, long deadlineMillis) {
+            this.key = key;
+            this.amount = amount;
+            this.enqueuedMillis = enqueuedMillis;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+
+    private final TriviaApiClient apiClient;
+    private final TokenBucket bucket;
+    private final int batchSize;
+    private final long coalesceWindowMillis;
+    private final long maxWaitMillis;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "trivia-fetch-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Confined to the dispatcher thread
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private boolean inFlight;
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAtMillis;
+    private long backoffMillis;
+    private long backoffUntilMillis;
+
+    private volatile int queueDepth;
+    private volatile long currentBackoffMillis;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private volatile long maxWaitObservedMillis;
+
+    @Autowired
+    public TriviaFetchScheduler(TriviaApiClient apiClient,
+                                @Value("${trivia.api.rate-limit.interval-ms:5000}") long rateLimitIntervalMillis,
+                                @Value("${trivia.api.rate-limit.burst:1}") int burst,
+                                @Value("${trivia.api.batch-size:50}") int batchSize,
+                                @Value("${trivia.api.coalesce-window-ms:50}") long coalesceWindowMillis,
+                                @Value("${trivia.api.max-wait-ms:30000}") long maxWaitMillis,
+                                @Value("${trivia.api.backoff.initial-ms:5000}") long initialBackoffMillis,
+                                @Value("${trivia.api.backoff.max-ms:60000}") long maxBackoffMillis) {
+        this.apiClient = apiClient;
+        this.bucket = new TokenBucket(burst, rateLimitIntervalMillis, System.currentTimeMillis());
+        this.batchSize = Math.max(1, Math.min(batchSize, TriviaApiClient.MAX_AMOUNT));
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Queues a request for up to {@code amount} questions (capped at the batch size). The future
+     * may complete with fewer if the API runs out; cancelling it drops the request from the queue.
+     */
+    public CompletableFuture<List<TriviaQuestion>> submit(QuestionKey key, int amount) {
+        long now = System.currentTimeMillis();
+        Waiter waiter = new Waiter(key, Math.max(1, Math.min(amount, batchSize)), now, now + maxWaitMillis);
+        requests.incrementAndGet();
+        dispatcher.execute(() -> {
+            queue.add(waiter);
+            dispatch();
+        });
+        return waiter.future;
+    }
+
+    /** Blocking form of {@link #submit}, for background callers that are happy to wait. */
+    public List<TriviaQuestion> fetch(QuestionKey key, int amount) {
+        try {
+            return submit(key, amount).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TriviaApiException apiException) {
+                throw apiException;
+            }
+            throw new TriviaApiException("Trivia API request failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TriviaApiException("Interrupted while fetching trivia questions", e);
+        }
+    }
+
+    private void dispatch() {
+        long now = System.currentTimeMillis();
+        dropFinished(now);
+        queueDepth = queue.size();
+        if (inFlight || queue.isEmpty()) {
+            return;
+        }
+        Waiter head = queue.peek();
+        long wait = Math.max(0, backoffUntilMillis - now);
+        if (wait == 0 && queuedAmount(head.key) < batchSize) {
+            wait = Math.max(0, head.enqueuedMillis + coalesceWindowMillis - now);
+        }
+        if (wait == 0) {
+            wait = bucket.tryAcquire(now);
+        }
+        if (wait > 0) {
+            // Wake for the next token, or sooner if a queued request is about to time out
+            long earliestDeadline = queue.stream().mapToLong(w -> w.deadlineMillis).min().orElse(Long.MAX_VALUE);
+            scheduleWakeup(now, Math.max(1, Math.min(wait, earliestDeadline - now)));
+            return;
+        }
+
+        QuestionKey key = head.key;
+        List<Waiter> batch = new ArrayList<>();
+        int total = 0;
+        for (Iterator<Waiter> it = queue.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (waiter.key.equals(key) && total + waiter.amount <= batchSize) {
+                it.remove();
+                batch.add(waiter);
+                total += waiter.amount;
+            }
+        }
+        queueDepth = queue.size();
+        inFlight = true;
+        batches.incrementAndGet();
+        coalesced.addAndGet(batch.size() - 1);
+        logger.info("Fetching {} questions for {} in one request for {} waiting callers", total, key, batch.size());
+        apiClient.fetchAsync(key, total).whenComplete((questions, error) ->
+                dispatcher.execute(() -> onResponse(key, batch, questions, error)));
+    }
+
+    private void onResponse(QuestionKey key, List<Waiter> batch, List<TriviaQuestion> questions, Throwable error) {
+        inFlight = false;
+        long now = System.currentTimeMillis();
+        if (error == null) {
+            backoffMillis = 0;
+            currentBackoffMillis = 0;
+            int next = 0;
+            for (Waiter waiter : batch) {
+                next = deliver(waiter, questions, next, now);
+            }
+            // Questions meant for a caller that gave up go to the next caller queued for the same key
+            for (Iterator<Waiter> it = queue.iterator(); it.hasNext() && next < questions.size(); ) {
+                Waiter waiter = it.next();
+                if (waiter.key.equals(key) && questions.size() - next >= waiter.amount) {
+                    it.remove();
+                    next = deliver(waiter, questions, next, now);
+                }
+            }
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            TriviaApiException apiError = cause instanceof TriviaApiException e
+                    ? e : new TriviaApiException("Trivia API request failed: " + cause, cause);
+            if (apiError.isRateLimited() || apiError.getResponseCode() == TriviaApiException.NO_RESPONSE_CODE) {
+                if (apiError.isRateLimited()) {
+                    rateLimited.incrementAndGet();
+                    bucket.drain(now);
+                }
+                backoffMillis = backoffMillis == 0 ? initialBackoffMillis : Math.min(backoffMillis * 2, maxBackoffMillis);
+                backoffUntilMillis = now + backoffMillis;
+                currentBackoffMillis = backoffMillis;
+                logger.warn("Trivia API request for {} failed ({}), retrying in {} ms", key, apiError.getMessage(), backoffMillis);
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    queue.addFirst(batch.get(i));
+                }
+            } else {
+                failedBatches.incrementAndGet();
+                logger.error("Trivia API request for {} failed: {}", key, apiError.getMessage());
+                for (Waiter waiter : batch) {
+                    waiter.future.completeExceptionally(apiError);
+                }
+            }
+        }
+        dispatch();
+    }
+
+    private int queuedAmount(QuestionKey key) {
+        int total = 0;
+        for (Waiter waiter : queue) {
+            if (waiter.key.equals(key)) {
+                total += waiter.amount;
+            }
+        }
+        return total;
+    }
+
+    private int deliver(Waiter waiter, List<TriviaQuestion> questions, int from, long now) {
+        if (waiter.future.isDone()) {
+            return from;
+        }
+        int to = Math.min(from + waiter.amount, questions.size());
+        long waited = now - waiter.enqueuedMillis;
+        totalWaitMillis.addAndGet(waited);
+        maxWaitObservedMillis = Math.max(maxWaitObservedMillis, waited);
+        served.incrementAndGet();
+        waiter.future.complete(new ArrayList<>(questions.subList(from, to)));
+        return to;
+    }
+
+    private void dropFinished(long now) {
+        for (Iterator<Waiter> it = queue.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (waiter.future.isDone()) {
+                it.remove();
+            } else if (waiter.deadlineMillis <= now) {
+                it.remove();
+                expired.incrementAndGet();
+                waiter.future.completeExceptionally(new TriviaApiException(
+                        "Gave up waiting for trivia API capacity after " + (now - waiter.enqueuedMillis) + " ms"));
+            }
+        }
+    }
+
+    private void scheduleWakeup(long now, long delayMillis) {
+        long at = now + delayMillis;
+        // A wakeup that is due is the one running right now, so it does not count as pending
+        if (wakeup != null && !wakeup.isDone() && wakeupAtMillis > now) {
+            if (wakeupAtMillis <= at) {
+                return;
+            }
+            wakeup.cancel(false);
+        }
+        wakeupAtMillis = at;
+        wakeup = dispatcher.schedule(this::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /** Requests that rode along in another request's upstream call instead of making their own. */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public long getExpired() {
+        return expired.get();
+    }
+
+    public long getAverageWaitMillis() {
+        long count = served.get();
+        return count == 0 ? 0 : totalWaitMillis.get() / count;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitObservedMillis;
+    }
+
+    public long getCurrentBackoffMillis() {
+        return currentBackoffMillis;
+    }
+}
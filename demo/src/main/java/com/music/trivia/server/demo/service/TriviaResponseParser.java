@@ -0,0 +1,134 @@
+package com.music.trivia.server.demo.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser for opentdb responses. Bytes are fed in as they arrive from the network and
+ * questions are built straight from the token stream, without buffering the body as a string or
+ * building a JSON tree. Unknown fields are skipped. Not thread-safe.
+ */
+public class TriviaResponseParser {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int ROOT = 1;
+    private static final int RESULTS = 2;
+    private static final int RESULT = 3;
+    private static final int ANSWERS = 4;
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final List<TriviaQuestion> questions = new ArrayList<>();
+    private int responseCode;
+    private int depth;
+    private boolean inResults;
+    private boolean inIncorrectAnswers;
+    private String question;
+    private String correctAnswer;
+    private List<String> incorrectAnswers;
+
+    public TriviaResponseParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    public void feed(byte[] bytes, int offset, int length) throws IOException {
+        feeder.feedInput(bytes, offset, offset + length);
+        drain();
+    }
+
+    public void endOfInput() throws IOException {
+        feeder.endOfInput();
+        drain();
+        if (depth != 0) {
+            throw new IOException("Truncated trivia API response");
+        }
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    public List<TriviaQuestion> getQuestions() {
+        return questions;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            handle(token);
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT -> {
+                depth++;
+                if (inResults && depth == RESULT) {
+                    question = null;
+                    correctAnswer = null;
+                    incorrectAnswers = new ArrayList<>(3);
+                }
+            }
+            case END_OBJECT -> {
+                if (inResults && depth == RESULT && question != null) {
+                    questions.add(new TriviaQuestion(question, correctAnswer, incorrectAnswers));
+                }
+                depth--;
+            }
+            case START_ARRAY -> {
+                depth++;
+                if (depth == RESULTS && "results".equals(parser.currentName())) {
+                    inResults = true;
+                } else if (inResults && depth == ANSWERS && "incorrect_answers".equals(parser.currentName())) {
+                    inIncorrectAnswers = true;
+                }
+            }
+            case END_ARRAY -> {
+                if (depth == RESULTS) {
+                    inResults = false;
+                } else if (depth == ANSWERS) {
+                    inIncorrectAnswers = false;
+                }
+                depth--;
+            }
+            case VALUE_STRING -> {
+                if (inIncorrectAnswers && depth == ANSWERS) {
+                    incorrectAnswers.add(unescape(parser.getText()));
+                } else if (inResults && depth == RESULT) {
+                    String name = parser.currentName();
+                    if ("question".equals(name)) {
+                        question = unescape(parser.getText());
+                    } else if ("correct_answer".equals(name)) {
+                        correctAnswer = unescape(parser.getText());
+                    }
+                }
+            }
+            case VALUE_NUMBER_INT -> {
+                if (depth == ROOT && "response_code".equals(parser.currentName())) {
+                    responseCode = parser.getIntValue();
+                }
+            }
+            default -> {
+                // Field names and other scalars need no handling
+            }
+        }
+    }
+
+    /** opentdb HTML-encodes its text; most strings have no entities, so skip the decoder for those. */
+    private static String unescape(String text) {
+        return text.indexOf('&') < 0 ? text : StringEscapeUtils.unescapeHtml4(text);
+    }
+}
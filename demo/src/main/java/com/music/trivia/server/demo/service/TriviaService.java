@@ -1,74 +1,96 @@
 package com.music.trivia.server.demo.service;
 
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GameMessageCodec;
+import com.music.trivia.server.demo.model.GamePhase;
+import com.music.trivia.server.demo.model.LatencyHistogram;
+import com.music.trivia.server.demo.model.PlayerSlots;
+import com.music.trivia.server.demo.model.QuestionFrame;
+import com.music.trivia.server.demo.model.QuestionKey;
 import com.music.trivia.server.demo.model.Session;
 import com.music.trivia.server.demo.model.TriviaQuestion;
 import com.music.trivia.server.demo.model.User;
-import org.apache.commons.text.StringEscapeUtils;
+import com.music.trivia.server.demo.persistence.SessionJournal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.MimeTypeUtils;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Service
 public class TriviaService {
     private static final Logger logger = LoggerFactory.getLogger(TriviaService.class);
-    private static final int QUESTION_TIME_LIMIT = 60; // 60 seconds
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    /** How a correct answer is scored: a flat point, or up to {@code trivia.scoring.max-points} for answering fast. */
+    public enum ScoringMode {
+        FLAT,
+        TIME_WEIGHTED
+    }
+
     private final SessionService sessionService;
     private final SimpMessagingTemplate messagingTemplate;
-    private final Map<String, Integer> sessionTimers = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<TriviaQuestion>>> pendingFetches = new ConcurrentHashMap<>();
+    private final SessionJournal journal;
+    private final SessionExecutor sessionExecutor;
+    private final LeaderboardService leaderboard;
+    private final QuestionBankService questionBank;
+    private final RoundTimerService roundTimer;
+    private final RoundTransitionScheduler roundTransitions;
+    private final ScoreboardService scoreboardService;
+    private final SeenQuestionService seenQuestions;
+    private final AtomicLong duplicateTransitions = new AtomicLong();
+    private final AtomicLong lateAnswers = new AtomicLong();
+    private final ScoringMode scoringMode;
+    private final int maxPoints;
+    /** Time from a question opening to its answer being graded, in microseconds, across every session. */
+    private final LatencyHistogram answerLatency = new LatencyHistogram(5, 1L << 27);
+    /** Time spent grading one answer, in nanoseconds. */
+    private final LatencyHistogram gradingTime = new LatencyHistogram(5, 1L << 30);
 
     @Autowired
-    public TriviaService(SessionService sessionService, SimpMessagingTemplate messagingTemplate) {
+    public TriviaService(SessionService sessionService, SimpMessagingTemplate messagingTemplate, SessionJournal journal,
+                         SessionExecutor sessionExecutor, LeaderboardService leaderboard, QuestionBankService questionBank,
+                         RoundTimerService roundTimer, RoundTransitionScheduler roundTransitions,
+                         ScoreboardService scoreboardService, SeenQuestionService seenQuestions,
+                         @Value("${trivia.scoring.mode:flat}") String scoringMode,
+                         @Value("${trivia.scoring.max-points:1000}") int maxPoints) {
         this.sessionService = sessionService;
         this.messagingTemplate = messagingTemplate;
-    }
-
-    public List<TriviaQuestion> fetchMusicTrivia(int numberOfQuestions) {
-        logger.info("Fetching {} music trivia questions", numberOfQuestions);
-        String url = "https://opentdb.com/api.php?amount=" + numberOfQuestions + "&category=12&type=multiple";
-        String response = restTemplate.getForObject(url, String.class);
-        List<TriviaQuestion> questions = new ArrayList<>();
-
-        try {
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode results = root.path("results");
-            logger.info("Received {} questions from API", results.size());
-
-            for (JsonNode result : results) {
-                String question = StringEscapeUtils.unescapeHtml4(result.path("question").asText());
-                String correctAnswer = StringEscapeUtils.unescapeHtml4(result.path("correct_answer").asText());
-                List<String> incorrectAnswers = new ArrayList<>();
-                for (JsonNode incorrect : result.path("incorrect_answers")) {
-                    incorrectAnswers.add(StringEscapeUtils.unescapeHtml4(incorrect.asText()));
-                }
-                questions.add(new TriviaQuestion(question, correctAnswer, incorrectAnswers));
-            }
-        } catch (Exception e) {
-            logger.error("Error parsing trivia API response", e);
-            throw new RuntimeException("Error parsing trivia API response", e);
-        }
-
-        logger.info("Successfully parsed {} questions", questions.size());
-        return questions;
+        this.journal = journal;
+        this.sessionExecutor = sessionExecutor;
+        this.leaderboard = leaderboard;
+        this.questionBank = questionBank;
+        this.roundTimer = roundTimer;
+        this.roundTransitions = roundTransitions;
+        this.scoreboardService = scoreboardService;
+        this.seenQuestions = seenQuestions;
+        this.scoringMode = ScoringMode.valueOf(scoringMode.trim().toUpperCase().replace('-', '_'));
+        this.maxPoints = maxPoints;
     }
 
     public void setTriviaQuestions(String sessionId, List<TriviaQuestion> questions) {
-        logger.info("Setting {} trivia questions for session {}", questions.size(), sessionId);
-        Session session = sessionService.getSession(sessionId);
-        session.setTriviaQuestions(questions);
-        session.setCurrentQuestionIndex(0);
-        session.resetAnsweredUsers();
-        logger.info("Trivia questions set successfully for session {}", sessionId);
+        sessionExecutor.run(sessionId, () -> {
+            logger.info("Setting {} trivia questions for session {}", questions.size(), sessionId);
+            Session session = sessionService.getSession(sessionId);
+            session.setTriviaQuestions(questions);
+            session.setCurrentQuestionIndex(0);
+            session.resetAnsweredUsers();
+            session.setQuestionOpenedNanos(System.nanoTime());
+            buildFrames(session);
+            journal.questionsSet(sessionId, questions);
+            logger.info("Trivia questions set successfully for session {}", sessionId);
+        });
     }
 
     public TriviaQuestion getCurrentQuestion(String sessionId) {
@@ -83,46 +105,314 @@ public class TriviaService {
         return question;
     }
 
-    public void startGame(String sessionId, int numberOfQuestions) {
-        List<TriviaQuestion> questions = fetchMusicTrivia(numberOfQuestions);
-        setTriviaQuestions(sessionId, questions);
-        logger.info("Started new game for session {} with {} questions", sessionId, numberOfQuestions);
-        sendNextQuestion(sessionId);
+    /**
+     * The client-safe frame for the session's current question, building the frames first if
+     * the session doesn't have them (as after a restart, where they are rebuilt identically).
+     */
+    public QuestionFrame getCurrentFrame(String sessionId) {
+        return sessionExecutor.call(sessionId, () -> currentFrame(sessionService.getSession(sessionId)));
+    }
+
+    private QuestionFrame currentFrame(Session session) {
+        if (session.getTriviaQuestions() == null || session.isGameOver()) {
+            return null;
+        }
+        if (session.getCurrentFrame() == null) {
+            buildFrames(session);
+        }
+        return session.getCurrentFrame();
+    }
+
+    /**
+     * Shuffles and encodes every question of the game once. The shuffle is seeded from the session
+     * and question, so frames rebuilt after a restart number the choices the same way.
+     */
+    private void buildFrames(Session session) {
+        List<TriviaQuestion> questions = session.getTriviaQuestions();
+        List<QuestionFrame> frames = new ArrayList<>(questions.size());
+        for (int i = 0; i < questions.size(); i++) {
+            TriviaQuestion question = questions.get(i);
+            long seed = ((long) session.getSessionID().hashCode() << 32) ^ Objects.hashCode(question.getQuestion()) ^ i;
+            frames.add(QuestionFrame.of(question, i, questions.size(), new Random(seed), GameMessageCodec::encode));
+        }
+        session.setQuestionFrames(Collections.unmodifiableList(frames));
+    }
+
+    /**
+     * Starts a game without blocking the caller. Questions usually come straight from the pool;
+     * if they have to be fetched, the game starts on the session's loop once they arrive, and
+     * {@link #cancelPendingFetch} abandons the fetch if the session ends first. Questions the
+     * session or its players have played before are avoided where the bank has alternatives.
+     * If the fetch fails or comes back empty, the session is sent START_FAILED so the creator
+     * can try again.
+     */
+    public CompletableFuture<Void> startGame(String sessionId, int numberOfQuestions) {
+        LongPredicate seen = sessionExecutor.call(sessionId,
+                () -> seenQuestions.seenBy(sessionService.getSession(sessionId)));
+        CompletableFuture<List<TriviaQuestion>> fetch = questionBank.take(QuestionKey.DEFAULT, numberOfQuestions, seen);
+        CompletableFuture<List<TriviaQuestion>> previous = pendingFetches.put(sessionId, fetch);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        return fetch.handle((questions, error) -> {
+            pendingFetches.remove(sessionId, fetch);
+            if (error != null) {
+                if (fetch.isCancelled()) {
+                    logger.info("Question fetch for session {} was cancelled", sessionId);
+                } else {
+                    logger.error("Failed to fetch questions for session {}", sessionId, error);
+                    broadcastStartFailed(sessionId, "Could not fetch questions");
+                }
+                return null;
+            }
+            if (questions.isEmpty()) {
+                logger.warn("No questions available to start a game in session {}", sessionId);
+                broadcastStartFailed(sessionId, "No questions available");
+                return null;
+            }
+            sessionExecutor.execute(sessionId, () -> {
+                if (!sessionService.containsSession(sessionId)) {
+                    return;
+                }
+                setTriviaQuestions(sessionId, questions);
+                seenQuestions.recordGame(sessionService.getSession(sessionId), questions);
+                logger.info("Started new game for session {} with {} questions", sessionId, questions.size());
+                startTimer(sessionId);
+                sendNextQuestion(sessionId);
+            });
+            return null;
+        });
+    }
+
+    private void broadcastStartFailed(String sessionId, String message) {
+        try {
+            messagingTemplate.convertAndSend("/topic/game/" + sessionId, new GameMessage.StartFailed(message));
+        } catch (Exception e) {
+            logger.warn("Failed to send START_FAILED to session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /** Abandons an in-flight question fetch for the session, if there is one. */
+    public void cancelPendingFetch(String sessionId) {
+        CompletableFuture<List<TriviaQuestion>> fetch = pendingFetches.remove(sessionId);
+        if (fetch != null) {
+            fetch.cancel(true);
+        }
+    }
+
+    /** Drops everything still scheduled for a session that is going away: fetch, round deadline and transition. */
+    public void releaseSession(String sessionId) {
+        cancelPendingFetch(sessionId);
+        roundTimer.cancel(sessionId);
+        roundTransitions.cancel(sessionId);
+    }
+
+    public int getPendingFetchCount() {
+        return pendingFetches.size();
     }
 
     public void sendNextQuestion(String sessionId) {
-        logger.info("Preparing to send next question for session {}", sessionId);
-        Session session = sessionService.getSession(sessionId);
-        TriviaQuestion question = session.getCurrentQuestion();
-        if (question == null) {
+        sendCurrentQuestion(sessionId);
+    }
+
+    /**
+     * Broadcasts the current question's pre-encoded frame to the session.
+     *
+     * @return {@code false} if there is no current question
+     */
+    public boolean sendCurrentQuestion(String sessionId) {
+        QuestionFrame frame = getCurrentFrame(sessionId);
+        if (frame == null) {
             logger.warn("No question available for session: {}", sessionId);
-            return;
+            return false;
         }
-        logger.info("Sending next question to session: {}", sessionId);
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", "NEW_QUESTION");
-        message.put("data", question);
-        messagingTemplate.convertAndSend("/topic/game/" + sessionId, message);
-        logger.info("Sent NEW_QUESTION message for session {}: {}", sessionId, message);
+        messagingTemplate.send("/topic/game/" + sessionId, frameMessage(frame));
+        logger.info("Sent NEW_QUESTION {}/{} to session {}", frame.getIndex() + 1, frame.getTotal(), sessionId);
+        if (roundTimer.getArmedQuestion(sessionId) == frame.getIndex()) {
+            // One absolute deadline per round; clients count down locally against the server clock
+            messagingTemplate.convertAndSend("/topic/game/" + sessionId, new GameMessage.RoundDeadline(frame.getIndex(),
+                    roundTimer.getDeadline(sessionId), System.currentTimeMillis(), roundTimer.getRoundMillis()));
+        }
+        return true;
+    }
+
+    /** Wraps the frame's cached bytes as a message; nothing is re-serialized. */
+    public static Message<byte[]> frameMessage(QuestionFrame frame) {
+        return jsonMessage(frame.getPayload());
     }
 
+    /** Wraps already-encoded JSON as a message the broker forwards as is. */
+    public static Message<byte[]> jsonMessage(byte[] payload) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+    }
+
+    /**
+     * Grades an answer submitted as text, for clients that predate choice IDs. The text is
+     * matched to a choice of the current frame, tolerating case, whitespace and HTML entities.
+     */
     public boolean submitAnswer(String sessionId, String userId, String answer) {
-        Session session = sessionService.getSession(sessionId);
-        TriviaQuestion currentQuestion = session.getCurrentQuestion();
-        boolean isCorrect = currentQuestion.getCorrectAnswer().equals(answer);
+        return sessionExecutor.call(sessionId, () -> {
+            Session session = sessionService.getSession(sessionId);
+            QuestionFrame frame = currentFrame(session);
+            return grade(session, userId, frame == null ? -1 : frame.matchChoice(answer));
+        });
+    }
+
+    /** Grades an answer submitted as a choice ID of the current {@link QuestionFrame}. */
+    public boolean submitChoice(String sessionId, String userId, int choiceId) {
+        return sessionExecutor.call(sessionId, () -> grade(sessionService.getSession(sessionId), userId, choiceId));
+    }
+
+    /**
+     * Grades against the frame's precomputed answer key: an int compare and a few bit flips.
+     * Latency is measured on the monotonic clock from when the question opened; recording it
+     * allocates nothing.
+     */
+    private boolean grade(Session session, String userId, int choiceId) {
+        long gradeStart = System.nanoTime();
+        String sessionId = session.getSessionID();
+        if (session.getPhase() != GamePhase.QUESTION_OPEN) {
+            lateAnswers.incrementAndGet();
+            logger.info("Ignoring answer from user {} in session {}: round {} is not open", userId, sessionId,
+                    session.getCurrentQuestionIndex());
+            return false;
+        }
+        QuestionFrame frame = currentFrame(session);
+        boolean known = frame != null && frame.answerOrdinalOf(choiceId) >= 0;
+        boolean isCorrect = known && frame.isCorrect(choiceId);
+        if (!session.recordAnswer(userId, isCorrect, known ? choiceId : PlayerSlots.NO_CHOICE)) {
+            // Not in the session, or a repeat submission: never score the same round twice
+            logger.debug("Ignoring answer from user {} in session {}: not present or already answered", userId, sessionId);
+            return session.isAnsweredCorrectly(userId);
+        }
+        long openedNanos = session.getQuestionOpenedNanos();
+        long latencyMicros = openedNanos == 0 ? -1 : (gradeStart - openedNanos) / 1000;
+        if (latencyMicros >= 0) {
+            session.recordAnswerLatency(latencyMicros);
+            answerLatency.record(latencyMicros);
+        }
         if (isCorrect) {
+            int points = pointsFor(latencyMicros);
             int currentScore = session.getUserScore(userId);
-            session.updateUserScore(userId, currentScore + 1);
-            logger.info("User {} answered correctly in session {}", userId, sessionId);
+            session.updateUserScore(userId, currentScore + points);
+            leaderboard.recordPoints(sessionId, userId, points);
+            logger.debug("User {} answered correctly in session {}", userId, sessionId);
         } else {
-            logger.info("User {} answered incorrectly in session {}", userId, sessionId);
+            logger.debug("User {} answered incorrectly in session {}", userId, sessionId);
         }
-        session.addAnsweredUser(userId);
-
+        journal.answer(sessionId, userId, session.getUserScore(userId));
+        gradingTime.record(System.nanoTime() - gradeStart);
 
         return isCorrect;
     }
 
+    /**
+     * Points for a correct answer. Time-weighted scoring falls linearly from {@code maxPoints} for
+     * an instant answer to half that at the round's time limit; answers of unknown latency get half.
+     */
+    int pointsFor(long latencyMicros) {
+        if (scoringMode == ScoringMode.FLAT) {
+            return 1;
+        }
+        if (latencyMicros < 0) {
+            return maxPoints / 2;
+        }
+        double fraction = Math.min(1.0, latencyMicros / (roundTimer.getRoundMillis() * 1000.0));
+        return (int) Math.round(maxPoints * (1 - fraction / 2));
+    }
+
+    public ScoringMode getScoringMode() {
+        return scoringMode;
+    }
+
+    public LatencyHistogram getAnswerLatency() {
+        return answerLatency;
+    }
+
+    public LatencyHistogram getGradingTime() {
+        return gradingTime;
+    }
+
+    /**
+     * Whether answers for {@code round} are being accepted: one map lookup and a volatile read of
+     * the round state, with no logging or activity tracking, so callers can turn late answers
+     * away before queueing them on the session's mailbox. {@code false} if the session is gone.
+     */
+    public boolean isRoundOpen(String sessionId, int round) {
+        Session session = sessionService.findSession(sessionId);
+        return session != null && session.getEngine().isOpen(round);
+    }
+
+    /**
+     * {@link #isRoundOpen}, counting the answer as late if it isn't. For callers about to drop an
+     * answer, so each dropped answer is counted once, wherever it is turned away.
+     */
+    public boolean admitsAnswer(String sessionId, int round) {
+        if (isRoundOpen(sessionId, round)) {
+            return true;
+        }
+        lateAnswers.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Closes {@code round} to answers once everyone has answered, moving it to INTERMISSION.
+     *
+     * @return {@code false} if the round was already closed, so the caller should not announce it again
+     */
+    public boolean closeRound(String sessionId, int round) {
+        return sessionService.getSession(sessionId).getEngine()
+                .transition(round, GamePhase.QUESTION_OPEN, GamePhase.INTERMISSION);
+    }
+
+    /**
+     * Moves the game on from {@code round}: opens and sends the next question, or announces the
+     * end of the game after the last one. The round timer, the end of an intermission and
+     * {@code /nextQuestion} all come through here; whichever arrives second for a round is a no-op.
+     *
+     * @return the new phase, or {@code null} if the game had already moved past {@code round}
+     */
+    public GamePhase advanceRound(String sessionId, int round) {
+        return sessionExecutor.call(sessionId, () -> {
+            if (!sessionService.containsSession(sessionId)) {
+                return null;
+            }
+            Session session = sessionService.getSession(sessionId);
+            GamePhase next = session.advanceRound(round);
+            if (next == null) {
+                duplicateTransitions.incrementAndGet();
+                logger.info("Ignoring duplicate advance from round {} in session {} (now {})",
+                        round, sessionId, session.getEngine());
+                return null;
+            }
+            session.resetAnsweredUsers();
+            journal.questionIndex(sessionId, session.getCurrentQuestionIndex());
+            if (next == GamePhase.QUESTION_OPEN) {
+                startTimer(sessionId);
+                session.setQuestionOpenedNanos(System.nanoTime());
+                sendCurrentQuestion(sessionId);
+            } else {
+                roundTimer.cancel(sessionId);
+                roundTransitions.cancel(sessionId);
+                // Counted here, on the one transition into GAME_OVER, not on every broadcast of it
+                leaderboard.recordGameCompleted(sessionId);
+                scoreboardService.broadcastGameOver(session);
+            }
+            return next;
+        });
+    }
+
+    public long getDuplicateTransitions() {
+        return duplicateTransitions.get();
+    }
+
+    public long getLateAnswers() {
+        return lateAnswers.get();
+    }
+
     public boolean isAllUsersAnswered(String sessionId) {
         Session session = sessionService.getSession(sessionId);
         return session.isAllUsersAnswered();
@@ -139,58 +429,34 @@ public class TriviaService {
     }
 
     public void endGame(String sessionId) {
-        Session session = sessionService.getSession(sessionId);
-        session.setTriviaQuestions(null);
-        session.setCurrentQuestionIndex(0);
-        session.resetAnsweredUsers();
+        sessionExecutor.run(sessionId, () -> {
+            releaseSession(sessionId);
+            Session session = sessionService.getSession(sessionId);
+            session.setTriviaQuestions(null);
+            session.setCurrentQuestionIndex(0);
+            session.resetAnsweredUsers();
 
-        // Reset all player scores to zero
-        for (Map.Entry<String, User> entry : session.getUsers().entrySet()) {
-            String userId = entry.getKey();
-            User user = entry.getValue();
-            user.setScore(0);
-            sessionService.updateUserScore(sessionId, userId, 0);
-        }
+            // Reset all player scores to zero
+            for (String userId : session.getUsers().keySet()) {
+                sessionService.updateUserScore(sessionId, userId, 0);
+            }
+            journal.gameEnded(sessionId);
 
-        logger.info("Game ended for session {} with all scores reset to zero", sessionId);
+            logger.info("Game ended for session {} with all scores reset to zero", sessionId);
+        });
     }
 
+    /** Arms the deadline for the session's current round on the {@link RoundTimerService}. */
     public void startTimer(String sessionId) {
-        sessionTimers.put(sessionId, QUESTION_TIME_LIMIT);
-    }
-
-    @Scheduled(fixedRate = 1000) // Run every second
-    public void updateTimers() {
-        for (Map.Entry<String, Integer> entry : sessionTimers.entrySet()) {
-            String sessionId = entry.getKey();
-            int timeLeft = entry.getValue();
-
-            if (timeLeft > 0) {
-                timeLeft--;
-                sessionTimers.put(sessionId, timeLeft);
-
-                // Send timer update to clients
-                messagingTemplate.convertAndSend("/topic/game/" + sessionId, Map.of(
-                        "type", "TIMER_UPDATE",
-                        "data", Map.of("timeLeft", timeLeft)
-                ));
-            } else {
-                // Time's up, force move to next question
-                sessionTimers.remove(sessionId);
-                if (!isGameOver(sessionId)) {
-                    moveToNextQuestion(sessionId);
-                    sendNextQuestion(sessionId);
-                } else {
-                    endGame(sessionId);
-                }
-            }
-        }
+        sessionExecutor.run(sessionId, () -> {
+            int questionIndex = sessionService.getSession(sessionId).getCurrentQuestionIndex();
+            roundTimer.arm(sessionId, questionIndex,
+                    () -> sessionExecutor.execute(sessionId, () -> onRoundTimeout(sessionId, questionIndex)));
+        });
     }
 
-    public void moveToNextQuestion(String sessionId) {
-        Session session = sessionService.getSession(sessionId);
-        session.moveToNextQuestion();
-        session.resetAnsweredUsers();
-        startTimer(sessionId);
+    private void onRoundTimeout(String sessionId, int questionIndex) {
+        // Time's up, force move to next question (a no-op if the round already moved on)
+        advanceRound(sessionId, questionIndex);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.exception.CapacityExceededException;
+import com.music.trivia.server.demo.model.InMemorySessionStorage;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.SessionStorage;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.persistence.SessionJournal;
+import com.music.trivia.server.demo.service.AdmissionControlService;
+import com.music.trivia.server.demo.service.SessionExecutor;
+import com.music.trivia.server.demo.service.SessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AdmissionControlServiceTest {
+
+    private final SessionStorage storage = new InMemorySessionStorage(Duration.ofHours(1), Duration.ofHours(12));
+
+    private SessionService newSessionService(AdmissionControlService admissionControl) {
+        SessionJournal journal = new SessionJournal(storage, false, Path.of("unused"), 0);
+        return new SessionService(storage, mock(SimpMessagingTemplate.class), journal, admissionControl,
+                new SessionExecutor(storage, 1));
+    }
+
+    @Test
+    void createEmptySession_rejectsAtSessionCap() {
+        SessionService sessionService = newSessionService(new AdmissionControlService(storage, 2, 0, 0));
+        sessionService.createEmptySession("pw");
+        sessionService.createEmptySession("pw");
+
+        assertThrows(CapacityExceededException.class, () -> sessionService.createEmptySession("pw"));
+        assertEquals(2, storage.size());
+    }
+
+    @Test
+    void joinSession_rejectsAtUserCap() {
+        SessionService sessionService = newSessionService(new AdmissionControlService(storage, 0, 2, 0));
+        String sessionId = sessionService.createEmptySession("pw");
+        sessionService.joinSession(sessionId, "alice", "pw", "a.png", "Creator");
+        sessionService.joinSession(sessionId, "bob", "pw", "b.png", "Player");
+
+        assertThrows(CapacityExceededException.class,
+                () -> sessionService.joinSession(sessionId, "carol", "pw", "c.png", "Player"));
+    }
+
+    @Test
+    void createEmptySession_rejectsWhenEstimatedMemoryWouldExceedCap() {
+        SessionService sessionService = newSessionService(new AdmissionControlService(storage, 0, 0, 4096));
+        assertThrows(CapacityExceededException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                sessionService.createEmptySession("pw");
+            }
+        });
+        assertTrue(storage.getEstimatedBytes() <= 4096);
+    }
+
+    @Test
+    void estimatedBytes_tracksSessionChanges() {
+        SessionService sessionService = newSessionService(new AdmissionControlService(storage, 0, 0, 0));
+        String sessionId = sessionService.createEmptySession("pw");
+        Session session = storage.getSession(sessionId);
+        long empty = storage.getEstimatedBytes();
+        assertEquals(session.getEstimatedBytes(), empty);
+
+        sessionService.joinSession(sessionId, "alice", "pw", "a.png", "Creator");
+        long withUser = storage.getEstimatedBytes();
+        assertTrue(withUser > empty);
+
+        session.setTriviaQuestions(List.of(new TriviaQuestion("Q", "A", List.of("B", "C", "D"))));
+        assertTrue(storage.getEstimatedBytes() > withUser);
+        session.setTriviaQuestions(null);
+        assertEquals(withUser, storage.getEstimatedBytes());
+
+        sessionService.leaveUser(sessionId, "alice");
+        assertEquals(empty, storage.getEstimatedBytes());
+
+        storage.removeSession(sessionId);
+        assertEquals(0, storage.getEstimatedBytes());
+    }
+}
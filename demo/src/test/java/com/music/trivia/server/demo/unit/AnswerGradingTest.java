@@ -0,0 +1,251 @@
+package com.music.trivia.server.demo.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.trivia.server.demo.controller.WebSocketController;
+import com.music.trivia.server.demo.model.ClientRequest;
+import com.music.trivia.server.demo.model.CompactAnswer;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GamePhase;
+import com.music.trivia.server.demo.model.PlayerSlots;
+import com.music.trivia.server.demo.model.QuestionFrame;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.service.RosterService;
+import com.music.trivia.server.demo.service.RoundTransitionScheduler;
+import com.music.trivia.server.demo.service.ScoreboardService;
+import com.music.trivia.server.demo.service.SessionExecutor;
+import com.music.trivia.server.demo.service.SessionService;
+import com.music.trivia.server.demo.service.TriviaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AnswerGradingTest {
+
+    private static final TriviaQuestion QUESTION =
+            new TriviaQuestion("Who sang \"Hello\"?", "Adele", List.of("Prince", "Beyoncé", "Sting"));
+
+    private TriviaFixture fixture;
+    private SessionExecutor sessionExecutor;
+    private SessionService sessionService;
+    private TriviaService triviaService;
+    private String sessionId;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new TriviaFixture();
+        sessionExecutor = fixture.sessionExecutor;
+        sessionService = fixture.sessionService;
+        triviaService = fixture.triviaService();
+        sessionId = sessionService.createEmptySession("pw");
+        for (String user : List.of("alice", "bob", "carol")) {
+            sessionService.joinSession(sessionId, user, "pw", "a.png", "Player");
+        }
+        triviaService.setTriviaQuestions(sessionId, List.of(QUESTION));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.shutdown();
+    }
+
+    @Test
+    void compactAnswer_parsesIndexAndChoice() {
+        long answer = CompactAnswer.parse("3:1".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(3, CompactAnswer.questionIndex(answer));
+        assertEquals(1, CompactAnswer.choiceId(answer));
+
+        long bare = CompactAnswer.parse("2\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(CompactAnswer.ANY_QUESTION, CompactAnswer.questionIndex(bare));
+        assertEquals(2, CompactAnswer.choiceId(bare));
+
+        for (String malformed : List.of("", ":1", "1:", "1:2:3", "a", "-1", "99999999999")) {
+            assertEquals(CompactAnswer.INVALID, CompactAnswer.parse(malformed.getBytes(StandardCharsets.US_ASCII)), malformed);
+        }
+        assertArrayEquals("0:3".getBytes(StandardCharsets.US_ASCII), CompactAnswer.encode(0, 3));
+    }
+
+    @Test
+    void submitChoice_gradesAgainstTheFrameAndIgnoresRepeats() {
+        QuestionFrame frame = triviaService.getCurrentFrame(sessionId);
+        int correct = frame.getCorrectChoiceId();
+        int wrong = (correct + 1) % frame.getChoices().size();
+
+        assertTrue(triviaService.submitChoice(sessionId, "alice", correct));
+        assertFalse(triviaService.submitChoice(sessionId, "bob", wrong));
+        assertFalse(triviaService.submitChoice(sessionId, "carol", 17));
+        assertTrue(triviaService.submitChoice(sessionId, "alice", correct));
+
+        assertEquals(1, sessionService.getSession(sessionId).getUserScore("alice"));
+        PlayerSlots slots = sessionService.getSession(sessionId).getPlayerSlots();
+        assertEquals(wrong, slots.choiceOf("bob"));
+        assertEquals(PlayerSlots.NO_CHOICE, slots.choiceOf("carol"));
+    }
+
+    @Test
+    void timeWeightedScoring_rewardsFastAnswersAndRecordsLatency() {
+        TriviaService weighted = fixture.triviaService("time-weighted");
+        weighted.setTriviaQuestions(sessionId, List.of(QUESTION));
+        int correct = weighted.getCurrentFrame(sessionId).getCorrectChoiceId();
+
+        assertTrue(weighted.submitChoice(sessionId, "alice", correct));
+
+        int points = sessionService.getSession(sessionId).getUserScore("alice");
+        assertTrue(points > 990 && points <= 1000, "points " + points);
+        assertEquals(1, weighted.getAnswerLatency().getCount());
+        assertEquals(1, sessionService.getSession(sessionId).getAnswerLatency().getCount());
+        assertEquals(1, weighted.getGradingTime().getCount());
+    }
+
+    @Test
+    void submitAnswer_textFallbackToleratesCaseWhitespaceAndEntities() {
+        assertTrue(triviaService.submitAnswer(sessionId, "alice", "  adele "));
+        assertFalse(triviaService.submitAnswer(sessionId, "bob", "Beyonc&eacute;"));
+        assertFalse(triviaService.submitAnswer(sessionId, "carol", "Madonna"));
+
+        QuestionFrame frame = triviaService.getCurrentFrame(sessionId);
+        PlayerSlots slots = sessionService.getSession(sessionId).getPlayerSlots();
+        assertEquals(frame.choiceIdOf("Beyoncé"), slots.choiceOf("bob"));
+        assertEquals(PlayerSlots.NO_CHOICE, slots.choiceOf("carol"));
+    }
+
+    @Test
+    void roundCheck_isAPureLookupAndDroppedAnswersAreCountedOnce() {
+        assertTrue(triviaService.isRoundOpen(sessionId, 0));
+        assertFalse(triviaService.isRoundOpen(sessionId, 1));
+        assertFalse(triviaService.isRoundOpen("no-such-session", 0));
+        assertEquals(0, triviaService.getLateAnswers());
+
+        assertFalse(triviaService.admitsAnswer(sessionId, 1));
+        assertFalse(triviaService.admitsAnswer("no-such-session", 0));
+        assertTrue(triviaService.admitsAnswer(sessionId, 0));
+        assertEquals(2, triviaService.getLateAnswers());
+    }
+
+    @Test
+    void compactAnswer_forAnotherSessionThanTheToken_isDropped() {
+        SessionExecutor executor = mock(SessionExecutor.class);
+        TriviaService trivia = mock(TriviaService.class);
+        WebSocketController controller = new WebSocketController(sessionService, trivia, mock(SimpMessagingTemplate.class),
+                executor, mock(ScoreboardService.class), mock(RoundTransitionScheduler.class), mock(RosterService.class));
+        byte[] body = CompactAnswer.encode(0, 1);
+
+        controller.handleCompactAnswer(sessionId, body, new UsernamePasswordAuthenticationToken("other-session:alice", null, null));
+        controller.handleCompactAnswer(sessionId, body, new UsernamePasswordAuthenticationToken("alice", null, null));
+        verifyNoInteractions(executor, trivia);
+
+        when(trivia.admitsAnswer(sessionId, 0)).thenReturn(true);
+        controller.handleCompactAnswer(sessionId, body, new UsernamePasswordAuthenticationToken(sessionId + ":alice", null, null));
+        verify(executor).execute(eq(sessionId), any(Runnable.class));
+    }
+
+    @Test
+    void lastUnansweredPlayerLeaving_closesTheRound() {
+        RoundTransitionScheduler transitions = mock(RoundTransitionScheduler.class);
+        WebSocketController controller = new WebSocketController(sessionService, triviaService, fixture.template,
+                sessionExecutor, mock(ScoreboardService.class), transitions, mock(RosterService.class));
+        triviaService.submitChoice(sessionId, "alice", 0);
+        triviaService.submitChoice(sessionId, "bob", 0);
+        assertEquals(GamePhase.QUESTION_OPEN, sessionService.getSession(sessionId).getPhase());
+
+        controller.handleUserLeave(new ClientRequest.UserLeave(sessionId, "carol"));
+        sessionExecutor.run(sessionId, () -> { });
+
+        assertEquals(GamePhase.INTERMISSION, sessionService.getSession(sessionId).getPhase());
+        int correct = triviaService.getCurrentFrame(sessionId).getCorrectChoiceId();
+        verify(fixture.template).convertAndSend("/topic/game/" + sessionId, (Object) new GameMessage.AllAnswered(correct));
+        verify(transitions).schedule(eq(sessionId), any(Runnable.class));
+    }
+
+    @Test
+    void removingTheLastUnansweredPlayer_closesTheRound() {
+        RoundTransitionScheduler transitions = mock(RoundTransitionScheduler.class);
+        WebSocketController controller = new WebSocketController(sessionService, triviaService, fixture.template,
+                sessionExecutor, mock(ScoreboardService.class), transitions, mock(RosterService.class));
+        sessionService.updateUser(sessionId, "alice", null, "Creator", null);
+        triviaService.submitChoice(sessionId, "alice", 0);
+
+        controller.handleRemoveUser(new ClientRequest.RemoveUser(sessionId, "carol", "alice"));
+        sessionExecutor.run(sessionId, () -> { });
+        assertEquals(GamePhase.QUESTION_OPEN, sessionService.getSession(sessionId).getPhase(), "bob has not answered");
+
+        controller.handleRemoveUser(new ClientRequest.RemoveUser(sessionId, "bob", "alice"));
+        sessionExecutor.run(sessionId, () -> { });
+        assertEquals(GamePhase.INTERMISSION, sessionService.getSession(sessionId).getPhase());
+        verify(transitions).schedule(eq(sessionId), any(Runnable.class));
+    }
+
+    @Test
+    void repeatedNextQuestionAfterGameOver_countsTheGameOnce() {
+        ScoreboardService scoreboard = mock(ScoreboardService.class);
+        WebSocketController controller = new WebSocketController(sessionService, triviaService, fixture.template,
+                sessionExecutor, scoreboard, mock(RoundTransitionScheduler.class), mock(RosterService.class));
+
+        for (int i = 0; i < 3; i++) {
+            controller.handleNextQuestion(new ClientRequest.NextQuestion(sessionId, null));
+        }
+        sessionExecutor.run(sessionId, () -> { });
+
+        assertTrue(sessionService.getSession(sessionId).isGameOver());
+        assertEquals(1, fixture.leaderboard.getGamesCompleted());
+        // The repeats are answered with GAME_OVER again, from the controller
+        verify(scoreboard, times(2)).broadcastGameOver(any(Session.class));
+    }
+
+    /**
+     * Benchmark: wire size of a submission, and what grading it through
+     * {@link TriviaService#submitChoice} allocates per answer on the caller and the mailbox
+     * threads together (the hand-off to the mailbox, the score update and the leaderboard event).
+     */
+    @Test
+    @Tag("benchmark")
+    void compactSubmission_sizeAndGradingAllocation() throws Exception {
+        byte[] compact = CompactAnswer.encode(4, 2);
+        byte[] legacy = new ObjectMapper().writeValueAsBytes(Map.of(
+                "sessionId", sessionId, "userId", "alice", "answer", "Lionel Richie & The Commodores"));
+        assertTrue(compact.length <= 4);
+
+        Session session = sessionService.getSession(sessionId);
+        int correct = triviaService.getCurrentFrame(sessionId).getCorrectChoiceId();
+        byte[] answerBody = CompactAnswer.encode(0, correct);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int rounds = 20_000;
+        for (int pass = 0; pass < 2; pass++) {
+            long before = allocatedByCallerAndMailboxes(threads);
+            for (int i = 0; i < rounds; i++) {
+                long answer = CompactAnswer.parse(answerBody);
+                assertTrue(triviaService.submitChoice(sessionId, "alice", CompactAnswer.choiceId(answer)));
+                sessionExecutor.run(sessionId, session::resetAnsweredUsers);
+            }
+            long perAnswer = (allocatedByCallerAndMailboxes(threads) - before) / rounds;
+            if (pass == 1) {
+                System.out.printf("Answer frame body: compact %d bytes, legacy %d bytes; grading through submitChoice allocated %d bytes per answer%n",
+                        compact.length, legacy.length, perAnswer);
+            }
+        }
+        assertEquals(2 * rounds, session.getUserScore("alice"));
+    }
+
+    private static long allocatedByCallerAndMailboxes(com.sun.management.ThreadMXBean threads) {
+        long total = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("session-loop")) {
+                total += threads.getThreadAllocatedBytes(thread.getId());
+            }
+        }
+        return total;
+    }
+}
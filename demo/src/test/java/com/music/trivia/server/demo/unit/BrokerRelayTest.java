@@ -0,0 +1,198 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.config.EmbeddedStompBroker;
+import com.music.trivia.server.demo.config.StompTcpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two relay nodes sharing one embedded broker, wired the way {@code trivia.broker.mode=relay}
+ * wires them, minus the WebSocket transport: client frames go straight into each node's relay
+ * handler and what it would send to the browser is captured from its outbound channel.
+ */
+class BrokerRelayTest {
+
+    private EmbeddedStompBroker broker;
+    private final List<Node> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        broker = new EmbeddedStompBroker(0);
+        broker.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(node -> node.relay.stop());
+        broker.stop();
+    }
+
+    @Test
+    void gameAndRosterBroadcastsReachPlayersOnOtherNodes() throws Exception {
+        Node a = node();
+        Node b = node();
+        a.connectAndSubscribe("alice", "/topic/game/s1", "/topic/users/s1");
+        b.connectAndSubscribe("bob", "/topic/game/s1", "/topic/users/s1");
+        b.connectAndSubscribe("mallory", "/topic/game/other");
+
+        a.broadcast("/topic/game/s1", "{\"type\":\"NEW_QUESTION\"}");
+        b.broadcast("/topic/users/s1", "{\"type\":\"USER_LIST\"}");
+
+        for (Node node : List.of(a, b)) {
+            // The two broadcasts come from different nodes, so they may arrive in either order
+            Map<String, Message<?>> received = new HashMap<>();
+            for (int i = 0; i < 2; i++) {
+                Message<?> message = node.next(StompCommand.MESSAGE);
+                assertNotNull(message);
+                received.put(SimpMessageHeaderAccessor.getDestination(message.getHeaders()), message);
+            }
+            Message<?> game = received.get("/topic/game/s1");
+            assertEquals("{\"type\":\"NEW_QUESTION\"}", new String((byte[]) game.getPayload(), StandardCharsets.UTF_8));
+            assertEquals(node == a ? "alice" : "bob", SimpMessageHeaderAccessor.getSessionId(game.getHeaders()));
+            assertTrue(received.containsKey("/topic/users/s1"));
+        }
+        assertNull(b.outbound.poll(200, TimeUnit.MILLISECONDS), "mallory is not in s1");
+        assertEquals(2, broker.getPublished());
+        assertEquals(4, broker.getDelivered());
+    }
+
+    /** Benchmark: broadcast-to-delivery latency through the relay versus the in-process simple broker. */
+    @Test
+    @Tag("benchmark")
+    void crossNodeFanoutLatency() throws Exception {
+        Node a = node();
+        Node b = node();
+        b.connectAndSubscribe("bob", "/topic/game/s1");
+
+        BlockingQueue<Message<?>> local = new LinkedBlockingQueue<>();
+        SimpleBrokerMessageHandler simple = new SimpleBrokerMessageHandler(new ExecutorSubscribableChannel(),
+                (MessageChannel) (message, timeout) -> local.add(message), new ExecutorSubscribableChannel(), List.of("/topic"));
+        simple.start();
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setSessionId("carol");
+        simple.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setSessionId("carol");
+        subscribe.setSubscriptionId("0");
+        subscribe.setDestination("/topic/game/s1");
+        simple.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+
+        int rounds = 2_000;
+        long[] simpleNanos = new long[rounds];
+        long[] relayNanos = new long[rounds];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                simple.handleMessage(broadcastMessage("/topic/game/s1", "{\"type\":\"ANSWER_RESULT\",\"n\":" + i + "}"));
+                assertNotNull(local.poll(1, TimeUnit.SECONDS));
+                simpleNanos[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                a.broadcast("/topic/game/s1", "{\"type\":\"ANSWER_RESULT\",\"n\":" + i + "}");
+                assertNotNull(b.next(StompCommand.MESSAGE));
+                relayNanos[i] = System.nanoTime() - start;
+            }
+        }
+        simple.stop();
+
+        Arrays.sort(simpleNanos);
+        Arrays.sort(relayNanos);
+        System.out.printf("Broadcast to subscriber: simple broker p50 %.1f us p99 %.1f us; relayed to another node p50 %.1f us p99 %.1f us (+%.1f us at p50)%n",
+                simpleNanos[rounds / 2] / 1e3, simpleNanos[rounds * 99 / 100] / 1e3,
+                relayNanos[rounds / 2] / 1e3, relayNanos[rounds * 99 / 100] / 1e3,
+                (relayNanos[rounds / 2] - simpleNanos[rounds / 2]) / 1e3);
+        assertTrue(relayNanos[rounds / 2] < TimeUnit.MILLISECONDS.toNanos(50), "relay p50 " + relayNanos[rounds / 2] + " ns");
+    }
+
+    private Node node() throws Exception {
+        Node node = new Node();
+        nodes.add(node);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!node.relay.isBrokerAvailable()) {
+            assertTrue(System.currentTimeMillis() < deadline, "system session never connected");
+            Thread.sleep(10);
+        }
+        return node;
+    }
+
+    private static Message<byte[]> broadcastMessage(String destination, String json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private final class Node {
+        final BlockingQueue<Message<?>> outbound = new LinkedBlockingQueue<>();
+        final StompBrokerRelayMessageHandler relay;
+
+        Node() {
+            relay = new StompBrokerRelayMessageHandler(new ExecutorSubscribableChannel(),
+                    (MessageChannel) (message, timeout) -> outbound.add(message), new ExecutorSubscribableChannel(), List.of("/topic"));
+            relay.setRelayHost("127.0.0.1");
+            relay.setRelayPort(broker.getPort());
+            relay.setTcpClient(new StompTcpClient("127.0.0.1", broker.getPort(), 1));
+            relay.start();
+        }
+
+        void connectAndSubscribe(String sessionId, String... destinations) throws InterruptedException {
+            StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+            connect.setSessionId(sessionId);
+            connect.setAcceptVersion("1.2");
+            connect.setHeartbeat(0, 0);
+            relay.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+            assertNotNull(next(StompCommand.CONNECTED));
+
+            for (int i = 0; i < destinations.length; i++) {
+                StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+                subscribe.setSessionId(sessionId);
+                subscribe.setSubscriptionId("sub-" + i);
+                subscribe.setDestination(destinations[i]);
+                subscribe.setReceipt("r-" + i);
+                relay.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+                // The receipt proves the broker has the subscription before anything is broadcast
+                assertNotNull(next(StompCommand.RECEIPT));
+            }
+        }
+
+        void broadcast(String destination, String json) {
+            relay.handleMessage(broadcastMessage(destination, json));
+        }
+
+        Message<?> next(StompCommand command) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (System.nanoTime() < deadline) {
+                Message<?> message = outbound.poll(100, TimeUnit.MILLISECONDS);
+                if (message != null && StompHeaderAccessor.wrap(message).getCommand() == command) {
+                    return message;
+                }
+            }
+            return null;
+        }
+    }
+}
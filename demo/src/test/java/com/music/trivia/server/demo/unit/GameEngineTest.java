@@ -0,0 +1,98 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.GameEngine;
+import com.music.trivia.server.demo.model.GamePhase;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEngineTest {
+
+    @Test
+    void playsThroughEveryPhase() {
+        GameEngine engine = new GameEngine();
+        assertEquals(GamePhase.LOBBY, engine.getPhase());
+
+        engine.reset(0, GamePhase.QUESTION_OPEN);
+        assertTrue(engine.isOpen(0));
+        assertTrue(engine.transition(0, GamePhase.QUESTION_OPEN, GamePhase.INTERMISSION));
+        assertFalse(engine.isOpen(0));
+        assertEquals(GamePhase.QUESTION_OPEN, engine.advance(0, 2));
+        assertTrue(engine.isOpen(1));
+        assertEquals(GamePhase.GAME_OVER, engine.advance(1, 2));
+        assertEquals(2, engine.getRound());
+    }
+
+    @Test
+    void duplicateTriggersForARoundAreNoOps() {
+        GameEngine engine = new GameEngine();
+        engine.reset(3, GamePhase.QUESTION_OPEN);
+
+        assertTrue(engine.transition(3, GamePhase.QUESTION_OPEN, GamePhase.INTERMISSION));
+        assertFalse(engine.transition(3, GamePhase.QUESTION_OPEN, GamePhase.INTERMISSION));
+        assertEquals(GamePhase.QUESTION_OPEN, engine.advance(3, 10));
+        // The timer firing for round 3 after the intermission already moved on
+        assertNull(engine.advance(3, 10));
+        assertFalse(engine.isOpen(3));
+        assertEquals(4, engine.getRound());
+    }
+
+    @Test
+    void racingAdvancesMoveOnExactlyOnce() throws Exception {
+        int threads = 8;
+        int rounds = 10_000;
+        GameEngine engine = new GameEngine();
+        engine.reset(0, GamePhase.QUESTION_OPEN);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                int from = round;
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<GamePhase>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    results.add(pool.submit(() -> {
+                        go.await();
+                        return engine.advance(from, rounds + 1);
+                    }));
+                }
+                go.countDown();
+                int winners = 0;
+                for (Future<GamePhase> result : results) {
+                    winners += result.get() != null ? 1 : 0;
+                }
+                assertEquals(1, winners, "round " + round);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(rounds, engine.getRound());
+    }
+
+    @Test
+    void sessionPhaseFollowsQuestionsAndRestoredIndex() {
+        Session session = new Session("s1", "pw");
+        assertEquals(GamePhase.LOBBY, session.getPhase());
+        assertNull(session.getCurrentQuestion());
+
+        // Snapshots restore the index before the questions
+        session.setCurrentQuestionIndex(2);
+        session.setTriviaQuestions(List.of(new TriviaQuestion("Q1", "A", List.of("B")),
+                new TriviaQuestion("Q2", "A", List.of("B"))));
+        assertTrue(session.isGameOver());
+        assertNull(session.getCurrentQuestion());
+
+        session.setCurrentQuestionIndex(1);
+        assertEquals(GamePhase.QUESTION_OPEN, session.getPhase());
+        assertEquals(GamePhase.GAME_OVER, session.advanceRound(1));
+        assertNull(session.advanceRound(1));
+    }
+}
@@ -0,0 +1,221 @@
+package com.music.trivia.server.demo.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.trivia.server.demo.config.GameMessageConverter;
+import com.music.trivia.server.demo.model.ClientRequest;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GameMessageCodec;
+import com.music.trivia.server.demo.model.QuestionFrame;
+import com.music.trivia.server.demo.model.RosterLog;
+import com.music.trivia.server.demo.model.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMessageCodecTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static Map<String, User> roster(int players) {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (int i = 0; i < players; i++) {
+            users.put("player-" + i, new User("avatar-" + (i % 12) + ".png", i == 0 ? "creator" : "player", i * 7));
+        }
+        return users;
+    }
+
+    private static Map<String, Integer> scores(int players) {
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        for (int i = 0; i < players; i++) {
+            scores.put("player-" + i, 1000 - i);
+        }
+        return scores;
+    }
+
+    @Test
+    void encodesTheSameJsonAsTheMapPayloads() throws Exception {
+        List<QuestionFrame.Choice> choices = List.of(new QuestionFrame.Choice(0, "Adele"), new QuestionFrame.Choice(1, "Beyoncé"));
+        Map<GameMessage, Object> expected = new LinkedHashMap<>();
+        expected.put(new GameMessage.UserJoin("u1", "s1", "a.png", 0, "player"), Map.of("type", "USER_JOIN",
+                "data", Map.of("userId", "u1", "sessionId", "s1", "avatar", "a.png", "score", 0, "role", "player")));
+        expected.put(new GameMessage.UserList(7, roster(3)), Map.of("type", "USER_LIST", "data", roster(3), "seq", 7));
+        expected.put(new GameMessage.RosterDelta(9, List.of(
+                        new RosterLog.Change(RosterLog.Op.JOIN, "u2", "b.png", "player", 0),
+                        new RosterLog.Change(RosterLog.Op.LEAVE, "u1", null, null, 0))),
+                Map.of("type", "ROSTER_DELTA", "seq", 9, "data", Map.of("changes", List.of(
+                        Map.of("op", "join", "userId", "u2", "avatar", "b.png", "role", "player", "score", 0),
+                        Map.of("op", "leave", "userId", "u1")))));
+        expected.put(new GameMessage.AnswerResult("u1", true, 3, 1, "a.png"), Map.of("type", "ANSWER_RESULT",
+                "data", Map.of("userId", "u1", "isCorrect", true, "score", 3, "rank", 1, "avatar", "a.png")));
+        expected.put(new GameMessage.NewQuestion(2, 10, "Who sang \"Hello\"?", choices), Map.of("type", "NEW_QUESTION",
+                "data", Map.of("index", 2, "total", 10, "question", "Who sang \"Hello\"?", "choices",
+                        List.of(Map.of("id", 0, "text", "Adele"), Map.of("id", 1, "text", "Beyoncé")))));
+        expected.put(new GameMessage.TimerUpdate(42), Map.of("type", "TIMER_UPDATE", "data", Map.of("timeLeft", 42)));
+        expected.put(new GameMessage.StartFailed("No questions available"), Map.of("type", "START_FAILED",
+                "data", Map.of("message", "No questions available")));
+        expected.put(new GameMessage.GameOver(scores(2), 2), Map.of("type", "GAME_OVER", "data", scores(2)));
+        expected.put(new GameMessage.GameOver(scores(1), 500), Map.of("type", "GAME_OVER", "data", scores(1), "totalPlayers", 500));
+        expected.put(new GameMessage.YourRank(7, 120, 500), Map.of("type", "YOUR_RANK",
+                "data", Map.of("rank", 7, "score", 120, "totalPlayers", 500)));
+        expected.put(new GameMessage.EndGame(Map.of("u1", "a.png")), Map.of("type", "END_GAME",
+                "data", Map.of("u1", Map.of("score", 0, "avatar", "a.png"))));
+        expected.put(new GameMessage.RoundDeadline(3, 1_700_000_030_000L, 1_700_000_000_000L, 30_000), Map.of("type", "ROUND_DEADLINE",
+                "data", Map.of("questionIndex", 3, "deadline", 1_700_000_030_000L, "serverTime", 1_700_000_000_000L, "timeLimitMs", 30_000)));
+        expected.put(new GameMessage.AllAnswered(2), Map.of("type", "ALL_ANSWERED", "data", Map.of("correctChoiceId", 2)));
+        expected.put(new GameMessage.ErrorMessage("No question available"), Map.of("type", "ERROR",
+                "data", Map.of("message", "No question available")));
+        expected.put(new GameMessage.UserRemoved("u1"), Map.of("type", "USER_REMOVED", "data", Map.of("userId", "u1")));
+        expected.put(new GameMessage.RemovedFromSession("s1"), Map.of("type", "REMOVED_FROM_SESSION", "data", Map.of("sessionId", "s1")));
+        expected.put(new GameMessage.SessionEnded("s1"), Map.of("type", "SESSION_ENDED", "data", Map.of("sessionId", "s1")));
+
+        for (Map.Entry<GameMessage, Object> entry : expected.entrySet()) {
+            byte[] encoded = GameMessageCodec.encode(entry.getKey());
+            assertEquals(MAPPER.valueToTree(entry.getValue()), MAPPER.readTree(encoded), entry.getKey().type());
+            assertEquals(entry.getKey(), GameMessageCodec.decode(encoded));
+        }
+    }
+
+    @Test
+    void malformedFramesAreRejected() {
+        for (String body : List.of(
+                "",
+                "[]",
+                "{\"type\":\"USER_JOIN\"}",
+                "{\"data\":{\"userId\":\"u1\"},\"type\":\"USER_JOIN\"}",
+                "{\"type\":\"USER_JOIN\",\"data\":{\"userId\":\"u1\",\"sessionId\":\"s1\",\"avatar\":\"a\",\"role\":\"p\"}}",
+                "{\"type\":\"USER_JOIN\",\"data\":{\"userId\":\"u1\",\"sessionId\":\"s1\",\"avatar\":\"a\",\"role\":\"p\",\"score\":\"3\"}}",
+                "{\"type\":\"USER_JOIN\",\"data\":{\"userId\":7,\"sessionId\":\"s1\",\"avatar\":\"a\",\"role\":\"p\",\"score\":0}}",
+                "{\"type\":\"USER_JOIN\",\"data\":{\"userId\":\"u1\",\"sessionId\":\"s1\",\"avatar\":\"a\",\"role\":\"p\",\"score\":0}} {}",
+                "{\"type\":\"NOPE\",\"data\":{}}",
+                "{\"type\":\"USER_JOIN\",\"data\":{\"userId\":\"u1\"")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> GameMessageCodec.decode(body.getBytes(StandardCharsets.UTF_8), GameMessage.UserJoin.class), body);
+        }
+
+        // Every field of an ANSWER_RESULT is required
+        assertThrows(IllegalArgumentException.class, () -> GameMessageCodec.decode(
+                "{\"type\":\"ANSWER_RESULT\",\"data\":{\"userId\":\"u1\",\"avatar\":\"a\",\"score\":3,\"rank\":1}}"
+                        .getBytes(StandardCharsets.UTF_8)));
+
+        // A valid message of the wrong type is refused on its type field
+        byte[] timer = GameMessageCodec.encode(new GameMessage.TimerUpdate(5));
+        assertThrows(IllegalArgumentException.class, () -> GameMessageCodec.decode(timer, GameMessage.UserJoin.class));
+        GameMessageConverter converter = new GameMessageConverter();
+        assertThrows(MessageConversionException.class,
+                () -> converter.fromMessage(MessageBuilder.withPayload(timer).build(), GameMessage.UserJoin.class));
+        assertEquals(new GameMessage.TimerUpdate(5), converter.fromMessage(MessageBuilder.withPayload(timer).build(), GameMessage.class));
+    }
+
+    @Test
+    void clientRequestsAreDecodedStrictly() {
+        GameMessageConverter converter = new GameMessageConverter();
+        Map<String, ClientRequest> valid = new LinkedHashMap<>();
+        valid.put("{\"sessionId\":\"s1\",\"userId\":\"u1\",\"choiceId\":2}", new ClientRequest.SubmitAnswer("s1", "u1", 2, null));
+        valid.put("{\"sessionId\":\"s1\",\"userId\":\"u1\",\"answer\":\"Adele\"}", new ClientRequest.SubmitAnswer("s1", "u1", null, "Adele"));
+        valid.put("{\"sessionId\":\"s1\",\"userId\":\"u1\",\"updates\":{\"avatar\":\"owl.png\"}}",
+                new ClientRequest.UserUpdate("s1", "u1", "owl.png", null, null));
+        valid.put("{\"sessionId\":\"s1\",\"userToRemove\":\"u2\",\"requestingUser\":\"u1\",\"extra\":[1]}",
+                new ClientRequest.RemoveUser("s1", "u2", "u1"));
+        valid.put("{\"creatorId\":\"u1\",\"sessionId\":\"s1\"}", new ClientRequest.CreatorLeave("s1", "u1"));
+        valid.put("{\"sessionId\":\"s1\"}", new ClientRequest.GetCurrentQuestion("s1"));
+        valid.put("{\"sessionId\":\"s1\",\"questionIndex\":3}", new ClientRequest.NextQuestion("s1", 3));
+        valid.put("{\"sessionId\":\"s1\"} ", new ClientRequest.NextQuestion("s1", null));
+        for (Map.Entry<String, ClientRequest> entry : valid.entrySet()) {
+            Message<byte[]> message = MessageBuilder.withPayload(entry.getKey().getBytes(StandardCharsets.UTF_8)).build();
+            assertEquals(entry.getValue(), converter.fromMessage(message, entry.getValue().getClass()), entry.getKey());
+        }
+
+        Map<String, Class<? extends ClientRequest>> malformed = new LinkedHashMap<>();
+        malformed.put("{\"sessionId\":\"s1\"}", ClientRequest.UserLeave.class);
+        malformed.put("{\"sessionId\":\"s1\",\"userId\":7}", ClientRequest.StartGame.class);
+        malformed.put("{\"sessionId\":\"s1\",\"userId\":\"u1\"}", ClientRequest.SubmitAnswer.class);
+        malformed.put("{\"sessionId\":\"s1\",\"userId\":\"u1\",\"choiceId\":\"2\"}", ClientRequest.SubmitAnswer.class);
+        malformed.put("{\"sessionId\":\"s1\",\"userId\":\"u1\"}", ClientRequest.UserUpdate.class);
+        malformed.put("{\"sessionId\":\"s1\",\"userId\":\"u1\"} {}", ClientRequest.EndGame.class);
+        malformed.put("[\"s1\"]", ClientRequest.CreatorLeave.class);
+        malformed.put("{}", ClientRequest.GetCurrentQuestion.class);
+        malformed.put("{\"sessionId\":\"s1\",\"questionIndex\":\"3\"}", ClientRequest.NextQuestion.class);
+        for (Map.Entry<String, Class<? extends ClientRequest>> entry : malformed.entrySet()) {
+            Message<byte[]> message = MessageBuilder.withPayload(entry.getKey().getBytes(StandardCharsets.UTF_8)).build();
+            assertThrows(MessageConversionException.class, () -> converter.fromMessage(message, entry.getValue()), entry.getKey());
+        }
+        assertNull(converter.toMessage(new ClientRequest.UserLeave("s1", "u1"), null));
+    }
+
+    /**
+     * Benchmark: allocation and CPU per message for the broadcasts this replaced (a map tree
+     * through the Jackson converter) against records through the codec, and for decoding a
+     * USER_JOIN into a map versus into its record.
+     */
+    @Test
+    @Tag("benchmark")
+    void typedMessagesAllocateLessThanMapPayloads() {
+        MessageConverter jackson = new MappingJackson2MessageConverter();
+        MessageConverter typed = new GameMessageConverter();
+        Map<String, User> roster = roster(50);
+        Map<String, Integer> scores = scores(50);
+
+        report("ANSWER_RESULT", 50_000,
+                () -> jackson.toMessage(Map.of("type", "ANSWER_RESULT", "data", Map.of("userId", "player-7",
+                        "isCorrect", true, "score", 12, "rank", 3, "avatar", "avatar-7.png")), null),
+                () -> typed.toMessage(new GameMessage.AnswerResult("player-7", true, 12, 3, "avatar-7.png"), null));
+        report("USER_LIST x50", 5_000,
+                () -> jackson.toMessage(Map.of("type", "USER_LIST", "data", roster), null),
+                () -> typed.toMessage(new GameMessage.UserList(50, roster), null));
+        report("GAME_OVER x50", 5_000,
+                () -> {
+                    Map<String, Object> message = new HashMap<>();
+                    message.put("type", "GAME_OVER");
+                    message.put("data", new LinkedHashMap<>(scores));
+                    return jackson.toMessage(message, null);
+                },
+                () -> typed.toMessage(new GameMessage.GameOver(new LinkedHashMap<>(scores), 50), null));
+
+        byte[] join = GameMessageCodec.encode(new GameMessage.UserJoin("player-7", "session-1", "avatar-7.png", 0, "player"));
+        Message<byte[]> inbound = MessageBuilder.withPayload(join).build();
+        report("USER_JOIN decode", 50_000,
+                () -> jackson.fromMessage(inbound, Map.class),
+                () -> typed.fromMessage(inbound, GameMessage.UserJoin.class));
+    }
+
+    private static void report(String name, int rounds, Supplier<Object> maps, Supplier<Object> records) {
+        long[] mapCost = measure(rounds, maps);
+        long[] recordCost = measure(rounds, records);
+        System.out.printf("%-16s map path %6d B %6d ns/msg; typed %6d B %6d ns/msg%n",
+                name, mapCost[0], mapCost[1], recordCost[0], recordCost[1]);
+        assertTrue(recordCost[0] < mapCost[0], name + ": typed " + recordCost[0] + " B vs map " + mapCost[0] + " B");
+    }
+
+    /** Bytes allocated and nanoseconds per call, after a warm-up pass. */
+    private static long[] measure(int rounds, Supplier<Object> task) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long sink = 0;
+        for (int i = 0; i < rounds * 3; i++) {
+            sink += task.get() == null ? 0 : 1;
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += task.get() == null ? 0 : 1;
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        assertNotEquals(42, sink);
+        return new long[]{allocated / rounds, nanos / rounds};
+    }
+}
@@ -0,0 +1,91 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.LatencyHistogram;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.SessionMemoryEstimator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesStayWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(5, 1L << 27);
+        Random random = new Random(7);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal-ish answer times: mostly a few seconds, with a long tail
+            values[i] = (long) Math.exp(13 + random.nextGaussian() * 1.2);
+            histogram.record(values[i]);
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = Math.min(sorted[(int) Math.ceil(percentile / 100 * sorted.length) - 1], 1L << 27);
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact, "p" + percentile + " " + reported + " < " + exact);
+            assertTrue(reported <= exact + exact / 16 + 1, "p" + percentile + " " + reported + " vs " + exact);
+        }
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(Math.min(sorted[sorted.length - 1], 1L << 27), histogram.getMax());
+    }
+
+    @Test
+    void smallValuesAreExactAndLargeOnesClamp() {
+        LatencyHistogram histogram = new LatencyHistogram(4, 1000);
+        for (int i = 0; i < 16; i++) {
+            histogram.record(i);
+        }
+        assertEquals(7, histogram.getValueAtPercentile(50));
+        histogram.record(5_000_000);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(0, new LatencyHistogram(4, 1000).getValueAtPercentile(99));
+    }
+
+    @Test
+    void sessionHistogramIsCreatedOnFirstAnswerAndCounted() {
+        Session session = new Session("s1", "pw");
+        long before = session.getEstimatedBytes();
+        assertNull(session.getAnswerLatency());
+
+        session.recordAnswerLatency(1_500_000);
+        session.recordAnswerLatency(2_500_000);
+
+        assertEquals(2, session.getAnswerLatency().getCount());
+        assertEquals(before + SessionMemoryEstimator.ANSWER_LATENCY_BYTES, session.getEstimatedBytes());
+        session.recalculateEstimatedBytes();
+        assertEquals(before + SessionMemoryEstimator.ANSWER_LATENCY_BYTES, session.getEstimatedBytes());
+    }
+
+    /** Benchmark: cost of recording, and that it allocates nothing once warm. */
+    @Test
+    @Tag("benchmark")
+    void recordDoesNotAllocate() {
+        LatencyHistogram histogram = new LatencyHistogram(5, 1L << 27);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int records = 1_000_000;
+        for (int i = 0; i < records; i++) {
+            histogram.record(i * 37L);
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            histogram.record(i * 37L);
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        System.out.printf("LatencyHistogram.record: %.1f ns/op, %d bytes allocated over %d records, %d buckets%n",
+                (double) nanos / records, allocated, records, histogram.getBucketCount());
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,110 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.TopKSketch;
+import com.music.trivia.server.demo.service.LeaderboardService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LeaderboardServiceTest {
+
+    private final SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+
+    @Test
+    void drain_publishesTopPlayersAcrossSessions() {
+        LeaderboardService leaderboard = new LeaderboardService(template, 2, 16, 1024);
+        leaderboard.recordPoints("s1", "alice", 1);
+        leaderboard.recordPoints("s1", "alice", 1);
+        leaderboard.recordPoints("s2", "bob", 3);
+        leaderboard.recordPoints("s2", "carol", 1);
+
+        assertTrue(leaderboard.drain(System.currentTimeMillis()));
+
+        List<LeaderboardService.Entry> top = leaderboard.getTop(LeaderboardService.Window.HOUR);
+        assertEquals(List.of(
+                new LeaderboardService.Entry(1, "bob", "s2", 3, 0),
+                new LeaderboardService.Entry(2, "alice", "s1", 2, 0)
+        ), top);
+        assertEquals(top, leaderboard.getTop(LeaderboardService.Window.DAY));
+        verify(template).convertAndSend(eq("/topic/leaderboard"), any(Object.class));
+
+        // Nothing new: no second broadcast
+        assertFalse(leaderboard.drain(System.currentTimeMillis()));
+        verify(template, times(1)).convertAndSend(eq("/topic/leaderboard"), any(Object.class));
+    }
+
+    @Test
+    void hourWindow_dropsOldBucketsWhileDayKeepsThem() {
+        LeaderboardService leaderboard = new LeaderboardService(template, 5, 16, 1024);
+        leaderboard.recordPoints("s1", "alice", 1);
+        long now = System.currentTimeMillis();
+        leaderboard.drain(now);
+
+        leaderboard.drain(now + 2 * 3_600_000L);
+
+        assertTrue(leaderboard.getTop(LeaderboardService.Window.HOUR).isEmpty());
+        assertEquals(1, leaderboard.getTop(LeaderboardService.Window.DAY).size());
+    }
+
+    @Test
+    void fullQueue_dropsEventsInsteadOfBlocking() {
+        LeaderboardService leaderboard = new LeaderboardService(template, 5, 16, 2);
+        for (int i = 0; i < 5; i++) {
+            leaderboard.recordPoints("s1", "alice", 1);
+        }
+
+        assertEquals(2, leaderboard.getEventsAccepted());
+        assertEquals(3, leaderboard.getEventsDropped());
+    }
+
+    @Test
+    void sketch_findsHeavyHittersInBoundedMemory() {
+        TopKSketch sketch = new TopKSketch(50);
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            // Ten heavy players among 10,000 occasional ones
+            String key = i % 4 == 0 ? "heavy-" + random.nextInt(10) : "player-" + random.nextInt(10_000);
+            sketch.add(key, 1);
+        }
+
+        assertEquals(50, sketch.size());
+        for (TopKSketch.Counter counter : sketch.top(10)) {
+            assertTrue(counter.key().startsWith("heavy-"), counter.key());
+        }
+    }
+
+    @Test
+    void sketch_evictsTheSmallestCounterAndKeepsItsBounds() {
+        TopKSketch sketch = new TopKSketch(16);
+        Map<String, Long> truth = new HashMap<>();
+        Random random = new Random(11);
+        long total = 0;
+        for (int i = 0; i < 50_000; i++) {
+            String key = "player-" + (int) Math.abs(random.nextGaussian() * 20);
+            long points = 1 + random.nextInt(100);
+            sketch.add(key, points);
+            truth.merge(key, points, Long::sum);
+            total += points;
+        }
+
+        List<TopKSketch.Counter> counters = sketch.top(16);
+        assertEquals(total, counters.stream().mapToLong(TopKSketch.Counter::count).sum(), "evictions conserve the total");
+        for (TopKSketch.Counter counter : counters) {
+            long actual = truth.get(counter.key());
+            assertTrue(counter.count() - counter.error() <= actual && actual <= counter.count(), counter.toString());
+        }
+        // Every evicted key's count is at most the smallest tracked count
+        long smallest = counters.get(counters.size() - 1).count();
+        truth.keySet().removeAll(counters.stream().map(TopKSketch.Counter::key).toList());
+        assertTrue(truth.values().stream().allMatch(count -> count <= smallest));
+    }
+}
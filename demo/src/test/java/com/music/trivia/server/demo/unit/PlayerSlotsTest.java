@@ -0,0 +1,76 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.PlayerSlots;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.User;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerSlotsTest {
+
+    @Test
+    void allAnswered_countsOnlyPresentPlayers() {
+        Session session = new Session("s1", "pw");
+        session.addUser("alice", new User("cat", "Creator", 0));
+        session.addUser("bob", new User("dog", "Player", 0));
+        session.addUser("carol", new User("owl", "Player", 0));
+
+        assertTrue(session.recordAnswer("alice", true, 0));
+        assertTrue(session.recordAnswer("bob", false, 2));
+        assertFalse(session.isAllUsersAnswered());
+
+        // Bob leaves after answering and Carol never answers: still not everyone present
+        session.removeUser("bob");
+        assertFalse(session.isAllUsersAnswered());
+        assertTrue(session.recordAnswer("carol", false, 1));
+        assertTrue(session.isAllUsersAnswered());
+    }
+
+    @Test
+    void duplicateAnswersAreIgnored() {
+        Session session = new Session("s1", "pw");
+        session.addUser("alice", new User("cat", "Creator", 0));
+        session.addUser("bob", new User("dog", "Player", 0));
+
+        assertTrue(session.recordAnswer("alice", true, 0));
+        assertFalse(session.recordAnswer("alice", false, 3));
+        assertTrue(session.isAnsweredCorrectly("alice"));
+        assertEquals(0, session.getPlayerSlots().choiceOf("alice"));
+        assertFalse(session.isAllUsersAnswered());
+        assertFalse(session.recordAnswer("nobody", true, 0));
+    }
+
+    @Test
+    void freedSlotsAreReusedWithCleanRoundState() {
+        PlayerSlots slots = new PlayerSlots();
+        assertEquals(0, slots.assign("alice"));
+        assertEquals(1, slots.assign("bob"));
+        slots.recordAnswer("bob", true, 0);
+
+        slots.release("bob");
+        assertEquals(1, slots.assign("carol"));
+        assertFalse(slots.hasAnswered("carol"));
+        assertEquals(PlayerSlots.NO_CHOICE, slots.choiceOf("carol"));
+        assertEquals(0, slots.answeredCount());
+    }
+
+    @Test
+    void roundResetKeepsSlotsAndClearsAnswers() {
+        PlayerSlots slots = new PlayerSlots();
+        for (int i = 0; i < 5000; i++) {
+            slots.assign("u" + i);
+            slots.recordAnswer("u" + i, i % 2 == 0, i % 4);
+        }
+        int capacity = slots.capacity();
+        assertTrue(slots.allAnswered());
+        assertEquals(2500, slots.correctCount());
+
+        slots.resetRound();
+
+        assertEquals(0, slots.answeredCount());
+        assertEquals(5000, slots.size());
+        assertEquals(capacity, slots.capacity());
+        assertTrue(slots.recordAnswer("u7", false, 1));
+    }
+}
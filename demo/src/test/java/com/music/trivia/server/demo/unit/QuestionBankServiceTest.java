@@ -0,0 +1,144 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.SeenQuestionFilter;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.service.QuestionBankService;
+import com.music.trivia.server.demo.service.QuestionCorpusService;
+import com.music.trivia.server.demo.service.TriviaApiClient;
+import com.music.trivia.server.demo.service.TriviaFetchScheduler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionBankServiceTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    /** Questions are numbered from this offset on each request; the stub serves a fixed set of 60. */
+    private final AtomicInteger nextQuestion = new AtomicInteger();
+    private TriviaApiClient client;
+    private TriviaFetchScheduler fetchScheduler;
+    private QuestionBankService questionBank;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api.php", exchange -> {
+            requests.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            int amount = Integer.parseInt(query.replaceAll(".*amount=(\\d+).*", "$1"));
+            StringBuilder body = new StringBuilder("{\"response_code\":0,\"results\":[");
+            for (int i = 0; i < amount; i++) {
+                int n = nextQuestion.getAndIncrement() % 60;
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append("{\"question\":\"Question &quot;").append(n).append("&quot;\",")
+                        .append("\"correct_answer\":\"A").append(n).append("\",")
+                        .append("\"incorrect_answers\":[\"B\",\"C\",\"D\"]}");
+            }
+            body.append("]}");
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        client = new TriviaApiClient("http://127.0.0.1:" + server.getAddress().getPort(), 2000, 2);
+        // No rate limit: these tests are about pooling, TriviaFetchSchedulerTest covers pacing
+        fetchScheduler = new TriviaFetchScheduler(client, 0, 1, 50, 0, 5000, 100, 1000);
+        questionBank = new QuestionBankService(fetchScheduler, new QuestionCorpusService(""), 20, 40);
+    }
+
+    @AfterEach
+    void stopStub() {
+        questionBank.shutdown();
+        fetchScheduler.shutdown();
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void refill_fillsToHighWatermarkAndDecodesHtml() {
+        assertEquals(40, questionBank.refill(QuestionKey.DEFAULT));
+        assertEquals(40, questionBank.getPoolSize(QuestionKey.DEFAULT));
+
+        TriviaQuestion first = questionBank.take(QuestionKey.DEFAULT, 1).join().get(0);
+        assertEquals("Question \"0\"", first.getQuestion());
+        assertEquals(1, questionBank.getHits());
+    }
+
+    @Test
+    void refill_discardsQuestionsAlreadyPooled() {
+        questionBank.refill(QuestionKey.DEFAULT);
+        // The stub wraps around after 60 questions, so the next batch overlaps what is pooled
+        questionBank.take(QuestionKey.DEFAULT, 25).join();
+        nextQuestion.set(30);
+        questionBank.refill(QuestionKey.DEFAULT);
+
+        Set<String> texts = new HashSet<>();
+        for (TriviaQuestion question : questionBank.take(QuestionKey.DEFAULT, 100).join()) {
+            assertTrue(texts.add(question.getQuestion()), "duplicate " + question.getQuestion());
+        }
+        assertTrue(questionBank.getDuplicatesDiscarded() > 0);
+    }
+
+    @Test
+    void take_servesFromPoolWithoutNetworkAndRefillsBelowLowWatermark() throws Exception {
+        questionBank.refill(QuestionKey.DEFAULT);
+        int requestsAfterRefill = requests.get();
+
+        List<TriviaQuestion> game = questionBank.take(QuestionKey.DEFAULT, 10).join();
+        assertEquals(10, game.size());
+        assertEquals(requestsAfterRefill, requests.get());
+
+        // 30 left, then 15: below the low watermark of 20, so a background refill starts
+        questionBank.take(QuestionKey.DEFAULT, 15).join();
+        for (int i = 0; i < 100 && questionBank.getPoolSize(QuestionKey.DEFAULT) < 40; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(40, questionBank.getPoolSize(QuestionKey.DEFAULT));
+        assertEquals(1.0, questionBank.getHitRate());
+    }
+
+    @Test
+    void take_prefersQuestionsThePlayersHaveNotSeen() {
+        questionBank.refill(QuestionKey.DEFAULT);
+        SeenQuestionFilter seen = new SeenQuestionFilter();
+        for (int i = 0; i < 10; i++) {
+            seen.add(SeenQuestionFilter.fingerprint("Question \"" + i + "\""));
+        }
+
+        List<TriviaQuestion> game = questionBank.take(QuestionKey.DEFAULT, 10, seen::mightContain).join();
+
+        for (TriviaQuestion question : game) {
+            assertFalse(seen.mightContain(SeenQuestionFilter.fingerprint(question)), question.getQuestion());
+        }
+        assertEquals(10, questionBank.getRepeatsSkipped());
+        // The skipped questions stay pooled, and fill a draw once nothing unseen is left
+        assertEquals(30, questionBank.getPoolSize(QuestionKey.DEFAULT));
+        assertEquals(30, questionBank.take(QuestionKey.DEFAULT, 30, seen::mightContain).join().size());
+    }
+
+    @Test
+    void take_fromEmptyPoolFallsBackToDirectFetch() {
+        QuestionKey hard = new QuestionKey(QuestionKey.MUSIC_CATEGORY, "hard", "multiple");
+
+        assertEquals(5, questionBank.take(hard, 5).join().size());
+        assertEquals(1, questionBank.getMisses());
+    }
+}
@@ -0,0 +1,138 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.persistence.QuestionCorpus;
+import com.music.trivia.server.demo.persistence.QuestionCorpusWriter;
+import com.music.trivia.server.demo.service.QuestionCorpusService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionCorpusTest {
+
+    private static final QuestionKey EASY = new QuestionKey(QuestionKey.MUSIC_CATEGORY, "easy", "multiple");
+    private static final QuestionKey HARD = new QuestionKey(QuestionKey.MUSIC_CATEGORY, "hard", "multiple");
+
+    @TempDir
+    Path dir;
+
+    private static Path writeCorpus(Path path, int perDifficulty, String prefix) throws IOException {
+        QuestionCorpusWriter writer = new QuestionCorpusWriter();
+        for (QuestionKey key : List.of(EASY, HARD)) {
+            for (int i = 0; i < perDifficulty; i++) {
+                writer.add(key, new TriviaQuestion(prefix + key.difficulty() + " question " + i,
+                        "Answer " + i, List.of("Wrong A", "Wrong B", "Wrong C")));
+            }
+        }
+        writer.write(path);
+        return path;
+    }
+
+    @Test
+    void importJson_roundTripsThroughTheMappedFile() throws IOException {
+        String json = "{\"response_code\":0,\"results\":["
+                + "{\"category\":\"Entertainment: Music\",\"type\":\"multiple\",\"difficulty\":\"easy\","
+                + "\"question\":\"Who sang &quot;Hello&quot;?\",\"correct_answer\":\"Adele\","
+                + "\"incorrect_answers\":[\"Prince\",\"Beyonc&eacute;\",\"Sting\"]},"
+                + "{\"category\":\"Entertainment: Music\",\"type\":\"boolean\",\"difficulty\":\"hard\","
+                + "\"question\":\"Is this true?\",\"correct_answer\":\"True\",\"incorrect_answers\":[\"False\"]},"
+                + "{\"category\":\"Entertainment: Music\",\"type\":\"multiple\",\"difficulty\":\"easy\","
+                + "\"question\":\"Who sang &quot;Hello&quot;?\",\"correct_answer\":\"Adele\","
+                + "\"incorrect_answers\":[\"Prince\",\"Beyonc&eacute;\",\"Sting\"]}"
+                + "]}";
+        QuestionCorpusWriter writer = new QuestionCorpusWriter();
+        assertEquals(2, writer.importJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 12));
+        assertEquals(1, writer.getDuplicates());
+        writer.write(dir.resolve("music.corpus"));
+
+        QuestionCorpus corpus = QuestionCorpus.open(dir.resolve("music.corpus"));
+        assertEquals(2, corpus.size());
+        assertEquals(1, corpus.count(EASY));
+        assertEquals(1, corpus.count(new QuestionKey(12, null, "boolean")));
+        TriviaQuestion question = corpus.sample(EASY, 5, new Random(1)).get(0);
+        assertEquals("Who sang \"Hello\"?", question.getQuestion());
+        assertEquals(List.of("Prince", "Beyoncé", "Sting"), question.getIncorrectAnswers());
+    }
+
+    @Test
+    void sample_drawsWithoutReplacementFromMatchingGroupsOnly() throws IOException {
+        QuestionCorpus corpus = QuestionCorpus.open(writeCorpus(dir.resolve("q.corpus"), 50, ""));
+
+        List<TriviaQuestion> all = corpus.sample(EASY, 50, new Random(7));
+        Set<String> texts = new HashSet<>();
+        for (TriviaQuestion question : all) {
+            assertTrue(question.getQuestion().startsWith("easy"), question.getQuestion());
+            assertTrue(texts.add(question.getQuestion()), "duplicate " + question.getQuestion());
+        }
+        assertEquals(50, texts.size());
+
+        // No difficulty means any difficulty
+        assertEquals(100, corpus.count(QuestionKey.DEFAULT));
+        assertEquals(10, corpus.sample(QuestionKey.DEFAULT, 10, new Random(7)).size());
+        assertEquals(50, corpus.sample(HARD, 80, new Random(7)).size());
+    }
+
+    @Test
+    void service_hotSwapsToANewFileWhileOldDrawsStayValid() throws Exception {
+        Path path = writeCorpus(dir.resolve("live.corpus"), 20, "v1 ");
+        QuestionCorpusService service = new QuestionCorpusService(path.toString());
+        service.load();
+        List<TriviaQuestion> before = service.sample(EASY, 10);
+        assertTrue(before.get(0).getQuestion().startsWith("v1 "));
+        assertNull(service.sample(EASY, 21));
+
+        writeCorpus(path, 40, "v2 ");
+        Files.setLastModifiedTime(path, java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        service.checkForUpdate();
+
+        assertEquals(1, service.getSwaps());
+        assertEquals(80, service.getQuestionCount());
+        assertTrue(service.sample(EASY, 30).get(0).getQuestion().startsWith("v2 "));
+        // Questions drawn before the swap are heap copies and are unaffected
+        assertTrue(before.get(9).getQuestion().startsWith("v1 "));
+    }
+
+    /** Benchmark: sampling cost and heap footprint with 300k questions on disk. */
+    @Test
+    @Tag("benchmark")
+    void sampling300kQuestions_isCheapAndOffHeap() throws IOException {
+        Runtime runtime = Runtime.getRuntime();
+        Path path = writeCorpus(dir.resolve("big.corpus"), 150_000, "");
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        QuestionCorpus corpus = QuestionCorpus.open(path);
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            corpus.sample(EASY, 10, random);
+        }
+        int rounds = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            assertEquals(10, corpus.sample(QuestionKey.DEFAULT, 10, random).size());
+        }
+        long nanosPerGame = (System.nanoTime() - start) / rounds;
+        System.gc();
+        long heapDelta = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+
+        System.out.printf("Corpus of %d questions, %d KB on disk: %d ns per 10-question draw, heap delta %d KB%n",
+                corpus.size(), corpus.getFileBytes() / 1024, nanosPerGame, heapDelta / 1024);
+        assertEquals(300_000, corpus.size());
+        assertTrue(nanosPerGame < 1_000_000, "draw took " + nanosPerGame + " ns");
+        // The mapped file is not on the heap: far less than the file size is retained
+        assertTrue(heapDelta < corpus.getFileBytes() / 2, "heap grew by " + heapDelta + " bytes");
+    }
+}
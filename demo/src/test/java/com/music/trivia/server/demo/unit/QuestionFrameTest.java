@@ -0,0 +1,156 @@
+package com.music.trivia.server.demo.unit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GameMessageCodec;
+import com.music.trivia.server.demo.model.QuestionFrame;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.service.SessionService;
+import com.music.trivia.server.demo.service.TriviaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class QuestionFrameTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TriviaQuestion QUESTION =
+            new TriviaQuestion("Who sang \"Hello\"?", "Adele", List.of("Prince", "Beyoncé", "Sting"));
+
+    private static QuestionFrame frame(Random random) {
+        return QuestionFrame.of(QUESTION, 2, 10, random, GameMessageCodec::encode);
+    }
+
+    @Test
+    void payload_carriesShuffledChoicesButNoAnswerKey() throws Exception {
+        QuestionFrame frame = frame(new Random(3));
+        JsonNode message = MAPPER.readTree(frame.getPayload());
+
+        assertEquals("NEW_QUESTION", message.get("type").asText());
+        JsonNode data = message.get("data");
+        assertEquals(2, data.get("index").asInt());
+        assertEquals(QUESTION.getQuestion(), data.get("question").asText());
+        assertFalse(data.has("correctAnswer"));
+        assertFalse(data.has("incorrectAnswers"));
+        Set<String> texts = new HashSet<>();
+        for (int id = 0; id < data.get("choices").size(); id++) {
+            JsonNode choice = data.get("choices").get(id);
+            assertEquals(id, choice.get("id").asInt());
+            texts.add(choice.get("text").asText());
+            assertEquals(QUESTION.indexOfAnswer(choice.get("text").asText()), frame.answerOrdinalOf(id));
+        }
+        assertEquals(Set.of("Adele", "Prince", "Beyoncé", "Sting"), texts);
+        assertEquals(frame.getCorrectChoiceId(), frame.choiceIdOf("Adele"));
+        assertTrue(frame.isCorrect(frame.choiceIdOf("Adele")));
+    }
+
+    @Test
+    void shuffle_placesTheCorrectAnswerAnywhere() {
+        int[] correctPositions = new int[4];
+        Random random = new Random(11);
+        for (int i = 0; i < 400; i++) {
+            correctPositions[frame(random).getCorrectChoiceId()]++;
+        }
+        for (int count : correctPositions) {
+            assertTrue(count > 50, "correct answer positions " + Arrays.toString(correctPositions));
+        }
+    }
+
+    @Test
+    void sessionFrames_areEncodedOnceAndRebuiltIdentically() throws Exception {
+        TriviaFixture fixture = new TriviaFixture();
+        SessionService sessionService = fixture.sessionService;
+        TriviaService triviaService = fixture.triviaService();
+        String sessionId = sessionService.createEmptySession("pw");
+        triviaService.setTriviaQuestions(sessionId, List.of(QUESTION, new TriviaQuestion("Q2", "Yes", List.of("No"))));
+
+        QuestionFrame first = triviaService.getCurrentFrame(sessionId);
+        assertSame(first, triviaService.getCurrentFrame(sessionId));
+
+        // A restored session has questions but no frames; rebuilding must keep the choice IDs
+        Session session = sessionService.getSession(sessionId);
+        session.setTriviaQuestions(session.getTriviaQuestions());
+        assertNull(session.getCurrentFrame());
+        QuestionFrame rebuilt = triviaService.getCurrentFrame(sessionId);
+        assertNotSame(first, rebuilt);
+        assertArrayEquals(first.getPayload(), rebuilt.getPayload());
+        fixture.shutdown();
+    }
+
+    @Test
+    void startGame_failedOrEmptyFetch_broadcastsStartFailed() throws Exception {
+        TriviaFixture fixture = new TriviaFixture();
+        TriviaService triviaService = fixture.triviaService();
+        String sessionId = fixture.sessionService.createEmptySession("pw");
+
+        when(fixture.questionBank.take(any(), anyInt(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("upstream down")))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        triviaService.startGame(sessionId, 10).join();
+        triviaService.startGame(sessionId, 10).join();
+
+        verify(fixture.template).convertAndSend("/topic/game/" + sessionId, (Object) new GameMessage.StartFailed("Could not fetch questions"));
+        verify(fixture.template).convertAndSend("/topic/game/" + sessionId, (Object) new GameMessage.StartFailed("No questions available"));
+        fixture.shutdown();
+    }
+
+    /** Benchmark: bytes allocated per NEW_QUESTION broadcast, re-serializing vs reusing the frame. */
+    @Test
+    @Tag("benchmark")
+    void cachedFrame_allocatesFarLessPerBroadcast() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        QuestionFrame frame = frame(new Random(1));
+        int rounds = 20_000;
+        long sink = 0;
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            for (int i = 0; i < rounds; i++) {
+                Map<String, Object> message = new HashMap<>();
+                message.put("type", "NEW_QUESTION");
+                message.put("data", QUESTION);
+                sink += ((byte[]) converter.toMessage(message, null).getPayload()).length;
+                sink += TriviaService.frameMessage(frame).getPayload().length;
+            }
+        }
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < rounds; i++) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("type", "NEW_QUESTION");
+            message.put("data", QUESTION);
+            Message<?> converted = converter.toMessage(message, null);
+            sink += ((byte[]) converted.getPayload()).length;
+        }
+        long reserialized = (threads.getThreadAllocatedBytes(thread) - before) / rounds;
+
+        before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < rounds; i++) {
+            sink += TriviaService.frameMessage(frame).getPayload().length;
+        }
+        long cached = (threads.getThreadAllocatedBytes(thread) - before) / rounds;
+
+        System.out.printf("NEW_QUESTION broadcast: re-serialized %d bytes allocated, cached frame %d bytes (%d)%n",
+                reserialized, cached, sink);
+        assertTrue(cached * 2 < reserialized, "cached " + cached + " vs re-serialized " + reserialized);
+    }
+}
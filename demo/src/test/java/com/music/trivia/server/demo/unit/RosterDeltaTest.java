@@ -0,0 +1,218 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.controller.WebSocketController;
+import com.music.trivia.server.demo.model.ClientRequest;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GameMessageCodec;
+import com.music.trivia.server.demo.model.PlayerPrincipal;
+import com.music.trivia.server.demo.model.RosterLog;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.User;
+import com.music.trivia.server.demo.service.RosterService;
+import com.music.trivia.server.demo.service.RoundTransitionScheduler;
+import com.music.trivia.server.demo.service.ScoreboardService;
+import com.music.trivia.server.demo.service.SessionExecutor;
+import com.music.trivia.server.demo.service.SessionService;
+import com.music.trivia.server.demo.service.TriviaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.core.MessagePostProcessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RosterDeltaTest {
+
+    private record Sent(String destination, GameMessage message, int bytes) {
+    }
+
+    private static List<Sent> capture(SimpMessagingTemplate template) {
+        List<Sent> sent = new ArrayList<>();
+        doAnswer(invocation -> {
+            byte[] payload = (byte[]) invocation.<Message<?>>getArgument(1).getPayload();
+            sent.add(new Sent(invocation.getArgument(0), GameMessageCodec.decode(payload), payload.length));
+            return null;
+        }).when(template).send(anyString(), any(Message.class));
+        doAnswer(invocation -> {
+            GameMessage message = invocation.getArgument(2);
+            sent.add(new Sent("/user/" + invocation.getArgument(0) + invocation.getArgument(1), message,
+                    GameMessageCodec.encode(message).length));
+            return null;
+        }).when(template).convertAndSendToUser(anyString(), anyString(), any(Object.class), any(MessagePostProcessor.class));
+        return sent;
+    }
+
+    @Test
+    void logKeepsTheLastChangesInOrder() {
+        RosterLog log = new RosterLog();
+        for (int i = 1; i <= 40; i++) {
+            assertEquals(i, log.append(RosterLog.Op.JOIN, "u" + i, new User("a.png", "player", 0)));
+        }
+
+        assertEquals(List.of(), log.since(40));
+        List<RosterLog.Change> recent = log.since(10);
+        assertEquals(30, recent.size());
+        assertEquals("u11", recent.get(0).userId());
+        assertEquals("u40", recent.get(29).userId());
+        assertNotNull(log.since(40 - RosterLog.CAPACITY));
+        assertNull(log.since(40 - RosterLog.CAPACITY - 1), "dropped out of the log");
+        assertNull(log.since(41), "from before a restart");
+
+        assertNull(log.takeUnpublished(), "too many to catch up from");
+        log.append(RosterLog.Op.LEAVE, "u3", null);
+        assertEquals(List.of(new RosterLog.Change(RosterLog.Op.LEAVE, "u3", null, null, 0)), log.takeUnpublished());
+        assertEquals(List.of(), log.takeUnpublished());
+    }
+
+    @Test
+    void sessionLogsMembershipAndProfileChangesButNotScores() {
+        Session session = new Session("s1", "pw");
+        session.addUser("alice", new User("cat", "Creator", 0));
+        session.addUser("bob", new User("dog", "Player", 0));
+        session.updateUser("bob", "owl", null, null);
+        session.updateUserScore("alice", 30);
+        session.removeUser("bob");
+
+        assertEquals(4, session.getRosterLog().getSeq());
+        assertEquals(4, session.getRoster().getSeq());
+        assertEquals(List.of(RosterLog.Op.JOIN, RosterLog.Op.JOIN, RosterLog.Op.UPDATE, RosterLog.Op.LEAVE),
+                session.getRosterLog().since(0).stream().map(RosterLog.Change::op).toList());
+        assertEquals("owl", session.getRosterLog().since(2).get(0).avatar());
+    }
+
+    @Test
+    void syncSendsTheMissedChangesOrASnapshot() {
+        SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+        List<Sent> sent = capture(template);
+        RosterService rosterService = new RosterService(template);
+        Session session = new Session("s1", "pw");
+        session.addUser("alice", new User("cat", "Creator", 0));
+        session.addUser("bob", new User("dog", "Player", 0));
+
+        rosterService.publishChanges(session);
+        assertEquals("/topic/users/s1", sent.get(0).destination());
+        GameMessage.RosterDelta broadcast = (GameMessage.RosterDelta) sent.get(0).message();
+        assertEquals(2, broadcast.seq());
+        assertEquals(List.of("alice", "bob"), broadcast.changes().stream().map(RosterLog.Change::userId).toList());
+        rosterService.publishChanges(session);
+        assertEquals(1, sent.size(), "nothing new to publish");
+
+        rosterService.sync(session, "carol", null);
+        assertEquals("/user/s1:carol/queue/roster", sent.get(1).destination());
+        assertEquals(new GameMessage.UserList(2, session.getUsers()), sent.get(1).message());
+
+        rosterService.sync(session, "carol", 1L);
+        assertEquals(new GameMessage.RosterDelta(2, List.of(new RosterLog.Change(RosterLog.Op.JOIN, "bob", "dog", "Player", 0))),
+                sent.get(2).message());
+
+        rosterService.sync(session, "carol", 99L);
+        assertInstanceOf(GameMessage.UserList.class, sent.get(3).message());
+        assertEquals(2, rosterService.getSnapshotsSent());
+        assertEquals(3, rosterService.getSyncRequests());
+    }
+
+    @Test
+    void syncIsAnsweredOnTheMailboxOnlyForTheAuthenticatedUser() {
+        SessionService sessionService = mock(SessionService.class);
+        SessionExecutor executor = mock(SessionExecutor.class);
+        RosterService rosterService = mock(RosterService.class);
+        WebSocketController controller = new WebSocketController(sessionService, mock(TriviaService.class),
+                mock(SimpMessagingTemplate.class), executor, mock(ScoreboardService.class),
+                mock(RoundTransitionScheduler.class), rosterService);
+        Session session = new Session("s1", "pw");
+        when(sessionService.getSession("s1")).thenReturn(session);
+        UsernamePasswordAuthenticationToken carol = new UsernamePasswordAuthenticationToken("s1:carol", null, null);
+        UsernamePasswordAuthenticationToken otherSession = new UsernamePasswordAuthenticationToken("s2:carol", null, null);
+
+        controller.handleRosterSync(new ClientRequest.RosterSync("s1", "dave", null), carol);
+        controller.handleRosterSync(new ClientRequest.RosterSync("s1", "carol", null), otherSession);
+        controller.handleRosterSync(new ClientRequest.RosterSync("s1", "carol", null), null);
+        verifyNoInteractions(executor, rosterService);
+
+        controller.handleRosterSync(new ClientRequest.RosterSync("s1", "carol", 4L), carol);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(eq("s1"), task.capture());
+        verifyNoInteractions(rosterService);
+        task.getValue().run();
+        verify(rosterService).sync(session, "carol", 4L);
+    }
+
+    @Test
+    void syncReplyIsDeliveredThroughTheBrokerToThatPlayerOnly() {
+        UserQueueBroker broker = new UserQueueBroker();
+        try {
+            // Two players named carol in different sessions, and another player in carol's session
+            broker.connect("ws-1", PlayerPrincipal.name("s1", "carol"));
+            broker.connect("ws-2", PlayerPrincipal.name("s2", "carol"));
+            broker.connect("ws-3", PlayerPrincipal.name("s1", "dave"));
+            for (String connection : List.of("ws-1", "ws-2", "ws-3")) {
+                broker.subscribe(connection, "/user/queue/roster");
+            }
+            Session session = new Session("s1", "pw");
+            session.addUser("carol", new User("c.png", "player", 0));
+            session.addUser("dave", new User("d.png", "player", 0));
+
+            new RosterService(broker.template).sync(session, "carol", null);
+
+            assertEquals(1, broker.deliveries().size());
+            assertEquals("ws-1", broker.deliveries().get(0).connection());
+            GameMessage.UserList roster = assertInstanceOf(GameMessage.UserList.class, broker.deliveries().get(0).message());
+            assertEquals(2, roster.users().size());
+        } finally {
+            broker.stop();
+        }
+    }
+
+    /**
+     * Measurement: bytes delivered while 500 players join one lobby, each subscriber receiving
+     * every broadcast. Before, each join broadcast USER_JOIN and the whole USER_LIST; now it
+     * broadcasts one ROSTER_DELTA, and the new player fetches one snapshot for itself.
+     */
+    @Test
+    @Tag("benchmark")
+    void lobbyFillSendsLinearRosterTraffic() {
+        int players = 500;
+        long fullListBytes = 0;
+        Map<String, User> users = new LinkedHashMap<>();
+        for (int k = 1; k <= players; k++) {
+            User user = new User("avatar-" + (k % 12) + ".png", k == 1 ? "Creator" : "Player", 0);
+            users.put("player-" + k, user);
+            int join = GameMessageCodec.encode(new GameMessage.UserJoin("player-" + k, "s1", user.getAvatar(), 0, user.getRole())).length;
+            int list = GameMessageCodec.encode(new GameMessage.UserList(k, users)).length;
+            fullListBytes += (long) k * (join + list);
+        }
+
+        SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+        List<Sent> sent = capture(template);
+        RosterService rosterService = new RosterService(template);
+        Session session = new Session("s1", "pw");
+        long deltaBytes = 0;
+        for (int k = 1; k <= players; k++) {
+            session.addUser("player-" + k, new User("avatar-" + (k % 12) + ".png", k == 1 ? "Creator" : "Player", 0));
+            rosterService.publishChanges(session);
+            rosterService.sync(session, "player-" + k, null);
+            int subscribers = k;
+            for (Sent message : sent) {
+                deltaBytes += message.destination().startsWith("/topic/users/") ? (long) subscribers * message.bytes() : message.bytes();
+            }
+            sent.clear();
+        }
+
+        System.out.printf("%d-player lobby fill: full lists %,d B, deltas %,d B (%.1fx less)%n",
+                players, fullListBytes, deltaBytes, (double) fullListBytes / deltaBytes);
+        assertEquals(players, rosterService.getDeltasSent());
+        assertTrue(deltaBytes * 50 < fullListBytes, deltaBytes + " B vs " + fullListBytes + " B");
+    }
+}
@@ -0,0 +1,111 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.service.RoundTransitionScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundTransitionSchedulerTest {
+
+    private RoundTransitionScheduler scheduler;
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void runsAfterIntermission() throws InterruptedException {
+        scheduler = new RoundTransitionScheduler(1, 50);
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        scheduler.schedule("s1", ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, scheduler.getPending());
+        assertEquals(1, scheduler.getRan());
+    }
+
+    @Test
+    void cancelledTransitionNeverRuns() throws InterruptedException {
+        scheduler = new RoundTransitionScheduler(1, 100);
+        AtomicInteger runs = new AtomicInteger();
+
+        scheduler.schedule("s1", runs::incrementAndGet);
+        assertEquals(1, scheduler.getPending());
+        assertTrue(scheduler.cancel("s1"));
+        assertFalse(scheduler.cancel("s1"));
+
+        Thread.sleep(300);
+        assertEquals(0, runs.get());
+        assertEquals(0, scheduler.getPending());
+    }
+
+    @Test
+    void reschedulingReplacesPendingTransition() throws InterruptedException {
+        scheduler = new RoundTransitionScheduler(1, 100);
+        List<String> runs = new ArrayList<>();
+
+        scheduler.schedule("s1", () -> runs.add("first"));
+        scheduler.schedule("s1", () -> runs.add("second"));
+
+        Thread.sleep(400);
+        assertEquals(List.of("second"), runs);
+        assertEquals(1, scheduler.getCancelled());
+    }
+
+    /**
+     * Benchmark: 2,000 games finishing a round at once. A sleeping thread per transition needs
+     * 2,000 threads for the length of the intermission; the shared scheduler needs its pool.
+     */
+    @Test
+    @Tag("benchmark")
+    void twoThousandTransitions_keepThreadCountBounded() throws InterruptedException {
+        int games = 2_000;
+        long intermission = 500;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        int before = threads.getThreadCount();
+        CountDownLatch sleepers = new CountDownLatch(games);
+        for (int i = 0; i < games; i++) {
+            new Thread(() -> {
+                try {
+                    Thread.sleep(intermission);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sleepers.countDown();
+            }).start();
+        }
+        int sleepingPeak = threads.getThreadCount() - before;
+        assertTrue(sleepers.await(30, TimeUnit.SECONDS));
+
+        scheduler = new RoundTransitionScheduler(1, intermission);
+        before = threads.getThreadCount();
+        CountDownLatch transitions = new CountDownLatch(games);
+        for (int i = 0; i < games; i++) {
+            scheduler.schedule("session-" + i, transitions::countDown);
+        }
+        int scheduledPeak = threads.getThreadCount() - before;
+        int pending = scheduler.getPending();
+        assertTrue(transitions.await(30, TimeUnit.SECONDS));
+
+        System.out.printf("%d concurrent intermissions: thread per transition +%d threads; shared scheduler +%d threads (%d pending)%n",
+                games, sleepingPeak, scheduledPeak, pending);
+        assertTrue(scheduledPeak <= 1);
+        assertEquals(games, pending);
+        assertEquals(games, scheduler.getRan());
+    }
+}
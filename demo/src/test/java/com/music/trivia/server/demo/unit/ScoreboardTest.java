@@ -0,0 +1,142 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.PlayerPrincipal;
+import com.music.trivia.server.demo.model.Scoreboard;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.User;
+import com.music.trivia.server.demo.service.ScoreboardService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ScoreboardTest {
+
+    @Test
+    void ranksAreCompetitionRanksWithTiesShared() {
+        Scoreboard scoreboard = new Scoreboard();
+        scoreboard.put("alice", 5);
+        scoreboard.put("bob", 7);
+        scoreboard.put("carol", 5);
+        scoreboard.put("dave", 1);
+
+        assertEquals(1, scoreboard.rank("bob"));
+        assertEquals(2, scoreboard.rank("alice"));
+        assertEquals(2, scoreboard.rank("carol"));
+        assertEquals(4, scoreboard.rank("dave"));
+        assertEquals(0, scoreboard.rank("nobody"));
+
+        assertEquals(List.of(
+                new Scoreboard.Entry("bob", 7, 1),
+                new Scoreboard.Entry("alice", 5, 2),
+                new Scoreboard.Entry("carol", 5, 2)
+        ), scoreboard.top(3));
+    }
+
+    @Test
+    void updatesAndRemovalsKeepOrder() {
+        Scoreboard scoreboard = new Scoreboard();
+        scoreboard.put("alice", 1);
+        scoreboard.put("bob", 2);
+        scoreboard.put("alice", 3);
+        scoreboard.remove("bob");
+
+        assertEquals(1, scoreboard.size());
+        assertEquals(3, scoreboard.getScore("alice"));
+        assertNull(scoreboard.getScore("bob"));
+        assertEquals(List.of(new Scoreboard.Entry("alice", 3, 1)), scoreboard.top(10));
+    }
+
+    @Test
+    void matchesSortedReferenceUnderRandomUpdates() {
+        Scoreboard scoreboard = new Scoreboard();
+        Map<String, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            String userId = "u" + random.nextInt(500);
+            if (random.nextInt(10) == 0) {
+                scoreboard.remove(userId);
+                reference.remove(userId);
+            } else {
+                int score = random.nextInt(50);
+                scoreboard.put(userId, score);
+                reference.put(userId, score);
+            }
+        }
+
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(reference.entrySet());
+        sorted.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Scoreboard.Entry> top = scoreboard.top(sorted.size());
+        assertEquals(sorted.size(), scoreboard.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            String userId = sorted.get(i).getKey();
+            int score = sorted.get(i).getValue();
+            long higher = reference.values().stream().filter(s -> s > score).count();
+            assertEquals(userId, top.get(i).userId());
+            assertEquals(higher + 1, top.get(i).rank());
+            assertEquals(higher + 1, scoreboard.rank(userId));
+        }
+    }
+
+    @Test
+    void largeGameOver_sendsTopNOnceAndRanksPrivately() {
+        SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+        ScoreboardService scoreboardService = new ScoreboardService(template, 2, 3);
+        Session session = new Session("s1", "pw");
+        for (int i = 0; i < 5; i++) {
+            session.addUser("u" + i, new User("a.png", "Player", 0));
+            session.updateUserScore("u" + i, i * 10);
+        }
+
+        scoreboardService.broadcastGameOver(session);
+
+        ArgumentCaptor<Object> gameOver = ArgumentCaptor.forClass(Object.class);
+        verify(template).convertAndSend(eq("/topic/game/s1"), gameOver.capture());
+        assertEquals(new GameMessage.GameOver(Map.of("u4", 40, "u3", 30), 5), gameOver.getValue());
+        for (int i = 0; i < 5; i++) {
+            verify(template).convertAndSendToUser(eq("s1:u" + i), eq("/queue/rank"), any(Object.class));
+        }
+        verify(template, never()).convertAndSend(startsWith("/topic/rank"), any(Object.class));
+    }
+
+    @Test
+    void largeGameOver_ranksAreDeliveredThroughTheBrokerToEachPlayerOnly() {
+        UserQueueBroker broker = new UserQueueBroker();
+        try {
+            ScoreboardService scoreboardService = new ScoreboardService(broker.template, 2, 3);
+            Session session = new Session("s1", "pw");
+            for (int i = 0; i < 5; i++) {
+                session.addUser("u" + i, new User("a.png", "Player", 0));
+                session.updateUserScore("u" + i, i * 10);
+                broker.connect("ws-" + i, PlayerPrincipal.name("s1", "u" + i));
+                broker.subscribe("ws-" + i, "/user/queue/rank");
+            }
+            // A player with the same name in another session
+            broker.connect("ws-other", PlayerPrincipal.name("s2", "u4"));
+            broker.subscribe("ws-other", "/user/queue/rank");
+
+            scoreboardService.broadcastGameOver(session);
+
+            assertEquals(5, broker.deliveries().size());
+            for (UserQueueBroker.Delivery delivery : broker.deliveries()) {
+                int i = Integer.parseInt(delivery.connection().substring("ws-".length()));
+                assertEquals(new GameMessage.YourRank(5 - i, i * 10, 5), delivery.message());
+            }
+        } finally {
+            broker.stop();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.SeenQuestionFilter;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.model.User;
+import com.music.trivia.server.demo.service.SeenQuestionService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeenQuestionFilterTest {
+
+    private static TriviaQuestion question(int n) {
+        return new TriviaQuestion("Which artist recorded track #" + n + "?", "A", List.of("B", "C", "D"));
+    }
+
+    @Test
+    void remembersRecentQuestionsWithLowFalsePositiveRate() {
+        SeenQuestionFilter filter = new SeenQuestionFilter();
+        for (int i = 0; i < SeenQuestionFilter.CAPACITY; i++) {
+            filter.add(SeenQuestionFilter.fingerprint(question(i)));
+        }
+        for (int i = 0; i < SeenQuestionFilter.CAPACITY; i++) {
+            assertTrue(filter.mightContain(SeenQuestionFilter.fingerprint(question(i))));
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            falsePositives += filter.mightContain(SeenQuestionFilter.fingerprint(question(1_000_000 + i))) ? 1 : 0;
+        }
+        assertTrue(falsePositives < probes * 0.05, "false positive rate " + (double) falsePositives / probes);
+    }
+
+    @Test
+    void forgetsTheOldestGenerationAsItRolls() {
+        SeenQuestionFilter filter = new SeenQuestionFilter();
+        int total = 3 * SeenQuestionFilter.CAPACITY;
+        for (int i = 0; i < total; i++) {
+            filter.add(SeenQuestionFilter.fingerprint(question(i)));
+        }
+
+        // The last CAPACITY questions are always remembered
+        for (int i = total - SeenQuestionFilter.CAPACITY; i < total; i++) {
+            assertTrue(filter.mightContain(SeenQuestionFilter.fingerprint(question(i))));
+        }
+        int oldRemembered = 0;
+        for (int i = 0; i < SeenQuestionFilter.CAPACITY; i++) {
+            oldRemembered += filter.mightContain(SeenQuestionFilter.fingerprint(question(i))) ? 1 : 0;
+        }
+        assertTrue(oldRemembered < SeenQuestionFilter.CAPACITY / 10, oldRemembered + " of the oldest still flagged");
+    }
+
+    @Test
+    void seenQuestionsAreScopedToTheSession() {
+        SeenQuestionService service = new SeenQuestionService();
+        Session first = new Session("s1", "pw");
+        first.addUser("alice", new User("a.png", "Creator", 0));
+        service.recordGame(first, List.of(question(1), question(2)));
+        first.removeUser("alice");
+        first.addUser("alice", new User("a.png", "Player", 0));
+        service.recordGame(first, List.of(question(3)));
+
+        LongPredicate seenInFirst = service.seenBy(first);
+        assertTrue(seenInFirst.test(SeenQuestionFilter.fingerprint(question(1))));
+        assertTrue(seenInFirst.test(SeenQuestionFilter.fingerprint(question(3))));
+        assertFalse(seenInFirst.test(SeenQuestionFilter.fingerprint(question(4))));
+
+        // The same name in another session is not taken to be the same player
+        Session second = new Session("s2", "pw");
+        second.addUser("alice", new User("a.png", "Creator", 0));
+        assertFalse(service.seenBy(second).test(SeenQuestionFilter.fingerprint(question(1))));
+    }
+
+    /**
+     * Benchmark: one lobby playing 300 games of 10 from a 4,000-question bank, each game drawn
+     * from 30 random candidates. Counts repeats of questions seen in the previous 100 games, with
+     * and without the filter, and the filter's fixed memory cost.
+     */
+    @Test
+    @Tag("benchmark")
+    void threeHundredGames_repeatsAndMemory() {
+        int bank = 4_000;
+        int games = 300;
+        int withoutFilter = playGames(bank, games, false);
+        Session session = new Session("s1", "pw");
+        long before = session.getEstimatedBytes();
+        int withFilter = playGames(bank, games, true, session);
+        long filterBytes = session.getEstimatedBytes() - before;
+
+        System.out.printf("%d games of 10 from %d questions: %d recent repeats without filter, %d with; filter %d bytes per session%n",
+                games, bank, withoutFilter, withFilter, filterBytes);
+        assertTrue(withFilter * 4 < withoutFilter);
+        assertEquals(SeenQuestionFilter.BYTES, filterBytes);
+        assertTrue(filterBytes < 4096);
+    }
+
+    private static int playGames(int bank, int games, boolean filtered) {
+        return playGames(bank, games, filtered, new Session("scratch", "pw"));
+    }
+
+    private static int playGames(int bank, int games, boolean filtered, Session session) {
+        Random random = new Random(42);
+        List<Set<Integer>> history = new ArrayList<>();
+        int repeats = 0;
+        for (int game = 0; game < games; game++) {
+            List<Integer> candidates = new ArrayList<>();
+            while (candidates.size() < 30) {
+                candidates.add(random.nextInt(bank));
+            }
+            List<Integer> chosen = new ArrayList<>();
+            List<Integer> seen = new ArrayList<>();
+            for (int candidate : candidates) {
+                boolean repeat = filtered && session.getSeenQuestions() != null
+                        && session.getSeenQuestions().mightContain(SeenQuestionFilter.fingerprint(question(candidate)));
+                if (!repeat && chosen.size() < 10 && !chosen.contains(candidate)) {
+                    chosen.add(candidate);
+                } else if (repeat) {
+                    seen.add(candidate);
+                }
+            }
+            for (int i = 0; chosen.size() < 10 && i < seen.size(); i++) {
+                chosen.add(seen.get(i));
+            }
+            Set<Integer> recent = new HashSet<>();
+            for (int i = Math.max(0, history.size() - 100); i < history.size(); i++) {
+                recent.addAll(history.get(i));
+            }
+            for (int n : chosen) {
+                repeats += recent.contains(n) ? 1 : 0;
+            }
+            history.add(new HashSet<>(chosen));
+            List<TriviaQuestion> questions = new ArrayList<>();
+            for (int n : chosen) {
+                questions.add(question(n));
+            }
+            session.markSeen(questions);
+        }
+        return repeats;
+    }
+}
@@ -0,0 +1,222 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.InMemorySessionStorage;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.SessionStorage;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.model.User;
+import com.music.trivia.server.demo.service.SessionExecutor;
+import com.music.trivia.server.demo.service.SessionService;
+import com.music.trivia.server.demo.service.TriviaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionExecutorTest {
+
+    private final SessionStorage storage = new InMemorySessionStorage(Duration.ofHours(1), Duration.ofHours(12));
+
+    @Test
+    void concurrentRepeatAnswers_scoredExactlyOncePerRound() throws Exception {
+        TriviaFixture fixture = new TriviaFixture(storage, 4);
+        SessionService sessionService = fixture.sessionService;
+        TriviaService triviaService = fixture.triviaService();
+
+        int sessions = 20;
+        int usersPerSession = 25;
+        int answersPerUser = 10;
+        List<String> sessionIds = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            String sessionId = sessionService.createEmptySession("pw");
+            for (int u = 0; u < usersPerSession; u++) {
+                sessionService.joinSession(sessionId, "user-" + u, "pw", "a.png", u == 0 ? "Creator" : "Player");
+            }
+            triviaService.setTriviaQuestions(sessionId, List.of(new TriviaQuestion("Q", "A", List.of("B", "C", "D"))));
+            sessionIds.add(sessionId);
+        }
+
+        ExecutorService inbound = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (String sessionId : sessionIds) {
+            for (int u = 0; u < usersPerSession; u++) {
+                String userId = "user-" + u;
+                futures.add(inbound.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < answersPerUser; i++) {
+                        triviaService.submitAnswer(sessionId, userId, "A");
+                    }
+                    return null;
+                }));
+            }
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        inbound.shutdown();
+
+        for (String sessionId : sessionIds) {
+            Session session = storage.getSession(sessionId);
+            for (int u = 0; u < usersPerSession; u++) {
+                assertEquals(1, session.getUserScore("user-" + u));
+            }
+            assertTrue(session.isAllUsersAnswered());
+        }
+        fixture.shutdown();
+    }
+
+    @Test
+    void concurrentScoreIncrements_noUpdateIsLost() throws Exception {
+        SessionExecutor sessionExecutor = new SessionExecutor(storage, 4);
+        int sessions = 8;
+        int users = 4;
+        int incrementsPerThread = 500;
+        List<Session> sessionList = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            Session session = new Session("increments-" + s, "pw");
+            for (int u = 0; u < users; u++) {
+                session.addUser("user-" + u, new User("a.png", "Player", 0));
+            }
+            sessionList.add(session);
+        }
+
+        // Every thread increments every user of every session, so each score is read, bumped
+        // and written back from 8 threads at once; only the mailbox keeps the increments apart.
+        ExecutorService producers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            futures.add(producers.submit(() -> {
+                start.await();
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    for (Session session : sessionList) {
+                        String userId = "user-" + (i % users);
+                        sessionExecutor.run(session.getSessionID(),
+                                () -> session.updateUserScore(userId, session.getUserScore(userId) + 1));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        producers.shutdown();
+
+        for (Session session : sessionList) {
+            int total = sessionExecutor.call(session.getSessionID(),
+                    () -> session.getScores().values().stream().mapToInt(Integer::intValue).sum());
+            assertEquals(8 * incrementsPerThread, total, session.getSessionID());
+        }
+        sessionExecutor.shutdown();
+    }
+
+    @Test
+    void tasksForOneSession_runSequentially() throws Exception {
+        SessionExecutor sessionExecutor = new SessionExecutor(storage, 8);
+        int[] counter = new int[1];
+        int tasks = 100_000;
+        CountDownLatch done = new CountDownLatch(tasks);
+        ExecutorService producers = Executors.newFixedThreadPool(8);
+        for (int p = 0; p < 8; p++) {
+            producers.submit(() -> {
+                for (int i = 0; i < tasks / 8; i++) {
+                    sessionExecutor.execute("session", () -> {
+                        counter[0]++; // deliberately unsynchronized
+                        done.countDown();
+                    });
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        producers.shutdown();
+        assertEquals(tasks, sessionExecutor.call("session", () -> counter[0]));
+        sessionExecutor.shutdown();
+    }
+
+    @Test
+    void blockingCallIntoAnotherSession_isRejectedFromAMailboxAndBoundedOutsideOne() throws Exception {
+        SessionExecutor sessionExecutor = new SessionExecutor(storage, 1, 200);
+
+        // With one worker, a blocking call from A into B could never complete
+        IllegalStateException crossSession = assertThrows(IllegalStateException.class,
+                () -> sessionExecutor.call("a", () -> sessionExecutor.call("b", () -> 1)));
+        assertTrue(crossSession.getMessage().contains("may not block"));
+        assertEquals(2, sessionExecutor.call("a", () -> sessionExecutor.call("a", () -> 2)), "same session runs inline");
+
+        CountDownLatch release = new CountDownLatch(1);
+        sessionExecutor.execute("a", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        IllegalStateException timeout = assertThrows(IllegalStateException.class, () -> sessionExecutor.call("b", () -> 3));
+        assertTrue(timeout.getMessage().contains("Timed out"));
+        release.countDown();
+        assertEquals(4, sessionExecutor.call("b", () -> 4));
+        sessionExecutor.shutdown();
+    }
+
+    /**
+     * Rough benchmark: throughput of score updates spread over many sessions with 1 loop thread
+     * versus one per core.
+     */
+    @Test
+    @Tag("benchmark")
+    void throughput_scalesWithLoopThreads() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        double single = measureUpdatesPerSecond(1);
+        double parallel = measureUpdatesPerSecond(cores);
+        System.out.printf("Session loop score updates/s: 1 thread=%.0f, %d threads=%.0f (x%.1f)%n",
+                single, cores, parallel, parallel / single);
+        assertTrue(parallel > 0 && single > 0);
+    }
+
+    private double measureUpdatesPerSecond(int threads) throws InterruptedException {
+        SessionExecutor sessionExecutor = new SessionExecutor(storage, threads);
+        int sessions = 256;
+        int updatesPerSession = 2_000;
+        List<Session> sessionList = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            Session session = new Session("bench-" + threads + "-" + s, "pw");
+            session.addUser("player", new User("a.png", "Player", 0));
+            sessionList.add(session);
+        }
+        CountDownLatch done = new CountDownLatch(sessions * updatesPerSession);
+        long start = System.nanoTime();
+        for (int i = 0; i < updatesPerSession; i++) {
+            for (Session session : sessionList) {
+                sessionExecutor.execute(session.getSessionID(), () -> {
+                    // A little CPU per update so the measurement isn't purely queue overhead
+                    long hash = 0;
+                    for (int k = 0; k < 200; k++) {
+                        hash = hash * 31 + k;
+                    }
+                    session.updateUserScore("player", session.getUserScore("player") + (hash == 42 ? 2 : 1));
+                    done.countDown();
+                });
+            }
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        for (Session session : sessionList) {
+            assertEquals(updatesPerSession, sessionExecutor.call(session.getSessionID(), () -> session.getUserScore("player")));
+        }
+        sessionExecutor.shutdown();
+        return (double) sessions * updatesPerSession / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,225 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.InMemorySessionStorage;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.SessionStorage;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.persistence.SessionJournal;
+import com.music.trivia.server.demo.service.SessionService;
+import com.music.trivia.server.demo.service.TriviaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionJournalTest {
+
+    @TempDir
+    Path journalDir;
+
+    private SessionStorage newStorage() {
+        return new InMemorySessionStorage(Duration.ofHours(1), Duration.ofHours(12));
+    }
+
+    private SessionJournal startJournal(SessionStorage storage) throws Exception {
+        SessionJournal journal = new SessionJournal(storage, true, journalDir, 1024 * 1024);
+        journal.start();
+        return journal;
+    }
+
+    @Test
+    void replay_restoresMutationsAfterRestart() throws Exception {
+        SessionStorage storage = newStorage();
+        SessionJournal journal = startJournal(storage);
+        TriviaFixture fixture = new TriviaFixture(storage, journal, 2);
+        SessionService sessionService = fixture.sessionService;
+        TriviaService triviaService = fixture.triviaService();
+
+        String sessionId = sessionService.createEmptySession("pw");
+        sessionService.joinSession(sessionId, "alice", "pw", "cat.png", "Creator");
+        sessionService.joinSession(sessionId, "bob", "pw", "dog.png", "Player");
+        sessionService.joinSession(sessionId, "carol", "pw", "owl.png", "Player");
+        triviaService.setTriviaQuestions(sessionId, List.of(
+                new TriviaQuestion("Q1", "A", List.of("B", "C", "D")),
+                new TriviaQuestion("Q2", "A", List.of("B", "C", "D"))));
+        triviaService.submitAnswer(sessionId, "alice", "A");
+        triviaService.submitAnswer(sessionId, "bob", "B");
+        triviaService.advanceRound(sessionId, 0);
+        sessionService.leaveUser(sessionId, "carol");
+        String removedSession = sessionService.createEmptySession("other");
+        sessionService.joinSession(removedSession, "dave", "other", "fox.png", "Creator");
+        sessionService.creatorLeave(removedSession, "dave");
+        journal.stop();
+
+        SessionStorage restoredStorage = newStorage();
+        SessionJournal restored = startJournal(restoredStorage);
+        restored.stop();
+
+        Session session = restoredStorage.getSession(sessionId);
+        assertEquals(1, restoredStorage.size());
+        assertEquals(1, session.getUserScore("alice"));
+        assertEquals(0, session.getUserScore("bob"));
+        assertNull(session.getUser("carol"));
+        assertTrue(session.isCreator("alice"));
+        assertEquals(1, session.getCurrentQuestionIndex());
+        assertEquals("Q2", session.getCurrentQuestion().getQuestion());
+
+        try (Stream<Path> segments = Files.list(journalDir)) {
+            assertEquals(1, segments.count(), "old segments should be compacted away");
+        }
+    }
+
+    @Test
+    void stop_writesEverythingQueuedBeforeTheSegmentIsClosed() throws Exception {
+        SessionStorage storage = newStorage();
+        SessionJournal journal = startJournal(storage);
+        Session session = new Session("s1", "pw");
+        storage.storeSession("s1", session);
+        journal.sessionCreated(session);
+        for (int i = 0; i < 5_000; i++) {
+            journal.answer("s1", "user-" + (i & 7), i);
+        }
+        journal.stop();
+        assertEquals(5_001, journal.getDurableSequence());
+        assertFalse(journal.isFailed());
+
+        SessionJournal restored = startJournal(newStorage());
+        restored.stop();
+        // Replay reached record 5001, then compaction rewrote the one session as record 5002
+        assertEquals(5_002, restored.currentSequence());
+    }
+
+    @Test
+    void failedWrites_areRetriedThenTheJournalRefusesAppends() throws Exception {
+        SessionJournal journal = startJournal(newStorage());
+        journal.answer("s1", "alice", 0);
+        long durable = awaitDurable(journal, journal.currentSequence());
+
+        // Close the writer's segment under it and put a directory where the segment file was, so
+        // the write fails and every attempt to reopen the segment fails too
+        Field field = SessionJournal.class.getDeclaredField("segment");
+        field.setAccessible(true);
+        ((FileChannel) field.get(journal)).close();
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(journalDir)) {
+            segments = files.toList();
+        }
+        assertEquals(1, segments.size());
+        Path segment = segments.get(0);
+        Files.delete(segment);
+        Files.createDirectory(segment);
+
+        journal.answer("s1", "bob", 1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!journal.isFailed() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(journal.isFailed());
+        assertEquals(durable, journal.getDurableSequence());
+        IllegalStateException refused = assertThrows(IllegalStateException.class, () -> journal.answer("s1", "carol", 2));
+        assertInstanceOf(IOException.class, refused.getCause());
+        journal.stop();
+    }
+
+    /**
+     * Benchmark: end-to-end latency of {@link TriviaService#submitAnswer} (the hand-off to the
+     * mailbox, grading and, when enabled, journaling the answer) with the journal enabled and
+     * disabled. The target is a ratio under 1.05.
+     */
+    @Test
+    @Tag("benchmark")
+    void submitAnswer_latencyWithAndWithoutJournal() throws Exception {
+        int players = 100;
+        int rounds = 100;
+        double disabled = Double.MAX_VALUE;
+        double enabled = Double.MAX_VALUE;
+        // Alternate the two, keeping the best of each, so warm-up and noise favour neither
+        for (int run = 0; run < 4; run++) {
+            disabled = Math.min(disabled, answerLatencyNanos(new TriviaFixture(newStorage(), 2), players, rounds));
+            SessionStorage storage = newStorage();
+            SessionJournal journal = startJournal(storage);
+            enabled = Math.min(enabled, answerLatencyNanos(new TriviaFixture(storage, journal, 2), players, rounds));
+            journal.stop();
+            assertFalse(journal.isFailed());
+        }
+        System.out.printf("submitAnswer: %.0f ns without journal, %.0f ns with journal, ratio %.3f (target < 1.05)%n",
+                disabled, enabled, enabled / disabled);
+    }
+
+    /** Mean nanoseconds per {@link TriviaService#submitAnswer}, every player answering every round. */
+    private static double answerLatencyNanos(TriviaFixture fixture, int players, int rounds) throws Exception {
+        try {
+            SessionService sessionService = fixture.sessionService;
+            TriviaService triviaService = fixture.triviaService();
+            String sessionId = sessionService.createEmptySession("pw");
+            for (int i = 0; i < players; i++) {
+                sessionService.joinSession(sessionId, "user-" + i, "pw", "a.png", i == 0 ? "Creator" : "Player");
+            }
+            List<TriviaQuestion> questions = new ArrayList<>();
+            for (int i = 0; i < rounds; i++) {
+                questions.add(new TriviaQuestion("Q" + i, "A", List.of("B", "C", "D")));
+            }
+            triviaService.setTriviaQuestions(sessionId, questions);
+
+            long elapsed = 0;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < players; i++) {
+                    triviaService.submitAnswer(sessionId, "user-" + i, (i & 1) == 0 ? "A" : "B");
+                }
+                elapsed += System.nanoTime() - start;
+                triviaService.advanceRound(sessionId, round);
+            }
+            return (double) elapsed / ((long) players * rounds);
+        } finally {
+            fixture.shutdown();
+        }
+    }
+
+    private static long awaitDurable(SessionJournal journal, long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (journal.getDurableSequence() < sequence && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(sequence, journal.getDurableSequence());
+        return sequence;
+    }
+
+    /**
+     * Rough benchmark: cost on the caller's thread of journaling an answer. The fsync happens on
+     * the writer thread, so this is the only part the answer path pays for.
+     */
+    @Test
+    @Tag("benchmark")
+    void append_costOnCallerThread() throws Exception {
+        SessionStorage storage = newStorage();
+        SessionJournal journal = startJournal(storage);
+        int records = 200_000;
+        for (int i = 0; i < 20_000; i++) {
+            journal.answer("warm-up", "user", i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            journal.answer("0f8fad5b-d9cb-469f-a165-70867728950e", "user-" + (i & 63), i);
+        }
+        long elapsed = System.nanoTime() - start;
+        journal.stop();
+
+        System.out.printf("Journal append: %d records, %.0f ns/record on caller, %d fsync batches, %.1f records/batch%n",
+                records, (double) elapsed / records, journal.getBatchesWritten(),
+                (double) journal.getRecordsAppended() / Math.max(1, journal.getBatchesWritten()));
+        assertEquals(records + 20_000, journal.getDurableSequence());
+    }
+}
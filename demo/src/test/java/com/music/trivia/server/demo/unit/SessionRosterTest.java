@@ -0,0 +1,85 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.RosterSnapshot;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRosterTest {
+
+    @Test
+    void readsShareTheSnapshotUntilTheNextMutation() {
+        Session session = new Session("s1", "pw");
+        session.addUser("alice", new User("cat", "Creator", 0));
+        RosterSnapshot before = session.getRoster();
+
+        assertSame(session.getUsers(), session.getUsers());
+        assertSame(session.getScores(), session.getScores());
+
+        session.updateUserScore("alice", 10);
+        RosterSnapshot after = session.getRoster();
+
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(0, before.getScores().get("alice"));
+        assertEquals(10, after.getScores().get("alice"));
+        assertEquals(10, session.getUser("alice").getScore());
+    }
+
+    @Test
+    void scoreUpdatesDoNotCopyTheRosterUntilItIsRead() {
+        Session session = new Session("s1", "pw");
+        session.addUser("alice", new User("cat", "Creator", 0));
+        session.addUser("bob", new User("dog", "Player", 0));
+        long version = session.getRoster().getVersion();
+
+        for (int score = 1; score <= 1000; score++) {
+            session.updateUserScore("alice", score);
+            assertEquals(score, session.getUserScore("alice"));
+            assertEquals(score, session.getUser("alice").getScore());
+        }
+
+        RosterSnapshot rescored = session.getRoster();
+        assertEquals(version + 1, rescored.getVersion(), "one rebuild for 1000 updates");
+        assertEquals(1000, rescored.getScores().get("alice"));
+        assertEquals(1000, rescored.getUsers().get("alice").getScore());
+        assertSame(rescored, session.getRoster());
+
+        session.removeUser("bob");
+        assertEquals(Map.of("alice", 1000), session.getScores());
+    }
+
+    @Test
+    void snapshotIsUnmodifiableAndDetachedFromLiveUsers() {
+        Session session = new Session("s1", "pw");
+        session.addUser("alice", new User("cat", "Player", 0));
+        Map<String, User> users = session.getUsers();
+
+        assertThrows(UnsupportedOperationException.class, () -> users.put("bob", new User("dog", "Player", 0)));
+        users.get("alice").setScore(99);
+        assertEquals(0, session.getUserScore("alice"));
+
+        session.updateUser("alice", "owl", null, null);
+        assertEquals("owl", session.getUser("alice").getAvatar());
+        assertEquals("Player", session.getUser("alice").getRole());
+    }
+
+    @Test
+    void encodedFormIsCachedPerVersion() {
+        Session session = new Session("s1", "pw");
+        session.addUser("alice", new User("cat", "Player", 0));
+        int[] encodes = {0};
+
+        Object first = session.getRoster().encoded("list", roster -> ++encodes[0]);
+        Object second = session.getRoster().encoded("list", roster -> ++encodes[0]);
+        assertSame(first, second);
+        assertEquals(1, encodes[0]);
+
+        session.removeUser("alice");
+        session.getRoster().encoded("list", roster -> ++encodes[0]);
+        assertEquals(2, encodes[0]);
+    }
+}
@@ -0,0 +1,165 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.InMemorySessionStorage;
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.SessionStorage;
+import com.music.trivia.server.demo.service.SessionExecutor;
+import com.music.trivia.server.demo.service.SessionExpiryService;
+import com.music.trivia.server.demo.service.SessionService;
+import com.music.trivia.server.demo.service.TriviaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SessionStorageTest {
+
+    private static SessionStorage newStorage() {
+        return new InMemorySessionStorage(Duration.ofHours(1), Duration.ofHours(12));
+    }
+
+    @Test
+    void getSession_unknownId_throws() {
+        SessionStorage storage = newStorage();
+
+        assertThrows(IllegalArgumentException.class, () -> storage.getSession("missing"));
+        assertThrows(IllegalArgumentException.class, () -> storage.getSession(null));
+    }
+
+    @Test
+    void expireSessions_evictsOnlyIdleSessions() {
+        SessionStorage storage = newStorage();
+        Session idle = storage.getSession(storage.createSession("pw"));
+        Session active = storage.getSession(storage.createSession("pw"));
+        long sweepAt = System.currentTimeMillis() + Duration.ofHours(2).toMillis();
+        active.setLastActivityMillis(sweepAt - Duration.ofMinutes(5).toMillis());
+
+        assertEquals(List.of(idle.getSessionID()), storage.expireSessions(sweepAt));
+        assertEquals(1, storage.size());
+        assertEquals(1, storage.getExpiryIndex().getEvictedIdle());
+        assertTrue(storage.getExpiryIndex().getLastSweepLagMillis() >= Duration.ofMinutes(59).toMillis());
+        // The active session was re-queued with its new deadline rather than evicted.
+        assertEquals(1, storage.getExpiryIndex().size());
+    }
+
+    @Test
+    void expireSessions_absoluteTtlEvictsEvenActiveSessions() {
+        SessionStorage storage = newStorage();
+        Session old = storage.getSession(storage.createSession("pw"));
+        long sweepAt = System.currentTimeMillis() + Duration.ofHours(13).toMillis();
+        old.setLastActivityMillis(sweepAt - Duration.ofMinutes(1).toMillis());
+
+        assertEquals(List.of(old.getSessionID()), storage.expireSessions(sweepAt));
+        assertEquals(1, storage.getExpiryIndex().getEvictedAbsolute());
+    }
+
+    @Test
+    void expirySweep_tearsDownLikeACreatorLeaving() throws Exception {
+        SessionStorage storage = newStorage();
+        SessionExecutor sessionExecutor = new SessionExecutor(storage, 1);
+        SessionService sessionService = mock(SessionService.class);
+        TriviaService triviaService = mock(TriviaService.class);
+        SessionExpiryService expiry = new SessionExpiryService(storage, sessionService, triviaService, sessionExecutor);
+        String id = storage.createSession("pw");
+
+        assertEquals(List.of(id), expiry.expire(System.currentTimeMillis() + Duration.ofHours(2).toMillis()));
+        sessionExecutor.shutdown();
+
+        verify(triviaService, timeout(1000)).releaseSession(id);
+        verify(sessionService, timeout(1000)).endSession(id);
+        assertFalse(storage.containsSession(id));
+    }
+
+    @Test
+    void expireSessions_skipsSessionsRemovedElsewhere() {
+        SessionStorage storage = newStorage();
+        String id = storage.createSession("pw");
+        storage.removeSession(id);
+
+        assertTrue(storage.expireSessions(System.currentTimeMillis() + Duration.ofDays(1).toMillis()).isEmpty());
+        assertEquals(0, storage.getExpiryIndex().size());
+    }
+
+    @Test
+    void concurrentCreateLookupRemove_noLostSessions() throws Exception {
+        SessionStorage storage = newStorage();
+        int threads = 8;
+        int perThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<String> kept = new ArrayList<>();
+                for (int i = 0; i < perThread; i++) {
+                    String id = storage.createSession("pw");
+                    assertNotNull(storage.getSession(id));
+                    if (i % 2 == 0) {
+                        storage.removeSession(id);
+                    } else {
+                        kept.add(id);
+                    }
+                }
+                return kept;
+            }));
+        }
+        start.countDown();
+
+        int expected = 0;
+        for (Future<List<String>> future : futures) {
+            for (String id : future.get(30, TimeUnit.SECONDS)) {
+                assertNotNull(storage.getSession(id));
+                expected++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(expected, storage.size());
+    }
+
+    /**
+     * Rough benchmark: lookup throughput should not degrade with the number of live sessions.
+     */
+    @Test
+    @Tag("benchmark")
+    void lookupThroughput_staysFlatAsSessionsGrow() {
+        double smallRate = measureLookupRate(100);
+        measureLookupRate(100_000); // warm-up at the large size
+        double largeRate = measureLookupRate(100_000);
+        System.out.printf("SessionStorage lookups/s: 100 sessions=%.0f, 100k sessions=%.0f%n", smallRate, largeRate);
+
+        // Generous bound so the test is stable on noisy machines; the old O(n) scan was
+        // several orders of magnitude slower at 100k sessions.
+        assertTrue(largeRate > smallRate / 20, "lookup throughput collapsed with 100k sessions");
+    }
+
+    private double measureLookupRate(int sessionCount) {
+        SessionStorage storage = newStorage();
+        String[] ids = new String[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            ids[i] = storage.createSession("pw");
+        }
+        int lookups = 1_000_000;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            Session session = storage.getSession(ids[i % sessionCount]);
+            sink += session.getCurrentQuestionIndex();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(0, sink);
+        return lookups / (elapsed / 1e9);
+    }
+}
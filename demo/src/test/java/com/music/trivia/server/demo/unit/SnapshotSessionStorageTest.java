@@ -0,0 +1,91 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.Session;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.model.User;
+import com.music.trivia.server.demo.persistence.SnapshotSessionStorage;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotSessionStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SnapshotSessionStorage newStorage(Path snapshot) {
+        return new SnapshotSessionStorage(Duration.ofHours(1), Duration.ofHours(12), snapshot);
+    }
+
+    @Test
+    void snapshotAndRestore_roundTripsSessionState() throws Exception {
+        Path snapshot = tempDir.resolve("sessions.snapshot");
+        SnapshotSessionStorage storage = newStorage(snapshot);
+        String sessionID = storage.createSession("secret");
+        Session session = storage.getSession(sessionID);
+        session.addUser("alice", new User("cat.png", "Creator", 3));
+        session.addUser("bob", new User("dog.png", "Player", 1));
+        session.setTriviaQuestions(List.of(
+                new TriviaQuestion("Who sang Thriller?", "Michael Jackson", List.of("Prince", "Madonna", "Queen")),
+                new TriviaQuestion("Café del Mar is a?", "Compilation", List.of("Band", "Song", "Album"))));
+        session.setCurrentQuestionIndex(1);
+        session.addAnsweredUser("bob");
+        storage.snapshot();
+
+        SnapshotSessionStorage restored = newStorage(snapshot);
+        restored.restore();
+
+        Session copy = restored.getSession(sessionID);
+        assertEquals("secret", copy.getPassword());
+        assertEquals(session.getCreationTime().toEpochMilli(), copy.getCreationTime().toEpochMilli());
+        assertEquals(3, copy.getUserScore("alice"));
+        assertTrue(copy.isCreator("alice"));
+        assertEquals("dog.png", copy.getUser("bob").getAvatar());
+        assertEquals(1, copy.getCurrentQuestionIndex());
+        assertEquals("Café del Mar is a?", copy.getCurrentQuestion().getQuestion());
+        assertEquals(List.of("Band", "Song", "Album"), copy.getCurrentQuestion().getIncorrectAnswers());
+        assertTrue(copy.getAnsweredUsers().contains("bob"));
+    }
+
+    @Test
+    void restore_missingSnapshot_startsEmpty() {
+        SnapshotSessionStorage storage = newStorage(tempDir.resolve("absent.snapshot"));
+        storage.restore();
+        assertEquals(0, storage.size());
+    }
+
+    /**
+     * Rough benchmark: snapshot and restore time for 10k sessions of 8 players and 10 questions.
+     */
+    @Test
+    @Tag("benchmark")
+    void snapshotAndRestore_tenThousandSessions() throws Exception {
+        Path snapshot = tempDir.resolve("bench.snapshot");
+        SnapshotSessionStorage storage = newStorage(snapshot);
+        List<TriviaQuestion> questions = new java.util.ArrayList<>();
+        for (int q = 0; q < 10; q++) {
+            questions.add(new TriviaQuestion("Question " + q, "Right", List.of("Wrong A", "Wrong B", "Wrong C")));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            Session session = storage.getSession(storage.createSession("pw"));
+            for (int u = 0; u < 8; u++) {
+                session.addUser("player-" + u, new User("avatar-" + u, u == 0 ? "Creator" : "Player", u));
+            }
+            session.setTriviaQuestions(questions);
+        }
+
+        storage.snapshot();
+        SnapshotSessionStorage restored = newStorage(snapshot);
+        restored.restore();
+
+        System.out.printf("Session snapshot: 10k sessions, %d bytes, snapshot %d ms, restore %d ms%n",
+                storage.getLastSnapshotBytes(), storage.getLastSnapshotMillis(), restored.getLastRestoreMillis());
+        assertEquals(10_000, restored.size());
+    }
+}
@@ -0,0 +1,140 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.TimingWheel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long TICK = 100;
+
+    @Test
+    void firesInDeadlineOrder_neverEarly() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        wheel.schedule("c", 950);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 520);
+        List<String> fired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(200, fired::add));
+        assertEquals(1, wheel.advance(300, fired::add));
+        assertEquals(1, wheel.advance(900, fired::add));
+        assertEquals(List.of("a", "b"), fired);
+        assertEquals(1, wheel.advance(1000, fired::add));
+        assertEquals(List.of("a", "b", "c"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        TimingWheel.Timeout<String> timeout = wheel.schedule("cancelled", 500);
+        wheel.schedule("kept", 500);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(1, wheel.size());
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1000, fired::add);
+        assertEquals(List.of("kept"), fired);
+    }
+
+    @Test
+    void cascadesThroughEveryLevel_withinOneTick() {
+        long start = 123_456;
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, start);
+        // One deadline per level, plus one beyond what the top level reaches
+        long[] delays = {3 * TICK, 100 * TICK, 5_000 * TICK, 300_000 * TICK, 20_000_000 * TICK};
+        for (long delay : delays) {
+            wheel.schedule(start + delay, start + delay);
+        }
+
+        for (long delay : delays) {
+            long deadline = start + delay;
+            List<Long> fired = new ArrayList<>();
+            wheel.advance(deadline - TICK, fired::add);
+            assertEquals(List.of(), fired, "fired before " + deadline);
+            wheel.advance(deadline + TICK, fired::add);
+            assertEquals(List.of(deadline), fired);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 10_000);
+        wheel.schedule("late", 5_000);
+        List<String> fired = new ArrayList<>();
+
+        wheel.advance(10_100, fired::add);
+        assertEquals(List.of("late"), fired);
+    }
+
+    /**
+     * Benchmark: 10k concurrent games with 60-second rounds, over ten simulated minutes on a
+     * manual clock. The old scheduler swept every session once a second and sent each one a
+     * TIMER_UPDATE; the wheel fires once per round, when the round's deadline passes.
+     */
+    @Test
+    @Tag("benchmark")
+    void tenThousandGames_timerTrafficAndCpu() {
+        int games = 10_000;
+        long roundMillis = 60_000;
+        int seconds = 600;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        // Old: a per-second sweep of a map of countdowns, one message per session per second
+        Map<String, Integer> timers = new ConcurrentHashMap<>();
+        for (int i = 0; i < games; i++) {
+            timers.put("session-" + i, (int) (i % 60));
+        }
+        long sweepMessages = 0;
+        long cpu = threads.getCurrentThreadCpuTime();
+        for (int second = 0; second < seconds; second++) {
+            for (Map.Entry<String, Integer> entry : timers.entrySet()) {
+                int timeLeft = entry.getValue();
+                if (timeLeft > 0) {
+                    timers.put(entry.getKey(), timeLeft - 1);
+                    Map<String, Object> message = Map.of("type", "TIMER_UPDATE", "data", Map.of("timeLeft", timeLeft - 1));
+                    sweepMessages += message.size() > 0 ? 1 : 0;
+                } else {
+                    timers.put(entry.getKey(), 60);
+                }
+            }
+        }
+        long sweepCpuNanos = threads.getCurrentThreadCpuTime() - cpu;
+
+        // New: one timeout per round, re-armed when it fires; rounds are staggered across the minute
+        long[] now = {0};
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 0);
+        for (int i = 0; i < games; i++) {
+            wheel.schedule(i, (i % 60) * 1000L + 1);
+        }
+        long[] wheelMessages = {0};
+        cpu = threads.getCurrentThreadCpuTime();
+        for (now[0] = TICK; now[0] <= seconds * 1000L; now[0] += TICK) {
+            wheel.advance(now[0], game -> {
+                Map<String, Object> message = Map.of("type", "ROUND_DEADLINE", "data", Map.of("deadline", now[0] + roundMillis));
+                wheelMessages[0] += message.size() > 0 ? 1 : 0;
+                wheel.schedule(game, now[0] + roundMillis);
+            });
+        }
+        long wheelCpuNanos = threads.getCurrentThreadCpuTime() - cpu;
+
+        System.out.printf("%d games over %ds: per-second sweep %d msgs/s, %d ms CPU; timing wheel %d msgs/s, %d ms CPU%n",
+                games, seconds, sweepMessages / seconds, sweepCpuNanos / 1_000_000,
+                wheelMessages[0] / seconds, wheelCpuNanos / 1_000_000);
+        assertEquals(games, wheel.size());
+        assertTrue(sweepMessages / seconds > 9_000);
+        assertTrue(wheelMessages[0] / seconds < 200);
+    }
+}
@@ -0,0 +1,181 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.exception.TriviaApiException;
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.service.TriviaApiClient;
+import com.music.trivia.server.demo.service.TriviaResponseParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriviaApiClientTest {
+
+    private static final String BODY = "{\"response_code\":0,\"results\":["
+            + "{\"type\":\"multiple\",\"difficulty\":\"easy\",\"category\":\"Entertainment: Music\","
+            + "\"question\":\"Who sang &quot;Hello&quot;?\",\"correct_answer\":\"Adele\","
+            + "\"incorrect_answers\":[\"Lionel Richie\",\"Beyonc&eacute;\",\"Prince\"]},"
+            + "{\"question\":\"Plain\",\"correct_answer\":\"Yes\",\"incorrect_answers\":[\"No\"],\"extra\":{\"nested\":[1,2]}}"
+            + "]}";
+
+    private HttpServer server;
+    private ScheduledExecutorService responder;
+    private volatile long responseDelayMillis;
+    private TriviaApiClient client;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1000);
+        responder = Executors.newSingleThreadScheduledExecutor();
+        // Responses are completed later from the scheduler, so the stub holds no thread per request
+        server.createContext("/api.php", exchange ->
+                responder.schedule(() -> respond(exchange), responseDelayMillis, TimeUnit.MILLISECONDS));
+        server.start();
+        client = new TriviaApiClient("http://127.0.0.1:" + server.getAddress().getPort(), 1000, 2);
+    }
+
+    @AfterEach
+    void stopStub() {
+        client.shutdown();
+        responder.shutdownNow();
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange) {
+        try {
+            byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+
+    @Test
+    void parser_handlesInputSplitAtEveryByte() throws IOException {
+        TriviaResponseParser parser = new TriviaResponseParser();
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            parser.feed(bytes, i, 1);
+        }
+        parser.endOfInput();
+
+        List<TriviaQuestion> questions = parser.getQuestions();
+        assertEquals(2, questions.size());
+        assertEquals("Who sang \"Hello\"?", questions.get(0).getQuestion());
+        assertEquals("Adele", questions.get(0).getCorrectAnswer());
+        assertEquals(List.of("Lionel Richie", "Beyoncé", "Prince"), questions.get(0).getIncorrectAnswers());
+        assertEquals(List.of("No"), questions.get(1).getIncorrectAnswers());
+    }
+
+    @Test
+    void parser_rejectsTruncatedBody() {
+        TriviaResponseParser parser = new TriviaResponseParser();
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> {
+            parser.feed(bytes, 0, bytes.length / 2);
+            parser.endOfInput();
+        });
+    }
+
+    @Test
+    void fetchAsync_returnsParsedQuestions() {
+        List<TriviaQuestion> questions = client.fetchAsync(QuestionKey.DEFAULT, 2).join();
+
+        assertEquals(2, questions.size());
+        assertEquals("Adele", questions.get(0).getCorrectAnswer());
+    }
+
+    @Test
+    void fetchAsync_timesOut() {
+        responseDelayMillis = 5000;
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> client.fetchAsync(QuestionKey.DEFAULT, 2).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(TriviaApiException.class, error.getCause());
+    }
+
+    @Test
+    void fetchAsync_canBeCancelled() {
+        responseDelayMillis = 5000;
+        CompletableFuture<List<TriviaQuestion>> fetch = client.fetchAsync(QuestionKey.DEFAULT, 2);
+
+        assertTrue(fetch.cancel(true));
+        assertTrue(fetch.isCancelled());
+    }
+
+    /**
+     * Benchmark: 500 games starting at once. The blocking approach needs a thread per in-flight
+     * request; the async client completes them all on its fixed pool.
+     */
+    @Test
+    @Tag("benchmark")
+    void fiveHundredConcurrentFetches_useFewThreads() throws Exception {
+        responseDelayMillis = 300;
+        int games = 500;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        // The single-threaded stub is the bottleneck here, so allow a generous timeout
+        client.shutdown();
+        client = new TriviaApiClient("http://127.0.0.1:" + server.getAddress().getPort(), 30_000, 2);
+
+        int before = threads.getThreadCount();
+        long start = System.nanoTime();
+        List<CompletableFuture<List<TriviaQuestion>>> fetches = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            fetches.add(client.fetchAsync(QuestionKey.DEFAULT, 2));
+        }
+        int asyncPeak = 0;
+        while (!CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0])).isDone()) {
+            asyncPeak = Math.max(asyncPeak, threads.getThreadCount() - before);
+            Thread.sleep(10);
+        }
+        long asyncMillis = (System.nanoTime() - start) / 1_000_000;
+        for (CompletableFuture<List<TriviaQuestion>> fetch : fetches) {
+            assertEquals(2, fetch.get().size());
+        }
+
+        before = threads.getThreadCount();
+        start = System.nanoTime();
+        ExecutorService blockingPool = Executors.newCachedThreadPool();
+        List<Future<List<TriviaQuestion>>> blocking = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            blocking.add(blockingPool.submit(() -> client.fetch(QuestionKey.DEFAULT, 2)));
+        }
+        int blockingPeak = 0;
+        while (blocking.stream().anyMatch(f -> !f.isDone())) {
+            blockingPeak = Math.max(blockingPeak, threads.getThreadCount() - before);
+            Thread.sleep(10);
+        }
+        long blockingMillis = (System.nanoTime() - start) / 1_000_000;
+        blockingPool.shutdown();
+
+        System.out.printf("%d concurrent game starts: async %d ms, +%d threads; blocking %d ms, +%d threads%n",
+                games, asyncMillis, asyncPeak, blockingMillis, blockingPeak);
+        assertTrue(asyncPeak < 20, "async fetches added " + asyncPeak + " threads");
+        assertTrue(blockingPeak > asyncPeak);
+    }
+}
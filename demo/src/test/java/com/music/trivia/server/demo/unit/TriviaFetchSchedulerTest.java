@@ -0,0 +1,142 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.exception.TriviaApiException;
+import com.music.trivia.server.demo.model.QuestionKey;
+import com.music.trivia.server.demo.model.TriviaQuestion;
+import com.music.trivia.server.demo.service.TriviaApiClient;
+import com.music.trivia.server.demo.service.TriviaFetchScheduler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Runs the scheduler against a local fake of opentdb that records every call it receives. */
+class TriviaFetchSchedulerTest {
+
+    private HttpServer server;
+    private TriviaApiClient client;
+    private TriviaFetchScheduler scheduler;
+    private final AtomicInteger nextQuestion = new AtomicInteger();
+    private final List<Long> callTimes = new CopyOnWriteArrayList<>();
+    private final List<Integer> callAmounts = new CopyOnWriteArrayList<>();
+    /** Maps the call number (from 0) to the response_code the fake returns for it. */
+    private volatile IntUnaryOperator responseCodes = call -> 0;
+
+    @BeforeEach
+    void startFakeUpstream() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api.php", exchange -> {
+            int call = callTimes.size();
+            callTimes.add(System.currentTimeMillis());
+            int amount = Integer.parseInt(exchange.getRequestURI().getQuery().replaceAll(".*amount=(\\d+).*", "$1"));
+            callAmounts.add(amount);
+            int code = responseCodes.applyAsInt(call);
+            StringBuilder body = new StringBuilder("{\"response_code\":").append(code).append(",\"results\":[");
+            for (int i = 0; code == 0 && i < amount; i++) {
+                int n = nextQuestion.getAndIncrement();
+                body.append(i > 0 ? "," : "")
+                        .append("{\"question\":\"Q").append(n).append("\",\"correct_answer\":\"A\",")
+                        .append("\"incorrect_answers\":[\"B\",\"C\",\"D\"]}");
+            }
+            byte[] bytes = body.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        client = new TriviaApiClient("http://127.0.0.1:" + server.getAddress().getPort(), 2000, 2);
+    }
+
+    @AfterEach
+    void stopFakeUpstream() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void fiftyLobbies_areMergedIntoRateLimitedBatches() {
+        scheduler = new TriviaFetchScheduler(client, 100, 1, 50, 50, 10_000, 100, 1000);
+        List<CompletableFuture<List<TriviaQuestion>>> lobbies = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            lobbies.add(scheduler.submit(QuestionKey.DEFAULT, 10));
+        }
+
+        Set<String> seen = new HashSet<>();
+        for (CompletableFuture<List<TriviaQuestion>> lobby : lobbies) {
+            List<TriviaQuestion> questions = lobby.join();
+            assertEquals(10, questions.size());
+            for (TriviaQuestion question : questions) {
+                assertTrue(seen.add(question.getQuestion()), "question handed out twice: " + question.getQuestion());
+            }
+        }
+        // 500 questions in batches of 50: ten upstream calls instead of fifty
+        assertEquals(10, callTimes.size());
+        assertTrue(callAmounts.stream().allMatch(amount -> amount == 50), callAmounts.toString());
+        // One token per 100 ms: nine gaps can't take much less than 900 ms (arrival times jitter a little)
+        long span = callTimes.get(callTimes.size() - 1) - callTimes.get(0);
+        assertTrue(span >= 800, "ten calls went out within " + span + " ms");
+        assertEquals(40, scheduler.getCoalesced());
+        assertEquals(0, scheduler.getQueueDepth());
+        System.out.printf("50 lobbies: %d upstream calls, avg wait %d ms, max wait %d ms%n",
+                scheduler.getBatches(), scheduler.getAverageWaitMillis(), scheduler.getMaxWaitMillis());
+    }
+
+    @Test
+    void rateLimitResponse_backsOffAndRetries() throws Exception {
+        responseCodes = call -> call == 0 ? TriviaApiException.RATE_LIMITED : 0;
+        scheduler = new TriviaFetchScheduler(client, 0, 1, 50, 0, 10_000, 50, 1000);
+
+        List<TriviaQuestion> questions = scheduler.submit(QuestionKey.DEFAULT, 10).get(5, TimeUnit.SECONDS);
+
+        assertEquals(10, questions.size());
+        assertEquals(2, callTimes.size());
+        assertTrue(callTimes.get(1) - callTimes.get(0) >= 45, "retried without backing off");
+        assertEquals(1, scheduler.getRateLimited());
+        assertEquals(0, scheduler.getCurrentBackoffMillis());
+    }
+
+    @Test
+    void requestsExpireWhileUpstreamKeepsRateLimiting() {
+        responseCodes = call -> TriviaApiException.RATE_LIMITED;
+        scheduler = new TriviaFetchScheduler(client, 0, 1, 50, 0, 300, 50, 100);
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> scheduler.submit(QuestionKey.DEFAULT, 10).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TriviaApiException.class, error.getCause());
+        assertEquals(1, scheduler.getExpired());
+        assertTrue(scheduler.getRateLimited() >= 2);
+    }
+
+    @Test
+    void invalidParameterResponse_failsWithoutRetrying() {
+        responseCodes = call -> TriviaApiClient.CODE_INVALID_PARAMETER;
+        scheduler = new TriviaFetchScheduler(client, 0, 1, 50, 0, 10_000, 50, 100);
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> scheduler.submit(QuestionKey.DEFAULT, 10).get(5, TimeUnit.SECONDS));
+        TriviaApiException apiError = assertInstanceOf(TriviaApiException.class, error.getCause());
+        assertEquals(TriviaApiClient.CODE_INVALID_PARAMETER, apiError.getResponseCode());
+        assertEquals(1, callTimes.size());
+        assertEquals(1, scheduler.getFailedBatches());
+    }
+}
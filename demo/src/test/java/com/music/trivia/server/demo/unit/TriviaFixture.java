@@ -0,0 +1,70 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.model.InMemorySessionStorage;
+import com.music.trivia.server.demo.model.SessionStorage;
+import com.music.trivia.server.demo.persistence.SessionJournal;
+import com.music.trivia.server.demo.service.AdmissionControlService;
+import com.music.trivia.server.demo.service.LeaderboardService;
+import com.music.trivia.server.demo.service.QuestionBankService;
+import com.music.trivia.server.demo.service.RoundTimerService;
+import com.music.trivia.server.demo.service.RoundTransitionScheduler;
+import com.music.trivia.server.demo.service.ScoreboardService;
+import com.music.trivia.server.demo.service.SeenQuestionService;
+import com.music.trivia.server.demo.service.SessionExecutor;
+import com.music.trivia.server.demo.service.SessionService;
+import com.music.trivia.server.demo.service.TriviaService;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * The session and trivia services wired together as the application does, with the messaging
+ * template, question bank and scoreboard mocked. Tests that need a {@link TriviaService} build it
+ * here and reach its collaborators through the fields; call {@link #shutdown()} when done.
+ */
+final class TriviaFixture {
+
+    final SessionStorage storage;
+    final SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+    final SessionJournal journal;
+    final SessionExecutor sessionExecutor;
+    final SessionService sessionService;
+    final QuestionBankService questionBank = mock(QuestionBankService.class);
+    final LeaderboardService leaderboard = new LeaderboardService(template, 10, 128, 1024);
+
+    /** In-memory storage, no journaling, two session loops. */
+    TriviaFixture() {
+        this(new InMemorySessionStorage(Duration.ofHours(1), Duration.ofHours(12)), 2);
+    }
+
+    TriviaFixture(SessionStorage storage, int threads) {
+        this(storage, new SessionJournal(storage, false, Path.of("unused"), 0), threads);
+    }
+
+    TriviaFixture(SessionStorage storage, SessionJournal journal, int threads) {
+        this.storage = storage;
+        this.journal = journal;
+        this.sessionExecutor = new SessionExecutor(storage, threads);
+        this.sessionService = new SessionService(storage, template, journal,
+                new AdmissionControlService(storage, 0, 0, 0), sessionExecutor);
+    }
+
+    TriviaService triviaService() {
+        return triviaService("flat");
+    }
+
+    /** A trivia service over this fixture's sessions, scoring with {@code scoring} ("flat" or "time-weighted"). */
+    TriviaService triviaService(String scoring) {
+        return new TriviaService(sessionService, template, journal, sessionExecutor,
+                leaderboard, questionBank,
+                new RoundTimerService(template, 60_000, 100, 0), new RoundTransitionScheduler(1, 5_000),
+                mock(ScoreboardService.class), new SeenQuestionService(), scoring, 1000);
+    }
+
+    void shutdown() throws InterruptedException {
+        sessionExecutor.shutdown();
+    }
+}
@@ -0,0 +1,99 @@
+package com.music.trivia.server.demo.unit;
+
+import com.music.trivia.server.demo.config.GameMessageConverter;
+import com.music.trivia.server.demo.config.WebSocketConfig;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GameMessageCodec;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The in-process broker and user-destination resolution wired the way {@code trivia.broker.mode=simple}
+ * wires them, minus the WebSocket transport and with synchronous channels: connections are
+ * registered and subscribed directly, and what the broker would send to each browser is collected
+ * per connection. Services under test send through {@link #template}.
+ */
+final class UserQueueBroker {
+
+    /** A message the broker delivered to a connection. */
+    record Delivery(String connection, GameMessage message) {
+    }
+
+    final SimpMessagingTemplate template;
+    private final ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+    private final DefaultSimpUserRegistry userRegistry = new DefaultSimpUserRegistry();
+    private final SimpleBrokerMessageHandler broker;
+    private final UserDestinationMessageHandler userDestinations;
+    private final Map<String, Principal> principals = new HashMap<>();
+    private final List<Delivery> deliveries = new ArrayList<>();
+
+    UserQueueBroker() {
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutbound.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                deliveries.add(new Delivery(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()),
+                        GameMessageCodec.decode((byte[]) message.getPayload())));
+            }
+        });
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel,
+                Arrays.asList(WebSocketConfig.BROKER_DESTINATIONS));
+        userDestinations = new UserDestinationMessageHandler(clientInbound, brokerChannel,
+                new DefaultUserDestinationResolver(userRegistry));
+        broker.start();
+        userDestinations.start();
+        template = new SimpMessagingTemplate(brokerChannel);
+        template.setMessageConverter(new GameMessageConverter());
+    }
+
+    /** Registers connection {@code connection} as authenticated under {@code principal}. */
+    void connect(String connection, String principal) {
+        Principal user = new UsernamePasswordAuthenticationToken(principal, null, null);
+        principals.put(connection, user);
+        clientInbound.send(message(SimpMessageType.CONNECT, connection, null));
+        userRegistry.onApplicationEvent(new SessionConnectedEvent(this, message(SimpMessageType.CONNECT_ACK, connection, null), user));
+    }
+
+    /** Subscribes connection {@code connection}, as a browser would, to {@code destination}. */
+    void subscribe(String connection, String destination) {
+        clientInbound.send(message(SimpMessageType.SUBSCRIBE, connection, destination));
+    }
+
+    /** Everything delivered so far, in order. */
+    List<Delivery> deliveries() {
+        return deliveries;
+    }
+
+    void stop() {
+        userDestinations.stop();
+        broker.stop();
+    }
+
+    private Message<byte[]> message(SimpMessageType type, String connection, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(connection);
+        accessor.setUser(principals.get(connection));
+        if (destination != null) {
+            accessor.setSubscriptionId("sub-" + destination);
+            accessor.setDestination(destination);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
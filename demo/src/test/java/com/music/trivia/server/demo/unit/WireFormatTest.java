@@ -0,0 +1,231 @@
+package com.music.trivia.server.demo.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.trivia.server.demo.config.WireFormatNegotiator;
+import com.music.trivia.server.demo.model.CborTranscoder;
+import com.music.trivia.server.demo.model.GameMessage;
+import com.music.trivia.server.demo.model.GameMessageCodec;
+import com.music.trivia.server.demo.model.QuestionFrame;
+import com.music.trivia.server.demo.model.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WireFormatTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static Map<String, User> roster(int players) {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (int i = 0; i < players; i++) {
+            users.put("player-" + i, new User("avatar-" + (i % 12) + ".png", i == 0 ? "creator" : "player", i * 7));
+        }
+        return users;
+    }
+
+    private static Map<String, Integer> scores(int players) {
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        for (int i = 0; i < players; i++) {
+            scores.put("player-" + i, 1000 - i);
+        }
+        return scores;
+    }
+
+    private static GameMessage.NewQuestion question() {
+        return new GameMessage.NewQuestion(3, 10, "Which artist released the album \"21\" in 2011?", List.of(
+                new QuestionFrame.Choice(0, "Adele"), new QuestionFrame.Choice(1, "Beyoncé"),
+                new QuestionFrame.Choice(2, "Rihanna"), new QuestionFrame.Choice(3, "Lady Gaga")));
+    }
+
+    @Test
+    void cborRoundTripsToTheSameJson() throws Exception {
+        List<byte[]> bodies = new ArrayList<>();
+        bodies.add(GameMessageCodec.encode(question()));
+        bodies.add(GameMessageCodec.encode(new GameMessage.UserList(20, roster(20))));
+        bodies.add(GameMessageCodec.encode(new GameMessage.GameOver(scores(3), 500)));
+        bodies.add(GameMessageCodec.encode(new GameMessage.AnswerResult("u1", false, -3, 1, null)));
+        bodies.add("[0, 23, 24, 255, 256, 65536, -1, -24, -25, -65537, 9223372036, -9223372036854775808, 1.5, -0.1, 1e300, true, false, null, \"\", \"日本\"]".getBytes());
+
+        for (byte[] json : bodies) {
+            byte[] cbor = CborTranscoder.jsonToCbor(json);
+            assertEquals(MAPPER.readTree(json), MAPPER.readTree(CborTranscoder.cborToJson(cbor)));
+            assertTrue(cbor.length < json.length, cbor.length + " B of CBOR for " + json.length + " B of JSON");
+        }
+        // Definite lengths, half floats and tags from other encoders are read too
+        assertEquals(MAPPER.readTree("{\"a\":1,\"b\":[2,3],\"c\":1.0,\"d\":\"2013-03-21\"}"), MAPPER.readTree(CborTranscoder.cborToJson(
+                HexFormat.of().parseHex("a4616101616282020361" + "63f93c00" + "6164c06a323031332d30332d3231"))));
+        assertEquals(MAPPER.readTree("[-1000,\"AQI=\"]"), MAPPER.readTree(CborTranscoder.cborToJson(HexFormat.of().parseHex("823903e7420102"))));
+    }
+
+    @Test
+    void malformedCborIsRejected() {
+        byte[] deep = new byte[CborTranscoder.MAX_DEPTH + 2];
+        java.util.Arrays.fill(deep, (byte) 0x81);
+        for (byte[] cbor : List.of(
+                new byte[0],
+                HexFormat.of().parseHex("ff"),
+                HexFormat.of().parseHex("bf6161"),
+                HexFormat.of().parseHex("9f01"),
+                HexFormat.of().parseHex("7a7fffffff61"),
+                HexFormat.of().parseHex("a1f501"),
+                HexFormat.of().parseHex("1c"),
+                HexFormat.of().parseHex("0101"),
+                deep)) {
+            assertThrows(IllegalArgumentException.class, () -> CborTranscoder.cborToJson(cbor), HexFormat.of().formatHex(cbor));
+        }
+    }
+
+    @Test
+    void plainWebSocketSessionsCanNegotiateCbor() throws Exception {
+        WireFormatNegotiator negotiator = new WireFormatNegotiator();
+        AtomicReference<WebSocketSession> registered = new AtomicReference<>();
+        WebSocketHandler handler = negotiator.decorate(new AbstractWebSocketHandler() {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) {
+                registered.set(session);
+            }
+        });
+        WebSocketSession plain = mock(WebSocketSession.class);
+        when(plain.getId()).thenReturn("plain");
+        SockJsSession sockJs = mock(SockJsSession.class);
+        when(sockJs.getId()).thenReturn("sockjs");
+        handler.afterConnectionEstablished(plain);
+        WebSocketSession decorated = registered.get();
+        handler.afterConnectionEstablished(sockJs);
+        assertSame(sockJs, registered.get());
+
+        negotiator.inbound().preSend(connect("plain", "application/cbor"), null);
+        negotiator.inbound().preSend(connect("sockjs", "application/cbor"), null);
+        assertTrue(negotiator.isCbor("plain"));
+        assertFalse(negotiator.isCbor("sockjs"), "SockJS is text-only");
+
+        // A broadcast goes out to the CBOR session as a binary frame with a CBOR body
+        byte[] json = GameMessageCodec.encode(question());
+        StompSubProtocolHandler stomp = new StompSubProtocolHandler();
+        stomp.handleMessageToClient(decorated, negotiator.outbound().preSend(broadcast("plain", json), null));
+        stomp.handleMessageToClient(decorated, negotiator.outbound().preSend(broadcast("plain", json), null));
+        ArgumentCaptor<WebSocketMessage<?>> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(plain, times(2)).sendMessage(sent.capture());
+        assertInstanceOf(BinaryMessage.class, sent.getValue());
+        Message<byte[]> frame = new StompDecoder().decode(((BinaryMessage) sent.getValue()).getPayload()).get(0);
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(frame);
+        assertEquals(StompCommand.MESSAGE, headers.getCommand());
+        assertEquals("application/cbor", headers.getFirstNativeHeader("content-type"));
+        assertEquals(MAPPER.readTree(json), MAPPER.readTree(CborTranscoder.cborToJson(frame.getPayload())));
+        assertEquals(1, negotiator.getTranscoded());
+        assertEquals(1, negotiator.getTranscodeCacheHits());
+
+        // ...and as text JSON to the SockJS one
+        stomp.handleMessageToClient(sockJs, negotiator.outbound().preSend(broadcast("sockjs", json), null));
+        ArgumentCaptor<WebSocketMessage<?>> text = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(sockJs).sendMessage(text.capture());
+        assertInstanceOf(TextMessage.class, text.getValue());
+        assertTrue(((TextMessage) text.getValue()).getPayload().endsWith(new String(json, java.nio.charset.StandardCharsets.UTF_8) + "\0"));
+
+        // CBOR sends reach the handlers as JSON; malformed ones are dropped
+        byte[] join = GameMessageCodec.encode(new GameMessage.UserJoin("u1", "s1", "a.png", 0, "player"));
+        Message<?> decoded = negotiator.inbound().preSend(send("plain", CborTranscoder.jsonToCbor(join)), null);
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, StompHeaderAccessor.wrap(decoded).getContentType());
+        assertEquals(new GameMessage.UserJoin("u1", "s1", "a.png", 0, "player"), GameMessageCodec.decode((byte[]) decoded.getPayload()));
+        assertNull(negotiator.inbound().preSend(send("plain", new byte[]{(byte) 0xbf, 0x61}), null));
+        assertEquals(1, negotiator.getRejectedFrames());
+
+        handler.afterConnectionClosed(plain, null);
+        assertFalse(negotiator.isCbor("plain"));
+    }
+
+    /**
+     * Benchmark: body size and per-message CPU for JSON against CBOR, for the broadcasts whose
+     * size grows with the session. CBOR encode is the JSON encode plus transcoding, and decode
+     * is transcoding back plus the JSON decode, as the server does it.
+     */
+    @Test
+    @Tag("benchmark")
+    void cborShrinksTheLargeBroadcasts() {
+        System.out.printf("%-14s %7s %8s %6s %9s %9s %9s %9s%n",
+                "message", "players", "JSON B", "CBOR B", "enc JSON", "enc CBOR", "dec JSON", "dec CBOR");
+        for (int players : new int[]{10, 100, 1000}) {
+            int rounds = Math.max(300, 100_000 / players);
+            for (GameMessage message : List.of(question(), new GameMessage.UserList(players, roster(players)),
+                    new GameMessage.GameOver(scores(players), players))) {
+                byte[] json = GameMessageCodec.encode(message);
+                byte[] cbor = CborTranscoder.jsonToCbor(json);
+                long encodeJson = nanos(rounds, () -> GameMessageCodec.encode(message));
+                long encodeCbor = nanos(rounds, () -> CborTranscoder.jsonToCbor(GameMessageCodec.encode(message)));
+                long decodeJson = nanos(rounds, () -> GameMessageCodec.decode(json));
+                long decodeCbor = nanos(rounds, () -> GameMessageCodec.decode(CborTranscoder.cborToJson(cbor)));
+                System.out.printf("%-14s %7d %8d %6d %7d ns %7d ns %7d ns %7d ns%n", message.type(), players,
+                        json.length, cbor.length, encodeJson, encodeCbor, decodeJson, decodeCbor);
+                assertTrue(cbor.length < json.length, message.type() + " x" + players);
+                assertEquals(message, GameMessageCodec.decode(CborTranscoder.cborToJson(cbor)));
+            }
+        }
+    }
+
+    private static long nanos(int rounds, Supplier<Object> task) {
+        long sink = 0;
+        for (int i = 0; i < rounds * 3; i++) {
+            sink += task.get() == null ? 0 : 1;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += task.get() == null ? 0 : 1;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertNotEquals(42, sink);
+        return elapsed / rounds;
+    }
+
+    private static Message<byte[]> connect(String sessionId, String contentType) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setNativeHeader("content-type", contentType);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<byte[]> send(String sessionId, byte[] cbor) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/app/userJoin");
+        accessor.setContentType(WireFormatNegotiator.APPLICATION_CBOR);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    /** A /topic message as the simple broker hands it to each subscriber. */
+    private static Message<byte[]> broadcast(String sessionId, byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/game/s1");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+}